@@ -11,9 +11,6 @@ public class AdminDashboardMain extends JFrame {
     private String currentUserRole;
     private int currentUserID;
 
-    // Shared database connection for all panels
-    private Connection connection;
-
     // Components used by the global search dialog
     private JTable searchTable;
     private JDialog searchDialog;
@@ -23,9 +20,6 @@ public class AdminDashboardMain extends JFrame {
         this.currentUserRole = role;
         this.currentUserID = userID;
 
-        // Establish DB connection using helper class
-        this.connection = AdminDBUtils.getConnection();
-
         // Build the dashboard UI
         initializeUI();
     }
@@ -88,15 +82,15 @@ public class AdminDashboardMain extends JFrame {
         // TABBED PANELS
         JTabbedPane tabbedPane = new JTabbedPane();
 
-        // Create each admin panel and pass DB connection
-        tabbedPane.addTab("Employees", new AdminEmployeePanel(connection));
-        tabbedPane.addTab("Departments", new AdminDepartmentPanel(connection));
-        tabbedPane.addTab("Positions", new AdminPositionPanel(connection));
-        tabbedPane.addTab("Timesheets", new AdminTimesheetPanel(connection));
-        tabbedPane.addTab("Payroll", new AdminPayrollPanel(connection));
-        tabbedPane.addTab("Deductions", new AdminDeductionPanel(connection));
-        tabbedPane.addTab("Users", new UserAccountsPanel(connection));
-        tabbedPane.addTab("Admin", new AdminUserAccountsPanel(connection));
+        // Create each admin panel; each borrows pooled connections off the EDT as it needs them
+        tabbedPane.addTab("Employees", new AdminEmployeePanel());
+        tabbedPane.addTab("Departments", new AdminDepartmentPanel());
+        tabbedPane.addTab("Positions", new AdminPositionPanel());
+        tabbedPane.addTab("Timesheets", new AdminTimesheetPanel());
+        tabbedPane.addTab("Payroll", new AdminPayrollPanel());
+        tabbedPane.addTab("Deductions", new AdminDeductionPanel());
+        tabbedPane.addTab("Users", new UserAccountsPanel());
+        tabbedPane.addTab("Admin", new AdminUserAccountsPanel());
 
         // Disable restricted tabs for non-admin users
         if ("Employee".equals(currentUserRole)) {
@@ -119,196 +113,200 @@ public class AdminDashboardMain extends JFrame {
             return;
         }
 
-        // Stores all row results found across tables
-        Vector<Object[]> allResults = new Vector<>();
-
         // Stores column names (only assigned by Employee section)
         Vector<String> allColumns = new Vector<>();
 
-        try {
-            // EMPLOYEE SEARCH 
-            // Searches employee details matching basic info
-            String eSql = "SELECT EmployeeID, LastName, FirstName, Age, PhoneNumber, Address "
-                    + "FROM EMPLOYEE WHERE EmployeeID LIKE ? OR LastName LIKE ? OR FirstName LIKE ? "
-                    + "OR PhoneNumber LIKE ? OR Address LIKE ?";
+        // The searches run off the EDT; the results dialog opens when they are done
+        AsyncLoader.run(this, "Error searching", c -> searchAllTables(c, searchText, allColumns), allResults -> {
+            // No match found
+            if (allResults.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "No results found for '" + searchText + "'");
+                return;
+            }
 
-            try (PreparedStatement stmt = connection.prepareStatement(eSql)) {
-                for (int i = 1; i <= 5; i++) {
-                    stmt.setString(i, "%" + searchText + "%");
-                }
+            // Display results in table dialog
+            showSearchDialog(allColumns, allResults, searchText);
+        });
+    }
 
-                try (ResultSet rs = stmt.executeQuery()) {
-
-                    // Define columns only once
-                    allColumns.clear();
-                    allColumns.add("Type");
-                    allColumns.add("ID");
-                    allColumns.add("LastName");
-                    allColumns.add("FirstName");
-                    allColumns.add("Age");
-                    allColumns.add("PhoneNumber");
-                    allColumns.add("Address");
-
-                    // Add each result row to list
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Employee",
-                            rs.getInt("EmployeeID"),
-                            rs.getString("LastName"),
-                            rs.getString("FirstName"),
-                            rs.getObject("Age"),
-                            rs.getString("PhoneNumber"),
-                            rs.getString("Address")
-                        });
-                    }
-                }
+    // Runs the search against every key table and returns one row per match
+    private static Vector<Object[]> searchAllTables(Connection connection, String searchText,
+            Vector<String> allColumns) throws SQLException {
+        // Stores all row results found across tables
+        Vector<Object[]> allResults = new Vector<>();
+
+        // EMPLOYEE SEARCH 
+        // Searches employee details matching basic info
+        String eSql = "SELECT EmployeeID, LastName, FirstName, Age, PhoneNumber, Address "
+                + "FROM EMPLOYEE WHERE EmployeeID LIKE ? OR LastName LIKE ? OR FirstName LIKE ? "
+                + "OR PhoneNumber LIKE ? OR Address LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(eSql)) {
+            for (int i = 1; i <= 5; i++) {
+                stmt.setString(i, "%" + searchText + "%");
             }
 
-            // DEPARTMENT SEARCH
-            String dSql = "SELECT DepartmentID, DepartmentName FROM DEPARTMENT "
-                    + "WHERE DepartmentID LIKE ? OR DepartmentName LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(dSql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Department",
-                            rs.getInt("DepartmentID"),
-                            rs.getString("DepartmentName"),
-                            null, null, null, null
-                        });
-                    }
+            try (ResultSet rs = stmt.executeQuery()) {
+
+                // Define columns only once
+                allColumns.clear();
+                allColumns.add("Type");
+                allColumns.add("ID");
+                allColumns.add("LastName");
+                allColumns.add("FirstName");
+                allColumns.add("Age");
+                allColumns.add("PhoneNumber");
+                allColumns.add("Address");
+
+                // Add each result row to list
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Employee",
+                        rs.getInt("EmployeeID"),
+                        rs.getString("LastName"),
+                        rs.getString("FirstName"),
+                        rs.getObject("Age"),
+                        rs.getString("PhoneNumber"),
+                        rs.getString("Address")
+                    });
                 }
             }
+        }
 
-            // POSITION SEARCH
-            String pSql = "SELECT PositionID, PositionName, DepartmentID, BaseSalary FROM POSITION "
-                    + "WHERE PositionID LIKE ? OR PositionName LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(pSql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Position",
-                            rs.getInt("PositionID"),
-                            rs.getString("PositionName"),
-                            rs.getString("DepartmentID"),
-                            null,
-                            rs.getBigDecimal("BaseSalary"),
-                            null
-                        });
-                    }
+        // DEPARTMENT SEARCH
+        String dSql = "SELECT DepartmentID, DepartmentName FROM DEPARTMENT "
+                + "WHERE DepartmentID LIKE ? OR DepartmentName LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(dSql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Department",
+                        rs.getInt("DepartmentID"),
+                        rs.getString("DepartmentName"),
+                        null, null, null, null
+                    });
                 }
             }
+        }
 
-            // TIMESHEET SEARCH
-            String tSql = "SELECT TimesheetID, EmployeeID, WorkDate, RenderedHours, OvertimeHours "
-                    + "FROM TIMESHEET WHERE TimesheetID LIKE ? OR EmployeeID LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(tSql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Timesheet",
-                            rs.getInt("TimesheetID"),
-                            rs.getInt("EmployeeID"),
-                            rs.getDate("WorkDate").toString(),
-                            rs.getBigDecimal("RenderedHours"),
-                            rs.getBigDecimal("OvertimeHours"),
-                            null
-                        });
-                    }
+        // POSITION SEARCH
+        String pSql = "SELECT PositionID, PositionName, DepartmentID, BaseSalary FROM POSITION "
+                + "WHERE PositionID LIKE ? OR PositionName LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(pSql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Position",
+                        rs.getInt("PositionID"),
+                        rs.getString("PositionName"),
+                        rs.getString("DepartmentID"),
+                        null,
+                        rs.getBigDecimal("BaseSalary"),
+                        null
+                    });
                 }
             }
+        }
 
-            // PAYROLL SEARCH
-            String paySql = "SELECT PayrollID, EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off "
-                    + "FROM PAYROLL WHERE PayrollID LIKE ? OR EmployeeID LIKE ? OR ReferenceNo LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(paySql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-                stmt.setString(3, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Payroll",
-                            rs.getInt("PayrollID"),
-                            rs.getInt("EmployeeID"),
-                            rs.getString("ReferenceNo"),
-                            rs.getDate("Start_Cut_Off").toString(),
-                            rs.getDate("End_Cut_Off").toString(),
-                            null
-                        });
-                    }
+        // TIMESHEET SEARCH
+        String tSql = "SELECT TimesheetID, EmployeeID, WorkDate, RenderedHours, OvertimeHours "
+                + "FROM TIMESHEET WHERE TimesheetID LIKE ? OR EmployeeID LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(tSql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Timesheet",
+                        rs.getInt("TimesheetID"),
+                        rs.getInt("EmployeeID"),
+                        rs.getDate("WorkDate").toString(),
+                        rs.getBigDecimal("RenderedHours"),
+                        rs.getBigDecimal("OvertimeHours"),
+                        null
+                    });
                 }
             }
+        }
 
-            // DEDUCTION SEARCH
-            String d2Sql = "SELECT DeductionID, Description, Default_Amount FROM DEDUCTION "
-                    + "WHERE DeductionID LIKE ? OR Description LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(d2Sql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "Deduction",
-                            rs.getInt("DeductionID"),
-                            rs.getString("Description"),
-                            null, null,
-                            rs.getBigDecimal("Default_Amount"),
-                            null
-                        });
-                    }
+        // PAYROLL SEARCH
+        String paySql = "SELECT PayrollID, EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off "
+                + "FROM PAYROLL WHERE PayrollID LIKE ? OR EmployeeID LIKE ? OR ReferenceNo LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(paySql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+            stmt.setString(3, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Payroll",
+                        rs.getInt("PayrollID"),
+                        rs.getInt("EmployeeID"),
+                        rs.getString("ReferenceNo"),
+                        rs.getDate("Start_Cut_Off").toString(),
+                        rs.getDate("End_Cut_Off").toString(),
+                        null
+                    });
                 }
             }
+        }
 
-            // USER SEARCH
-            String userSql = "SELECT UserID, Username, Role FROM USER "
-                    + "WHERE UserID LIKE ? OR Username LIKE ?";
-
-            try (PreparedStatement stmt = connection.prepareStatement(userSql)) {
-                stmt.setString(1, "%" + searchText + "%");
-                stmt.setString(2, "%" + searchText + "%");
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        allResults.add(new Object[]{
-                            "User",
-                            rs.getInt("UserID"),
-                            rs.getString("Username"),
-                            rs.getString("Role"),
-                            null, null, null
-                        });
-                    }
+        // DEDUCTION SEARCH
+        String d2Sql = "SELECT DeductionID, Description, Default_Amount FROM DEDUCTION "
+                + "WHERE DeductionID LIKE ? OR Description LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(d2Sql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "Deduction",
+                        rs.getInt("DeductionID"),
+                        rs.getString("Description"),
+                        null, null,
+                        rs.getBigDecimal("Default_Amount"),
+                        null
+                    });
                 }
             }
-
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error searching: " + ex.getMessage());
         }
 
-        // No match found
-        if (allResults.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No results found for '" + searchText + "'");
-            return;
+        // USER SEARCH
+        String userSql = "SELECT UserID, Username, Role FROM USER "
+                + "WHERE UserID LIKE ? OR Username LIKE ?";
+
+        try (PreparedStatement stmt = connection.prepareStatement(userSql)) {
+            stmt.setString(1, "%" + searchText + "%");
+            stmt.setString(2, "%" + searchText + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    allResults.add(new Object[]{
+                        "User",
+                        rs.getInt("UserID"),
+                        rs.getString("Username"),
+                        rs.getString("Role"),
+                        null, null, null
+                    });
+                }
+            }
         }
 
-        // Display results in table dialog
-        showSearchDialog(allColumns, allResults, searchText);
+        return allResults;
     }
 
     // Builds and displays the search results popup window
@@ -1,23 +1,23 @@
 
 import java.awt.*;
-import java.sql.*;
+import java.math.BigDecimal;
 import java.util.Vector;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
 public class AdminDeductionPanel extends JPanel {
 
-    // Holds the active DB connection passed from the main dashboard
-    private Connection connection;
+    // Runs DEDUCTION queries off the Event Dispatch Thread
+    private final AsyncLoader loader = new AsyncLoader(this);
 
     // Table displaying all deductions
     private JTable table;
 
-    public AdminDeductionPanel(Connection connection) {
-        super(new BorderLayout(12, 12));
+    // What-if data, reloaded after the table is refreshed
+    private PayrollSimulator simulator;
 
-        // Store reference to database connection
-        this.connection = connection;
+    public AdminDeductionPanel() {
+        super(new BorderLayout(12, 12));
 
         // Set panel background and padding
         setBackground(new Color(30, 30, 30));
@@ -32,18 +32,22 @@ public class AdminDeductionPanel extends JPanel {
         JButton editBtn = createModernButton("Edit Deduction");
         JButton deleteBtn = createModernButton("Delete Deduction");
         JButton refreshBtn = createModernButton("Refresh");
+        JButton whatIfBtn = createModernButton("What-If Default");
 
         // Bind button actions to their respective handlers
         refreshBtn.addActionListener(e -> loadDeductionData());
         addBtn.addActionListener(e -> showAddDeductionDialog());
         editBtn.addActionListener(e -> showEditDeductionDialog());
         deleteBtn.addActionListener(e -> deleteSelectedDeduction());
+        whatIfBtn.addActionListener(e -> showWhatIfDialog());
 
         // Add buttons to the top bar
         buttonPanel.add(addBtn);
         buttonPanel.add(editBtn);
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(whatIfBtn);
+        buttonPanel.add(loader.getIndicator());
 
         // TABLE CONFIGURATION
         table = new JTable();
@@ -60,6 +64,8 @@ public class AdminDeductionPanel extends JPanel {
 
         // Load data immediately on panel creation
         loadDeductionData();
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, this::loadDeductionData, "DEDUCTION");
 
         // Add table into a scroll pane for smooth viewing
         JScrollPane scrollPane = new JScrollPane(table);
@@ -74,27 +80,14 @@ public class AdminDeductionPanel extends JPanel {
 
     private void loadDeductionData() {
         // Loads all deductions from the DB and updates the table model
-        try {
-            String query = "SELECT DeductionID, Description, Default_Amount FROM DEDUCTION ORDER BY DeductionID";
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-
+        simulator = null; // Data may have changed
+        loader.load("Error loading deduction data", c -> new DeductionRepository(c).findAll(), data -> {
             // Setup column names for the table
             Vector<String> columnNames = new Vector<>();
             columnNames.add("DeductionID");
             columnNames.add("Description");
             columnNames.add("Default_Amount");
 
-            // Store each database row into a vector
-            Vector<Vector<Object>> data = new Vector<>();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("DeductionID"));
-                row.add(rs.getString("Description"));
-                row.add(rs.getBigDecimal("Default_Amount"));
-                data.add(row);
-            }
-
             // Create a non-editable table model
             DefaultTableModel model = new DefaultTableModel(data, columnNames) {
                 @Override
@@ -105,12 +98,49 @@ public class AdminDeductionPanel extends JPanel {
 
             // Apply the model to the table
             table.setModel(model);
+        });
+    }
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading deduction data: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+    private void showWhatIfDialog() {
+        // Shows the payroll impact of a deduction default without saving it
+        // With a row selected the selected deduction gets a new default, otherwise a new deduction is added
+        int row = table.getSelectedRow();
+        String prompt = row < 0
+                ? "Default amount of a new deduction:"
+                : "Hypothetical default amount for " + table.getValueAt(row, 1) + ":";
+        Object current = row < 0 ? "" : table.getValueAt(row, 2);
+
+        String input = JOptionPane.showInputDialog(this, prompt, current);
+        if (input == null) {
+            return;
+        }
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(input.trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Default Amount must be a number.");
+            return;
+        }
+        if (amount.signum() < 0) {
+            JOptionPane.showMessageDialog(this, "Amount cannot be negative.");
+            return;
         }
+
+        String description;
+        PayrollSimulator.Scenario scenario;
+        if (row < 0) {
+            description = "New deduction of " + amount + " per payroll";
+            scenario = new PayrollSimulator.Scenario().addDeduction(amount);
+        } else {
+            int deductionId = (Integer) table.getValueAt(row, 0);
+            description = table.getValueAt(row, 1) + " default " + current + " -> " + amount;
+            scenario = new PayrollSimulator.Scenario().setDeductionDefault(deductionId, amount);
+        }
+
+        WhatIfDialog.load(this, simulator, sim -> {
+            simulator = sim;
+            WhatIfDialog.show(this, sim, description, scenario);
+        });
     }
 
     private void showAddDeductionDialog() {
@@ -152,22 +182,11 @@ public class AdminDeductionPanel extends JPanel {
                 return;
             }
 
-            // Insert new deduction into the database
-            try {
-                String insert = "INSERT INTO DEDUCTION (Description, Default_Amount) VALUES (?, ?)";
-                PreparedStatement stmt = connection.prepareStatement(insert);
-                stmt.setString(1, description);
-                stmt.setDouble(2, defaultAmount);
-                stmt.executeUpdate();
-
-                // Reload table to show new entry
-                loadDeductionData();
-
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this,
-                        "Error adding deduction: " + e.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Insert new deduction into the database, then reload table to show new entry
+            AsyncLoader.run(this, "Error adding deduction", c -> {
+                new DeductionRepository(c).insert(description, defaultAmount);
+                return null;
+            }, r -> loadDeductionData());
         }
     }
 
@@ -181,7 +200,7 @@ public class AdminDeductionPanel extends JPanel {
 
         // Retrieve selected row values
         DefaultTableModel model = (DefaultTableModel) table.getModel();
-        Object id = model.getValueAt(selectedRow, 0);
+        int id = (Integer) model.getValueAt(selectedRow, 0);
         String currentDescription = model.getValueAt(selectedRow, 1).toString();
         Object currentAmount = model.getValueAt(selectedRow, 2);
 
@@ -219,23 +238,11 @@ public class AdminDeductionPanel extends JPanel {
                 return;
             }
 
-            // Update row in the database
-            try {
-                String update = "UPDATE DEDUCTION SET Description = ?, Default_Amount = ? WHERE DeductionID = ?";
-                PreparedStatement stmt = connection.prepareStatement(update);
-                stmt.setString(1, newDescription);
-                stmt.setDouble(2, defaultAmount);
-                stmt.setObject(3, id);
-                stmt.executeUpdate();
-
-                // Refresh table
-                loadDeductionData();
-
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this,
-                        "Error editing deduction: " + e.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            }
+            // Update row in the database, then refresh table
+            AsyncLoader.run(this, "Error editing deduction", c -> {
+                new DeductionRepository(c).update(id, newDescription, defaultAmount);
+                return null;
+            }, r -> loadDeductionData());
         }
     }
 
@@ -258,24 +265,17 @@ public class AdminDeductionPanel extends JPanel {
 
         // Get deduction ID from table
         DefaultTableModel model = (DefaultTableModel) table.getModel();
-        Object id = model.getValueAt(selectedRow, 0);
+        int id = (Integer) model.getValueAt(selectedRow, 0);
 
         // Run delete query
-        try {
-            String delete = "DELETE FROM DEDUCTION WHERE DeductionID = ?";
-            PreparedStatement stmt = connection.prepareStatement(delete);
-            stmt.setObject(1, id);
-            stmt.executeUpdate();
-
+        AsyncLoader.run(this, "Error deleting deduction", c -> {
+            new DeductionRepository(c).delete(id);
+            return null;
+        }, r -> {
             // Refresh and notify user
             loadDeductionData();
             JOptionPane.showMessageDialog(this, "Deduction deleted.");
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error deleting deduction: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // Utility: Creates white label for dark mode
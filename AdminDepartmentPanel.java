@@ -1,24 +1,20 @@
 
 import java.awt.*;
-import java.sql.*;
 import java.util.Vector;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
 public class AdminDepartmentPanel extends JPanel {
 
-    // Holds shared DB connection from the main dashboard
-    private Connection connection;
+    // Runs DEPARTMENT queries off the Event Dispatch Thread
+    private final AsyncLoader loader = new AsyncLoader(this);
 
     // Table used to display department records
     private JTable table;
 
-    public AdminDepartmentPanel(Connection connection) {
+    public AdminDepartmentPanel() {
         super(new BorderLayout(12, 12));
 
-        // Store DB connection for all operations
-        this.connection = connection;
-
         // Panel styling
         setBackground(new Color(30, 30, 30));
         setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
@@ -45,6 +41,7 @@ public class AdminDepartmentPanel extends JPanel {
         buttonPanel.add(editBtn);
         buttonPanel.add(deleteBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(loader.getIndicator());
 
         // TABLE SETUP
         table = new JTable();
@@ -61,6 +58,8 @@ public class AdminDepartmentPanel extends JPanel {
 
         // Load data from the database into the table model
         loadDepartmentData();
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, this::loadDepartmentData, "DEPARTMENT");
 
         // Scroll container for the table
         JScrollPane scrollPane = new JScrollPane(table);
@@ -75,26 +74,12 @@ public class AdminDepartmentPanel extends JPanel {
 
     // Loads department data from DB and updates table model
     private void loadDepartmentData() {
-        try {
-            // Simple select query for department list
-            String query = "SELECT DepartmentID, DepartmentName FROM DEPARTMENT";
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-
+        loader.load("Error loading department data", c -> new DepartmentRepository(c).findAll(), data -> {
             // Define table column headers
             Vector<String> columnNames = new Vector<>();
             columnNames.add("DepartmentID");
             columnNames.add("DepartmentName");
 
-            // Collect table data row by row
-            Vector<Vector<Object>> data = new Vector<>();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("DepartmentID"));
-                row.add(rs.getString("DepartmentName"));
-                data.add(row);
-            }
-
             // Create non-editable table model
             DefaultTableModel model = new DefaultTableModel(data, columnNames) {
                 @Override
@@ -105,13 +90,7 @@ public class AdminDepartmentPanel extends JPanel {
 
             // Apply model to the table
             table.setModel(model);
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading department data: " + e.getMessage(),
-                    "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // Shows a form dialog for adding a new department
@@ -141,22 +120,11 @@ public class AdminDepartmentPanel extends JPanel {
                 return;
             }
 
-            // Insert the new department into DB
-            try {
-                String insert = "INSERT INTO DEPARTMENT (DepartmentName) VALUES (?)";
-                PreparedStatement stmt = connection.prepareStatement(insert);
-                stmt.setString(1, name);
-                stmt.executeUpdate();
-
-                // Reload table data
-                loadDepartmentData();
-
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this,
-                        "Error adding department: " + e.getMessage(),
-                        "Database Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            // Insert the new department into DB, then reload table data
+            AsyncLoader.run(this, "Error adding department", c -> {
+                new DepartmentRepository(c).insert(name);
+                return null;
+            }, r -> loadDepartmentData());
         }
     }
 
@@ -172,7 +140,7 @@ public class AdminDepartmentPanel extends JPanel {
 
         // Retrieve selected row values
         DefaultTableModel model = (DefaultTableModel) table.getModel();
-        Object id = model.getValueAt(selectedRow, 0);
+        int id = (Integer) model.getValueAt(selectedRow, 0);
         String currentName = (String) model.getValueAt(selectedRow, 1);
 
         JTextField nameField = new JTextField(currentName);
@@ -199,23 +167,11 @@ public class AdminDepartmentPanel extends JPanel {
                 return;
             }
 
-            // Perform update query
-            try {
-                String update = "UPDATE DEPARTMENT SET DepartmentName = ? WHERE DepartmentID = ?";
-                PreparedStatement stmt = connection.prepareStatement(update);
-                stmt.setString(1, newName);
-                stmt.setObject(2, id);
-                stmt.executeUpdate();
-
-                // Reload updated table data
-                loadDepartmentData();
-
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this,
-                        "Error editing department: " + e.getMessage(),
-                        "Database Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+            // Perform update query, then reload updated table data
+            AsyncLoader.run(this, "Error editing department", c -> {
+                new DepartmentRepository(c).rename(id, newName);
+                return null;
+            }, r -> loadDepartmentData());
         }
     }
 
@@ -244,24 +200,16 @@ public class AdminDepartmentPanel extends JPanel {
 
         // Get ID of selected department
         DefaultTableModel model = (DefaultTableModel) table.getModel();
-        Object id = model.getValueAt(selectedRow, 0);
+        int id = (Integer) model.getValueAt(selectedRow, 0);
 
         // Execute delete operation
-        try {
-            String delete = "DELETE FROM DEPARTMENT WHERE DepartmentID = ?";
-            PreparedStatement stmt = connection.prepareStatement(delete);
-            stmt.setObject(1, id);
-            stmt.executeUpdate();
-
+        AsyncLoader.run(this, "Error deleting department", c -> {
+            new DepartmentRepository(c).delete(id);
+            return null;
+        }, r -> {
             loadDepartmentData(); // Refresh table
             JOptionPane.showMessageDialog(this, "Department deleted.");
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error deleting department: " + e.getMessage(),
-                    "Database Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // Creates a styled label for dark-themed dialogs
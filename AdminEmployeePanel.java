@@ -2,23 +2,28 @@
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.sql.*;
-import java.util.Vector;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 
 public class AdminEmployeePanel extends JPanel {
 
-    private final Connection connection;      // Active database connection
+    private final AsyncLoader loader = new AsyncLoader(this); // Runs EMPLOYEE queries off the EDT
     private final JTable table;               // Main employee table
     private JTextField searchField;           // Search input field
+    private PayrollSimulator simulator;       // What-if data, reloaded after the table is refreshed
 
     // Constructor: Initializes panel layout, components, and loads employee data
-    public AdminEmployeePanel(Connection connection) {
+    public AdminEmployeePanel() {
         super(new BorderLayout(12, 12));
-        this.connection = connection;
 
         setBackground(new Color(30, 30, 30));
         setBorder(new EmptyBorder(12, 12, 12, 12));
@@ -34,6 +39,9 @@ public class AdminEmployeePanel extends JPanel {
         add(scrollPane, BorderLayout.CENTER);
 
         loadEmployeeData("");                             // Load all employees initially
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, () -> loadEmployeeData(searchField.getText().trim()),
+                "EMPLOYEE", "DEPARTMENT", "POSITION");
     }
 
     // --- SEARCH PANEL ---
@@ -48,6 +56,7 @@ public class AdminEmployeePanel extends JPanel {
 
         searchPanel.add(searchField);
         searchPanel.add(searchBtn);
+        searchPanel.add(loader.getIndicator());
         return searchPanel;
     }
 
@@ -59,20 +68,26 @@ public class AdminEmployeePanel extends JPanel {
         JButton addBtn = createModernButton("Add Employee");
         JButton editBtn = createModernButton("Edit Employee");
         JButton deleteBtn = createModernButton("Delete Employee");
+        JButton importBtn = createModernButton("Import");
         JButton refreshBtn = createModernButton("Refresh");
+        JButton whatIfBtn = createModernButton("What-If Salary");
 
         addBtn.addActionListener(e -> showEmployeeDialog("Add", null));
         editBtn.addActionListener(e -> editSelectedEmployee());
         deleteBtn.addActionListener(e -> deleteEmployee());
+        importBtn.addActionListener(e -> importEmployees(importBtn));
         refreshBtn.addActionListener(e -> {
             searchField.setText("");
             loadEmployeeData("");
         });
+        whatIfBtn.addActionListener(e -> whatIfSalary());
 
         topBar.add(addBtn);
         topBar.add(editBtn);
         topBar.add(deleteBtn);
+        topBar.add(importBtn);
         topBar.add(refreshBtn);
+        topBar.add(whatIfBtn);
 
         return topBar;
     }
@@ -101,71 +116,47 @@ public class AdminEmployeePanel extends JPanel {
 
     // --- LOAD EMPLOYEE DATA ---
     private void loadEmployeeData(String search) {
-        String baseQuery = "SELECT e.EmployeeID, e.LastName, e.FirstName, e.Email, e.Gender, e.Age, e.DOB, e.Address, "
-                + "e.PhoneNumber, e.DateOfHire, d.DepartmentName, p.PositionName, e.MonthlySalary "
-                + "FROM EMPLOYEE e "
-                + "LEFT JOIN DEPARTMENT d ON e.DepartmentID = d.DepartmentID "
-                + "LEFT JOIN POSITION p ON e.PositionID = p.PositionID ";
-        String where = "";
-        Vector<Object> params = new Vector<>();
-
-        if (search != null && !search.isEmpty()) {
-            where = "WHERE e.EmployeeID LIKE ? OR e.FirstName LIKE ? OR e.LastName LIKE ? ";
-            String like = "%" + search + "%";
-            params.add(like);
-            params.add(like);
-            params.add(like);
-        }
-
-        String query = baseQuery + where + "ORDER BY e.EmployeeID";
-
-        Vector<String> columnNames = new Vector<>(java.util.Arrays.asList(
-                "EmployeeID", "LastName", "FirstName", "Email", "Gender", "Age",
-                "DOB", "Address", "PhoneNumber", "DateOfHire", "Department", "Position", "MonthlySalary"));
-        Vector<Vector<Object>> data = new Vector<>();
-
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
-            }
-
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("EmployeeID"));
-                row.add(rs.getString("LastName"));
-                row.add(rs.getString("FirstName"));
-                row.add(rs.getString("Email"));
-                row.add(rs.getString("Gender"));
-                row.add(rs.getObject("Age") != null ? rs.getInt("Age") : null);
-                row.add(rs.getDate("DOB") != null ? rs.getDate("DOB").toString() : null);
-                row.add(rs.getString("Address"));
-                row.add(rs.getString("PhoneNumber"));
-                row.add(rs.getDate("DateOfHire") != null ? rs.getDate("DateOfHire").toString() : null);
-                row.add(rs.getString("DepartmentName") != null ? rs.getString("DepartmentName") : "");
-                row.add(rs.getString("PositionName") != null ? rs.getString("PositionName") : "");
-                row.add(rs.getBigDecimal("MonthlySalary") != null ? rs.getBigDecimal("MonthlySalary").toString() : "");
-                data.add(row);
-            }
-
-            table.setModel(new DefaultTableModel(data, columnNames) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false;
-                }
-            });
+        simulator = null; // Data may have changed
+        // Rows are fetched a page at a time as the table scrolls
+        loader.load("Error loading employee data",
+                c -> PagedTableModel.load(c, this, EmployeeRepository.list(search),
+                        "EmployeeID", "LastName", "FirstName", "Email", "Gender", "Age",
+                        "DOB", "Address", "PhoneNumber", "DateOfHire", "Department", "Position", "MonthlySalary"),
+                model -> {
+            table.setModel(model);
             table.setFillsViewportHeight(true);
             table.getTableHeader().setBackground(new Color(60, 63, 65));
             table.getTableHeader().setForeground(Color.WHITE);
+        });
+    }
 
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading employee data: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+    // Everything the add/edit dialog needs from the database
+    private static final class FormData {
+
+        ReferenceDataCache.Snapshot reference;   // Departments and positions
+        EmployeeRepository.Employee employee;    // null when adding
     }
 
     // --- SHOW ADD/EDIT EMPLOYEE DIALOG ---
+    // Adding opens straight from the cached departments and positions; editing reads the one employee row
     private void showEmployeeDialog(String action, Integer employeeID) {
+        if (!"Edit".equals(action) || employeeID == null) {
+            ReferenceDataCache.getInstance().withSnapshot(this, ref -> {
+                FormData data = new FormData();
+                data.reference = ref;
+                showEmployeeDialog(action, employeeID, data);
+            });
+            return;
+        }
+        AsyncLoader.run(this, "Error loading employee data", c -> {
+            FormData data = new FormData();
+            data.reference = ReferenceDataCache.getInstance().get(c);
+            data.employee = new EmployeeRepository(c).findById(employeeID);
+            return data;
+        }, data -> showEmployeeDialog(action, employeeID, data));
+    }
+
+    private void showEmployeeDialog(String action, Integer employeeID, FormData data) {
         JDialog dialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this),
                 action + " Employee", true);
         dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
@@ -191,11 +182,8 @@ public class AdminEmployeePanel extends JPanel {
         JTextField hireDateField = new JTextField(10);
         JTextField salaryField = new JTextField(10);
 
-        JComboBox<String> deptCombo = new JComboBox<>();
-        JComboBox<String> posCombo = new JComboBox<>();
-        deptCombo.addItem("0 - <None>");
-        posCombo.addItem("0 - <None>");
-        loadDepartmentsAndPositions(deptCombo, posCombo);
+        JComboBox<String> deptCombo = new JComboBox<>(data.reference.departmentModel("0 - <None>"));
+        JComboBox<String> posCombo = new JComboBox<>(data.reference.positionModel("0 - <None>"));
 
         String[] labels = {"Last Name", "First Name", "Email", "Gender", "Age", "DOB (YYYY-MM-DD)",
             "Address", "Phone", "Hire Date (YYYY-MM-DD)", "Department", "Position", "Monthly Salary"};
@@ -217,12 +205,15 @@ public class AdminEmployeePanel extends JPanel {
         }
 
         // Load existing employee for editing
-        if ("Edit".equals(action) && employeeID != null) {
-            loadEmployeeIntoFields(employeeID, lastNameField, firstNameField, emailField,
+        if (data.employee != null) {
+            loadEmployeeIntoFields(data.employee, lastNameField, firstNameField, emailField,
                     genderCombo, ageField, dobField, addressField, phoneField,
                     hireDateField, salaryField, deptCombo, posCombo);
         }
 
+        // Salary as loaded, so a save can tell whether payroll rates must be recomputed
+        String originalSalary = salaryField.getText().trim();
+
         // Dialog buttons
         JPanel btnPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 8));
         btnPanel.setOpaque(false);
@@ -233,7 +224,7 @@ public class AdminEmployeePanel extends JPanel {
 
         okBtn.addActionListener(ev -> saveEmployee(action, employeeID, lastNameField, firstNameField,
                 emailField, genderCombo, ageField, dobField, addressField, phoneField,
-                hireDateField, salaryField, deptCombo, posCombo, dialog));
+                hireDateField, salaryField, deptCombo, posCombo, originalSalary, okBtn, dialog));
         cancelBtn.addActionListener(ev -> dialog.dispose());
 
         dialog.add(inputPanel, BorderLayout.CENTER);
@@ -243,23 +234,69 @@ public class AdminEmployeePanel extends JPanel {
         dialog.setVisible(true);
     }
 
-    // --- LOAD DEPARTMENTS AND POSITIONS INTO COMBOBOXES ---
-    private void loadDepartmentsAndPositions(JComboBox<String> deptCombo, JComboBox<String> posCombo) {
-        try (Statement stmt = connection.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery("SELECT DepartmentID, DepartmentName FROM DEPARTMENT")) {
-                while (rs.next()) {
-                    deptCombo.addItem(rs.getInt("DepartmentID") + " - " + rs.getString("DepartmentName"));
-                }
-            }
-            try (ResultSet rs = stmt.executeQuery("SELECT PositionID, PositionName FROM POSITION")) {
-                while (rs.next()) {
-                    posCombo.addItem(rs.getInt("PositionID") + " - " + rs.getString("PositionName"));
-                }
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading departments/positions: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+    // --- WHAT-IF SALARY ---
+    // Shows the payroll impact of a new MonthlySalary for the selected employee without saving it
+    private void whatIfSalary() {
+        int r = table.getSelectedRow();
+        if (r < 0) {
+            JOptionPane.showMessageDialog(this, "Please select an employee first.");
+            return;
+        }
+        Object idObj = table.getValueAt(r, 0);
+        if (!(idObj instanceof Number)) {
+            JOptionPane.showMessageDialog(this, "Selected row doesn't have a valid EmployeeID.");
+            return;
+        }
+        int employeeID = ((Number) idObj).intValue();
+        Object current = table.getValueAt(r, table.getColumnCount() - 1);
+
+        String input = JOptionPane.showInputDialog(this, "Hypothetical monthly salary:", current);
+        if (input == null) {
+            return;
         }
+        BigDecimal salary;
+        try {
+            salary = new BigDecimal(input.trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Monthly salary must be numeric.");
+            return;
+        }
+        if (salary.signum() < 0) {
+            JOptionPane.showMessageDialog(this, "Monthly salary cannot be negative.");
+            return;
+        }
+
+        WhatIfDialog.load(this, simulator, sim -> {
+            simulator = sim;
+            WhatIfDialog.show(this, sim, "Employee " + employeeID + " at a monthly salary of " + salary,
+                    new PayrollSimulator.Scenario().setEmployeeSalary(employeeID, salary));
+        });
+    }
+
+    // --- IMPORT EMPLOYEES ---
+    // Adds and updates employees from an HR master file; rejected records go to <file>.errors.csv
+    private void importEmployees(JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Employees");
+        chooser.setFileFilter(new FileNameExtensionFilter("Employee master files (CSV or JSON)", "csv", "json"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        importBtn.setEnabled(false);
+        AsyncLoader.run(this, "Error importing employees", c -> {
+            try {
+                return new EmployeeImporter(c).importFile(file, TimesheetCsvImporter.defaultErrorReport(file));
+            } catch (IOException ex) {
+                throw new SQLException("Cannot read " + file.getFileName() + ": " + ex.getMessage(), ex);
+            }
+        }, result -> {
+            importBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this, result.toString(), "Import Employees",
+                    result.getRejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            loadEmployeeData(""); // Refresh table
+        }, () -> importBtn.setEnabled(true));
     }
 
     // --- EDIT SELECTED EMPLOYEE ---
@@ -299,55 +336,43 @@ public class AdminEmployeePanel extends JPanel {
             return;
         }
 
-        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM EMPLOYEE WHERE EmployeeID=?")) {
-            ps.setInt(1, employeeID);
-            if (ps.executeUpdate() > 0) {
+        AsyncLoader.run(this, "Error deleting employee",
+                c -> new EmployeeRepository(c).delete(employeeID), deleted -> {
+            if (deleted) {
+                HourlyRateCache.getInstance().invalidate(employeeID);
                 loadEmployeeData(""); // Refresh table
                 JOptionPane.showMessageDialog(this, "Employee deleted.");
             } else {
                 JOptionPane.showMessageDialog(this, "Employee not found or already deleted.");
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error deleting employee: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // --- LOAD EMPLOYEE DATA INTO FORM FOR EDITING ---
-    private void loadEmployeeIntoFields(Integer employeeID, JTextField lastNameField, JTextField firstNameField,
-            JTextField emailField, JComboBox<String> genderCombo, JTextField ageField,
+    private void loadEmployeeIntoFields(EmployeeRepository.Employee e, JTextField lastNameField,
+            JTextField firstNameField, JTextField emailField, JComboBox<String> genderCombo, JTextField ageField,
             JTextField dobField, JTextField addressField, JTextField phoneField,
             JTextField hireDateField, JTextField salaryField, JComboBox<String> deptCombo,
             JComboBox<String> posCombo) {
-        try (PreparedStatement ps = connection.prepareStatement(
-                "SELECT * FROM EMPLOYEE WHERE EmployeeID=?")) {
-            ps.setInt(1, employeeID);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                lastNameField.setText(rs.getString("LastName"));
-                firstNameField.setText(rs.getString("FirstName"));
-                emailField.setText(rs.getString("Email"));
-                genderCombo.setSelectedItem(rs.getString("Gender"));
-                ageField.setText(rs.getObject("Age") != null ? rs.getInt("Age") + "" : "");
-                dobField.setText(rs.getDate("DOB") != null ? rs.getDate("DOB").toString() : "");
-                addressField.setText(rs.getString("Address"));
-                phoneField.setText(rs.getString("PhoneNumber"));
-                hireDateField.setText(rs.getDate("DateOfHire") != null ? rs.getDate("DateOfHire").toString() : "");
-                salaryField.setText(rs.getBigDecimal("MonthlySalary") != null ? rs.getBigDecimal("MonthlySalary").toString() : "");
-
-                String deptItem = findComboItemStartingWith(deptCombo, rs.getInt("DepartmentID") + "");
-                if (deptItem != null) {
-                    deptCombo.setSelectedItem(deptItem);
-                }
+        lastNameField.setText(e.lastName);
+        firstNameField.setText(e.firstName);
+        emailField.setText(e.email);
+        genderCombo.setSelectedItem(e.gender);
+        ageField.setText(e.age != null ? e.age + "" : "");
+        dobField.setText(e.dob != null ? e.dob : "");
+        addressField.setText(e.address);
+        phoneField.setText(e.phoneNumber);
+        hireDateField.setText(e.dateOfHire != null ? e.dateOfHire : "");
+        salaryField.setText(e.monthlySalary != null ? e.monthlySalary.toString() : "");
+
+        String deptItem = findComboItemStartingWith(deptCombo, e.departmentId + "");
+        if (deptItem != null) {
+            deptCombo.setSelectedItem(deptItem);
+        }
 
-                String posItem = findComboItemStartingWith(posCombo, rs.getInt("PositionID") + "");
-                if (posItem != null) {
-                    posCombo.setSelectedItem(posItem);
-                }
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading employee data: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+        String posItem = findComboItemStartingWith(posCombo, e.positionId + "");
+        if (posItem != null) {
+            posCombo.setSelectedItem(posItem);
         }
     }
 
@@ -356,7 +381,7 @@ public class AdminEmployeePanel extends JPanel {
             JTextField emailField, JComboBox<String> genderCombo, JTextField ageField,
             JTextField dobField, JTextField addressField, JTextField phoneField,
             JTextField hireDateField, JTextField salaryField, JComboBox<String> deptCombo,
-            JComboBox<String> posCombo, JDialog dialog) {
+            JComboBox<String> posCombo, String originalSalary, JButton okBtn, JDialog dialog) {
         try {
             Integer age = parseIntegerOrNull(ageField.getText().trim());
             String dob = dobField.getText().trim();
@@ -376,60 +401,82 @@ public class AdminEmployeePanel extends JPanel {
             int deptId = parseComboId((String) deptCombo.getSelectedItem());
             int posId = parseComboId((String) posCombo.getSelectedItem());
 
-            if ("Add".equals(action)) {
-                String insert = "INSERT INTO EMPLOYEE (LastName, FirstName, Email, Gender, Age, DOB, Address, PhoneNumber, DateOfHire, DepartmentID, PositionID, MonthlySalary) "
-                        + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
-                try (PreparedStatement ps = connection.prepareStatement(insert)) {
-                    ps.setString(1, lastNameField.getText().trim());
-                    ps.setString(2, firstNameField.getText().trim());
-                    ps.setString(3, emailField.getText().trim());
-                    ps.setString(4, (String) genderCombo.getSelectedItem());
-                    if (age != null) {
-                        ps.setInt(5, age);
-                    } else {
-                        ps.setNull(5, Types.INTEGER);
-                    }
-                    ps.setString(6, dob.isEmpty() ? null : dob);
-                    ps.setString(7, addressField.getText().trim());
-                    ps.setString(8, phoneField.getText().trim());
-                    ps.setString(9, hireDate.isEmpty() ? null : hireDate);
-                    ps.setInt(10, deptId);
-                    ps.setInt(11, posId);
-                    ps.setBigDecimal(12, salary);
-                    ps.executeUpdate();
+            EmployeeRepository.Employee e = new EmployeeRepository.Employee();
+            e.lastName = lastNameField.getText().trim();
+            e.firstName = firstNameField.getText().trim();
+            e.email = emailField.getText().trim();
+            e.gender = (String) genderCombo.getSelectedItem();
+            e.age = age;
+            e.dob = dob.isEmpty() ? null : dob;
+            e.address = addressField.getText().trim();
+            e.phoneNumber = phoneField.getText().trim().isEmpty() ? null : phoneField.getText().trim();
+            e.dateOfHire = hireDate.isEmpty() ? null : hireDate;
+            e.departmentId = deptId;
+            e.positionId = posId;
+            e.monthlySalary = salary;
+
+            // The same rules as an import, so the database never refuses the row on a CHECK constraint
+            List<String> problems = InputValidation.checkEmployee(e);
+            if (!problems.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, String.join("\n", problems), "Input Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            // A new MonthlySalary changes the rates of payrolls ending on or after the date it applies from;
+            // earlier payrolls keep the salary they were paid at
+            boolean salaryChanged = !"Add".equals(action) && salary != null
+                    && (originalSalary.isEmpty() || salary.compareTo(new BigDecimal(originalSalary)) != 0);
+            LocalDate effectiveFrom = null;
+            if (salaryChanged) {
+                Object answer = JOptionPane.showInputDialog(dialog,
+                        "Apply the new salary to payrolls ending on or after (YYYY-MM-DD):", "Salary Change",
+                        JOptionPane.QUESTION_MESSAGE, null, null, LocalDate.now().toString());
+                if (answer == null) {
+                    return; // Cancelled; the dialog stays open
                 }
-                JOptionPane.showMessageDialog(dialog, "Employee added successfully.");
-            } else { // Edit
-                String update = "UPDATE EMPLOYEE SET LastName=?, FirstName=?, Email=?, Gender=?, Age=?, DOB=?, "
-                        + "Address=?, PhoneNumber=?, DateOfHire=?, DepartmentID=?, PositionID=?, MonthlySalary=? "
-                        + "WHERE EmployeeID=?";
-                try (PreparedStatement ps = connection.prepareStatement(update)) {
-                    ps.setString(1, lastNameField.getText().trim());
-                    ps.setString(2, firstNameField.getText().trim());
-                    ps.setString(3, emailField.getText().trim());
-                    ps.setString(4, (String) genderCombo.getSelectedItem());
-                    if (age != null) {
-                        ps.setInt(5, age);
-                    } else {
-                        ps.setNull(5, Types.INTEGER);
-                    }
-                    ps.setString(6, dob.isEmpty() ? null : dob);
-                    ps.setString(7, addressField.getText().trim());
-                    ps.setString(8, phoneField.getText().trim());
-                    ps.setString(9, hireDate.isEmpty() ? null : hireDate);
-                    ps.setInt(10, deptId);
-                    ps.setInt(11, posId);
-                    ps.setBigDecimal(12, salary);
-                    ps.setInt(13, employeeID);
-                    ps.executeUpdate();
+                try {
+                    effectiveFrom = LocalDate.parse(answer.toString().trim());
+                } catch (DateTimeParseException ex) {
+                    JOptionPane.showMessageDialog(dialog, "Effective date must be YYYY-MM-DD");
+                    return;
                 }
-                JOptionPane.showMessageDialog(dialog, "Employee updated successfully.");
             }
-
-            loadEmployeeData(""); // Refresh table
-            dialog.dispose();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(dialog, "Database error: " + ex.getMessage());
+            LocalDate rerateFrom = effectiveFrom;
+
+            okBtn.setEnabled(false); // Until the save finishes
+            AsyncLoader.run(dialog, "Database error", c -> {
+                EmployeeRepository employees = new EmployeeRepository(c);
+                if ("Add".equals(action)) {
+                    employees.insert(e);
+                    return null;
+                }
+                // Edit: the update, its dirty mark and the re-rate commit together
+                boolean previousAutoCommit = c.getAutoCommit();
+                c.setAutoCommit(false);
+                try {
+                    employees.update(employeeID, e);
+                    if (salaryChanged) {
+                        new PayrollDirtyTracker(c).markSalary(employeeID, rerateFrom);
+                        new PayrollRecomputer(c).recomputeDirty(employeeID);
+                    }
+                    c.commit();
+                } catch (SQLException ex) {
+                    c.rollback();
+                    throw ex;
+                } finally {
+                    c.setAutoCommit(previousAutoCommit);
+                }
+                if (salaryChanged) {
+                    HourlyRateCache.getInstance().invalidate(employeeID);
+                }
+                return null;
+            }, r -> {
+                JOptionPane.showMessageDialog(dialog, "Add".equals(action)
+                        ? "Employee added successfully." : "Employee updated successfully.");
+                loadEmployeeData(""); // Refresh table
+                dialog.dispose();
+            }, () -> okBtn.setEnabled(true));
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(dialog, "Invalid number format: " + ex.getMessage());
         }
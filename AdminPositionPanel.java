@@ -1,22 +1,24 @@
 
 import java.awt.*;
-import java.sql.*;
-import java.util.Vector;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
 public class AdminPositionPanel extends JPanel {
 
-    // Holds the shared database connection passed from outside
-    private final Connection connection;
+    // Runs POSITION queries off the Event Dispatch Thread
+    private final AsyncLoader loader = new AsyncLoader(this);
 
     // Displays all position records
     private JTable table;
 
-    public AdminPositionPanel(Connection connection) {
+    // What-if data, reloaded after the table is refreshed
+    private PayrollSimulator simulator;
+
+    public AdminPositionPanel() {
         // Uses BorderLayout with spacing for a cleaner layout
         super(new BorderLayout(12, 12));
-        this.connection = connection;
 
         // Panel styling for dark theme
         setBackground(new Color(30, 30, 30));
@@ -40,6 +42,8 @@ public class AdminPositionPanel extends JPanel {
 
         // Loads initial data from database
         loadPositionData();
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, this::loadPositionData, "POSITION", "DEPARTMENT");
     }
 
     // Builds the top bar containing CRUD buttons
@@ -51,17 +55,21 @@ public class AdminPositionPanel extends JPanel {
         JButton editBtn = createModernButton("Edit Position");
         JButton deleteBtn = createModernButton("Delete Position");
         JButton refreshBtn = createModernButton("Refresh");
+        JButton whatIfBtn = createModernButton("What-If Salary");
 
         // Button actions call the respective handler methods
         refreshBtn.addActionListener(e -> loadPositionData());
         addBtn.addActionListener(e -> showAddPositionDialog());
         editBtn.addActionListener(e -> showEditPositionDialog());
         deleteBtn.addActionListener(e -> deleteSelectedPosition());
+        whatIfBtn.addActionListener(e -> showWhatIfSalaryDialog());
 
         panel.add(addBtn);
         panel.add(editBtn);
         panel.add(deleteBtn);
         panel.add(refreshBtn);
+        panel.add(whatIfBtn);
+        panel.add(loader.getIndicator());
 
         return panel;
     }
@@ -83,54 +91,28 @@ public class AdminPositionPanel extends JPanel {
 
     // Loads all position data and updates the table model
     private void loadPositionData() {
-        String query
-                = "SELECT p.PositionID, p.PositionName, p.BaseSalary, d.DepartmentName "
-                + "FROM POSITION p LEFT JOIN DEPARTMENT d ON p.DepartmentID = d.DepartmentID";
-
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-
-            // Extract column names dynamically
-            ResultSetMetaData meta = rs.getMetaData();
-            int columns = meta.getColumnCount();
-            Vector<String> colNames = new Vector<>();
-            for (int i = 1; i <= columns; i++) {
-                colNames.add(meta.getColumnName(i));
-            }
-
-            // Store result rows
-            Vector<Vector<Object>> rows = new Vector<>();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                for (int i = 1; i <= columns; i++) {
-                    row.add(rs.getObject(i));
-                }
-                rows.add(row);
-            }
-
+        simulator = null; // Data may have changed
+        // Column names come from the query
+        loader.load("Error loading position data", c -> new PositionRepository(c).findAllWithDepartment(), data -> {
             // Table model that prevents editing
-            table.setModel(new DefaultTableModel(rows, colNames) {
+            table.setModel(new DefaultTableModel(data.getRows(), data.getColumnNames()) {
                 public boolean isCellEditable(int r, int c) {
                     return false;
                 }
             });
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading position data: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // Shows dialog for creating a new position
     private void showAddPositionDialog() {
+        // Dropdown of departments; the dialog opens once they are loaded
+        loadDepartmentList(this::showAddPositionDialog);
+    }
+
+    private void showAddPositionDialog(JComboBox<String> deptCombo) {
         JTextField nameField = new JTextField();
         JTextField salaryField = new JTextField();
 
-        // Dropdown of departments
-        JComboBox<String> deptCombo = loadDepartmentList();
-        if (deptCombo == null) {
-            return; // Stops if DB error occurred
-        }
         // Build dialog layout
         JPanel panel = buildFormPanel(
                 "Position Name:", nameField,
@@ -166,21 +148,10 @@ public class AdminPositionPanel extends JPanel {
         int deptId = Integer.parseInt(deptCombo.getSelectedItem().toString().split(" - ")[0]);
 
         // Insert new record
-        try (PreparedStatement stmt
-                = connection.prepareStatement("INSERT INTO POSITION (PositionName, BaseSalary, DepartmentID) VALUES (?, ?, ?)")) {
-
-            stmt.setString(1, name);
-            stmt.setDouble(2, salary);
-            stmt.setInt(3, deptId);
-            stmt.executeUpdate();
-
-            loadPositionData();
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error adding position: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        AsyncLoader.run(this, "Error adding position", c -> {
+            new PositionRepository(c).insert(name, salary, deptId);
+            return null;
+        }, r -> loadPositionData());
     }
 
     // Shows dialog for editing the selected position
@@ -195,20 +166,20 @@ public class AdminPositionPanel extends JPanel {
 
         // Current values from table
         DefaultTableModel model = (DefaultTableModel) table.getModel();
-        Object id = model.getValueAt(row, 0);
+        int id = (Integer) model.getValueAt(row, 0);
         String currentName = model.getValueAt(row, 1).toString();
         String currentSalary = model.getValueAt(row, 2).toString();
         String currentDept = model.getValueAt(row, 3).toString();
 
+        // Load department list into combo box, then open the dialog
+        loadDepartmentList(deptCombo -> showEditPositionDialog(id, currentName, currentSalary, currentDept, deptCombo));
+    }
+
+    private void showEditPositionDialog(int id, String currentName, String currentSalary, String currentDept,
+            JComboBox<String> deptCombo) {
         JTextField nameField = new JTextField(currentName);
         JTextField salaryField = new JTextField(currentSalary);
 
-        // Load department list into combo box
-        JComboBox<String> deptCombo = loadDepartmentList();
-        if (deptCombo == null) {
-            return;
-        }
-
         // Set current department as selected
         for (int i = 0; i < deptCombo.getItemCount(); i++) {
             if (deptCombo.getItemAt(i).contains(currentDept)) {
@@ -250,23 +221,45 @@ public class AdminPositionPanel extends JPanel {
         int deptId = Integer.parseInt(deptCombo.getSelectedItem().toString().split(" - ")[0]);
 
         // Run update SQL
-        try (PreparedStatement stmt
-                = connection.prepareStatement(
-                        "UPDATE POSITION SET PositionName=?, BaseSalary=?, DepartmentID=? WHERE PositionID=?")) {
+        AsyncLoader.run(this, "Error editing position", c -> {
+            new PositionRepository(c).update(id, newName, salary, deptId);
+            return null;
+        }, r -> loadPositionData());
+    }
 
-            stmt.setString(1, newName);
-            stmt.setDouble(2, salary);
-            stmt.setInt(3, deptId);
-            stmt.setObject(4, id);
-            stmt.executeUpdate();
+    // Shows the payroll impact of a new base salary for the selected position without saving it
+    // Every employee in the position is assumed to get the same raise as the base salary
+    private void showWhatIfSalaryDialog() {
+        int row = table.getSelectedRow();
+        if (row < 0) {
+            JOptionPane.showMessageDialog(this, "Please select a position first.");
+            return;
+        }
 
-            loadPositionData();
+        Object id = table.getModel().getValueAt(row, 0);
+        String positionName = table.getModel().getValueAt(row, 1).toString();
+        BigDecimal currentSalary = new BigDecimal(table.getModel().getValueAt(row, 2).toString());
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error editing position: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+        String input = JOptionPane.showInputDialog(this, "Hypothetical base salary:", currentSalary);
+        if (input == null) {
+            return;
         }
+        BigDecimal salary;
+        try {
+            salary = new BigDecimal(input.trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Base Salary must be numeric.");
+            return;
+        }
+
+        BigDecimal raise = salary.subtract(currentSalary);
+        WhatIfDialog.load(this, simulator, sim -> {
+            simulator = sim;
+            WhatIfDialog.show(this, sim,
+                    positionName + " base salary " + currentSalary + " -> " + salary
+                    + " (raise of " + raise + " per employee)",
+                    new PayrollSimulator.Scenario().raisePosition(((Number) id).intValue(), raise));
+        });
     }
 
     // Deletes the currently selected position
@@ -286,40 +279,22 @@ public class AdminPositionPanel extends JPanel {
             return;
         }
 
-        Object id = table.getModel().getValueAt(row, 0);
+        int id = (Integer) table.getModel().getValueAt(row, 0);
 
         // Execute delete query
-        try (PreparedStatement stmt
-                = connection.prepareStatement("DELETE FROM POSITION WHERE PositionID=?")) {
-
-            stmt.setObject(1, id);
-            stmt.executeUpdate();
-
+        AsyncLoader.run(this, "Error deleting position", c -> {
+            new PositionRepository(c).delete(id);
+            return null;
+        }, r -> {
             loadPositionData();
             JOptionPane.showMessageDialog(this, "Position deleted.");
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error deleting position: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
-    // Loads department entries and returns a combo box filled with them
-    private JComboBox<String> loadDepartmentList() {
-        JComboBox<String> combo = new JComboBox<>();
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery("SELECT DepartmentID, DepartmentName FROM DEPARTMENT")) {
-
-            while (rs.next()) {
-                combo.addItem(rs.getInt("DepartmentID") + " - " + rs.getString("DepartmentName"));
-            }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error loading departments: " + e.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            return null;
-        }
-        return combo;
+    // Passes a combo box of the departments to then; no query unless departments changed since the last load
+    // Nothing is shown but the error if a load is needed and fails
+    private void loadDepartmentList(Consumer<JComboBox<String>> then) {
+        ReferenceDataCache.getInstance().withSnapshot(this, ref -> then.accept(new JComboBox<>(ref.departmentModel(null))));
     }
 
     // Utility to create consistent form fields layout
@@ -1,20 +1,20 @@
 
 import java.awt.*;
 import java.awt.event.*;
-import java.sql.*;
-import java.util.Vector;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 public class AdminTimesheetPanel extends JPanel {
 
-    private final Connection connection; // Database connection
+    private final AsyncLoader loader = new AsyncLoader(this); // Runs TIMESHEET queries off the EDT
     private final JTable table;           // Table to display timesheets
 
-    public AdminTimesheetPanel(Connection connection) {
+    public AdminTimesheetPanel() {
         super(new BorderLayout(12, 12));
-        this.connection = connection;
         setBackground(new Color(30, 30, 30));
         setBorder(new EmptyBorder(12, 12, 12, 12));
 
@@ -25,17 +25,21 @@ public class AdminTimesheetPanel extends JPanel {
         JButton addBtn = createAccentButton("Add Timesheet");
         JButton editBtn = createAccentButton("Edit Timesheet");
         JButton deleteBtn = createAccentButton("Delete Timesheet");
+        JButton importBtn = createModernButton("Import CSV");
         JButton refreshBtn = createModernButton("Refresh");
 
         addBtn.addActionListener(e -> showTimesheetDialog("Add", null));
         editBtn.addActionListener(e -> editSelectedTimesheet());
         deleteBtn.addActionListener(e -> deleteSelectedTimesheet());
+        importBtn.addActionListener(e -> importTimesheets(importBtn));
         refreshBtn.addActionListener(e -> loadTimesheetData());
 
         buttonPanel.add(addBtn);
         buttonPanel.add(editBtn);
         buttonPanel.add(deleteBtn);
+        buttonPanel.add(importBtn);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(loader.getIndicator());
 
         // TABLE SETUP
         table = new JTable();
@@ -56,52 +60,43 @@ public class AdminTimesheetPanel extends JPanel {
 
         // Load initial timesheet data
         loadTimesheetData();
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, this::loadTimesheetData, "TIMESHEET", "EMPLOYEE");
     }
 
     // Load timesheet data from DB
     private void loadTimesheetData() {
-        try {
-            String query = "SELECT t.TimesheetID, t.EmployeeID, e.FirstName, e.LastName, t.WorkDate, "
-                    + "t.StandardHours, t.RenderedHours, t.OvertimeHours "
-                    + "FROM TIMESHEET t JOIN EMPLOYEE e ON t.EmployeeID = e.EmployeeID "
-                    + "ORDER BY t.TimesheetID";
-            Statement stmt = connection.createStatement();
-            ResultSet rs = stmt.executeQuery(query);
-
-            Vector<String> columnNames = new Vector<>();
-            columnNames.add("TimesheetID");
-            columnNames.add("EmployeeID");
-            columnNames.add("FirstName");
-            columnNames.add("LastName");
-            columnNames.add("WorkDate");
-            columnNames.add("StandardHours");
-            columnNames.add("RenderedHours");
-            columnNames.add("OvertimeHours");
-
-            Vector<Vector<Object>> data = new Vector<>();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("TimesheetID"));
-                row.add(rs.getInt("EmployeeID"));
-                row.add(rs.getString("FirstName"));
-                row.add(rs.getString("LastName"));
-                row.add(rs.getDate("WorkDate"));
-                row.add(rs.getBigDecimal("StandardHours"));
-                row.add(rs.getBigDecimal("RenderedHours"));
-                row.add(rs.getBigDecimal("OvertimeHours"));
-                data.add(row);
-            }
-
-            table.setModel(new DefaultTableModel(data, columnNames) {
-                @Override
-                public boolean isCellEditable(int row, int column) {
-                    return false; // Make table non-editable
-                }
-            });
+        // Rows are fetched a page at a time as the table scrolls
+        loader.load("Error loading timesheet data",
+                c -> PagedTableModel.load(c, this, TimesheetRepository.allWithEmployee(),
+                        "TimesheetID", "EmployeeID", "FirstName", "LastName", "WorkDate",
+                        "StandardHours", "RenderedHours", "OvertimeHours"),
+                table::setModel);
+    }
 
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading timesheet data: " + e.getMessage());
+    // Bulk import from an attendance export (EmployeeID,WorkDate,RenderedHours per line)
+    private void importTimesheets(JButton importBtn) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Timesheets");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (EmployeeID,WorkDate,RenderedHours)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        Path file = chooser.getSelectedFile().toPath();
+
+        importBtn.setEnabled(false);
+        AsyncLoader.run(this, "Error importing timesheets", c -> {
+            try {
+                return new TimesheetCsvImporter(c).importFile(file, TimesheetCsvImporter.defaultErrorReport(file));
+            } catch (IOException ex) {
+                throw new SQLException("Cannot read " + file.getFileName() + ": " + ex.getMessage(), ex);
+            }
+        }, result -> {
+            importBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this, result.toString(), "Import Timesheets",
+                    result.getRejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+            loadTimesheetData();
+        }, () -> importBtn.setEnabled(true));
     }
 
     // Show Add/Edit Timesheet Dialog
@@ -117,15 +112,22 @@ public class AdminTimesheetPanel extends JPanel {
         JTextField workDateField = new JTextField("YYYY-MM-DD");
         JTextField renderedHoursField = new JTextField();
 
-        // Pre-fill fields if editing
+        // Pre-fill fields if editing; editSelectedTimesheet made sure the selected row is loaded
+        // The original employee and date are kept here, since the table may reload while the dialog is open
+        Integer originalEmpId = null;
+        String originalWorkDate = null;
         if ("Edit".equals(action) && timesheetId != null) {
             int selectedRow = table.getSelectedRow();
-            if (selectedRow >= 0) {
-                employeeIdField.setText(String.valueOf(table.getValueAt(selectedRow, 1)));
-                workDateField.setText(table.getValueAt(selectedRow, 4).toString());
+            if (PagedTableModel.isRowLoaded(table, selectedRow)) {
+                originalEmpId = (Integer) table.getValueAt(selectedRow, 1);
+                originalWorkDate = table.getValueAt(selectedRow, 4).toString();
+                employeeIdField.setText(String.valueOf(originalEmpId));
+                workDateField.setText(originalWorkDate);
                 renderedHoursField.setText(table.getValueAt(selectedRow, 6).toString());
             }
         }
+        Integer oldEmp = originalEmpId;
+        String oldDate = originalWorkDate;
 
         // Add labels and fields to panel
         String[] labels = {"Employee ID", "Work Date (YYYY-MM-DD)", "Rendered Hours"};
@@ -177,63 +179,60 @@ public class AdminTimesheetPanel extends JPanel {
                 return;
             }
 
-            try {
+            Integer editId = "Add".equals(action) ? null : timesheetId;
+
+            // Validation and save run in one background task; a non-null result is a message for the user
+            okBtn.setEnabled(false);
+            AsyncLoader.run(this, "Error saving timesheet", c -> {
+                TimesheetRepository timesheets = new TimesheetRepository(c);
+
                 // Validate EmployeeID exists
-                PreparedStatement stmtCheckEmp = connection.prepareStatement(
-                        "SELECT 1 FROM EMPLOYEE WHERE EmployeeID = ?");
-                stmtCheckEmp.setInt(1, empId);
-                ResultSet rsCheckEmp = stmtCheckEmp.executeQuery();
-                if (!rsCheckEmp.next()) {
-                    JOptionPane.showMessageDialog(this, "Employee ID does not exist.");
-                    return;
+                if (!new EmployeeRepository(c).exists(empId)) {
+                    return "Employee ID does not exist.";
                 }
 
                 // Prevent duplicate timesheets
-                PreparedStatement stmtCheckDup;
-                if ("Edit".equals(action) && timesheetId != null) {
-                    stmtCheckDup = connection.prepareStatement(
-                            "SELECT 1 FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate = ? AND TimesheetID <> ?");
-                    stmtCheckDup.setInt(1, empId);
-                    stmtCheckDup.setString(2, workDate);
-                    stmtCheckDup.setInt(3, timesheetId);
-                } else {
-                    stmtCheckDup = connection.prepareStatement(
-                            "SELECT 1 FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate = ?");
-                    stmtCheckDup.setInt(1, empId);
-                    stmtCheckDup.setString(2, workDate);
+                if (timesheets.existsForDate(empId, workDate, editId)) {
+                    return "A timesheet for this employee on this date already exists.";
                 }
 
-                ResultSet rsDup = stmtCheckDup.executeQuery();
-                if (rsDup.next()) {
-                    JOptionPane.showMessageDialog(this,
-                            "A timesheet for this employee on this date already exists.");
-                    return;
+                // The write, its dirty marks and the recompute commit together; a failure leaves none of them
+                boolean previousAutoCommit = c.getAutoCommit();
+                c.setAutoCommit(false);
+                try {
+                    PayrollDirtyTracker dirty = new PayrollDirtyTracker(c);
+                    if (editId == null) {
+                        timesheets.insert(empId, workDate, renderedHours);
+                    } else {
+                        timesheets.update(editId, empId, workDate, renderedHours);
+
+                        // The payrolls covering the old employee/date are affected as well
+                        if (oldEmp != null) {
+                            dirty.markTimesheet(oldEmp, oldDate);
+                        }
+                    }
+
+                    // Only payrolls covering this employee/date need recomputing
+                    dirty.markTimesheet(empId, workDate);
+                    new PayrollRecomputer(c).recomputeDirty(
+                            oldEmp != null ? new int[]{oldEmp, empId} : new int[]{empId});
+                    c.commit();
+                } catch (SQLException ex) {
+                    c.rollback();
+                    throw ex;
+                } finally {
+                    c.setAutoCommit(previousAutoCommit);
                 }
-
-                if ("Add".equals(action)) {
-                    PreparedStatement stmt = connection.prepareStatement(
-                            "INSERT INTO TIMESHEET (EmployeeID, WorkDate, RenderedHours) VALUES (?, ?, ?)");
-                    stmt.setInt(1, empId);
-                    stmt.setString(2, workDate);
-                    stmt.setDouble(3, renderedHours);
-                    stmt.executeUpdate();
-                } else {
-                    int tsId = timesheetId != null ? timesheetId : (int) table.getValueAt(table.getSelectedRow(), 0);
-                    PreparedStatement stmt = connection.prepareStatement(
-                            "UPDATE TIMESHEET SET EmployeeID = ?, WorkDate = ?, RenderedHours = ? WHERE TimesheetID = ?");
-                    stmt.setInt(1, empId);
-                    stmt.setString(2, workDate);
-                    stmt.setDouble(3, renderedHours);
-                    stmt.setInt(4, tsId);
-                    stmt.executeUpdate();
+                return null;
+            }, message -> {
+                if (message != null) {
+                    okBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(this, message);
+                    return;
                 }
-
                 loadTimesheetData();  // Refresh table
                 SwingUtilities.getWindowAncestor(okBtn).dispose();  // CLOSE DIALOG
-
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error saving timesheet: " + ex.getMessage());
-            }
+            }, () -> okBtn.setEnabled(true));
         });
 
         cancelBtn.addActionListener(e -> SwingUtilities.getWindowAncestor(panel).dispose());
@@ -255,6 +254,10 @@ public class AdminTimesheetPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a timesheet to edit.");
             return;
         }
+        if (!PagedTableModel.isRowLoaded(table, selectedRow)) {
+            JOptionPane.showMessageDialog(this, "The selected timesheet is still loading. Try again in a moment.");
+            return;
+        }
         int timesheetId = (int) table.getValueAt(selectedRow, 0);
         showTimesheetDialog("Edit", timesheetId);
     }
@@ -266,22 +269,38 @@ public class AdminTimesheetPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a timesheet to delete.");
             return;
         }
+        if (!PagedTableModel.isRowLoaded(table, selectedRow)) {
+            JOptionPane.showMessageDialog(this, "The selected timesheet is still loading. Try again in a moment.");
+            return;
+        }
+        int tsId = (int) table.getValueAt(selectedRow, 0);
+        int empId = (int) table.getValueAt(selectedRow, 1);
+        String workDate = table.getValueAt(selectedRow, 4).toString();
+
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete the selected timesheet?",
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) {
             return;
         }
+        AsyncLoader.run(this, "Error deleting timesheet", c -> {
+            boolean previousAutoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try {
+                new TimesheetRepository(c).delete(tsId);
 
-        int tsId = (int) table.getValueAt(selectedRow, 0);
-        try {
-            PreparedStatement stmt = connection.prepareStatement("DELETE FROM TIMESHEET WHERE TimesheetID = ?");
-            stmt.setInt(1, tsId);
-            stmt.executeUpdate();
-            loadTimesheetData();
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error deleting timesheet: " + e.getMessage());
-        }
+                // Payrolls that covered the deleted day are recomputed in the same transaction
+                new PayrollDirtyTracker(c).markTimesheet(empId, workDate);
+                new PayrollRecomputer(c).recomputeDirty(empId);
+                c.commit();
+            } catch (SQLException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                c.setAutoCommit(previousAutoCommit);
+            }
+            return null;
+        }, r -> loadTimesheetData());
     }
 
     // Create modern styled button
@@ -2,7 +2,6 @@
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.sql.*;
 import java.util.Vector;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -10,13 +9,12 @@ import javax.swing.table.DefaultTableModel;
 
 public class AdminUserAccountsPanel extends JPanel {
 
-    private final Connection connection; // Database connection for SQL operations
+    private final AsyncLoader loader = new AsyncLoader(this); // Runs USER queries off the EDT
     private final JTable table;          // Table to display admin user accounts
     private JTextField searchField;      // Input for search/filtering
 
-    public AdminUserAccountsPanel(Connection connection) {
+    public AdminUserAccountsPanel() {
         super(new BorderLayout(12, 12));
-        this.connection = connection;
         setBackground(new Color(30, 30, 30));
         setBorder(new EmptyBorder(12, 12, 12, 12));
 
@@ -29,6 +27,7 @@ public class AdminUserAccountsPanel extends JPanel {
         searchBtn.addActionListener(e -> loadUserAccounts(searchField.getText().trim()));
         searchPanel.add(searchField);
         searchPanel.add(searchBtn);
+        searchPanel.add(loader.getIndicator());
         add(searchPanel, BorderLayout.NORTH);
 
         // TOP BUTTON PANEL setup
@@ -89,20 +88,12 @@ public class AdminUserAccountsPanel extends JPanel {
 
         // Load initial data
         loadUserAccounts("");
+        // Reload when another client changes the data shown
+        ChangeVersionPoller.refreshWhileShowing(this, () -> loadUserAccounts(searchField.getText().trim()), "USER");
     }
 
     // Load Admin Accounts from database
     private void loadUserAccounts(String search) {
-        String query = "SELECT u.UserID, u.EmployeeID, CONCAT(e.FirstName,' ',e.LastName) AS AdminName, u.Username, u.Role "
-                + "FROM USER u JOIN EMPLOYEE e ON u.EmployeeID = e.EmployeeID "
-                + "WHERE u.Role='Admin' ";
-
-        // Add search filter if needed
-        if (search != null && !search.isEmpty()) {
-            query += "AND (u.Username LIKE ? OR e.FirstName LIKE ? OR e.LastName LIKE ?) ";
-        }
-        query += "ORDER BY u.UserID";
-
         Vector<String> columnNames = new Vector<>();
         columnNames.add("UserID");
         columnNames.add("EmployeeID");
@@ -110,43 +101,45 @@ public class AdminUserAccountsPanel extends JPanel {
         columnNames.add("Username");
         columnNames.add("Role");
 
-        Vector<Vector<Object>> data = new Vector<>();
-
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
-            // Bind search parameters
-            if (search != null && !search.isEmpty()) {
-                String s = "%" + search + "%";
-                ps.setString(1, s);
-                ps.setString(2, s);
-                ps.setString(3, s);
-            }
-
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
+        loader.load("Error loading admins", c -> new UserRepository(c, "Admin").search(search), accounts -> {
+            // Update table model
+            Vector<Vector<Object>> data = new Vector<>();
+            for (UserRepository.Account a : accounts) {
                 Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("UserID"));
-                row.add(rs.getInt("EmployeeID"));
-                row.add(rs.getString("AdminName"));
-                row.add(rs.getString("Username"));
-                row.add(rs.getString("Role"));
+                row.add(a.userId);
+                row.add(a.employeeId);
+                row.add(a.employeeName);
+                row.add(a.username);
+                row.add(a.role);
                 data.add(row);
             }
-
-            // Update table model
             table.setModel(new DefaultTableModel(data, columnNames) {
                 @Override
                 public boolean isCellEditable(int row, int column) {
                     return false;
                 }
             });
-
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error loading admins: " + ex.getMessage());
-        }
+        });
     }
 
     // Add / Edit Admin Dialog
     private void showUserDialog(String action, Integer userID) {
+        if (!"Edit".equals(action) || userID == null) {
+            showUserDialog(action, userID, null);
+            return;
+        }
+        // Load the account first, then open the dialog with it
+        AsyncLoader.run(this, "Error loading admin", c -> new UserRepository(c, "Admin").findById(userID), account -> {
+            if (account == null) {
+                JOptionPane.showMessageDialog(this, "Admin not found.");
+                return;
+            }
+            showUserDialog(action, userID, account);
+        });
+    }
+
+    // account is the one being edited, or null when adding
+    private void showUserDialog(String action, Integer userID, UserRepository.Account account) {
         JDialog dialog = new JDialog((JFrame) SwingUtilities.getWindowAncestor(this),
                 action + " Admin", true);
         dialog.setLayout(new BorderLayout(10, 10));
@@ -165,24 +158,9 @@ public class AdminUserAccountsPanel extends JPanel {
         JPasswordField passwordField = new JPasswordField(20);
 
         // If editing, load current admin data
-        if ("Edit".equals(action) && userID != null) {
-            try (PreparedStatement ps = connection.prepareStatement(
-                    "SELECT * FROM USER WHERE UserID=? AND Role='Admin'")) {
-                ps.setInt(1, userID);
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    employeeIdField.setText(String.valueOf(rs.getInt("EmployeeID")));
-                    usernameField.setText(rs.getString("Username"));
-                } else {
-                    JOptionPane.showMessageDialog(this, "Admin not found.");
-                    dialog.dispose();
-                    return;
-                }
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error loading admin: " + ex.getMessage());
-                dialog.dispose();
-                return;
-            }
+        if (account != null) {
+            employeeIdField.setText(String.valueOf(account.employeeId));
+            usernameField.setText(account.username);
         }
 
         // Labels and fields
@@ -227,56 +205,35 @@ public class AdminUserAccountsPanel extends JPanel {
                 return;
             }
 
-            try {
+            if ("Add".equals(action) && pwd.isEmpty()) {
+                JOptionPane.showMessageDialog(dialog, "Password is required for new admin.");
+                return;
+            }
+
+            // A non-null result is a message for the user
+            okBtn.setEnabled(false);
+            AsyncLoader.run(dialog, "Error saving admin", c -> {
+                UserRepository users = new UserRepository(c, "Admin");
                 if ("Add".equals(action)) {
                     // Check duplicate EmployeeID
-                    String checkSql = "SELECT COUNT(*) FROM USER WHERE EmployeeID=? AND Role='Admin'";
-                    PreparedStatement checkPs = connection.prepareStatement(checkSql);
-                    checkPs.setInt(1, empID);
-                    ResultSet rsCheck = checkPs.executeQuery();
-                    if (rsCheck.next() && rsCheck.getInt(1) > 0) {
-                        JOptionPane.showMessageDialog(dialog, "This employee already has an admin account.");
-                        return;
+                    if (users.hasAccount(empID)) {
+                        return "This employee already has an admin account.";
                     }
-
-                    if (pwd.isEmpty()) {
-                        JOptionPane.showMessageDialog(dialog, "Password is required for new admin.");
-                        return;
-                    }
-
-                    // Insert new admin
-                    String sql = "INSERT INTO USER (EmployeeID, Username, Password, Role) VALUES (?, ?, ?, 'Admin')";
-                    PreparedStatement ps = connection.prepareStatement(sql);
-                    ps.setInt(1, empID);
-                    ps.setString(2, uname);
-                    ps.setString(3, pwd);
-                    ps.executeUpdate();
-                    JOptionPane.showMessageDialog(dialog, "Admin added");
-
-                } else { // Edit existing admin
-                    if (pwd.isEmpty()) {
-                        String sql = "UPDATE USER SET EmployeeID=?, Username=? WHERE UserID=? AND Role='Admin'";
-                        PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setInt(1, empID);
-                        ps.setString(2, uname);
-                        ps.setInt(3, userID);
-                        ps.executeUpdate();
-                    } else {
-                        String sql = "UPDATE USER SET EmployeeID=?, Username=?, Password=? WHERE UserID=? AND Role='Admin'";
-                        PreparedStatement ps = connection.prepareStatement(sql);
-                        ps.setInt(1, empID);
-                        ps.setString(2, uname);
-                        ps.setString(3, pwd);
-                        ps.setInt(4, userID);
-                        ps.executeUpdate();
-                    }
-                    JOptionPane.showMessageDialog(dialog, "Admin updated");
+                    users.insert(empID, uname, pwd);
+                } else { // Edit
+                    users.update(userID, empID, uname, pwd.isEmpty() ? null : pwd);
                 }
+                return null;
+            }, message -> {
+                if (message != null) {
+                    okBtn.setEnabled(true);
+                    JOptionPane.showMessageDialog(dialog, message);
+                    return;
+                }
+                JOptionPane.showMessageDialog(dialog, "Add".equals(action) ? "Admin added" : "Admin updated");
                 dialog.dispose();
                 loadUserAccounts("");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(dialog, "Error saving admin: " + ex.getMessage());
-            }
+            }, () -> okBtn.setEnabled(true));
         });
 
         cancelBtn.addActionListener(e -> dialog.dispose());
@@ -301,13 +258,10 @@ public class AdminUserAccountsPanel extends JPanel {
             return;
         }
 
-        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM USER WHERE UserID=? AND Role='Admin'")) {
-            ps.setInt(1, userID);
-            ps.executeUpdate();
-            loadUserAccounts("");
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error deleting admin: " + ex.getMessage());
-        }
+        AsyncLoader.run(this, "Error deleting admin", c -> {
+            new UserRepository(c, "Admin").delete(userID);
+            return null;
+        }, r -> loadUserAccounts(""));
     }
 
     // Helper: Modern styled button
@@ -0,0 +1,139 @@
+
+import java.awt.*;
+import java.sql.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.*;
+
+// Runs database work for the Swing screens on a background thread, never on the Event Dispatch Thread
+// Every task borrows its own pooled connection for as long as it runs; results and errors come back on the EDT
+// Each table keeps one AsyncLoader: a new load() supersedes the one still running, whose result is dropped
+// Run with -Dpayroll.debugEdt=true to make any JDBC call from the EDT fail (see ConnectionPool)
+public final class AsyncLoader {
+
+    private static final Logger LOG = Logger.getLogger(AsyncLoader.class.getName());
+
+    // Database work, run on a background thread with a connection borrowed for this task
+    public interface Query<T> {
+
+        T run(Connection connection) throws SQLException;
+    }
+
+    private final Component owner;
+    private final JLabel indicator = new JLabel("Loading...");
+
+    // EDT only
+    private SwingWorker<?, ?> current;
+    private long generation;   // Bumped by every load() and cancel(); older results are ignored
+
+    // owner is the parent for error dialogs
+    public AsyncLoader(Component owner) {
+        this.owner = owner;
+        indicator.setForeground(new Color(180, 180, 180));
+        indicator.setVisible(false);
+    }
+
+    // Label shown while a load is running; add it next to the table it belongs to
+    public JComponent getIndicator() {
+        return indicator;
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    // Starts a load, cancelling the previous one; onLoaded runs on the EDT only if this is still the latest load
+    // On failure, errorMessage + ": " + cause is shown
+    public <T> void load(String errorMessage, Query<T> query, Consumer<T> onLoaded) {
+        cancel();
+        long token = generation;
+        indicator.setVisible(true);
+        current = start(query, result -> {
+            if (token == generation) {
+                done();
+                onLoaded.accept(result);
+            }
+        }, error -> {
+            if (token == generation) {
+                done();
+                showError(owner, errorMessage, error);
+            }
+        });
+    }
+
+    // Drops the running load, if any; its thread is interrupted and its result never delivered
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        indicator.setVisible(false);
+    }
+
+    private void done() {
+        current = null;
+        indicator.setVisible(false);
+    }
+
+    // One-off work such as a save or delete; never superseded by later calls
+    // onDone runs on the EDT with the result; on failure the error is shown instead
+    public static <T> void run(Component owner, String errorMessage, Query<T> query, Consumer<T> onDone) {
+        run(owner, errorMessage, query, onDone, null);
+    }
+
+    // As above; onFailed (may be null) runs after the error is shown, e.g. to re-enable a Save button
+    public static <T> void run(Component owner, String errorMessage, Query<T> query, Consumer<T> onDone,
+            Runnable onFailed) {
+        start(query, onDone, error -> {
+            showError(owner, errorMessage, error);
+            if (onFailed != null) {
+                onFailed.run();
+            }
+        });
+    }
+
+    private static <T> SwingWorker<T, Void> start(Query<T> query, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                try (Connection conn = ConnectionPool.getInstance().getConnection()) {
+                    return query.run(conn);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                T result;
+                try {
+                    result = get();
+                } catch (CancellationException | InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    onError.accept(e.getCause());
+                    return;
+                }
+                onSuccess.accept(result);
+            }
+        };
+        worker.execute();
+        return worker;
+    }
+
+    // Every failure gets the same dialog; anything but an SQLException is a bug rather than a database
+    // problem, so it is also logged with its stack trace
+    private static void showError(Component owner, String errorMessage, Throwable error) {
+        if (!(error instanceof SQLException)) {
+            LOG.log(Level.SEVERE, errorMessage, error);
+        }
+        String detail = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        JOptionPane.showMessageDialog(owner, errorMessage + ": " + detail,
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+    }
+}
@@ -0,0 +1,587 @@
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reads a large attendance export (EmployeeID,WorkDate,RenderedHours per line) for TimesheetCsvImporter
+// The file is cut at line boundaries into splits of about SPLIT_BYTES. Each split is memory-mapped and parsed on
+// a worker thread straight from the bytes into the int columns of TimesheetCsvImporter.Chunk, so no String is
+// made for a plain line. Splits come back in file order, and only a few are parsed ahead of the importer, so
+// memory stays bounded whatever the size of the file. The checks are those of TimesheetCsvImporter.parse: a value
+// the fast path does not handle (a sign, an exponent) is parsed as there. A quoted field may not contain a comma
+// or a quote, which no valid EmployeeID, date or hours value does.
+//   java AttendanceFileReader --benchmark attendance.csv [rounds]    compares with BufferedReader + String.split
+//   java AttendanceFileReader --generate attendance.csv <employees> <days>
+final class AttendanceFileReader implements AutoCloseable {
+
+    static final int SPLIT_BYTES = 8 << 20;
+
+    private static final String BAD_LINE = "Expected EmployeeID,WorkDate,RenderedHours";
+    private static final String BAD_EMPLOYEE = "Employee ID must be a number";
+    private static final String NO_EMPLOYEE = "Employee ID does not exist";
+    private static final String BAD_DATE = "Work Date must be YYYY-MM-DD";
+    private static final String BAD_HOURS = "Rendered Hours must be a number";
+    private static final String HOURS_RANGE = "Rendered Hours must be between 0 and 24 with at most 2 decimals";
+    private static final BigDecimal MAX_HOURS = new BigDecimal("24");
+
+    private final FileChannel channel;
+    private final BitSet employees;
+    private final int chunkSize;
+    private final long[] bounds;        // Start of each split, then the file size
+    private final ExecutorService workers;
+    private final int lookahead;        // Splits parsed or being parsed ahead of next()
+    private final ArrayDeque<Future<Split>> pending = new ArrayDeque<>();
+    private int nextSplit;
+    private ArrayDeque<TimesheetCsvImporter.Chunk> ready = new ArrayDeque<>();
+    private long lineBase;              // Lines in the splits already handed out
+    private long lines;
+
+    AttendanceFileReader(Path file, BitSet employees, int chunkSize) throws IOException {
+        this(file, employees, chunkSize, Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors() - 1)));
+    }
+
+    AttendanceFileReader(Path file, BitSet employees, int chunkSize, int threads) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.employees = employees;
+        this.chunkSize = Math.max(1, chunkSize);
+        try {
+            this.bounds = split(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "attendance-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        this.lookahead = threads * 2;
+    }
+
+    // A parsed split: its valid lines, and its rejected ones to report before them
+    private static final class Split {
+
+        final List<TimesheetCsvImporter.Chunk> chunks = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>();
+        long lineCount;      // Every line, for numbering the next split
+        long dataLines;      // Not blank and not the header
+    }
+
+    private static final class Reject {
+
+        final long lineNo;   // Within the split until handed out
+        final String reason;
+        final String text;
+
+        Reject(long lineNo, String reason, String text) {
+            this.lineNo = lineNo;
+            this.reason = reason;
+            this.text = text;
+        }
+    }
+
+    // Valid lines of a split; the text of a line is decoded from the mapping only for the error report
+    private static final class MappedChunk extends TimesheetCsvImporter.Chunk {
+
+        private final ByteBuffer buffer;
+        private final int[] starts;
+
+        MappedChunk(int capacity, ByteBuffer buffer) {
+            super(capacity, false);
+            this.buffer = buffer;
+            this.starts = new int[capacity];
+        }
+
+        @Override
+        String text(int i) {
+            int end = starts[i];
+            while (end < buffer.limit() && buffer.get(end) != '\n') {
+                end++;
+            }
+            return decode(buffer, starts[i], end > starts[i] && buffer.get(end - 1) == '\r' ? end - 1 : end);
+        }
+    }
+
+    // --- READING ---
+    // Next chunk in file order, after reporting the rejected lines that precede it; null at the end of the file
+    TimesheetCsvImporter.Chunk next(TimesheetCsvImporter.ErrorReport errors) throws IOException {
+        while (ready.isEmpty()) {
+            while (pending.size() < lookahead && nextSplit < bounds.length - 1) {
+                int index = nextSplit++;
+                pending.add(workers.submit(() -> parse(index)));
+            }
+            if (pending.isEmpty()) {
+                return null;
+            }
+            Split split = take(pending.poll());
+            for (Reject r : split.rejects) {
+                errors.reject(lineBase + r.lineNo, r.reason, r.text);
+            }
+            for (TimesheetCsvImporter.Chunk chunk : split.chunks) {
+                for (int i = 0; i < chunk.size; i++) {
+                    chunk.lineNos[i] += lineBase;
+                }
+            }
+            ready = new ArrayDeque<>(split.chunks);
+            lineBase += split.lineCount;
+            lines += split.dataLines;
+        }
+        return ready.poll();
+    }
+
+    // Data lines in the splits handed out so far; all of them once next() has returned null
+    long getLines() {
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        workers.shutdownNow();
+        channel.close();
+    }
+
+    private static Split take(Future<Split> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the attendance file", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not read the attendance file: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Split starts: every SPLIT_BYTES, moved forward to the start of the next line
+    private static long[] split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> starts = new ArrayList<>();
+        starts.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = SPLIT_BYTES;
+        while (position < size) {
+            long boundary = lineStart(channel, position, probe);
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary - starts.get(starts.size() - 1) > Integer.MAX_VALUE) {
+                throw new IOException("Line too long at byte " + position);
+            }
+            starts.add(boundary);
+            position = boundary + SPLIT_BYTES;
+        }
+        long[] bounds = new long[starts.size() + 1];
+        for (int i = 0; i < starts.size(); i++) {
+            bounds[i] = starts.get(i);
+        }
+        bounds[starts.size()] = size;
+        return bounds;
+    }
+
+    // First line start at or after position
+    private static long lineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        long at = position - 1;   // If the previous byte ends a line, position starts one
+        while (true) {
+            probe.clear();
+            int n = channel.read(probe, at);
+            if (n <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return at + i + 1;
+                }
+            }
+            at += n;
+        }
+    }
+
+    // --- PARSING ---
+    private Split parse(int index) throws IOException {
+        long start = bounds[index];
+        int length = (int) (bounds[index + 1] - start);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        LineParser parser = new LineParser(buffer);
+        Split split = new Split();
+        MappedChunk chunk = new MappedChunk(chunkSize, buffer);
+
+        int p = 0;
+        if (index == 0 && length >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB
+                && buffer.get(2) == (byte) 0xBF) {
+            p = 3; // Byte order mark written by spreadsheet programs
+        }
+        long lineNo = 0;
+        while (p < length) {
+            int end = p;
+            while (end < length && buffer.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > p && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            lineNo++;
+            if (isBlank(buffer, p, end) || (index == 0 && lineNo == 1 && parser.isHeader(p, end))) {
+                p = next;
+                continue;
+            }
+            split.dataLines++;
+            String error = parser.parse(p, end);
+            if (error != null) {
+                split.rejects.add(new Reject(lineNo, error, decode(buffer, p, end)));
+            } else {
+                chunk.starts[chunk.size] = p;
+                chunk.add(lineNo, parser.employeeId, parser.workDay, parser.hundredths, null);
+                if (chunk.isFull()) {
+                    split.chunks.add(chunk);
+                    chunk = new MappedChunk(chunkSize, buffer);
+                }
+            }
+            p = next;
+        }
+        if (chunk.size > 0) {
+            split.chunks.add(chunk);
+        }
+        split.lineCount = lineNo;
+        return split;
+    }
+
+    // Parses the lines of one split; keeps the last date, which most lines repeat
+    private final class LineParser {
+
+        private final ByteBuffer buffer;
+        private final int[] fields = new int[6];   // Start and end of the three fields
+        private int cachedDate = -1;               // yyyymmdd
+        private int cachedDay;
+
+        int employeeId;
+        int workDay;
+        int hundredths;
+
+        LineParser(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        // Returns why the line is rejected, or null with the fields set
+        String parse(int from, int to) {
+            if (!split(from, to)) {
+                return BAD_LINE;
+            }
+            employeeId = digits(fields[0], fields[1]);
+            if (employeeId < 0) {
+                try {
+                    employeeId = Integer.parseInt(decode(buffer, fields[0], fields[1]));
+                } catch (NumberFormatException e) {
+                    return BAD_EMPLOYEE;
+                }
+            }
+            if (employeeId <= 0 || !employees.get(employeeId)) {
+                return NO_EMPLOYEE;
+            }
+            if (!date(fields[2], fields[3])) {
+                return BAD_DATE;
+            }
+            hundredths = hours(fields[4], fields[5]);
+            if (hundredths == -1) {
+                hundredths = parseHours(fields[4], fields[5]);
+            }
+            if (hundredths == -1) {
+                return BAD_HOURS;
+            }
+            return hundredths < 0 ? HOURS_RANGE : null;
+        }
+
+        // The header is a first line whose first field is not a number, as TimesheetCsvImporter.isHeader
+        boolean isHeader(int from, int to) {
+            int comma = indexOf(',', from, to);
+            trim(from, comma < 0 ? to : comma, 0);
+            if (fields[0] == fields[1]) {
+                return true;
+            }
+            for (int i = fields[0]; i < fields[1]; i++) {
+                if (buffer.get(i) < '0' || buffer.get(i) > '9') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean split(int from, int to) {
+            int first = indexOf(',', from, to);
+            int second = first < 0 ? -1 : indexOf(',', first + 1, to);
+            if (second < 0) {
+                return false;
+            }
+            int third = indexOf(',', second + 1, to);   // Further fields are ignored
+            trim(from, first, 0);
+            trim(first + 1, second, 2);
+            trim(second + 1, third < 0 ? to : third, 4);
+            return true;
+        }
+
+        // Bounds of a field without surrounding blanks and quotes
+        private void trim(int from, int to, int slot) {
+            while (from < to && buffer.get(from) <= ' ') {
+                from++;
+            }
+            while (to > from && buffer.get(to - 1) <= ' ') {
+                to--;
+            }
+            if (to - from >= 2 && buffer.get(from) == '"' && buffer.get(to - 1) == '"') {
+                from++;
+                to--;
+            }
+            fields[slot] = from;
+            fields[slot + 1] = to;
+        }
+
+        private int indexOf(char c, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Unsigned decimal of up to 9 digits; -1 otherwise
+        private int digits(int from, int to) {
+            if (from == to || to - from > 9) {
+                return -1;
+            }
+            int value = 0;
+            for (int i = from; i < to; i++) {
+                int d = buffer.get(i) - '0';
+                if (d < 0 || d > 9) {
+                    return -1;
+                }
+                value = value * 10 + d;
+            }
+            return value;
+        }
+
+        // YYYY-MM-DD into workDay
+        private boolean date(int from, int to) {
+            if (to - from != 10 || buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+                return false;
+            }
+            int year = digits(from, from + 4);
+            int month = digits(from + 5, from + 7);
+            int day = digits(from + 8, from + 10);
+            if (year < 0 || month < 0 || day < 0) {
+                return false;
+            }
+            int key = year * 10000 + month * 100 + day;
+            if (key != cachedDate) {
+                if (month < 1 || month > 12 || day < 1 || day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+                    return false;
+                }
+                cachedDay = (int) LocalDate.of(year, month, day).toEpochDay();
+                cachedDate = key;
+            }
+            workDay = cachedDay;
+            return true;
+        }
+
+        // Plain hours (digits, optionally a point and more digits) in hundredths; -2 if over 24 or with more than
+        // 2 decimals, -1 for anything else
+        private int hours(int from, int to) {
+            int i = from;
+            long whole = 0;
+            while (i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                whole = Math.min(whole * 10 + (buffer.get(i) - '0'), 1_000_000);
+                i++;
+            }
+            int fraction = 0;
+            int decimals = 0;
+            boolean tooPrecise = false;
+            if (i < to && buffer.get(i) == '.') {
+                i++;
+                while (i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+                    int d = buffer.get(i) - '0';
+                    if (decimals < 2) {
+                        fraction = fraction * 10 + d;
+                    } else if (d != 0) {
+                        tooPrecise = true; // Trailing zeros are fine, as with BigDecimal.stripTrailingZeros
+                    }
+                    decimals++;
+                    i++;
+                }
+            }
+            if (i != to || i == from || (i == from + 1 && buffer.get(from) == '.')) {
+                return -1;
+            }
+            long value = whole * 100 + (decimals == 1 ? fraction * 10 : fraction);
+            return tooPrecise || value > 2400 ? -2 : (int) value;
+        }
+
+        // Any other form, as TimesheetCsvImporter.parse reads it
+        private int parseHours(int from, int to) {
+            BigDecimal hours;
+            try {
+                hours = new BigDecimal(decode(buffer, from, to));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            if (hours.signum() < 0 || hours.compareTo(MAX_HOURS) > 0 || hours.stripTrailingZeros().scale() > 2) {
+                return -2;
+            }
+            return hours.movePointRight(2).intValueExact();
+        }
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) > ' ' || buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- BENCHMARK ---
+    // What a straightforward importer does: one String per line and per field, then parse each field
+    static long readNaive(Path file, BitSet employees) throws IOException {
+        long sum = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            boolean first = true;
+            while ((line = in.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (first) {
+                    first = false;
+                    if (!fields[0].trim().matches("\\d+")) {
+                        continue;
+                    }
+                }
+                if (fields.length < 3) {
+                    continue;
+                }
+                try {
+                    int employeeId = Integer.parseInt(fields[0].trim());
+                    if (employees.get(employeeId)) {
+                        sum += employeeId + LocalDate.parse(fields[1].trim()).toEpochDay()
+                                + new BigDecimal(fields[2].trim()).movePointRight(2).intValue();
+                    }
+                } catch (RuntimeException e) {
+                    // Rejected
+                }
+            }
+        }
+        return sum;
+    }
+
+    static long readMapped(Path file, BitSet employees, int threads) throws IOException {
+        long sum = 0;
+        TimesheetCsvImporter.ErrorReport errors = new TimesheetCsvImporter.ErrorReport(
+                Paths.get(file + ".benchmark-errors.csv"), 100);
+        try (AttendanceFileReader in = new AttendanceFileReader(file, employees, TimesheetCsvImporter.CHUNK_SIZE,
+                threads)) {
+            TimesheetCsvImporter.Chunk chunk;
+            while ((chunk = in.next(errors)) != null) {
+                for (int i = 0; i < chunk.size; i++) {
+                    sum += chunk.employeeIds[i] + chunk.workDays[i] + chunk.hundredths[i];
+                }
+            }
+        } finally {
+            errors.close();
+        }
+        return sum;
+    }
+
+    // Synthetic export: one line per employee per day, hours between 0 and 12
+    static void generate(Path file, int employeeCount, int days) throws IOException {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.now().minusDays(days);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("EmployeeID,WorkDate,RenderedHours");
+            out.newLine();
+            for (int d = 0; d < days; d++) {
+                String date = first.plusDays(d).toString();
+                for (int e = 1; e <= employeeCount; e++) {
+                    int hundredths = random.nextInt(1201);
+                    out.write(e + "," + date + "," + hundredths / 100 + "." + (hundredths % 100 < 10 ? "0" : "")
+                            + hundredths % 100);
+                    out.newLine();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--generate")) {
+            generate(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if (args.length < 2 || !args[0].equals("--benchmark")) {
+            System.out.println("Usage: java AttendanceFileReader --benchmark <file.csv> [rounds]");
+            System.out.println("       java AttendanceFileReader --generate <file.csv> <employees> <days>");
+            System.exit(2);
+        }
+        // Parsing only, without the database: every EmployeeID below 2^20 counts as valid
+        Path file = Paths.get(args[1]);
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        BitSet employees = new BitSet();
+        employees.set(1, 1 << 20);
+        int cpus = Runtime.getRuntime().availableProcessors();
+        double megabytes = Files.size(file) / 1e6;
+        System.out.printf("%s: %.0f MB, %d processor(s), best of %d round(s) after one warm-up%n", file, megabytes,
+                cpus, rounds);
+
+        long expected = readNaive(file, employees);
+        report("BufferedReader + split", megabytes, expected, () -> readNaive(file, employees), rounds);
+        for (int threads = 1; threads <= cpus; threads *= 2) {
+            int t = threads;
+            report("mapped, " + t + " thread(s)", megabytes, expected, () -> readMapped(file, employees, t), rounds);
+        }
+    }
+
+    private interface Reader {
+
+        long read() throws IOException;
+    }
+
+    private static void report(String name, double megabytes, long expected, Reader reader, int rounds)
+            throws IOException {
+        reader.read(); // Warm-up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            long sum = reader.read();
+            best = Math.min(best, System.nanoTime() - start);
+            if (sum != expected) {
+                throw new IllegalStateException(name + " read different values: " + sum + " != " + expected);
+            }
+        }
+        System.out.printf("%-24s %8.0f ms %8.0f MB/s%n", name, best / 1e6, megabytes / (best / 1e9));
+    }
+}
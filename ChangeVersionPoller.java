@@ -0,0 +1,166 @@
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+
+// Notices writes made by other clients: triggers bump a per-table counter in CHANGE_VERSION (migration V006)
+// and this poller reads the counters every cache.pollIntervalMs, so each client refreshes only the caches
+// and visible tables whose counters moved. Local writes move the counters too, which costs one extra reload.
+public final class ChangeVersionPoller {
+
+    private static final Logger LOG = Logger.getLogger(ChangeVersionPoller.class.getName());
+
+    private static final ChangeVersionPoller INSTANCE = new ChangeVersionPoller();
+
+    // Listener for changes to any of its tables; called on the poller thread
+    private static final class Subscription {
+
+        final Set<String> tables;
+        final Runnable listener;
+
+        Subscription(Set<String> tables, Runnable listener) {
+            this.tables = tables;
+            this.listener = listener;
+        }
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();   // Last polled, by table name
+    private ScheduledExecutorService scheduler;                            // null until start()
+
+    private ChangeVersionPoller() {
+    }
+
+    public static ChangeVersionPoller getInstance() {
+        return INSTANCE;
+    }
+
+    // Starts polling (once per process) and hooks up the shared caches
+    // Headless tools do not call this and keep their caches for the length of a run
+    public synchronized void start() {
+        long interval = DatabaseConfig.getInstance().getCachePollIntervalMillis();
+        if (scheduler != null || interval <= 0) {
+            return;
+        }
+        addListener(() -> ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.DEPARTMENT),
+                "DEPARTMENT");
+        addListener(() -> ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.POSITION),
+                "POSITION");
+        addListener(() -> HourlyRateCache.getInstance().clear(), "EMPLOYEE");
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-version-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    // Runs listener on the poller thread after another write to any of the tables (CHANGE_VERSION names)
+    public void addListener(Runnable listener, String... tables) {
+        subscriptions.add(new Subscription(new HashSet<>(Arrays.asList(tables)), listener));
+    }
+
+    public void removeListener(Runnable listener) {
+        subscriptions.removeIf(s -> s.listener == listener);
+    }
+
+    // Last polled counter of a table, or -1 before the first poll
+    public long getVersion(String table) {
+        return versions.getOrDefault(table, -1L);
+    }
+
+    // Runs refresh on the EDT when one of the tables changes while view is showing, and when view is shown
+    // again (e.g. its tab is selected) after a change it missed. Hidden views cost nothing.
+    public static void refreshWhileShowing(JComponent view, Runnable refresh, String... tables) {
+        ChangeVersionPoller poller = getInstance();
+        Runnable onChange = () -> SwingUtilities.invokeLater(() -> {
+            if (view.isShowing()) {
+                refresh.run();
+            }
+        });
+        view.addAncestorListener(new AncestorListener() {
+            private Map<String, Long> seen;   // Counters when the view was hidden
+
+            @Override
+            public void ancestorAdded(AncestorEvent e) {
+                poller.addListener(onChange, tables);
+                if (seen != null && !seen.equals(poller.snapshot(tables))) {
+                    refresh.run();
+                }
+                seen = null;
+            }
+
+            @Override
+            public void ancestorRemoved(AncestorEvent e) {
+                poller.removeListener(onChange);
+                seen = poller.snapshot(tables);
+            }
+
+            @Override
+            public void ancestorMoved(AncestorEvent e) {
+            }
+        });
+    }
+
+    private Map<String, Long> snapshot(String... tables) {
+        Map<String, Long> copy = new HashMap<>();
+        for (String table : tables) {
+            copy.put(table, getVersion(table));
+        }
+        return copy;
+    }
+
+    private void poll() {
+        Set<String> changed = new HashSet<>();
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+                PreparedStatement ps = conn.prepareStatement("SELECT TableName, Version FROM CHANGE_VERSION");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                String table = rs.getString(1).toUpperCase();
+                Long previous = versions.put(table, rs.getLong(2));
+                if (previous != null && previous != rs.getLong(2)) {
+                    changed.add(table);
+                }
+            }
+        } catch (SQLException e) {
+            if ("42S02".equals(e.getSQLState())) {
+                // Migration V006 not applied: nothing to poll until the next start
+                LOG.warning("CHANGE_VERSION table missing; changes from other clients will not be noticed");
+                scheduler.shutdown();
+            } else {
+                LOG.log(Level.FINE, "Change version poll failed", e);
+            }
+            return;
+        }
+
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (Subscription s : subscriptions) {
+            if (!Collections.disjoint(s.tables, changed)) {
+                try {
+                    s.listener.run();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Change listener failed", e);
+                }
+            }
+        }
+    }
+}
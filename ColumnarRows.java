@@ -0,0 +1,282 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Query results stored column by column in primitive arrays instead of one Vector<Object> of boxed values per row
+// INT columns are int[], DECIMAL columns unscaled long[] (centavos for money, hundredths for hours),
+// DATE columns epoch-day int[], and repetitive strings such as department names int codes into a shared dictionary.
+// A timesheet row takes about 50 bytes this way against several hundred as boxed cells
+// Values are boxed only when a cell is read, as Integer, Long, BigDecimal, LocalDate or String
+public final class ColumnarRows {
+
+    private enum Kind {
+        INT, LONG, DECIMAL, DATE, STRING, DICTIONARY, OBJECT
+    }
+
+    // How each column is stored, decided once from the result set metadata and shared by every page of a table
+    public static final class Schema {
+
+        private final String[] labels;
+        private final Kind[] kinds;
+        private final int[] scales;                  // DECIMAL columns only
+        private final Dictionary[] dictionaries;     // DICTIONARY columns only
+
+        private Schema(ResultSetMetaData meta, Set<String> dictionaryLabels) throws SQLException {
+            int columns = meta.getColumnCount();
+            labels = new String[columns];
+            kinds = new Kind[columns];
+            scales = new int[columns];
+            dictionaries = new Dictionary[columns];
+            for (int i = 0; i < columns; i++) {
+                labels[i] = meta.getColumnLabel(i + 1);
+                kinds[i] = kindOf(meta, i + 1);
+                if (kinds[i] == Kind.DECIMAL) {
+                    scales[i] = meta.getScale(i + 1);
+                }
+                if (kinds[i] == Kind.STRING && dictionaryLabels.contains(labels[i])) {
+                    kinds[i] = Kind.DICTIONARY;
+                    dictionaries[i] = new Dictionary();
+                }
+            }
+        }
+
+        // Builds the schema of a result set; string columns named in dictionaryLabels are dictionary-encoded
+        public static Schema of(ResultSetMetaData meta, Set<String> dictionaryLabels) throws SQLException {
+            return new Schema(meta, dictionaryLabels);
+        }
+
+        public int getColumnCount() {
+            return kinds.length;
+        }
+
+        public String getColumnLabel(int column) {
+            return labels[column];
+        }
+
+        // Class of the values getValue returns, for JTable renderers and sorters
+        public Class<?> getColumnClass(int column) {
+            switch (kinds[column]) {
+                case INT:
+                    return Integer.class;
+                case LONG:
+                    return Long.class;
+                case DECIMAL:
+                    return BigDecimal.class;
+                case DATE:
+                    return LocalDate.class;
+                case STRING:
+                case DICTIONARY:
+                    return String.class;
+                default:
+                    return Object.class;
+            }
+        }
+
+        private static Kind kindOf(ResultSetMetaData meta, int column) throws SQLException {
+            switch (meta.getColumnType(column)) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                    return Kind.INT;
+                case Types.BIGINT:
+                    return Kind.LONG;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    // Precision up to 18 digits always fits a long
+                    return meta.getPrecision(column) <= 18 && meta.getScale(column) >= 0 ? Kind.DECIMAL : Kind.OBJECT;
+                case Types.DATE:
+                    return Kind.DATE;
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.LONGVARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                    return Kind.STRING;
+                default:
+                    return Kind.OBJECT;
+            }
+        }
+    }
+
+    // Distinct strings of one column; pages of the same table may be read on several threads at once
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        synchronized int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        synchronized String value(int code) {
+            return values.get(code);
+        }
+    }
+
+    private final Schema schema;
+    private final int size;
+    private final Object[] columns;   // int[], long[], String[] or Object[] per column
+    private final BitSet[] nulls;     // Null flags, only for columns that had a null
+
+    private ColumnarRows(Schema schema, int size, Object[] columns, BitSet[] nulls) {
+        this.schema = schema;
+        this.size = size;
+        this.columns = columns;
+        this.nulls = nulls;
+    }
+
+    // Reads up to limit rows (all rows if limit is negative); schema may be null to build one from this result set
+    public static ColumnarRows read(ResultSet rs, Schema schema, Set<String> dictionaryLabels, int limit)
+            throws SQLException {
+        if (schema == null) {
+            schema = Schema.of(rs.getMetaData(), dictionaryLabels);
+        }
+        int count = schema.getColumnCount();
+        int capacity = limit >= 0 ? limit : 64;
+        Object[] columns = new Object[count];
+        BitSet[] nulls = new BitSet[count];
+        for (int c = 0; c < count; c++) {
+            columns[c] = newColumn(schema.kinds[c], capacity);
+        }
+
+        int row = 0;
+        while ((limit < 0 || row < limit) && rs.next()) {
+            if (row == capacity) {
+                capacity *= 2;
+                for (int c = 0; c < count; c++) {
+                    columns[c] = grow(columns[c], capacity);
+                }
+            }
+            for (int c = 0; c < count; c++) {
+                if (!store(rs, c, schema, columns[c], row)) {
+                    if (nulls[c] == null) {
+                        nulls[c] = new BitSet();
+                    }
+                    nulls[c].set(row);
+                }
+            }
+            row++;
+        }
+        return new ColumnarRows(schema, row, columns, nulls);
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The cell value, boxed for display
+    public Object getValue(int row, int column) {
+        if (nulls[column] != null && nulls[column].get(row)) {
+            return null;
+        }
+        Object data = columns[column];
+        switch (schema.kinds[column]) {
+            case INT:
+                return ((int[]) data)[row];
+            case LONG:
+                return ((long[]) data)[row];
+            case DECIMAL:
+                return Money.toBigDecimal(((long[]) data)[row], schema.scales[column]);
+            case DATE:
+                return LocalDate.ofEpochDay(((int[]) data)[row]);
+            case DICTIONARY:
+                return schema.dictionaries[column].value(((int[]) data)[row]);
+            default:
+                return ((Object[]) data)[row];
+        }
+    }
+
+    // An INT or BIGINT cell without boxing, e.g. a row's key
+    public long getLong(int row, int column) {
+        Object data = columns[column];
+        return data instanceof int[] ? ((int[]) data)[row] : ((long[]) data)[row];
+    }
+
+    private static Object newColumn(Kind kind, int capacity) {
+        switch (kind) {
+            case INT:
+            case DATE:
+            case DICTIONARY:
+                return new int[capacity];
+            case LONG:
+            case DECIMAL:
+                return new long[capacity];
+            case STRING:
+                return new String[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+    private static Object grow(Object column, int capacity) {
+        if (column instanceof int[]) {
+            return Arrays.copyOf((int[]) column, capacity);
+        }
+        if (column instanceof long[]) {
+            return Arrays.copyOf((long[]) column, capacity);
+        }
+        return Arrays.copyOf((Object[]) column, capacity);
+    }
+
+    // Stores one cell; returns false if it was SQL NULL
+    private static boolean store(ResultSet rs, int c, Schema schema, Object column, int row) throws SQLException {
+        int index = c + 1;
+        switch (schema.kinds[c]) {
+            case INT:
+                ((int[]) column)[row] = rs.getInt(index);
+                return !rs.wasNull();
+            case LONG:
+                ((long[]) column)[row] = rs.getLong(index);
+                return !rs.wasNull();
+            case DECIMAL: {
+                BigDecimal value = rs.getBigDecimal(index);
+                if (value == null) {
+                    return false;
+                }
+                ((long[]) column)[row] = Money.unscaled(value, schema.scales[c], RoundingMode.HALF_UP);
+                return true;
+            }
+            case DATE: {
+                Date value = rs.getDate(index);
+                if (value == null) {
+                    return false;
+                }
+                ((int[]) column)[row] = (int) value.toLocalDate().toEpochDay();
+                return true;
+            }
+            case DICTIONARY: {
+                String value = rs.getString(index);
+                if (value == null) {
+                    return false;
+                }
+                ((int[]) column)[row] = schema.dictionaries[c].code(value);
+                return true;
+            }
+            case STRING:
+                ((String[]) column)[row] = rs.getString(index);
+                return ((String[]) column)[row] != null;
+            default:
+                ((Object[]) column)[row] = rs.getObject(index);
+                return ((Object[]) column)[row] != null;
+        }
+    }
+}
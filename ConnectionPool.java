@@ -0,0 +1,463 @@
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+// The application's only source of database connections
+// Borrowed connections are proxies; close() hands the physical connection back to the pool
+public final class ConnectionPool {
+
+    private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+    // -Dpayroll.debugEdt=true: any JDBC call made on the Swing Event Dispatch Thread throws
+    private static final boolean DEBUG_EDT = Boolean.getBoolean("payroll.debugEdt");
+
+    private static ConnectionPool instance;
+
+    private final String url;
+    private final Properties credentials = new Properties();
+    private final DatabaseConfig embedded;   // Set for the embedded profile, whose schema is loaded on first open
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitNanos;
+    private final long idleTimeoutNanos;
+    private final long validationIntervalNanos;
+    private final int validationTimeoutSeconds;
+    private final long leakThresholdNanos;
+    private final int statementCacheSize;
+    private final QueryMetrics metrics;      // null when metrics.enabled is false
+    private final ResourceLeakTracker tracker;   // null when pool.resourceTracking is off
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();   // Most recently returned first
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private int total;            // Open physical connections, including ones being opened
+    private boolean closed;
+
+    private final ScheduledExecutorService housekeeper;
+
+    private ConnectionPool(DatabaseConfig config) {
+        this.url = config.getUrl();
+        this.embedded = config.isEmbedded() ? config : null;
+        credentials.setProperty("user", config.getUser());
+        credentials.setProperty("password", config.getPassword());
+        this.maxSize = Math.max(1, config.getPoolMaxSize());
+        this.minSize = Math.min(Math.max(0, config.getPoolMinSize()), maxSize);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getPoolMaxWaitMillis());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getPoolIdleTimeoutMillis());
+        this.validationIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getPoolValidationIntervalMillis());
+        this.validationTimeoutSeconds = config.getPoolValidationTimeoutSeconds();
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getPoolLeakThresholdMillis());
+        this.statementCacheSize = config.getPoolStatementCacheSize();
+        this.metrics = config.isQueryMetricsEnabled() ? QueryMetrics.getInstance() : null;
+        this.tracker = ResourceLeakTracker.getInstance();
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, config.getPoolHousekeepingMillis());
+        housekeeper.scheduleWithFixedDelay(this::housekeeping, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Pool configured from DatabaseConfig; created on first use and closed on JVM exit
+    public static synchronized ConnectionPool getInstance() {
+        if (instance == null) {
+            instance = new ConnectionPool(DatabaseConfig.getInstance());
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::shutdown, "connection-pool-shutdown"));
+        }
+        return instance;
+    }
+
+    // Opens minSize connections in the background so the first borrower does not pay for the handshake
+    public void warmUp() {
+        housekeeper.execute(this::fillToMinimum);
+    }
+
+    // Borrows a connection; waits up to pool.maxWaitMs when all maxSize connections are in use
+    // Callers must close() it (try-with-resources) to give it back
+    public Connection getConnection() throws SQLException {
+        assertNotOnEdt("getConnection");
+        long deadline = System.nanoTime() + maxWaitNanos;
+        while (true) {
+            PooledConnection pc;
+            boolean open = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is shut down");
+                    }
+                    pc = idle.pollFirst();
+                    if (pc != null) {
+                        break;
+                    }
+                    if (total < maxSize) {
+                        total++; // Reserve the slot, open outside the lock
+                        open = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        throw new SQLTransientConnectionException("Timed out waiting for a database connection: all "
+                                + maxSize + " pooled connections are in use");
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (open) {
+                pc = openPhysical();
+            } else if (System.nanoTime() - pc.lastUsedNanos > validationIntervalNanos && !isValid(pc)) {
+                discard(pc); // Dropped by the server while idle; try the next one
+                continue;
+            }
+            return lend(pc);
+        }
+    }
+
+    // Screens must do database work through AsyncLoader; in debug mode a call from the EDT is a bug
+    static void assertNotOnEdt(String operation) {
+        if (DEBUG_EDT && SwingUtilities.isEventDispatchThread()) {
+            IllegalStateException e = new IllegalStateException(
+                    "JDBC " + operation + "() called on the Event Dispatch Thread; use AsyncLoader");
+            LOG.log(Level.SEVERE, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    // --- STATISTICS ---
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Closes idle connections and refuses new borrows; borrowed ones are closed when returned
+    public void shutdown() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            total -= idle.size();
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pc : toClose) {
+            closeQuietly(pc);
+        }
+    }
+
+    // --- INTERNALS ---
+    private PooledConnection openPhysical() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(url, credentials);
+            if (embedded != null) {
+                try {
+                    EmbeddedDatabase.ensureLoaded(physical, embedded);
+                } catch (SQLException e) {
+                    physical.close();
+                    throw e;
+                }
+            }
+            return new PooledConnection(physical, statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private Connection lend(PooledConnection pc) {
+        pc.borrowedAtNanos = System.nanoTime();
+        pc.borrowSite = leakThresholdNanos > 0 ? new Throwable("Connection borrowed here") : null;
+        pc.leakReported = false;
+        borrowed.add(pc);
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease(pc));
+    }
+
+    // Called when a borrower closes its proxy
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        if (!pc.broken) {
+            try {
+                // Hand the next borrower a clean connection
+                if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback();
+                    pc.physical.setAutoCommit(true);
+                }
+                if (pc.physical.isReadOnly()) {
+                    pc.physical.setReadOnly(false);
+                }
+                pc.physical.clearWarnings();
+            } catch (SQLException e) {
+                pc.broken = true;
+            }
+        }
+
+        lock.lock();
+        try {
+            if (!closed && !pc.broken) {
+                pc.lastUsedNanos = System.nanoTime();
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pc);
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Closes a physical connection that is no longer counted as idle or borrowed
+    private void discard(PooledConnection pc) {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(pc);
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        if (pc.statements != null) {
+            pc.statements.closeAll();
+        }
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+
+    // Runs on the housekeeper thread: idle eviction, leak reports, and topping up to minSize
+    private void housekeeping() {
+        long now = System.nanoTime();
+
+        List<PooledConnection> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (total - expired.size() > minSize && oldestFirst.hasNext()) {
+                PooledConnection pc = oldestFirst.next();
+                if (now - pc.lastUsedNanos < idleTimeoutNanos) {
+                    break;
+                }
+                oldestFirst.remove();
+                expired.add(pc);
+            }
+            total -= expired.size();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : expired) {
+            closeQuietly(pc);
+        }
+
+        if (tracker != null) {
+            tracker.reportOld();
+            tracker.reportCollected();
+        }
+        if (leakThresholdNanos > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && now - pc.borrowedAtNanos > leakThresholdNanos) {
+                    pc.leakReported = true;
+                    LOG.log(Level.WARNING, "Connection held for "
+                            + TimeUnit.NANOSECONDS.toSeconds(now - pc.borrowedAtNanos)
+                            + " s without being closed; possible leak", pc.borrowSite);
+                }
+            }
+        }
+
+        fillToMinimum();
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            PooledConnection pc;
+            try {
+                pc = openPhysical();
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "Could not open pooled connection: " + e.getMessage());
+                return;
+            }
+            lock.lock();
+            try {
+                if (closed) {
+                    total--;
+                } else {
+                    idle.addLast(pc);
+                    available.signal();
+                    pc = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (pc != null) {
+                closeQuietly(pc);
+                return;
+            }
+        }
+    }
+
+    // One physical connection and its bookkeeping
+    private static final class PooledConnection {
+
+        final Connection physical;
+        final StatementCache statements;   // null when pool.statementCacheSize is 0
+        volatile long lastUsedNanos = System.nanoTime();
+        volatile long borrowedAtNanos;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledConnection(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+    }
+
+    // What a borrower holds; each borrow gets its own lease, so a second close() or use after close() is harmless
+    private final class Lease implements InvocationHandler {
+
+        private final PooledConnection pc;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        String leaked = tracker != null ? tracker.release(this) : null;
+                        release(pc);
+                        if (leaked != null && tracker.getMode() == ResourceLeakTracker.Mode.STRICT) {
+                            throw new SQLException(leaked);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection is closed");
+            }
+            assertNotOnEdt(method.getName());
+            try {
+                Object result;
+                if (pc.statements != null && StatementCache.isCacheable(method, args)) {
+                    result = pc.statements.prepare(pc.physical, (Connection) proxy, method, args);
+                } else {
+                    result = method.invoke(pc.physical, args);
+                }
+                if (metrics != null && result instanceof Statement) {
+                    result = metrics.wrap((Statement) result, method.getReturnType(), args);
+                }
+                if (tracker != null && result instanceof Statement) {
+                    result = tracker.wrap((Statement) result, method.getReturnType(), args, this);
+                }
+                return result;
+            } catch (InvocationTargetException | SQLException e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+                // SQLState class 08 = connection exception; do not return this one to the pool
+                if (cause instanceof SQLException && ((SQLException) cause).getSQLState() != null
+                        && ((SQLException) cause).getSQLState().startsWith("08")) {
+                    pc.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Database and pool settings, read once from an external properties file
+// The file is -Dpayroll.dbConfig=<path> if given, otherwise db.properties in the working directory
+// Missing keys fall back to the defaults below (the local XAMPP/MySQL setup from the README)
+public final class DatabaseConfig {
+
+    public static final String DEFAULT_FILE = "db.properties";
+
+    private static DatabaseConfig instance;
+
+    private final Properties props;
+    private final String source;
+
+    private DatabaseConfig(Properties props, String source) {
+        this.props = props;
+        this.source = source;
+    }
+
+    public static synchronized DatabaseConfig getInstance() {
+        if (instance == null) {
+            instance = load();
+        }
+        return instance;
+    }
+
+    private static DatabaseConfig load() {
+        Path path = Paths.get(System.getProperty("payroll.dbConfig", DEFAULT_FILE));
+        Properties props = new Properties();
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = new FileInputStream(path.toFile())) {
+                props.load(in);
+                return new DatabaseConfig(props, path.toAbsolutePath().toString());
+            } catch (IOException e) {
+                System.err.println("Could not read " + path + ", using defaults: " + e.getMessage());
+            }
+        }
+        return new DatabaseConfig(props, "defaults");
+    }
+
+    // Where the settings came from (file path or "defaults")
+    public String getSource() {
+        return source;
+    }
+
+    // --- CONNECTION ---
+    // "mysql" (default) or "embedded" for the in-process H2 database (see EmbeddedDatabase)
+    // -Dpayroll.dbProfile=<profile> overrides the file, e.g. for a benchmark run
+    public String getProfile() {
+        return System.getProperty("payroll.dbProfile", get("db.profile", "mysql")).trim().toLowerCase();
+    }
+
+    public boolean isEmbedded() {
+        return getProfile().equals("embedded");
+    }
+
+    public String getUrl() {
+        if (isEmbedded()) {
+            return get("db.embedded.url", EmbeddedDatabase.DEFAULT_URL);
+        }
+        return get("db.url", "jdbc:mysql://127.0.0.1:3306/payrolldb?rewriteBatchedStatements=true&useServerPrepStmts=true&cachePrepStmts=false");
+    }
+
+    public String getUser() {
+        return isEmbedded() ? get("db.embedded.user", "sa") : get("db.user", "root");
+    }
+
+    public String getPassword() {
+        return isEmbedded() ? get("db.embedded.password", "") : get("db.password", "1234");
+    }
+
+    // Schema and sample data loaded into a fresh embedded database
+    public String getEmbeddedSchema() {
+        return get("db.embedded.schema", "PayrollDB/embedded/payrolldb_embedded.sql");
+    }
+
+    // --- POOL ---
+    // Connections kept open even when idle
+    public int getPoolMinSize() {
+        return getInt("pool.minSize", 2);
+    }
+
+    // Upper bound on open connections; borrowers wait when all are in use
+    public int getPoolMaxSize() {
+        return getInt("pool.maxSize", 20);
+    }
+
+    // How long a borrower waits for a free connection before failing
+    public long getPoolMaxWaitMillis() {
+        return getLong("pool.maxWaitMs", 10_000);
+    }
+
+    // Idle connections above minSize are closed after this long
+    public long getPoolIdleTimeoutMillis() {
+        return getLong("pool.idleTimeoutMs", 300_000);
+    }
+
+    // Connections idle for longer than this are checked with isValid() before being handed out
+    public long getPoolValidationIntervalMillis() {
+        return getLong("pool.validationIntervalMs", 5_000);
+    }
+
+    public int getPoolValidationTimeoutSeconds() {
+        return getInt("pool.validationTimeoutSec", 2);
+    }
+
+    // A connection borrowed for longer than this is reported with the stack that borrowed it (0 = off)
+    public long getPoolLeakThresholdMillis() {
+        return getLong("pool.leakThresholdMs", 60_000);
+    }
+
+    // How often idle eviction and leak detection run
+    public long getPoolHousekeepingMillis() {
+        return getLong("pool.housekeepingMs", 30_000);
+    }
+
+    // Prepared statements kept open per pooled connection and reused by SQL text (0 = off)
+    public int getPoolStatementCacheSize() {
+        return getInt("pool.statementCacheSize", 64);
+    }
+
+    // Tracking of unclosed statements and result sets: off, report or strict (see ResourceLeakTracker)
+    // -Dpayroll.resourceTracking=<mode> overrides the file, e.g. for a test run
+    public ResourceLeakTracker.Mode getResourceTracking() {
+        String mode = System.getProperty("payroll.resourceTracking", get("pool.resourceTracking", "off"));
+        try {
+            return ResourceLeakTracker.Mode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid value for pool.resourceTracking in " + source + ": " + mode);
+            return ResourceLeakTracker.Mode.OFF;
+        }
+    }
+
+    // Statements and result sets open for longer than this are reported
+    public long getResourceLeakThresholdMillis() {
+        return getLong("pool.resourceLeakThresholdMs", 30000);
+    }
+
+    // --- MIGRATIONS ---
+    // Directory of the numbered V<n>__<name>.sql scripts SchemaMigrator applies
+    public String getMigrationsDir() {
+        return get("db.migrationsDir", "PayrollDB/migrations");
+    }
+
+    // Whether the application applies pending migrations when it starts
+    public boolean isMigrateOnStartup() {
+        return Boolean.parseBoolean(get("db.migrateOnStartup", "true"));
+    }
+
+    // --- CACHES ---
+    // How often ChangeVersionPoller checks for writes by other clients (0 = off; caches then see only local writes)
+    public long getCachePollIntervalMillis() {
+        return getLong("cache.pollIntervalMs", 3000);
+    }
+
+    // --- QUERY METRICS ---
+    // Whether pooled connections time every statement (see QueryMetrics)
+    public boolean isQueryMetricsEnabled() {
+        return Boolean.parseBoolean(get("metrics.enabled", "true"));
+    }
+
+    // Statements taking at least this long are written to the slow query log
+    public long getSlowQueryMillis() {
+        return getLong("metrics.slowQueryMs", 200);
+    }
+
+    // Rotating log file: slow statements and the periodic summary
+    public String getSlowQueryLog() {
+        return get("metrics.slowLog", "logs/slow-queries.log");
+    }
+
+    public int getSlowQueryLogMaxBytes() {
+        return getInt("metrics.slowLogMaxBytes", 1024 * 1024);
+    }
+
+    public int getSlowQueryLogFiles() {
+        return getInt("metrics.slowLogFiles", 5);
+    }
+
+    // How often the summary of the slowest fingerprints is written to the log (0 = only at exit)
+    public long getQuerySummaryIntervalMillis() {
+        return getLong("metrics.summaryIntervalMs", 600000);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + " in " + source + ": " + value);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+
+import java.sql.*;
+import java.util.Vector;
+
+// SQL for the DEDUCTION table
+public class DeductionRepository extends Repository {
+
+    public DeductionRepository(Connection connection) {
+        super(connection);
+    }
+
+    // Rows of (DeductionID, Description, Default_Amount)
+    public Vector<Vector<Object>> findAll() throws SQLException {
+        return queryRows("SELECT DeductionID, Description, Default_Amount FROM DEDUCTION ORDER BY DeductionID");
+    }
+
+    public void insert(String description, double defaultAmount) throws SQLException {
+        execute("INSERT INTO DEDUCTION (Description, Default_Amount) VALUES (?, ?)", description, defaultAmount);
+    }
+
+    public void update(int deductionId, String description, double defaultAmount) throws SQLException {
+        execute("UPDATE DEDUCTION SET Description = ?, Default_Amount = ? WHERE DeductionID = ?",
+                description, defaultAmount, deductionId);
+    }
+
+    public void delete(int deductionId) throws SQLException {
+        execute("DELETE FROM DEDUCTION WHERE DeductionID = ?", deductionId);
+    }
+}
@@ -0,0 +1,31 @@
+
+import java.sql.*;
+import java.util.Vector;
+
+// SQL for the DEPARTMENT table; writes invalidate the shared ReferenceDataCache
+public class DepartmentRepository extends Repository {
+
+    public DepartmentRepository(Connection connection) {
+        super(connection);
+    }
+
+    // Rows of (DepartmentID, DepartmentName)
+    public Vector<Vector<Object>> findAll() throws SQLException {
+        return queryRows("SELECT DepartmentID, DepartmentName FROM DEPARTMENT");
+    }
+
+    public void insert(String name) throws SQLException {
+        execute("INSERT INTO DEPARTMENT (DepartmentName) VALUES (?)", name);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.DEPARTMENT);
+    }
+
+    public void rename(int departmentId, String name) throws SQLException {
+        execute("UPDATE DEPARTMENT SET DepartmentName = ? WHERE DepartmentID = ?", name, departmentId);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.DEPARTMENT);
+    }
+
+    public void delete(int departmentId) throws SQLException {
+        execute("DELETE FROM DEPARTMENT WHERE DepartmentID = ?", departmentId);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.DEPARTMENT);
+    }
+}
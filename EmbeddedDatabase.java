@@ -0,0 +1,103 @@
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.List;
+
+// The embedded profile (db.profile=embedded): an in-process H2 database in MySQL mode, so benchmarks and
+// integration tests run without a MySQL server. Needs the H2 jar (h2-2.x.jar) on the classpath.
+// The first pooled connection loads PayrollDB/embedded/payrolldb_embedded.sql into the empty database.
+// H2 cannot run the migrations themselves (MySQL trigger bodies, multi-table DELETE), so that script is a
+// hand-made copy of them; it refuses to load once a migration was added or edited after the copy was made.
+//   java EmbeddedDatabase    prints SCHEMA_VERSION and SCHEMA_CHECKSUM for the current migrations
+final class EmbeddedDatabase {
+
+    // In memory, kept until the JVM exits, identifiers case-insensitive as on the Windows MySQL setup
+    // (USER is a keyword in H2, so it is declared a plain name)
+    static final String DEFAULT_URL = "jdbc:h2:mem:payrolldb;MODE=MySQL;DB_CLOSE_DELAY=-1"
+            + ";DATABASE_TO_UPPER=FALSE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=USER";
+
+    // Last migration the embedded schema script already includes, and SchemaMigrator.combinedChecksum() of the
+    // migrations up to it; update both with the script
+    static final int SCHEMA_VERSION = 8;
+    static final String SCHEMA_CHECKSUM = "3b051c09729e991cd803f835b6651f0910edac878c0e7be26196d0f0a29553ed";
+
+    private static boolean loaded;
+
+    private EmbeddedDatabase() {
+    }
+
+    // Creates the schema and sample data on a fresh database; later calls return at once
+    static synchronized void ensureLoaded(Connection conn, DatabaseConfig config) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        if (!hasTable(conn, "EMPLOYEE")) {
+            SchemaMigrator migrator = new SchemaMigrator(Paths.get(config.getMigrationsDir()));
+            List<SchemaMigrator.Migration> migrations;
+            try {
+                migrations = migrator.findMigrations();
+            } catch (IOException e) {
+                throw new SQLException("Cannot read migrations in " + config.getMigrationsDir(), e);
+            }
+            checkUpToDate(migrations);
+
+            String script;
+            try {
+                script = new String(Files.readAllBytes(Paths.get(config.getEmbeddedSchema())), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new SQLException("Cannot read embedded schema " + config.getEmbeddedSchema(), e);
+            }
+            try (Statement st = conn.createStatement()) {
+                for (String sql : SchemaMigrator.splitStatements(script)) {
+                    st.execute(sql);
+                }
+            }
+            try {
+                migrator.baseline(conn, SCHEMA_VERSION);
+            } catch (IOException e) {
+                throw new SQLException("Cannot read migrations in " + config.getMigrationsDir(), e);
+            }
+        }
+        loaded = true;
+    }
+
+    // Fails when the embedded script no longer matches the migrations, instead of running on an older schema
+    private static void checkUpToDate(List<SchemaMigrator.Migration> migrations) throws SQLException {
+        for (SchemaMigrator.Migration m : migrations) {
+            if (m.getVersion() > SCHEMA_VERSION) {
+                throw new SQLException(String.format("Migration V%03d is not in the embedded schema (up to V%03d): "
+                        + "add it to payrolldb_embedded.sql, then update EmbeddedDatabase.SCHEMA_VERSION and "
+                        + "SCHEMA_CHECKSUM (java EmbeddedDatabase)", m.getVersion(), SCHEMA_VERSION));
+            }
+        }
+        String checksum = SchemaMigrator.combinedChecksum(migrations, SCHEMA_VERSION);
+        if (!checksum.equals(SCHEMA_CHECKSUM)) {
+            throw new SQLException(String.format("Migrations up to V%03d changed after payrolldb_embedded.sql was "
+                    + "made from them: update the script, then EmbeddedDatabase.SCHEMA_CHECKSUM to %s",
+                    SCHEMA_VERSION, checksum));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        SchemaMigrator migrator = new SchemaMigrator(Paths.get(DatabaseConfig.getInstance().getMigrationsDir()));
+        List<SchemaMigrator.Migration> migrations = migrator.findMigrations();
+        int version = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+        System.out.println("static final int SCHEMA_VERSION = " + version + ";");
+        System.out.println("static final String SCHEMA_CHECKSUM = \""
+                + SchemaMigrator.combinedChecksum(migrations, version) + "\";");
+        System.out.println("(recorded: V" + SCHEMA_VERSION + " " + SCHEMA_CHECKSUM + ")");
+    }
+
+    private static boolean hasTable(Connection conn, String table) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = ?")) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
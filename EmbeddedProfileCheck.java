@@ -0,0 +1,231 @@
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.Arrays;
+
+// Runs the write paths whose SQL is easiest to tie to MySQL on the embedded H2 profile, and checks what they
+// wrote: the department-partitioned PayrollEngine (with an employee in no department), the salary recompute
+// that refreshes stored rates, the PAYROLL_DIRTY marks, the batch runner, the pipeline and the timesheet
+// imports that fill in GROSS_PAY.
+// Exits with status 1 if any check fails, so it can gate a build or an integration test run.
+//   java -cp .:h2.jar EmbeddedProfileCheck
+public class EmbeddedProfileCheck {
+
+    // Cut-off periods far from the sample data, one per check so each starts without payrolls
+    private static final Date ENGINE_START = Date.valueOf("2031-01-01");
+    private static final Date ENGINE_END = Date.valueOf("2031-01-15");
+    private static final Date RUNNER_START = Date.valueOf("2031-02-01");
+    private static final Date RUNNER_END = Date.valueOf("2031-02-15");
+    private static final Date PIPELINE_START = Date.valueOf("2031-03-01");
+    private static final Date PIPELINE_END = Date.valueOf("2031-03-15");
+
+    // One check, named for the report; throws on a wrong result
+    private interface Check {
+
+        void run(Connection conn) throws Exception;
+    }
+
+    private static int employeeId;   // Added without a department by the first check
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("payroll.dbProfile") == null) {
+            System.setProperty("payroll.dbProfile", "embedded");
+        }
+        if (!DatabaseConfig.getInstance().isEmbedded()) {
+            System.out.println("Not the embedded profile; run with -Dpayroll.dbProfile=embedded");
+            System.exit(2);
+        }
+
+        Object[][] checks = {
+            {"employee without department", (Check) EmbeddedProfileCheck::addEmployee},
+            {"engine run by department", (Check) EmbeddedProfileCheck::engineRun},
+            {"salary recompute", (Check) EmbeddedProfileCheck::salaryRecompute},
+            {"dirty marks", (Check) EmbeddedProfileCheck::dirtyMarks},
+            {"timesheet CSV import", (Check) EmbeddedProfileCheck::csvImport},
+            {"punch log ingest, twice", (Check) EmbeddedProfileCheck::punchLog},
+            {"batch runner", (Check) c -> new PayrollBatchRunner(c).run(RUNNER_START, RUNNER_END)},
+            {"pipeline", (Check) c -> new PayrollPipeline().run(PIPELINE_START, PIPELINE_END)},
+            {"payroll totals", (Check) EmbeddedProfileCheck::totals},
+        };
+
+        int failures = 0;
+        for (Object[] check : checks) {
+            try (Connection conn = AdminDBUtils.openConnection()) {
+                ((Check) check[1]).run(conn);
+            } catch (Exception e) {
+                System.out.println("FAIL " + check[0] + ": " + e.getMessage());
+                failures++;
+                continue;
+            }
+            System.out.println("OK   " + check[0]);
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+        System.out.println("Embedded profile OK");
+    }
+
+    // An employee in no department, with timesheets in the engine's period
+    private static void addEmployee(Connection conn) throws SQLException {
+        EmployeeRepository.Employee e = new EmployeeRepository.Employee();
+        e.lastName = "Check";
+        e.firstName = "Embedded";
+        e.email = "embedded.check@example.com";
+        e.gender = "Female";
+        e.dateOfHire = "2030-01-01";
+        e.monthlySalary = new BigDecimal("35200.00");
+        new EmployeeRepository(conn).insert(e);
+        employeeId = intValue(conn, "SELECT EmployeeID FROM EMPLOYEE WHERE Email = ?", e.email);
+
+        TimesheetRepository timesheets = new TimesheetRepository(conn);
+        timesheets.insert(employeeId, "2031-01-02", 8);
+        timesheets.insert(employeeId, "2031-01-03", 10.5);
+    }
+
+    // Every hired employee gets a payroll, including the one in no department, at the rates the SQL computes
+    private static void engineRun(Connection conn) throws SQLException {
+        PayrollEngine.Result result = new PayrollEngine(2).run(ENGINE_START, ENGINE_END);
+        int expected = intValue(conn, "SELECT COUNT(*) FROM EMPLOYEE WHERE DateOfHire <= ?", ENGINE_END);
+        expect("payrolls", expected, result.getPayrolls().size());
+        expect("payrolls of the new employee", 1, intValue(conn,
+                "SELECT COUNT(*) FROM PAYROLL WHERE EmployeeID = ? AND Start_Cut_Off = ?", employeeId, ENGINE_START));
+        expectRates(conn, ENGINE_START, ENGINE_END, "200.00", "250.00");
+    }
+
+    // A raise refreshes the stored rates of the payrolls it applies to (UPDATE GROSS_PAY with subqueries),
+    // in the transaction of the salary edit, as the employee screen saves it
+    private static void salaryRecompute(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE EMPLOYEE SET MonthlySalary = 44000.00 WHERE EmployeeID = ?")) {
+                ps.setInt(1, employeeId);
+                ps.executeUpdate();
+            }
+            new PayrollDirtyTracker(conn).markSalary(employeeId, ENGINE_END.toLocalDate());
+            new PayrollRecomputer(conn).recomputeDirty(employeeId);
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        HourlyRateCache.getInstance().invalidate(employeeId);
+        expectRates(conn, ENGINE_START, ENGINE_END, "250.00", "312.50");
+    }
+
+    // A mark rolled back with its edit leaves no work behind, and a committed one is cleared by the recompute
+    private static void dirtyMarks(Connection conn) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            new PayrollDirtyTracker(conn).markTimesheet(employeeId, ENGINE_START.toLocalDate());
+            conn.rollback();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        expect("dirty entries after a rollback", 0, intValue(conn, "SELECT COUNT(*) FROM PAYROLL_DIRTY"));
+
+        new PayrollDirtyTracker(conn).markTimesheet(employeeId, ENGINE_START.toLocalDate());
+        new PayrollDirtyTracker(conn).markTimesheet(employeeId, ENGINE_END.toLocalDate());
+        expect("dirty entries after two marks", 1, intValue(conn, "SELECT COUNT(*) FROM PAYROLL_DIRTY"));
+        expect("entries recomputed", 1, new PayrollRecomputer(conn).recomputeDirty());
+        expect("dirty entries after the recompute", 0, intValue(conn, "SELECT COUNT(*) FROM PAYROLL_DIRTY"));
+    }
+
+    // New days inside the engine's payroll get GROSS_PAY rows at the current rates
+    private static void csvImport(Connection conn) throws Exception {
+        Path file = Files.createTempFile("timesheets", ".csv");
+        try {
+            Files.write(file, ("EmployeeID,WorkDate,RenderedHours\n" + employeeId + ",2031-01-06,9\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            TimesheetCsvImporter.Result result = new TimesheetCsvImporter(conn).importFile(file,
+                    TimesheetCsvImporter.defaultErrorReport(file));
+            expect("imported", 1, (int) result.getImported());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        expectRates(conn, ENGINE_START, ENGINE_END, "250.00", "312.50");
+    }
+
+    // The second ingest of the same log replaces the day (ON DUPLICATE KEY UPDATE) instead of failing
+    private static void punchLog(Connection conn) throws Exception {
+        Path file = Files.createTempFile("punches", ".log");
+        try {
+            Files.write(file, (employeeId + ",2031-01-07 08:00,IN\n" + employeeId + ",2031-01-07 17:30,OUT\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < 2; i++) {
+                new PunchLogIngestor().ingest(file, TimesheetCsvImporter.defaultErrorReport(file));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        expect("timesheets on 2031-01-07", 1, intValue(conn,
+                "SELECT COUNT(*) FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate = ?", employeeId,
+                Date.valueOf("2031-01-07")));
+        expectRates(conn, ENGINE_START, ENGINE_END, "250.00", "312.50");
+    }
+
+    // Each run created a payroll for the new employee, and PAYROLL_SUMMARY adds up what was written
+    private static void totals(Connection conn) throws SQLException {
+        expect("payrolls of the new employee", 3,
+                intValue(conn, "SELECT COUNT(*) FROM PAYROLL WHERE EmployeeID = ?", employeeId));
+        // 8 + 8 + 8 + 8 standard hours at 250.00, 2.5 + 1 + 1.5 overtime hours at 312.50, less 1000.00
+        BigDecimal net = decimalValue(conn, "SELECT s.NetPay FROM PAYROLL_SUMMARY s "
+                + "JOIN PAYROLL p ON p.PayrollID = s.PayrollID WHERE p.EmployeeID = ? AND p.Start_Cut_Off = ?",
+                employeeId, ENGINE_START);
+        if (net == null || net.compareTo(new BigDecimal("8562.50")) != 0) {
+            throw new IllegalStateException("net pay " + net + ", expected 8562.50");
+        }
+    }
+
+    // Every timesheet of the new employee in the period has a GROSS_PAY row at these rates
+    private static void expectRates(Connection conn, Date from, Date to, String std, String ot)
+            throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT t.WorkDate, g.StdHourlyRate, g.OTHourlyRate "
+                + "FROM TIMESHEET t LEFT JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID "
+                + "WHERE t.EmployeeID = ? AND t.WorkDate BETWEEN ? AND ?")) {
+            ps.setInt(1, employeeId);
+            ps.setDate(2, from);
+            ps.setDate(3, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal s = rs.getBigDecimal(2);
+                    BigDecimal o = rs.getBigDecimal(3);
+                    if (s == null || s.compareTo(new BigDecimal(std)) != 0 || o.compareTo(new BigDecimal(ot)) != 0) {
+                        throw new IllegalStateException("rates on " + rs.getDate(1) + " are " + s + "/" + o
+                                + ", expected " + std + "/" + ot);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void expect(String what, int expected, int actual) {
+        if (expected != actual) {
+            throw new IllegalStateException(what + ": " + actual + ", expected " + expected);
+        }
+    }
+
+    private static int intValue(Connection conn, String sql, Object... params) throws SQLException {
+        return ((Number) value(conn, sql, params)).intValue();
+    }
+
+    private static BigDecimal decimalValue(Connection conn, String sql, Object... params) throws SQLException {
+        return (BigDecimal) value(conn, sql, params);
+    }
+
+    private static Object value(Connection conn, String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalStateException("no row for " + sql + " " + Arrays.toString(params));
+                }
+                return rs.getObject(1);
+            }
+        }
+    }
+}
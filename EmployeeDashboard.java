@@ -2,7 +2,6 @@
 import java.awt.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.sql.*;
 import java.util.Vector;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -10,9 +9,12 @@ import javax.swing.table.DefaultTableModel;
 
 public class EmployeeDashboard extends JFrame {
 
-    private final Connection connection;          // Active database connection
     private final int currentEmployeeID;          // ID of logged-in employee
 
+    // Table loads run off the Event Dispatch Thread, each on a pooled connection of its own
+    private final AsyncLoader timesheetLoader = new AsyncLoader(this);
+    private final AsyncLoader payrollLoader = new AsyncLoader(this);
+
     // UI Colors for consistent dark theme
     private final Color BLACK_COLOR = new Color(20, 20, 20);
     private final Color DARK_GRAY = new Color(35, 35, 35);
@@ -23,22 +25,9 @@ public class EmployeeDashboard extends JFrame {
 
     public EmployeeDashboard(int employeeID) {
         this.currentEmployeeID = employeeID;
-        this.connection = initializeDBConnection(); // Establish DB connection
         initializeUI();                             // Build UI components
     }
 
-    // Connects to MySQL database, exits app if connection fails
-    private Connection initializeDBConnection() {
-        try {
-            return DriverManager.getConnection(
-                    "jdbc:mysql://127.0.0.1:3306/payrolldb", "root", "1234");
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Database connection failed: " + e.getMessage());
-            System.exit(1);
-            return null;
-        }
-    }
-
     // Initialize main UI frame and components
     private void initializeUI() {
         setTitle("Employee Dashboard");
@@ -138,55 +127,43 @@ public class EmployeeDashboard extends JFrame {
         gbc.insets = new Insets(10, 15, 10, 15); // Space between rows
         gbc.anchor = GridBagConstraints.WEST;
 
-        try {
-            String query = """
-                    SELECT e.EmployeeID, e.FirstName, e.LastName, e.Age, e.DOB,
-                           e.Address, e.PhoneNumber, e.DateOfHire, e.Gender,
-                           e.Email, d.DepartmentName, p.PositionName, e.MonthlySalary
-                    FROM EMPLOYEE e
-                    LEFT JOIN DEPARTMENT d ON e.DepartmentID = d.DepartmentID
-                    LEFT JOIN POSITION p ON e.PositionID = p.PositionID
-                    WHERE e.EmployeeID = ?
-            """;
-
-            PreparedStatement pstmt = connection.prepareStatement(query);
-            pstmt.setInt(1, currentEmployeeID); // Bind employee ID
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) { // Populate labels with database info
-                nameLabel.setText(rs.getString("FirstName") + " " + rs.getString("LastName"));
-                emailLabel.setText(rs.getString("Email"));
+        AsyncLoader.run(this, "Error loading profile",
+                c -> new EmployeeRepository(c).findProfile(currentEmployeeID), profile -> {
+            if (profile != null) { // Populate labels with database info
+                nameLabel.setText(profile.firstName + " " + profile.lastName);
+                emailLabel.setText(profile.email);
 
                 int row = 0;
-                addStyledRow(infoPanel, gbc, row++, "Employee ID:", rs.getString("EmployeeID"));
-                addStyledRow(infoPanel, gbc, row++, "Gender:", rs.getString("Gender"));
-                addStyledRow(infoPanel, gbc, row++, "Age:", rs.getString("Age"));
-                addStyledRow(infoPanel, gbc, row++, "Birthday:", rs.getString("DOB"));
-                addStyledRow(infoPanel, gbc, row++, "Phone:", rs.getString("PhoneNumber"));
-                addStyledRow(infoPanel, gbc, row++, "Address:", rs.getString("Address"));
-                addStyledRow(infoPanel, gbc, row++, "Department:", rs.getString("DepartmentName"));
-                addStyledRow(infoPanel, gbc, row++, "Position:", rs.getString("PositionName"));
-                addStyledRow(infoPanel, gbc, row++, "Date Hired:", rs.getString("DateOfHire"));
-
-                BigDecimal salary = rs.getBigDecimal("MonthlySalary");
+                addStyledRow(infoPanel, gbc, row++, "Employee ID:", text(profile.employeeId));
+                addStyledRow(infoPanel, gbc, row++, "Gender:", profile.gender);
+                addStyledRow(infoPanel, gbc, row++, "Age:", text(profile.age));
+                addStyledRow(infoPanel, gbc, row++, "Birthday:", profile.dob);
+                addStyledRow(infoPanel, gbc, row++, "Phone:", profile.phoneNumber);
+                addStyledRow(infoPanel, gbc, row++, "Address:", profile.address);
+                addStyledRow(infoPanel, gbc, row++, "Department:", profile.department);
+                addStyledRow(infoPanel, gbc, row++, "Position:", profile.position);
+                addStyledRow(infoPanel, gbc, row++, "Date Hired:", profile.dateOfHire);
+
+                BigDecimal salary = profile.monthlySalary;
                 if (salary != null) { // Format salary to 2 decimals
                     addStyledRow(infoPanel, gbc, row++, "Monthly Salary:",
                             "₱" + salary.setScale(2, RoundingMode.HALF_UP));
                 }
+                infoPanel.revalidate();
+                infoPanel.repaint();
             }
-
-            rs.close();
-            pstmt.close();
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading profile: " + e.getMessage());
-        }
+        });
 
         card.add(infoPanel, BorderLayout.CENTER);
         panel.add(card);
         return panel;
     }
 
+    // Helper: value as label text (null stays empty)
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
     // Helper: add label-value row in profile panel
     private void addStyledRow(JPanel panel, GridBagConstraints gbc, int row, String label, String value) {
         gbc.gridx = 0;
@@ -221,27 +198,20 @@ public class EmployeeDashboard extends JFrame {
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         buttonPanel.setBackground(BLACK_COLOR);
         buttonPanel.add(refreshBtn);
+        buttonPanel.add(timesheetLoader.getIndicator());
 
         panel.add(buttonPanel, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         loadTimesheetData(table); // Initial load
+        ChangeVersionPoller.refreshWhileShowing(panel, () -> loadTimesheetData(table), "TIMESHEET");
         return panel;
     }
 
     // Query and populate timesheet table from database
     private void loadTimesheetData(JTable table) {
-        try {
-            String query = """
-                    SELECT TimesheetID, WorkDate, StandardHours, RenderedHours, OvertimeHours 
-                    FROM TIMESHEET 
-                    WHERE EmployeeID = ?
-            """;
-
-            PreparedStatement pstmt = connection.prepareStatement(query);
-            pstmt.setInt(1, currentEmployeeID); // Bind employee ID
-            ResultSet rs = pstmt.executeQuery();
-
+        timesheetLoader.load("Error loading timesheets",
+                c -> new TimesheetRepository(c).findByEmployee(currentEmployeeID), timesheets -> {
             Vector<String> columns = new Vector<>();
             columns.add("ID");
             columns.add("Date");
@@ -250,21 +220,18 @@ public class EmployeeDashboard extends JFrame {
             columns.add("Overtime");
 
             Vector<Vector<Object>> data = new Vector<>();
-            while (rs.next()) {
+            for (TimesheetRepository.Timesheet t : timesheets) {
                 Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("TimesheetID"));
-                row.add(rs.getDate("WorkDate"));
-                row.add(rs.getBigDecimal("StandardHours"));
-                row.add(rs.getBigDecimal("RenderedHours"));
-                row.add(rs.getBigDecimal("OvertimeHours"));
+                row.add(t.timesheetId);
+                row.add(t.workDate);
+                row.add(t.standardHours);
+                row.add(t.renderedHours);
+                row.add(t.overtimeHours);
                 data.add(row);
             }
 
             table.setModel(new DefaultTableModel(data, columns));
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        });
     }
 
     // Create payroll panel similar to timesheet panel
@@ -285,28 +252,20 @@ public class EmployeeDashboard extends JFrame {
         JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
         top.setBackground(BLACK_COLOR);
         top.add(refreshBtn);
+        top.add(payrollLoader.getIndicator());
 
         panel.add(top, BorderLayout.NORTH);
         panel.add(scrollPane, BorderLayout.CENTER);
 
         loadPayrollData(table);
+        ChangeVersionPoller.refreshWhileShowing(panel, () -> loadPayrollData(table), "PAYROLL");
         return panel;
     }
 
-    // Query and populate payroll data
+    // Query and populate payroll data from the maintained PAYROLL_SUMMARY totals
     private void loadPayrollData(JTable table) {
-        try {
-            String query = """
-                    SELECT PayrollID, ReferenceNo, Start_Cut_Off, End_Cut_Off,
-                           TotalGrossPay, TotalDeduction, NetPay
-                    FROM PAYROLL_CALC 
-                    WHERE EmployeeID = ?
-            """;
-
-            PreparedStatement pstmt = connection.prepareStatement(query);
-            pstmt.setInt(1, currentEmployeeID);
-            ResultSet rs = pstmt.executeQuery();
-
+        payrollLoader.load("Error loading payroll",
+                c -> new PayrollRepository(c).findByEmployee(currentEmployeeID), data -> {
             Vector<String> columns = new Vector<>();
             columns.add("ID");
             columns.add("Reference");
@@ -316,24 +275,8 @@ public class EmployeeDashboard extends JFrame {
             columns.add("Deduction");
             columns.add("Net");
 
-            Vector<Vector<Object>> data = new Vector<>();
-            while (rs.next()) {
-                Vector<Object> row = new Vector<>();
-                row.add(rs.getInt("PayrollID"));
-                row.add(rs.getString("ReferenceNo"));
-                row.add(rs.getDate("Start_Cut_Off"));
-                row.add(rs.getDate("End_Cut_Off"));
-                row.add(rs.getBigDecimal("TotalGrossPay"));
-                row.add(rs.getBigDecimal("TotalDeduction"));
-                row.add(rs.getBigDecimal("NetPay"));
-                data.add(row);
-            }
-
             table.setModel(new DefaultTableModel(data, columns));
-
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
-        }
+        });
     }
 
     // Apply consistent styling to tables
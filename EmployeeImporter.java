@@ -0,0 +1,703 @@
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+
+// Adds and updates employees from an HR master file, CSV with a header line or a JSON array of objects:
+//   EmployeeID,LastName,FirstName,Email,Gender,Age,DOB,Address,PhoneNumber,DateOfHire,DepartmentName,
+//   PositionName,MonthlySalary (in any order; EmployeeID and the optional fields may be left out)
+//   [{"LastName": "Dela Cruz", "FirstName": "Juan", "Email": "juan@example.com", ...}, ...]
+// A record with an EmployeeID updates that employee; without one it updates the employee with the same email,
+// or adds a new one, so importing the same file again changes nothing. Each record is the whole employee: an
+// empty optional field is stored as NULL. Department and position names are looked up in ReferenceDataCache.
+// Every rule of InputValidation.checkEmployee, including the chk_phone and chk_age constraints, is checked
+// before writing, and rejected records are listed in an error report instead of stopping the import. Valid
+// records are written in chunks of CHUNK_SIZE, each one batched INSERT and UPDATE in its own transaction.
+//   java EmployeeImporter employees.csv|employees.json [errors.csv]
+public class EmployeeImporter {
+
+    public static final int CHUNK_SIZE = 500;
+
+    // Fields of a record; CSV headers and JSON keys match ignoring case, spaces and underscores
+    private static final String[] FIELDS = {"EmployeeID", "LastName", "FirstName", "Email", "Gender", "Age", "DOB",
+        "Address", "PhoneNumber", "DateOfHire", "DepartmentName", "PositionName", "MonthlySalary"};
+    private static final String[] REQUIRED = {"LastName", "FirstName", "Email", "Gender", "DateOfHire",
+        "MonthlySalary"};
+    private static final Map<String, String> ALIASES = new HashMap<>();
+
+    static {
+        for (String field : FIELDS) {
+            ALIASES.put(normalize(field), field);
+        }
+        ALIASES.put("dateofbirth", "DOB");
+        ALIASES.put("phone", "PhoneNumber");
+        ALIASES.put("hiredate", "DateOfHire");
+        ALIASES.put("department", "DepartmentName");
+        ALIASES.put("position", "PositionName");
+        ALIASES.put("salary", "MonthlySalary");
+    }
+
+    private static final int AMBIGUOUS = -1;
+
+    private final Connection connection;
+    private final int chunkSize;
+
+    private Map<String, Integer> departments;          // Lower-case name -> ID, or AMBIGUOUS
+    private Map<String, Integer> positions;
+    private final Map<Integer, BigDecimal> salaries = new HashMap<>();   // Employees on record
+    private final Map<String, Integer> emails = new HashMap<>();         // Lower-case email -> ID, or AMBIGUOUS
+    private final Map<Integer, Long> seenIds = new HashMap<>();          // Employee -> line updating it
+    private final Map<String, Long> seenEmails = new HashMap<>();        // Email -> line adding it
+
+    private final List<Pending> chunk = new ArrayList<>();
+    private long inserted;
+    private long updated;
+    private boolean salaryChanged;
+
+    public EmployeeImporter(Connection connection) {
+        this(connection, CHUNK_SIZE);
+    }
+
+    public EmployeeImporter(Connection connection, int chunkSize) {
+        this.connection = connection;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Counts and timing of one import
+    public static final class Result {
+
+        private final long records;
+        private final long inserted;
+        private final long updated;
+        private final long rejected;
+        private final long elapsedNanos;
+        private final Path errorReport;   // null when nothing was rejected
+
+        Result(long records, long inserted, long updated, long rejected, long elapsedNanos, Path errorReport) {
+            this.records = records;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+            this.errorReport = errorReport;
+        }
+
+        public long getInserted() {
+            return inserted;
+        }
+
+        public long getUpdated() {
+            return updated;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public Path getErrorReport() {
+            return errorReport;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d record(s): %d added, %d updated, %d rejected in %.1f s%s", records, inserted,
+                    updated, rejected, elapsedNanos / 1e9,
+                    errorReport != null ? "\nRejected records: " + errorReport : "");
+        }
+    }
+
+    // A record that passed validation, waiting for its chunk to be written
+    private static final class Pending {
+
+        final long lineNo;
+        final String text;
+        final int employeeId;    // 0 to add
+        final EmployeeRepository.Employee employee;
+
+        Pending(long lineNo, String text, int employeeId, EmployeeRepository.Employee employee) {
+            this.lineNo = lineNo;
+            this.text = text;
+            this.employeeId = employeeId;
+            this.employee = employee;
+        }
+    }
+
+    // Imports every valid record; a .json file is read as JSON, anything else as CSV
+    public Result importFile(Path file, Path errorReport) throws IOException, SQLException {
+        long start = System.nanoTime();
+        loadReferences();
+
+        TimesheetCsvImporter.ErrorReport errors = new TimesheetCsvImporter.ErrorReport(errorReport);
+        long records;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            records = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".json")
+                    ? readJson(in, errors) : readCsv(in, errors);
+            writeChunk(errors);
+        } finally {
+            errors.close();
+        }
+
+        // Payrolls still open for an employee whose salary changed get new rates
+        if (salaryChanged) {
+            new PayrollRecomputer(connection).recomputeDirty();
+        }
+        return new Result(records, inserted, updated, errors.count, System.nanoTime() - start,
+                errors.count > 0 ? errorReport : null);
+    }
+
+    private void loadReferences() throws SQLException {
+        ReferenceDataCache.Snapshot reference = ReferenceDataCache.getInstance().get(connection);
+        departments = byName(reference.getDepartments());
+        positions = byName(reference.getPositions());
+        for (Vector<Object> row : new EmployeeRepository(connection).findKeys()) {
+            int id = ((Number) row.get(0)).intValue();
+            salaries.put(id, (BigDecimal) row.get(2));
+            if (row.get(1) != null) {
+                emails.merge(((String) row.get(1)).trim().toLowerCase(Locale.ROOT), id, (a, b) -> AMBIGUOUS);
+            }
+        }
+    }
+
+    private static Map<String, Integer> byName(List<ReferenceDataCache.Item> items) {
+        Map<String, Integer> map = new HashMap<>();
+        for (ReferenceDataCache.Item item : items) {
+            map.merge(item.getName().trim().toLowerCase(Locale.ROOT), item.getId(), (a, b) -> AMBIGUOUS);
+        }
+        return map;
+    }
+
+    // --- READING ---
+    // Returns the number of records read
+    private long readCsv(BufferedReader in, TimesheetCsvImporter.ErrorReport errors) throws IOException, SQLException {
+        String header = in.readLine();
+        if (header == null) {
+            return 0;
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1); // Byte order mark written by spreadsheet programs
+        }
+        List<String> names = TimesheetCsvImporter.splitCsv(header);
+        String[] columns = new String[names.size()];   // Field of each column, or null to ignore it
+        List<String> present = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = ALIASES.get(normalize(names.get(i)));
+            present.add(columns[i]);
+        }
+        for (String field : REQUIRED) {
+            if (!present.contains(field)) {
+                throw new IOException("The header line has no " + field + " column");
+            }
+        }
+
+        long records = 0;
+        long lineNo = 1;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            records++;
+            List<String> values = TimesheetCsvImporter.splitCsv(line);
+            Map<String, String> record = new HashMap<>();
+            for (int i = 0; i < columns.length && i < values.size(); i++) {
+                if (columns[i] != null) {
+                    record.put(columns[i], values.get(i));
+                }
+            }
+            process(lineNo, line, record, errors);
+        }
+        return records;
+    }
+
+    private long readJson(Reader in, TimesheetCsvImporter.ErrorReport errors) throws IOException, SQLException {
+        JsonRecords json = new JsonRecords(in);
+        long records = 0;
+        Map<String, String> object;
+        while ((object = json.next()) != null) {
+            records++;
+            Map<String, String> record = new HashMap<>();
+            for (Map.Entry<String, String> e : object.entrySet()) {
+                String field = ALIASES.get(normalize(e.getKey()));
+                if (field != null) {
+                    record.put(field, e.getValue());
+                }
+            }
+            process(json.getLine(), JsonRecords.toText(object), record, errors);
+        }
+        return records;
+    }
+
+    // --- VALIDATION ---
+    // Checks one record and queues it, or reports everything wrong with it
+    private void process(long lineNo, String text, Map<String, String> record, TimesheetCsvImporter.ErrorReport errors)
+            throws IOException, SQLException {
+        List<String> problems = new ArrayList<>();
+        EmployeeRepository.Employee e = new EmployeeRepository.Employee();
+        e.lastName = value(record, "LastName");
+        e.firstName = value(record, "FirstName");
+        e.email = value(record, "Email");
+        e.gender = gender(value(record, "Gender"));
+        e.dob = value(record, "DOB");
+        e.address = value(record, "Address");
+        e.phoneNumber = value(record, "PhoneNumber");
+        e.dateOfHire = value(record, "DateOfHire");
+
+        String age = value(record, "Age");
+        if (age != null) {
+            try {
+                e.age = Integer.parseInt(age);
+            } catch (NumberFormatException ex) {
+                problems.add("Age must be a whole number.");
+            }
+        }
+        String salary = value(record, "MonthlySalary");
+        if (salary != null) {
+            try {
+                e.monthlySalary = new BigDecimal(salary);
+            } catch (NumberFormatException ex) {
+                problems.add("Monthly salary must be a number.");
+            }
+        }
+        e.departmentId = lookup(departments, value(record, "DepartmentName"), "Department", problems);
+        e.positionId = lookup(positions, value(record, "PositionName"), "Position", problems);
+        for (String problem : InputValidation.checkEmployee(e)) {
+            if (!(problem.startsWith("Monthly salary") && salary != null && e.monthlySalary == null)) {
+                problems.add(problem); // Not "cannot be empty" for a salary already reported as not a number
+            }
+        }
+
+        int employeeId = target(record, e.email, lineNo, problems);
+        if (!problems.isEmpty()) {
+            errors.reject(lineNo, String.join(" ", problems), text);
+            return;
+        }
+        if (employeeId > 0) {
+            seenIds.put(employeeId, lineNo);
+        } else {
+            seenEmails.put(e.email.toLowerCase(Locale.ROOT), lineNo);
+        }
+        chunk.add(new Pending(lineNo, text, employeeId, e));
+        if (chunk.size() == chunkSize) {
+            writeChunk(errors);
+        }
+    }
+
+    // The employee the record updates, or 0 to add one
+    private int target(Map<String, String> record, String email, long lineNo, List<String> problems) {
+        String idText = value(record, "EmployeeID");
+        int employeeId = 0;
+        if (idText != null) {
+            try {
+                employeeId = Integer.parseInt(idText);
+            } catch (NumberFormatException ex) {
+                problems.add("Employee ID must contain numbers only.");
+                return 0;
+            }
+            if (!salaries.containsKey(employeeId)) {
+                problems.add("Employee ID " + employeeId + " does not exist; leave it empty to add the employee.");
+                return 0;
+            }
+        } else if (email != null) {
+            String key = email.toLowerCase(Locale.ROOT);
+            Integer match = emails.get(key);
+            if (match != null && match == AMBIGUOUS) {
+                problems.add("More than one employee has this email; give the Employee ID.");
+                return 0;
+            }
+            if (match == null) {
+                Long earlier = seenEmails.get(key);
+                if (earlier != null) {
+                    problems.add("The employee is already added by line " + earlier + ".");
+                }
+                return 0;
+            }
+            employeeId = match;
+        } else {
+            return 0;
+        }
+        Long earlier = seenIds.get(employeeId);
+        if (earlier != null) {
+            problems.add("Employee " + employeeId + " is already updated by line " + earlier + ".");
+        }
+        return employeeId;
+    }
+
+    // Trimmed value, null when missing or empty
+    private static String value(Map<String, String> record, String field) {
+        String value = record.get(field);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+
+    // Male or Female in any case; anything else is left for checkGender to report
+    private static String gender(String value) {
+        if ("male".equalsIgnoreCase(value)) {
+            return "Male";
+        }
+        if ("female".equalsIgnoreCase(value)) {
+            return "Female";
+        }
+        return value;
+    }
+
+    // ID for a department or position name; 0 when the name is empty
+    private static int lookup(Map<String, Integer> ids, String name, String label, List<String> problems) {
+        if (name == null) {
+            return 0;
+        }
+        Integer id = ids.get(name.toLowerCase(Locale.ROOT));
+        if (id == null) {
+            problems.add(label + " \"" + name + "\" does not exist.");
+            return 0;
+        }
+        if (id == AMBIGUOUS) {
+            problems.add(label + " \"" + name + "\" matches more than one " + label.toLowerCase(Locale.ROOT) + ".");
+            return 0;
+        }
+        return id;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT).replace(" ", "").replace("_", "");
+    }
+
+    // --- WRITING ---
+    // Writes the queued records in one transaction
+    private void writeChunk(TimesheetCsvImporter.ErrorReport errors) throws SQLException, IOException {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<EmployeeRepository.Employee> adds = new ArrayList<>();
+        List<EmployeeRepository.Employee> changes = new ArrayList<>();
+        int[] changeIds = new int[chunk.size()];
+        for (Pending p : chunk) {
+            if (p.employeeId > 0) {
+                changeIds[changes.size()] = p.employeeId;
+                changes.add(p.employee);
+            } else {
+                adds.add(p.employee);
+            }
+        }
+
+        EmployeeRepository repository = new EmployeeRepository(connection);
+        boolean written = false;
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            repository.insertAll(adds);
+            repository.updateAll(changeIds, changes);
+            markSalaries(chunk);   // Committed with the changes, so no re-rate is missed
+            connection.commit();
+            written = true;
+        } catch (SQLException e) {
+            connection.rollback();
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+        if (written) {
+            for (Pending p : chunk) {
+                done(p);
+            }
+        } else {
+            // Most likely a change made by someone else meanwhile; find the record by writing one at a time
+            writeOneByOne(repository, errors);
+        }
+        chunk.clear();
+    }
+
+    private void writeOneByOne(EmployeeRepository repository, TimesheetCsvImporter.ErrorReport errors)
+            throws SQLException, IOException {
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            // Each record commits together with its dirty mark
+            for (Pending p : chunk) {
+                try {
+                    if (p.employeeId > 0) {
+                        repository.update(p.employeeId, p.employee);
+                    } else {
+                        repository.insert(p.employee);
+                    }
+                    markSalaries(Collections.singletonList(p));
+                    connection.commit();
+                    done(p);
+                } catch (SQLException e) {
+                    connection.rollback();
+                    // SQLState class 23 = constraint violation, 3819 = MySQL CHECK constraint
+                    boolean constraint = (e.getSQLState() != null && e.getSQLState().startsWith("23"))
+                            || e.getErrorCode() == 3819;
+                    if (!constraint) {
+                        throw e;
+                    }
+                    errors.reject(p.lineNo, "Rejected by the database: " + e.getMessage(), p.text);
+                }
+            }
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+    }
+
+    // Payrolls not closed yet of the employees whose salary changes get new rates; imports carry no
+    // effective date, so the cut-off is today (PayrollDirtyTracker.markSalary)
+    private void markSalaries(List<Pending> records) throws SQLException {
+        PayrollDirtyTracker dirty = new PayrollDirtyTracker(connection);
+        for (Pending p : records) {
+            if (salaryChanges(p)) {
+                dirty.markSalary(p.employeeId);
+            }
+        }
+    }
+
+    private boolean salaryChanges(Pending p) {
+        if (p.employeeId == 0) {
+            return false;
+        }
+        BigDecimal old = salaries.get(p.employeeId);
+        return old == null || old.compareTo(p.employee.monthlySalary) != 0;
+    }
+
+    private void done(Pending p) {
+        if (p.employeeId == 0) {
+            inserted++;
+            return;
+        }
+        updated++;
+        if (salaryChanges(p)) {
+            HourlyRateCache.getInstance().invalidate(p.employeeId);
+            salaries.put(p.employeeId, p.employee.monthlySalary);
+            salaryChanged = true;
+        }
+    }
+
+    // Reads a JSON array of flat objects one object at a time, without holding the file in memory
+    // Values are returned as text: strings unescaped, numbers and true/false as written, null as null
+    static final class JsonRecords {
+
+        private final Reader in;
+        private int peeked = -2;        // -2 = nothing peeked
+        private long line = 1;
+        private long objectLine;        // Line the last object started on
+        private boolean started;
+        private boolean finished;
+
+        JsonRecords(Reader in) {
+            this.in = in;
+        }
+
+        // Next object as field name -> value, or null after the last one
+        Map<String, String> next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            if (!started) {
+                skipBlanks();
+                if (peek() == 0xFEFF) {
+                    read(); // Byte order mark
+                    skipBlanks();
+                }
+                expect('[');
+                started = true;
+                skipBlanks();
+                if (peek() == ']') {
+                    read();
+                    finished = true;
+                    return null;
+                }
+            }
+            skipBlanks();
+            objectLine = line;
+            expect('{');
+            Map<String, String> object = new LinkedHashMap<>();
+            skipBlanks();
+            if (peek() == '}') {
+                read();
+            } else {
+                while (true) {
+                    skipBlanks();
+                    String key = string();
+                    skipBlanks();
+                    expect(':');
+                    skipBlanks();
+                    object.put(key, value(key));
+                    skipBlanks();
+                    int c = read();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw error("',' or '}'", c);
+                    }
+                }
+            }
+            skipBlanks();
+            int c = read();
+            if (c == ']') {
+                finished = true;
+            } else if (c != ',') {
+                throw error("',' or ']'", c);
+            }
+            return object;
+        }
+
+        long getLine() {
+            return objectLine;
+        }
+
+        // The object as compact JSON, for the error report
+        static String toText(Map<String, String> object) {
+            StringBuilder text = new StringBuilder("{");
+            for (Map.Entry<String, String> e : object.entrySet()) {
+                if (text.length() > 1) {
+                    text.append(", ");
+                }
+                text.append(quote(e.getKey())).append(": ")
+                        .append(e.getValue() == null ? "null" : quote(e.getValue()));
+            }
+            return text.append('}').toString();
+        }
+
+        private static String quote(String s) {
+            return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+
+        private String value(String key) throws IOException {
+            int c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IOException("Line " + line + ": " + key
+                        + " is an object or array; only plain values are supported");
+            }
+            StringBuilder literal = new StringBuilder();
+            while ((c = peek()) != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')) {
+                literal.append((char) read());
+            }
+            String text = literal.toString();
+            if (text.equals("null")) {
+                return null;
+            }
+            if (!text.equals("true") && !text.equals("false") && !text.matches("-?[0-9][0-9.eE+-]*")) {
+                throw error("a value", c);
+            }
+            return text;
+        }
+
+        private String string() throws IOException {
+            expect('"');
+            StringBuilder s = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return s.toString();
+                }
+                if (c == -1 || c < 0x20) {
+                    throw error("'\"'", c);
+                }
+                if (c != '\\') {
+                    s.append((char) c);
+                    continue;
+                }
+                c = read();
+                switch (c) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        s.append((char) c);
+                        break;
+                    case 'b':
+                        s.append('\b');
+                        break;
+                    case 'f':
+                        s.append('\f');
+                        break;
+                    case 'n':
+                        s.append('\n');
+                        break;
+                    case 'r':
+                        s.append('\r');
+                        break;
+                    case 't':
+                        s.append('\t');
+                        break;
+                    case 'u':
+                        int code = 0;
+                        for (int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if (digit < 0) {
+                                throw new IOException("Line " + line + ": invalid \\u escape");
+                            }
+                            code = code * 16 + digit;
+                        }
+                        s.append((char) code);
+                        break;
+                    default:
+                        throw error("an escape", c);
+                }
+            }
+        }
+
+        private void skipBlanks() throws IOException {
+            while (peek() == ' ' || peek() == '\t' || peek() == '\n' || peek() == '\r') {
+                read();
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            int c = read();
+            if (c != expected) {
+                throw error("'" + expected + "'", c);
+            }
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = in.read();
+            }
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+
+        private IOException error(String expected, int found) {
+            return new IOException("Invalid JSON at line " + line + ": expected " + expected + " but found "
+                    + (found == -1 ? "the end of the file" : "'" + (char) found + "'"));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java EmployeeImporter <employees.csv|employees.json> [errors.csv]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        Path errors = args.length > 1 ? Paths.get(args[1]) : TimesheetCsvImporter.defaultErrorReport(file);
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            System.out.println(new EmployeeImporter(conn).importFile(file, errors));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+import java.util.Vector;
+
+// SQL for the EMPLOYEE table
+public class EmployeeRepository extends Repository {
+
+    private static final String LIST_QUERY
+            = "SELECT e.EmployeeID, e.LastName, e.FirstName, e.Email, e.Gender, e.Age, e.DOB, e.Address, "
+            + "e.PhoneNumber, e.DateOfHire, COALESCE(d.DepartmentName, '') AS Department, "
+            + "COALESCE(p.PositionName, '') AS Position, e.MonthlySalary "
+            + "FROM EMPLOYEE e "
+            + "LEFT JOIN DEPARTMENT d ON e.DepartmentID = d.DepartmentID "
+            + "LEFT JOIN POSITION p ON e.PositionID = p.PositionID";
+
+    private static final String INSERT
+            = "INSERT INTO EMPLOYEE (LastName, FirstName, Email, Gender, Age, DOB, Address, PhoneNumber, "
+            + "DateOfHire, DepartmentID, PositionID, MonthlySalary) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)";
+
+    private static final String UPDATE
+            = "UPDATE EMPLOYEE SET LastName=?, FirstName=?, Email=?, Gender=?, Age=?, DOB=?, "
+            + "Address=?, PhoneNumber=?, DateOfHire=?, DepartmentID=?, PositionID=?, MonthlySalary=? "
+            + "WHERE EmployeeID=?";
+
+    // The editable columns of one employee
+    public static final class Employee {
+
+        public String lastName;
+        public String firstName;
+        public String email;
+        public String gender;
+        public Integer age;
+        public String dob;          // YYYY-MM-DD or null
+        public String address;
+        public String phoneNumber;
+        public String dateOfHire;   // YYYY-MM-DD or null
+        public int departmentId;    // 0 for none
+        public int positionId;      // 0 for none
+        public BigDecimal monthlySalary;
+    }
+
+    // What the employee dashboard shows about one employee
+    public static final class Profile {
+
+        public int employeeId;
+        public String firstName;
+        public String lastName;
+        public Integer age;
+        public String dob;          // YYYY-MM-DD or null
+        public String address;
+        public String phoneNumber;
+        public String dateOfHire;   // YYYY-MM-DD or null
+        public String gender;
+        public String email;
+        public String department;   // null for none
+        public String position;     // null for none
+        public BigDecimal monthlySalary;
+    }
+
+    public EmployeeRepository(Connection connection) {
+        super(connection);
+    }
+
+    // Employee list with department and position names, optionally filtered by ID or name,
+    // read a page at a time by EmployeeID
+    public static KeysetQuery list(String text) {
+        if (text == null || text.isEmpty()) {
+            return new KeysetQuery(LIST_QUERY, "e.EmployeeID", "EMPLOYEE")
+                    .dictionaryColumns("Gender", "Department", "Position");
+        }
+        String like = "%" + text + "%";
+        return new KeysetQuery(LIST_QUERY, "e.EmployeeID", "EMPLOYEE",
+                "e.EmployeeID LIKE ? OR e.FirstName LIKE ? OR e.LastName LIKE ?", like, like, like)
+                .dictionaryColumns("Gender", "Department", "Position");
+    }
+
+    // The employee with department and position names, or null
+    public Profile findProfile(int employeeId) throws SQLException {
+        return queryOne("SELECT e.EmployeeID, e.FirstName, e.LastName, e.Age, e.DOB, e.Address, e.PhoneNumber, "
+                + "e.DateOfHire, e.Gender, e.Email, d.DepartmentName, p.PositionName, e.MonthlySalary "
+                + "FROM EMPLOYEE e "
+                + "LEFT JOIN DEPARTMENT d ON e.DepartmentID = d.DepartmentID "
+                + "LEFT JOIN POSITION p ON e.PositionID = p.PositionID "
+                + "WHERE e.EmployeeID = ?", rs -> {
+                    Profile p = new Profile();
+                    p.employeeId = rs.getInt("EmployeeID");
+                    p.firstName = rs.getString("FirstName");
+                    p.lastName = rs.getString("LastName");
+                    p.age = rs.getObject("Age") != null ? rs.getInt("Age") : null;
+                    p.dob = dateText(rs, "DOB");
+                    p.address = rs.getString("Address");
+                    p.phoneNumber = rs.getString("PhoneNumber");
+                    p.dateOfHire = dateText(rs, "DateOfHire");
+                    p.gender = rs.getString("Gender");
+                    p.email = rs.getString("Email");
+                    p.department = rs.getString("DepartmentName");
+                    p.position = rs.getString("PositionName");
+                    p.monthlySalary = rs.getBigDecimal("MonthlySalary");
+                    return p;
+                }, employeeId);
+    }
+
+    public Employee findById(int employeeId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT LastName, FirstName, Email, Gender, Age, DOB, Address, PhoneNumber, DateOfHire, "
+                + "DepartmentID, PositionID, MonthlySalary FROM EMPLOYEE WHERE EmployeeID=?")) {
+            ps.setInt(1, employeeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Employee e = new Employee();
+                e.lastName = rs.getString("LastName");
+                e.firstName = rs.getString("FirstName");
+                e.email = rs.getString("Email");
+                e.gender = rs.getString("Gender");
+                e.age = rs.getObject("Age") != null ? rs.getInt("Age") : null;
+                e.dob = rs.getDate("DOB") != null ? rs.getDate("DOB").toString() : null;
+                e.address = rs.getString("Address");
+                e.phoneNumber = rs.getString("PhoneNumber");
+                e.dateOfHire = rs.getDate("DateOfHire") != null ? rs.getDate("DateOfHire").toString() : null;
+                e.departmentId = rs.getInt("DepartmentID");
+                e.positionId = rs.getInt("PositionID");
+                e.monthlySalary = rs.getBigDecimal("MonthlySalary");
+                return e;
+            }
+        }
+    }
+
+    public boolean exists(int employeeId) throws SQLException {
+        return exists("SELECT 1 FROM EMPLOYEE WHERE EmployeeID = ?", employeeId);
+    }
+
+    // EmployeeID, Email and MonthlySalary of every employee, to match an import against what is on record
+    public Vector<Vector<Object>> findKeys() throws SQLException {
+        return queryRows("SELECT EmployeeID, Email, MonthlySalary FROM EMPLOYEE");
+    }
+
+    public void insert(Employee e) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            bindColumns(ps, e);
+            ps.executeUpdate();
+        }
+    }
+
+    public void update(int employeeId, Employee e) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE)) {
+            bindColumns(ps, e);
+            ps.setInt(13, employeeId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Adds the employees in one executeBatch; the caller decides the transaction
+    public void insertAll(List<Employee> list) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (Employee e : list) {
+                bindColumns(ps, e);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Updates employee ids[i] to list.get(i) in one executeBatch
+    public void updateAll(int[] ids, List<Employee> list) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPDATE)) {
+            for (int i = 0; i < list.size(); i++) {
+                bindColumns(ps, list.get(i));
+                ps.setInt(13, ids[i]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Returns false if no such employee existed
+    public boolean delete(int employeeId) throws SQLException {
+        return execute("DELETE FROM EMPLOYEE WHERE EmployeeID=?", employeeId) > 0;
+    }
+
+    private static void bindColumns(PreparedStatement ps, Employee e) throws SQLException {
+        ps.setString(1, e.lastName);
+        ps.setString(2, e.firstName);
+        ps.setString(3, e.email);
+        ps.setString(4, e.gender);
+        if (e.age != null) {
+            ps.setInt(5, e.age);
+        } else {
+            ps.setNull(5, Types.INTEGER);
+        }
+        ps.setString(6, e.dob);
+        ps.setString(7, e.address);
+        ps.setString(8, e.phoneNumber);
+        ps.setString(9, e.dateOfHire);
+        // No department or position is NULL; 0 would fail the foreign key
+        if (e.departmentId > 0) {
+            ps.setInt(10, e.departmentId);
+        } else {
+            ps.setNull(10, Types.INTEGER);
+        }
+        if (e.positionId > 0) {
+            ps.setInt(11, e.positionId);
+        } else {
+            ps.setNull(11, Types.INTEGER);
+        }
+        ps.setBigDecimal(12, e.monthlySalary);
+    }
+}
@@ -0,0 +1,179 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+
+public final class HourlyRateCache {
+
+    private static final HourlyRateCache INSTANCE = new HourlyRateCache();
+
+    private static final int INITIAL_CAPACITY = 64; // Must be a power of two
+
+    // Open-addressing table keyed by EmployeeID (linear probing, no boxing); a null value marks a free slot
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private Rates[] values = new Rates[INITIAL_CAPACITY];
+    private int size;
+
+    private HourlyRateCache() {
+    }
+
+    public static HourlyRateCache getInstance() {
+        return INSTANCE;
+    }
+
+    // Rates for a salary the caller has already read
+    // The division only happens again when the salary differs from the one the cached rates came from
+    public synchronized Rates rates(int employeeId, BigDecimal monthlySalary) {
+        Rates cached = find(employeeId);
+        if (cached != null && sameSalary(cached.monthlySalary, monthlySalary)) {
+            return cached;
+        }
+        Rates computed = new Rates(monthlySalary);
+        put(employeeId, computed);
+        return computed;
+    }
+
+    // Rates for an employee, reading MonthlySalary only on a miss
+    // Returns null if the employee does not exist
+    public Rates get(Connection conn, int employeeId) throws SQLException {
+        synchronized (this) {
+            Rates cached = find(employeeId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("SELECT MonthlySalary FROM EMPLOYEE WHERE EmployeeID = ?")) {
+            ps.setInt(1, employeeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return rates(employeeId, rs.getBigDecimal("MonthlySalary"));
+            }
+        }
+    }
+
+    // MonthlySalary was changed or the employee was deleted
+    public synchronized void invalidate(int employeeId) {
+        int mask = keys.length - 1;
+        int slot = indexOf(employeeId);
+        if (values[slot] == null) {
+            return;
+        }
+        values[slot] = null;
+        size--;
+
+        // Shift later entries of the same probe run back so lookups do not stop at the hole
+        int hole = slot;
+        for (int i = (slot + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                values[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        values = new Rates[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private Rates find(int employeeId) {
+        return values[indexOf(employeeId)];
+    }
+
+    private void put(int employeeId, Rates rates) {
+        int slot = indexOf(employeeId);
+        if (values[slot] == null) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = indexOf(employeeId);
+            }
+            size++;
+        }
+        keys[slot] = employeeId;
+        values[slot] = rates;
+    }
+
+    // Slot holding the key, or the free slot where it would go
+    private int indexOf(int employeeId) {
+        int mask = keys.length - 1;
+        int i = hash(employeeId) & mask;
+        while (values[i] != null && keys[i] != employeeId) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // Keeps the table at most half full
+    private void grow() {
+        int[] oldKeys = keys;
+        Rates[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Rates[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = indexOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    // EmployeeIDs are sequential; spread them so neighbouring IDs do not form long probe runs
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean sameSalary(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    // Standard and OT hourly rates derived from one MonthlySalary
+    public static final class Rates {
+
+        private final BigDecimal monthlySalary;
+        private final BigDecimal stdRate;
+        private final BigDecimal otRate;
+        private final long stdCentavos;
+        private final long otCentavos;
+
+        Rates(BigDecimal monthlySalary) {
+            this.monthlySalary = monthlySalary;
+            this.stdRate = PayrollMath.standardHourlyRate(monthlySalary);
+            this.otRate = PayrollMath.overtimeHourlyRate(stdRate);
+            this.stdCentavos = PayrollMath.standardHourlyCentavos(Money.toCentavos(monthlySalary, RoundingMode.HALF_UP));
+            this.otCentavos = PayrollMath.overtimeHourlyCentavos(stdCentavos);
+        }
+
+        public BigDecimal getMonthlySalary() {
+            return monthlySalary;
+        }
+
+        public BigDecimal getStdHourlyRate() {
+            return stdRate;
+        }
+
+        public BigDecimal getOTHourlyRate() {
+            return otRate;
+        }
+
+        public long getStdHourlyCentavos() {
+            return stdCentavos;
+        }
+
+        // OT rate rounded to centavos, as GROSS_PAY stores it
+        public long getOTHourlyCentavos() {
+            return otCentavos;
+        }
+    }
+}
@@ -1,8 +1,15 @@
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JOptionPane;
 
 public class InputValidation {
 
+    private static final BigDecimal MAX_SALARY = new BigDecimal("99999999.99"); // EMPLOYEE.MonthlySalary DECIMAL(10,2)
+
     // Helper method: Shows an error dialog for invalid inputs
     private static void showError(String message) {
         JOptionPane.showMessageDialog(null, message, "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -40,22 +47,7 @@ public class InputValidation {
 
     // Validates name if letters & spaces only, and its length limit
     public static boolean validatename(String firstname) {
-        if (isEmpty(firstname)) {     // Required input
-            showError("First name cannot be empty.");
-            return false;
-        }
-
-        if (firstname.length() > 50) { // Ensures max allowed length
-            showError("First name cannot exceed 50 characters.");
-            return false;
-        }
-
-        if (!firstname.matches("[A-Za-z ]+")) { // Rejects numbers & symbols
-            showError("First name can only contain letters and spaces.");
-            return false;
-        }
-
-        return true;
+        return show(checkName(firstname, "First name"));
     }
 
     // Validates Employee ID which must be numeric only, and has max 8 digits
@@ -80,17 +72,111 @@ public class InputValidation {
 
     // Validates email format using simplified regex
     public static boolean validateEmail(String email) {
-        if (isEmpty(email)) {          // Required input
-            showError("Email cannot be empty.");
-            return false;
+        return show(checkEmail(email));
+    }
+
+    // --- CHECKS WITHOUT DIALOGS ---
+    // Each returns what is wrong with the value, or null if it is valid
+    // The validate methods show the message; EmployeeImporter collects them for a whole file
+
+    // Name of up to 50 letters, spaces, apostrophes, hyphens and periods (Dela Cruz, O'Neil, Jr.)
+    public static String checkName(String name, String label) {
+        if (isEmpty(name)) {
+            return label + " cannot be empty.";
         }
+        if (name.length() > 50) {
+            return label + " cannot exceed 50 characters.";
+        }
+        if (!name.matches("[\\p{L} .'-]+")) { // Rejects numbers & other symbols
+            return label + " can only contain letters, spaces, apostrophes, hyphens and periods.";
+        }
+        return null;
+    }
 
+    public static String checkEmail(String email) {
+        if (isEmpty(email)) {
+            return "Email cannot be empty.";
+        }
+        if (email.length() > 100) {
+            return "Email cannot exceed 100 characters.";
+        }
         // Basic email pattern: local@domain
         if (!email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) {
-            showError("Invalid email format.");
-            return false;
+            return "Invalid email format.";
         }
+        return null;
+    }
 
+    public static String checkGender(String gender) {
+        return "Male".equals(gender) || "Female".equals(gender) ? null : "Gender must be Male or Female.";
+    }
+
+    // Optional; the chk_age constraint of EMPLOYEE
+    public static String checkAge(Integer age) {
+        return age == null || (age >= 18 && age <= 65) ? null : "Age must be between 18 and 65.";
+    }
+
+    // Optional; the chk_phone constraint of EMPLOYEE, which also rejects an empty string
+    public static String checkPhone(String phone) {
+        return phone == null || phone.matches("[0-9]{11}") ? null : "Phone number must be exactly 11 digits.";
+    }
+
+    // YYYY-MM-DD and a real day
+    public static String checkDate(String date, String label, boolean required) {
+        if (isEmpty(date)) {
+            return required ? label + " cannot be empty." : null;
+        }
+        try {
+            LocalDate.parse(date);
+            return null;
+        } catch (DateTimeParseException e) {
+            return label + " must be a valid date as YYYY-MM-DD.";
+        }
+    }
+
+    public static String checkSalary(BigDecimal salary) {
+        if (salary == null) {
+            return "Monthly salary cannot be empty.";
+        }
+        if (salary.signum() < 0 || salary.compareTo(MAX_SALARY) > 0 || salary.stripTrailingZeros().scale() > 2) {
+            return "Monthly salary must be between 0 and " + MAX_SALARY + " with at most 2 decimals.";
+        }
+        return null;
+    }
+
+    public static String checkLength(String value, String label, int max) {
+        return value == null || value.length() <= max ? null : label + " cannot exceed " + max + " characters.";
+    }
+
+    // Every rule for an employee, so a save or an import is not refused by a column limit or a CHECK
+    // constraint halfway; empty if the employee can be saved
+    public static List<String> checkEmployee(EmployeeRepository.Employee e) {
+        List<String> problems = new ArrayList<>();
+        add(problems, checkName(e.lastName, "Last name"));
+        add(problems, checkName(e.firstName, "First name"));
+        add(problems, checkEmail(e.email));
+        add(problems, checkGender(e.gender));
+        add(problems, checkAge(e.age));
+        add(problems, checkDate(e.dob, "DOB", false));
+        add(problems, checkLength(e.address, "Address", 100));
+        add(problems, checkPhone(e.phoneNumber));
+        add(problems, checkDate(e.dateOfHire, "Hire date", true));
+        add(problems, checkSalary(e.monthlySalary));
+        return problems;
+    }
+
+    private static void add(List<String> problems, String problem) {
+        if (problem != null) {
+            problems.add(problem);
+        }
+    }
+
+    // Shows the problem, if any; returns whether the value was valid
+    private static boolean show(String problem) {
+        if (problem != null) {
+            showError(problem);
+            return false;
+        }
         return true;
     }
 
@@ -0,0 +1,147 @@
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Set;
+
+// A SELECT that is read one page at a time in key order: ... WHERE key > ? ORDER BY key LIMIT n
+// The key must be unique, indexed and the first selected column, so every page is an index range scan
+// no matter how deep into the table it starts (unlike LIMIT/OFFSET, which reads and discards every row before it)
+public final class KeysetQuery {
+
+    // Below this estimate an exact COUNT(*) is cheap enough to run instead
+    private static final long EXACT_COUNT_BELOW = 2000;
+
+    private final String select;      // SELECT ... FROM ... JOIN ..., without WHERE or ORDER BY
+    private final String keyColumn;   // e.g. t.TimesheetID
+    private final String table;       // Base table, for the row count estimate
+    private final String filter;      // Extra WHERE condition, or null
+    private final Object[] params;    // Parameters of the filter
+    private Set<String> dictionaryColumns = Set.of();
+
+    // Column layout of the pages, taken from the first page read and shared by the rest
+    private volatile ColumnarRows.Schema schema;
+
+    public KeysetQuery(String select, String keyColumn, String table) {
+        this(select, keyColumn, table, null);
+    }
+
+    public KeysetQuery(String select, String keyColumn, String table, String filter, Object... params) {
+        this.select = select;
+        this.keyColumn = keyColumn;
+        this.table = table;
+        this.filter = filter;
+        this.params = params;
+    }
+
+    // Low-cardinality string columns (by label) to store as codes into a shared dictionary, e.g. department names
+    // Not for names or reference numbers: every distinct value stays in the dictionary, so nothing is saved
+    public KeysetQuery dictionaryColumns(String... labels) {
+        dictionaryColumns = Set.of(labels);
+        return this;
+    }
+
+    // Rows of one page, and whether it is the last
+    public static final class Page {
+
+        private final ColumnarRows rows;
+        private final boolean last;
+
+        Page(ColumnarRows rows, boolean last) {
+            this.rows = rows;
+            this.last = last;
+        }
+
+        public ColumnarRows getRows() {
+            return rows;
+        }
+
+        // No row follows this page, so the exact row count is known once it is read
+        public boolean isLast() {
+            return last;
+        }
+    }
+
+    // Up to limit rows with a key greater than afterKey, in key order
+    // One extra row is asked for to learn whether more follow, so a full last page is recognized as the last
+    public Page page(Connection conn, long afterKey, int limit) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, select + where() + " ORDER BY " + keyColumn + " LIMIT ?",
+                afterKey, limit + 1); ResultSet rs = ps.executeQuery()) {
+            ColumnarRows rows = ColumnarRows.read(rs, schema, dictionaryColumns, limit);
+            schema = rows.getSchema();
+            return new Page(rows, !rs.next());
+        }
+    }
+
+    // Key of the row offset places past afterKey (0 is the first row after it), or null if there are not that many
+    // Reads only the key index, so jumping deep into a large table does not fetch the rows in between
+    public Long keyAt(Connection conn, long afterKey, int offset) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, "SELECT " + keyColumn + fromClause() + where()
+                + " ORDER BY " + keyColumn + " LIMIT 1 OFFSET ?", afterKey, offset);
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : null;
+        }
+    }
+
+    // Exact number of rows with a key greater than afterKey
+    public int countAfter(Connection conn, long afterKey) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, "SELECT COUNT(*)" + fromClause() + where(), afterKey);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    // Cheap row count: the server's table statistics for an unfiltered query, otherwise COUNT(*)
+    // The estimate may be off by a few percent, and counts rows of the base table that the joins may drop;
+    // PagedTableModel replaces it with the exact count when it reads the last page
+    public int estimateRowCount(Connection conn) throws SQLException {
+        if (filter == null) {
+            long estimate = tableRowsEstimate(conn);
+            if (estimate >= EXACT_COUNT_BELOW) {
+                return (int) Math.min(estimate, Integer.MAX_VALUE);
+            }
+        }
+        return countAfter(conn, Long.MIN_VALUE);
+    }
+
+    // InnoDB's TABLE_ROWS statistic, or -1 where the server does not keep one
+    private long tableRowsEstimate(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT TABLE_ROWS FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND UPPER(TABLE_NAME) = ?")) {
+            ps.setString(1, table.toUpperCase());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            // No statistics here; fall back to counting
+        }
+        return -1;
+    }
+
+    // FROM ... JOIN ... part of the select
+    private String fromClause() {
+        return select.substring(select.toUpperCase().indexOf(" FROM "));
+    }
+
+    private String where() {
+        return " WHERE " + (filter != null ? "(" + filter + ") AND " : "") + keyColumn + " > ?";
+    }
+
+    // Binds the filter parameters followed by extra
+    private PreparedStatement prepare(Connection conn, String sql, Object... extra) throws SQLException {
+        Object[] all = Arrays.copyOf(params, params.length + extra.length);
+        System.arraycopy(extra, 0, all, params.length, extra.length);
+        PreparedStatement ps = conn.prepareStatement(sql);
+        try {
+            for (int i = 0; i < all.length; i++) {
+                ps.setObject(i + 1, all[i]);
+            }
+            return ps;
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 
 import java.awt.*;
-import java.sql.*;
 import javax.swing.*;
 
 public class Login extends JFrame {
@@ -196,14 +195,6 @@ public class Login extends JFrame {
         return panel;
     }
 
-    // Database connection helper
-    private Connection getConnection() throws SQLException {
-        String url = "jdbc:mysql://localhost:3306/payrolldb"; // DB URL
-        String user = "root";                                  // DB username
-        String pass = "1234";                                  // DB password
-        return DriverManager.getConnection(url, user, pass);
-    }
-
     // Handle user registration
     private void performRegister() {
         String username = tfRegUsername.getText().trim();
@@ -223,34 +214,28 @@ public class Login extends JFrame {
 
         int employeeID = Integer.parseInt(empText);
 
-        try (Connection conn = getConnection()) {
+        // Checks and insert run off the EDT; a non-null result is a message for the user
+        AsyncLoader.run(this, "Error registering user", c -> {
+            UserRepository users = new UserRepository(c, "Employee");
+
             // Check if Employee already has an account
-            String checkSql = "SELECT COUNT(*) FROM USER WHERE EmployeeID=? AND Role='Employee'";
-            PreparedStatement psCheck = conn.prepareStatement(checkSql);
-            psCheck.setInt(1, employeeID);
-            ResultSet rsCheck = psCheck.executeQuery();
-            if (rsCheck.next() && rsCheck.getInt(1) > 0) {
-                JOptionPane.showMessageDialog(this, "This employee already has an account.");
-                return;
+            if (users.hasAccount(employeeID)) {
+                return "This employee already has an account.";
             }
 
             // Check if username exists
-            String checkUserSql = "SELECT COUNT(*) FROM USER WHERE Username=?";
-            PreparedStatement psUser = conn.prepareStatement(checkUserSql);
-            psUser.setString(1, username);
-            ResultSet rsUser = psUser.executeQuery();
-            if (rsUser.next() && rsUser.getInt(1) > 0) {
-                JOptionPane.showMessageDialog(this, "Username already exists. Choose another.");
-                return;
+            if (users.usernameTaken(username)) {
+                return "Username already exists. Choose another.";
             }
 
             // Insert new user
-            String insertSql = "INSERT INTO USER (EmployeeID, Username, Password, Role) VALUES (?, ?, ?, 'Employee')";
-            PreparedStatement psInsert = conn.prepareStatement(insertSql);
-            psInsert.setInt(1, employeeID);
-            psInsert.setString(2, username);
-            psInsert.setString(3, password);
-            psInsert.executeUpdate();
+            users.insert(employeeID, username, password);
+            return null;
+        }, message -> {
+            if (message != null) {
+                JOptionPane.showMessageDialog(this, message);
+                return;
+            }
 
             // Success message and reset fields
             JOptionPane.showMessageDialog(this, "Registration Successful!");
@@ -259,11 +244,7 @@ public class Login extends JFrame {
             pfRegPassword.setText("");
 
             cardLayout.show(rightPanel, "LoginForm"); // Return to login
-
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error registering user: " + ex.getMessage(),
-                    "Registration Failed", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     // Handle login with role check
@@ -279,9 +260,12 @@ public class Login extends JFrame {
             return;
         }
 
-        // Authenticate user
-        User user = User.authenticate(username, password);
+        // Authenticate user off the EDT, then open the dashboard
+        AsyncLoader.run(this, "Error logging in", c -> User.authenticate(c, username, password), this::openDashboard);
+    }
 
+    // Opens the dashboard for the authenticated user, or reports a failed login
+    private void openDashboard(User user) {
         if (user == null) {
             JOptionPane.showMessageDialog(this, "Invalid username or password!",
                     "Login Failed", JOptionPane.ERROR_MESSAGE);
@@ -307,6 +291,9 @@ public class Login extends JFrame {
 
     // Main method: Launch UI
     public static void main(String[] args) {
+        ConnectionPool.getInstance().warmUp();   // Open connections while the login form is shown
+        SchemaMigrator.migrateAtStartup();       // Apply pending PayrollDB/migrations scripts first
+        ChangeVersionPoller.getInstance().start(); // Refresh caches after writes by other clients
         SwingUtilities.invokeLater(Login::new); // Thread-safe UI creation
     }
 }
@@ -0,0 +1,118 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Fixed-point arithmetic on amounts held as plain longs, so hot loops do not allocate
+// Money amounts are centavos (scale 2); products of hours and rates are ten-thousandths (scale 4)
+public final class Money {
+
+    // Decimal places of a centavo amount, matching the DECIMAL(10,2) columns
+    public static final int SCALE = 2;
+
+    // Decimal places of an hours (scale 2) x rate (scale 2) product, matching PAYROLL_SUMMARY.TotalGrossPay
+    public static final int EXTENDED_SCALE = 4;
+
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L};
+
+    private Money() {
+    }
+
+    // --- JDBC BOUNDARY ---
+    // Unscaled value of a DECIMAL at the given scale, rounding extra digits with the given mode
+    public static long unscaled(BigDecimal value, int scale, RoundingMode mode) {
+        if (value == null) {
+            return 0L;
+        }
+        return value.setScale(scale, mode).unscaledValue().longValueExact();
+    }
+
+    public static long toCentavos(BigDecimal value, RoundingMode mode) {
+        return unscaled(value, SCALE, mode);
+    }
+
+    public static BigDecimal toBigDecimal(long unscaled, int scale) {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    public static BigDecimal toBigDecimal(long centavos) {
+        return BigDecimal.valueOf(centavos, SCALE);
+    }
+
+    // --- ARITHMETIC ---
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    // Exact product of two scale-2 values, at EXTENDED_SCALE
+    public static long multiplyExtended(long hundredths, long centavos) {
+        return Math.multiplyExact(hundredths, centavos);
+    }
+
+    // amount * numerator / denominator, rounded once at the end
+    public static long multiply(long amount, long numerator, long denominator, RoundingMode mode) {
+        return divide(Math.multiplyExact(amount, numerator), denominator, mode);
+    }
+
+    // Drops digits from a value, e.g. EXTENDED_SCALE back to SCALE
+    public static long rescale(long value, int fromScale, int toScale, RoundingMode mode) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(value, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        return divide(value, POWERS_OF_TEN[fromScale - toScale], mode);
+    }
+
+    // dividend / divisor with the rounding rules of java.math.RoundingMode
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        if (divisor < 0) {
+            dividend = Math.negateExact(dividend);
+            divisor = -divisor;
+        }
+
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        int sign = dividend < 0 ? -1 : 1;
+        boolean awayFromZero;
+        switch (mode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+            case HALF_DOWN:
+            case HALF_EVEN:
+                // Compare the remainder with half the divisor without overflowing 2 * remainder
+                long rest = Math.abs(remainder);
+                int half = Long.compare(rest, divisor - rest);
+                if (mode == RoundingMode.HALF_UP) {
+                    awayFromZero = half >= 0;
+                } else if (mode == RoundingMode.HALF_DOWN) {
+                    awayFromZero = half > 0;
+                } else {
+                    awayFromZero = half > 0 || (half == 0 && (quotient & 1) != 0);
+                }
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+}
@@ -0,0 +1,230 @@
+
+import java.awt.Component;
+import java.sql.*;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+
+// Read-only table model over a KeysetQuery that fetches rows page by page as the table asks for them
+// Only the most recently used pages are kept; a row that is not loaded yet shows blank until its page arrives
+// The row count starts from the query's estimate and becomes exact once the last page has been read; rows the
+// estimate promised beyond that are removed with fireTableRowsDeleted
+// Rows inserted or deleted after a page was read show up on the next refresh, which builds a new model
+public class PagedTableModel extends AbstractTableModel {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_PAGES = 50;
+
+    // One fetched page; startKey is the key just before its first row
+    private static final class Page {
+
+        final long startKey;
+        final ColumnarRows rows;   // null past the end of the data
+        final int exactCount;      // Total row count if this fetch found the end of the data, otherwise -1
+
+        Page(long startKey, ColumnarRows rows, int exactCount) {
+            this.startKey = startKey;
+            this.rows = rows;
+            this.exactCount = exactCount;
+        }
+    }
+
+    private final Component owner;     // Parent for error dialogs
+    private final KeysetQuery query;
+    private final String[] columnNames;
+    private final int pageSize;
+
+    // EDT only from here on
+    private final LinkedHashMap<Integer, ColumnarRows> pages;
+    private final TreeMap<Integer, Long> startKeys = new TreeMap<>();   // Page number -> key before its first row
+    private final Set<Integer> pending = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>();                // Not retried until the next refresh
+    private int rowCount;
+    private boolean exact;
+    private ColumnarRows.Schema schema;   // From the first page
+
+    private PagedTableModel(Component owner, KeysetQuery query, String[] columnNames, int pageSize, int maxPages) {
+        this.owner = owner;
+        this.query = query;
+        this.columnNames = columnNames;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, ColumnarRows>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ColumnarRows> eldest) {
+                return size() > maxPages;
+            }
+        };
+        startKeys.put(0, Long.MIN_VALUE);
+    }
+
+    // Reads the row count estimate and the first page; run it on a background thread, e.g. in an AsyncLoader query
+    public static PagedTableModel load(Connection conn, Component owner, KeysetQuery query, String... columnNames)
+            throws SQLException {
+        return load(conn, owner, query, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, columnNames);
+    }
+
+    public static PagedTableModel load(Connection conn, Component owner, KeysetQuery query, int pageSize,
+            int maxPages, String... columnNames) throws SQLException {
+        PagedTableModel model = new PagedTableModel(owner, query, columnNames, pageSize, maxPages);
+        int estimate = query.estimateRowCount(conn);
+        Page first = fetch(conn, query, Long.MIN_VALUE, 0, 0, pageSize);
+        model.rowCount = estimate;
+        model.schema = first.rows.getSchema();
+        model.install(0, first, false);
+        return model;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    // Integer, BigDecimal, LocalDate or String per the column's SQL type, so numbers render right-aligned
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column < schema.getColumnCount() ? schema.getColumnClass(column) : Object.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    // The cell value, or null while its page is being fetched
+    // Actions on the selected row check isRowLoaded first rather than casting a null key
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / pageSize;
+        ColumnarRows rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        int index = row % pageSize;
+        return index < rows.size() ? rows.getValue(index, column) : null;
+    }
+
+    // Whether the row's values are in memory; a row whose page is not loaded is fetched in the background
+    // Also false for a row past the end of the data while the row count is still the estimate
+    public boolean isRowLoaded(int row) {
+        if (row < 0 || row >= rowCount) {
+            return false;
+        }
+        ColumnarRows rows = pages.get(row / pageSize);
+        if (rows == null) {
+            request(row / pageSize);
+            return false;
+        }
+        return row % pageSize < rows.size();
+    }
+
+    // Same for a row of a table showing any model, by view index; other models are always loaded
+    public static boolean isRowLoaded(JTable table, int viewRow) {
+        if (viewRow < 0) {
+            return false;
+        }
+        TableModel model = table.getModel();
+        return !(model instanceof PagedTableModel)
+                || ((PagedTableModel) model).isRowLoaded(table.convertRowIndexToModel(viewRow));
+    }
+
+    public boolean isExactRowCount() {
+        return exact;
+    }
+
+    // Starts a background fetch of one page unless it is already on its way
+    private void request(int page) {
+        if (pending.contains(page) || failed.contains(page)) {
+            return;
+        }
+        pending.add(page);
+
+        // Start from the nearest page whose starting key is known and skip forward over the key index
+        Map.Entry<Integer, Long> from = startKeys.floorEntry(page);
+        int fromPage = from.getKey();
+        long fromKey = from.getValue();
+        AsyncLoader.run(owner, "Error loading rows",
+                c -> fetch(c, query, fromKey, fromPage, (page - fromPage) * pageSize, pageSize),
+                p -> install(page, p, true),
+                () -> {
+                    pending.remove(page);
+                    failed.add(page);
+                });
+    }
+
+    // Reads the page that starts skip rows after fromKey (fromKey begins page fromPage)
+    private static Page fetch(Connection conn, KeysetQuery query, long fromKey, int fromPage, int skip, int pageSize)
+            throws SQLException {
+        long startKey = fromKey;
+        if (skip > 0) {
+            Long key = query.keyAt(conn, fromKey, skip - 1);
+            if (key == null) {
+                // The data ends before this page; count what is left to get the exact total
+                int count = fromPage * pageSize + query.countAfter(conn, fromKey);
+                return new Page(fromKey, null, count);
+            }
+            startKey = key;
+        }
+        KeysetQuery.Page read = query.page(conn, startKey, pageSize);
+        ColumnarRows rows = read.getRows();
+        int pageNumber = fromPage + skip / pageSize;
+        int count = read.isLast() ? pageNumber * pageSize + rows.size() : -1;
+        return new Page(startKey, rows, count);
+    }
+
+    private void install(int page, Page p, boolean notify) {
+        pending.remove(page);
+        if (p.exactCount >= 0) {
+            setRowCount(p.exactCount, true, notify);
+            if (p.rows == null || p.rows.size() == 0) {
+                return; // Nothing on this page
+            }
+        } else if (!exact && (page + 1) * pageSize >= rowCount) {
+            // The estimate was low: reveal one more page, which finds the real end when it is read
+            setRowCount((page + 2) * pageSize, false, notify);
+        }
+
+        startKeys.put(page, p.startKey);
+        if (p.rows.size() > 0) {
+            startKeys.put(page + 1, p.rows.getLong(p.rows.size() - 1, 0));
+        }
+        pages.put(page, p.rows);
+
+        if (notify) {
+            int first = page * pageSize;
+            int last = Math.min(first + p.rows.size(), rowCount) - 1;
+            if (last >= first) {
+                fireTableRowsUpdated(first, last);
+            }
+        }
+    }
+
+    private void setRowCount(int count, boolean isExact, boolean notify) {
+        int old = rowCount;
+        rowCount = count;
+        exact = isExact;
+        if (!notify || count == old) {
+            return;
+        }
+        if (count > old) {
+            fireTableRowsInserted(old, count - 1);
+        } else {
+            fireTableRowsDeleted(count, old - 1);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+
+import java.sql.*;
+
+public class PayrollBatchRunner {
+
+    // Creates one PAYROLL row per active employee that has no payroll for the period yet
+    // ReferenceNo follows the single-payroll format: PR-<EmployeeID>-<run suffix>, the suffix being
+    // "<yyyyMMdd>-<generated ID>" from PayrollReferenceGenerator, shared by every payroll of the run
+    private static final String INSERT_PAYROLLS
+            = "INSERT INTO PAYROLL (EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off) "
+            + "SELECT e.EmployeeID, CONCAT('PR-', e.EmployeeID, '-', ?), ?, ? "
+            + "FROM EMPLOYEE e "
+            + "WHERE e.DateOfHire <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM PAYROLL p "
+            + "WHERE p.EmployeeID = e.EmployeeID AND p.Start_Cut_Off = ? AND p.End_Cut_Off = ?)";
+
+    // Copies every default deduction into each payroll created by this run
+    private static final String INSERT_DEDUCTIONS
+            = "INSERT INTO PAYROLL_DEDUCTION (PayrollID, DeductionID, Amount) "
+            + "SELECT p.PayrollID, d.DeductionID, d.Default_Amount "
+            + "FROM PAYROLL p CROSS JOIN DEDUCTION d "
+            + "WHERE p.Start_Cut_Off = ? AND p.End_Cut_Off = ? "
+            + "AND p.ReferenceNo = CONCAT('PR-', p.EmployeeID, '-', ?)";
+
+    // Creates missing GROSS_PAY rows for every timesheet covered by this run
+    // Same math as the single-payroll dialog: MonthlySalary / (22 * 8) rounded half-up, OT at 1.25x
+    private static final String INSERT_GROSS_PAY
+            = "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) "
+            + "SELECT t.TimesheetID, " + PayrollMath.SQL_STD_RATE + ", " + PayrollMath.SQL_OT_RATE + " "
+            + "FROM PAYROLL p "
+            + "JOIN EMPLOYEE e ON e.EmployeeID = p.EmployeeID "
+            + "JOIN TIMESHEET t ON t.EmployeeID = p.EmployeeID AND t.WorkDate BETWEEN p.Start_Cut_Off AND p.End_Cut_Off "
+            + "WHERE p.Start_Cut_Off = ? AND p.End_Cut_Off = ? "
+            + "AND p.ReferenceNo = CONCAT('PR-', p.EmployeeID, '-', ?) "
+            + "AND NOT EXISTS (SELECT 1 FROM GROSS_PAY g WHERE g.TimesheetID = t.TimesheetID)";
+
+    private final Connection connection;
+
+    public PayrollBatchRunner(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Runs payroll for every active employee (hired on or before the end cut-off)
+    // All three statements run inside one transaction; nothing is kept if any of them fails
+    public Result run(Date startCutOff, Date endCutOff) throws SQLException {
+        String runSuffix = PayrollReferenceGenerator.getInstance().nextRunSuffix(startCutOff);
+        long started = System.nanoTime();
+
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            int payrolls;
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PAYROLLS)) {
+                ps.setString(1, runSuffix);
+                ps.setDate(2, startCutOff);
+                ps.setDate(3, endCutOff);
+                ps.setDate(4, endCutOff);
+                ps.setDate(5, startCutOff);
+                ps.setDate(6, endCutOff);
+                payrolls = ps.executeUpdate();
+            }
+
+            int deductions;
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_DEDUCTIONS)) {
+                bindRunFilter(ps, startCutOff, endCutOff, runSuffix);
+                deductions = ps.executeUpdate();
+            }
+
+            int grossPays;
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_GROSS_PAY)) {
+                bindRunFilter(ps, startCutOff, endCutOff, runSuffix);
+                grossPays = ps.executeUpdate();
+            }
+
+            connection.commit();
+            return new Result(payrolls, deductions, grossPays, System.nanoTime() - started);
+
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+    }
+
+    // Binds the (Start_Cut_Off, End_Cut_Off, run suffix) triple that identifies this run's payrolls
+    private static void bindRunFilter(PreparedStatement ps, Date startCutOff, Date endCutOff, String runSuffix)
+            throws SQLException {
+        ps.setDate(1, startCutOff);
+        ps.setDate(2, endCutOff);
+        ps.setString(3, runSuffix);
+    }
+
+    // Row counts and timing of a finished batch run
+    public static class Result {
+
+        private final int payrolls;
+        private final int deductions;
+        private final int grossPays;
+        private final long elapsedNanos;
+
+        Result(int payrolls, int deductions, int grossPays, long elapsedNanos) {
+            this.payrolls = payrolls;
+            this.deductions = deductions;
+            this.grossPays = grossPays;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getPayrolls() {
+            return payrolls;
+        }
+
+        public int getDeductions() {
+            return deductions;
+        }
+
+        public int getGrossPays() {
+            return grossPays;
+        }
+
+        public int getTotalRows() {
+            return payrolls + deductions + grossPays;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : getTotalRows() / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Payrolls created: %d%nDeductions copied: %d%nGross pay rows: %d%n"
+                    + "Total rows: %d%nWall time: %.1f ms%nThroughput: %.0f rows/sec",
+                    payrolls, deductions, grossPays, getTotalRows(), getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+}
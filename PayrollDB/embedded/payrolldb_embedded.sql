@@ -0,0 +1,178 @@
+-- PayrollDB for the embedded profile (db.profile=embedded): an in-memory H2 database in MySQL mode.
+-- Same tables, columns, views and indexes as payrolldbscript.sql plus migrations V001-V008, and the
+-- sample rows of the PayrollDB/payrolldb_*.sql dumps. Differences, all invisible to the application:
+--   * PAYROLL_SUMMARY is a view computing the same totals, since H2 cannot run MySQL trigger bodies
+--   * the phone number check uses REGEXP_LIKE instead of REGEXP
+--   * CHANGE_VERSION has no triggers: the in-process database has no other clients to notice
+-- Loaded by EmbeddedDatabase, which refuses to load it once a migration is added or edited: bring this file
+-- in line, then update EmbeddedDatabase.SCHEMA_VERSION and SCHEMA_CHECKSUM (java EmbeddedDatabase prints them).
+
+CREATE TABLE DEPARTMENT (
+    DepartmentID INT AUTO_INCREMENT PRIMARY KEY,
+    DepartmentName VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE POSITION (
+    PositionID INT AUTO_INCREMENT PRIMARY KEY,
+    PositionName VARCHAR(50) NOT NULL,
+    BaseSalary DECIMAL(10,2) NOT NULL,
+    DepartmentID INT,
+    FOREIGN KEY (DepartmentID) REFERENCES DEPARTMENT(DepartmentID)
+);
+
+CREATE TABLE EMPLOYEE (
+    EmployeeID INT AUTO_INCREMENT PRIMARY KEY,
+    LastName VARCHAR(50) NOT NULL,
+    FirstName VARCHAR(50) NOT NULL,
+    Age INT,
+    DOB DATE,
+    Address VARCHAR(100),
+    PhoneNumber VARCHAR(20),
+    DateOfHire DATE NOT NULL,
+    DepartmentID INT,
+    PositionID INT,
+    MonthlySalary DECIMAL(10,2) NOT NULL,
+    Email VARCHAR(100) NOT NULL,
+    Gender ENUM('Male','Female') NOT NULL,
+    FOREIGN KEY (DepartmentID) REFERENCES DEPARTMENT(DepartmentID),
+    FOREIGN KEY (PositionID) REFERENCES POSITION(PositionID),
+    CONSTRAINT chk_phone CHECK (REGEXP_LIKE(PhoneNumber, '^[0-9]{11}$')),
+    CONSTRAINT chk_age CHECK (Age BETWEEN 18 AND 65)
+);
+
+CREATE TABLE TIMESHEET (
+    TimesheetID INT AUTO_INCREMENT PRIMARY KEY,
+    EmployeeID INT NOT NULL,
+    WorkDate DATE NOT NULL,
+    StandardHours DECIMAL(5,2) NOT NULL DEFAULT 8.00,
+    RenderedHours DECIMAL(5,2) NOT NULL,
+    OvertimeHours DECIMAL(5,2) GENERATED ALWAYS AS (GREATEST(RenderedHours - StandardHours, 0)),
+    FOREIGN KEY (EmployeeID) REFERENCES EMPLOYEE(EmployeeID)
+);
+
+CREATE TABLE GROSS_PAY (
+    GrossPayID INT AUTO_INCREMENT PRIMARY KEY,
+    TimesheetID INT NOT NULL,
+    StdHourlyRate DECIMAL(10,2) NOT NULL,
+    OTHourlyRate DECIMAL(10,2) NOT NULL,
+    FOREIGN KEY (TimesheetID) REFERENCES TIMESHEET(TimesheetID)
+);
+
+CREATE TABLE DEDUCTION (
+    DeductionID INT AUTO_INCREMENT PRIMARY KEY,
+    Description VARCHAR(50) NOT NULL,
+    Default_Amount DECIMAL(10,2) NOT NULL
+);
+
+CREATE TABLE PAYROLL (
+    PayrollID INT AUTO_INCREMENT PRIMARY KEY,
+    EmployeeID INT NOT NULL,
+    ReferenceNo VARCHAR(50) UNIQUE NOT NULL,
+    Start_Cut_Off DATE NOT NULL,
+    End_Cut_Off DATE NOT NULL,
+    FOREIGN KEY (EmployeeID) REFERENCES EMPLOYEE(EmployeeID)
+);
+
+CREATE TABLE PAYROLL_DEDUCTION (
+    PayrollDeductionID INT AUTO_INCREMENT PRIMARY KEY,
+    PayrollID INT NOT NULL,
+    DeductionID INT NOT NULL,
+    Amount DECIMAL(10,2) NOT NULL,
+    FOREIGN KEY (PayrollID) REFERENCES PAYROLL(PayrollID),
+    FOREIGN KEY (DeductionID) REFERENCES DEDUCTION(DeductionID)
+);
+
+CREATE TABLE USER (
+    UserID INT AUTO_INCREMENT PRIMARY KEY,
+    EmployeeID INT,
+    Username VARCHAR(50) UNIQUE NOT NULL,
+    Password VARCHAR(20) NOT NULL,
+    Role ENUM('Admin','Employee') NOT NULL,
+    FOREIGN KEY (EmployeeID) REFERENCES EMPLOYEE(EmployeeID)
+);
+
+-- Migrations V001-V008
+CREATE UNIQUE INDEX uq_timesheet_employee_workdate ON TIMESHEET (EmployeeID, WorkDate);
+CREATE UNIQUE INDEX uq_gross_pay_timesheet ON GROSS_PAY (TimesheetID);
+CREATE INDEX idx_user_password ON USER (Password);
+CREATE INDEX idx_payroll_employee_cutoff ON PAYROLL (EmployeeID, Start_Cut_Off, End_Cut_Off);
+CREATE INDEX idx_payroll_cutoff ON PAYROLL (Start_Cut_Off, End_Cut_Off);
+CREATE INDEX idx_timesheet_workdate ON TIMESHEET (WorkDate);
+
+CREATE TABLE CHANGE_VERSION (
+    TableName VARCHAR(64) PRIMARY KEY,
+    Version BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO CHANGE_VERSION (TableName) VALUES
+    ('EMPLOYEE'), ('DEPARTMENT'), ('POSITION'), ('DEDUCTION'), ('TIMESHEET'), ('PAYROLL'), ('USER');
+
+CREATE TABLE PAYROLL_DIRTY (
+    EmployeeID INT NOT NULL,
+    RatesChanged BOOLEAN NOT NULL,
+    FromDate DATE NOT NULL,
+    ToDate DATE NOT NULL,
+    PRIMARY KEY (EmployeeID, RatesChanged)
+);
+
+CREATE VIEW GROSS_PAY_VIEW AS
+SELECT g.GrossPayID, g.TimesheetID, g.StdHourlyRate, g.OTHourlyRate,
+       (t.StandardHours * g.StdHourlyRate + t.OvertimeHours * g.OTHourlyRate) AS DailyGrossIncome
+FROM GROSS_PAY g
+JOIN TIMESHEET t ON g.TimesheetID = t.TimesheetID;
+
+-- The totals the MySQL triggers maintain, computed on read
+CREATE VIEW PAYROLL_SUMMARY AS
+SELECT PayrollID, TotalGrossPay, TotalDeduction, CAST(TotalGrossPay - TotalDeduction AS DECIMAL(16,4)) AS NetPay
+FROM (
+    SELECT p.PayrollID,
+           CAST((SELECT IFNULL(SUM(t.StandardHours * g.StdHourlyRate + t.OvertimeHours * g.OTHourlyRate), 0)
+                 FROM TIMESHEET t
+                 JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID
+                 WHERE t.EmployeeID = p.EmployeeID
+                   AND t.WorkDate BETWEEN p.Start_Cut_Off AND p.End_Cut_Off) AS DECIMAL(16,4)) AS TotalGrossPay,
+           CAST((SELECT IFNULL(SUM(pd.Amount), 0) FROM PAYROLL_DEDUCTION pd
+                 WHERE pd.PayrollID = p.PayrollID) AS DECIMAL(12,2)) AS TotalDeduction
+    FROM PAYROLL p
+) totals;
+
+CREATE VIEW PAYROLL_CALC AS
+SELECT p.PayrollID, p.EmployeeID, p.ReferenceNo, p.Start_Cut_Off, p.End_Cut_Off,
+       s.TotalGrossPay, s.TotalDeduction, s.NetPay
+FROM PAYROLL p
+JOIN PAYROLL_SUMMARY s ON s.PayrollID = p.PayrollID;
+
+-- Sample data
+INSERT INTO DEPARTMENT (DepartmentID, DepartmentName) VALUES (1,'HR'),(2,'IT'),(3,'Finance');
+
+INSERT INTO POSITION (PositionID, PositionName, BaseSalary, DepartmentID)
+VALUES (1,'HR Manager',30000.00,1),(2,'Software Engineer',35000.00,2),(3,'Accountant',28000.00,3);
+
+INSERT INTO EMPLOYEE (EmployeeID, LastName, FirstName, Age, DOB, Address, PhoneNumber, DateOfHire,
+                      DepartmentID, PositionID, MonthlySalary, Email, Gender)
+VALUES (1,'Dela Cruz','Juan',25,'2000-05-15','Makati City','09171234567','2022-01-10',2,2,35000.00,'juan.dela.cruz@example.com','Male'),
+       (4,'Ramos','Eddie',19,'2006-07-12','San Nicolas','09997723303','2025-12-11',1,1,100000.00,'pugtit@example.com','Male'),
+       (7,'harif','neria',20,'2006-12-09','Batac City','09997891012','2025-12-01',2,2,230003.00,'manganbuto@gmail.com','Female'),
+       (8,'Christine','Pambid',20,'2005-06-10','Batac City','09997723301','2025-12-02',3,3,18000.00,'Pambid@gmail.com','Female');
+
+INSERT INTO DEDUCTION (DeductionID, Description, Default_Amount) VALUES (1,'Tax',500.00),(2,'SSS',300.00),(3,'PhilHealth',200.00);
+
+INSERT INTO TIMESHEET (TimesheetID, EmployeeID, WorkDate, StandardHours, RenderedHours)
+VALUES (1,1,'2025-12-01',8.00,9.00),(2,1,'2025-12-02',8.00,8.00),(3,1,'2025-12-03',8.00,10.00),
+       (7,4,'2025-12-12',8.00,12.00),(8,4,'2025-12-13',8.00,10.00),(9,4,'2025-12-01',8.00,9.00),
+       (10,1,'2025-10-01',8.00,8.00),(12,1,'2025-10-02',8.00,9.00);
+
+INSERT INTO GROSS_PAY (GrossPayID, TimesheetID, StdHourlyRate, OTHourlyRate)
+VALUES (1,1,200.00,300.00),(2,2,200.00,300.00),(3,3,200.00,300.00),
+       (4,7,568.18,710.23),(5,8,568.18,710.23),(6,9,568.18,710.23);
+
+INSERT INTO USER (UserID, EmployeeID, Username, Password, Role)
+VALUES (1,1,'admi','1234','Admin'),(2,4,'Pugti','234','Employee'),(6,8,'uki','2468','Employee');
+
+-- Continue the generated keys after the sample rows
+ALTER TABLE DEPARTMENT ALTER COLUMN DepartmentID RESTART WITH 8;
+ALTER TABLE POSITION ALTER COLUMN PositionID RESTART WITH 6;
+ALTER TABLE EMPLOYEE ALTER COLUMN EmployeeID RESTART WITH 9;
+ALTER TABLE DEDUCTION ALTER COLUMN DeductionID RESTART WITH 7;
+ALTER TABLE TIMESHEET ALTER COLUMN TimesheetID RESTART WITH 13;
+ALTER TABLE GROSS_PAY ALTER COLUMN GrossPayID RESTART WITH 7;
+ALTER TABLE USER ALTER COLUMN UserID RESTART WITH 9;
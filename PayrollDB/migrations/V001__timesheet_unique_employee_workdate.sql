@@ -0,0 +1,5 @@
+-- One timesheet per employee per day. Serves the duplicate check in AdminTimesheetPanel
+-- (EmployeeID = ? AND WorkDate = ?) and every cut-off range (EmployeeID = ? AND WorkDate BETWEEN ? AND ?)
+-- Fails if duplicate days already exist; remove them first with:
+--   SELECT EmployeeID, WorkDate, COUNT(*) FROM TIMESHEET GROUP BY EmployeeID, WorkDate HAVING COUNT(*) > 1;
+ALTER TABLE TIMESHEET ADD UNIQUE INDEX uq_timesheet_employee_workdate (EmployeeID, WorkDate);
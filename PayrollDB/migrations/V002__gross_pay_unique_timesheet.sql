@@ -0,0 +1,7 @@
+-- One GROSS_PAY row per timesheet; payroll runs insert only where none exists, and a second row
+-- would count that day's pay twice. Extra rows are dropped first, keeping the oldest rates
+-- (the GROSS_PAY delete trigger corrects PAYROLL_SUMMARY)
+DELETE g FROM GROSS_PAY g
+JOIN GROSS_PAY older ON older.TimesheetID = g.TimesheetID AND older.GrossPayID < g.GrossPayID;
+
+ALTER TABLE GROSS_PAY ADD UNIQUE INDEX uq_gross_pay_timesheet (TimesheetID);
@@ -0,0 +1,2 @@
+-- Registration checks that no other account uses the password (User.passwordExists: Password = ?)
+CREATE INDEX idx_user_password ON USER (Password);
@@ -0,0 +1,3 @@
+-- "Does this employee already have a payroll for the cut-off?" before every payroll run
+-- (EmployeeID = ? AND Start_Cut_Off = ? AND End_Cut_Off = ?), and an employee's payrolls by period
+CREATE INDEX idx_payroll_employee_cutoff ON PAYROLL (EmployeeID, Start_Cut_Off, End_Cut_Off);
@@ -0,0 +1,2 @@
+-- The payrolls of one batch run (Start_Cut_Off = ? AND End_Cut_Off = ?) in PayrollBatchRunner
+CREATE INDEX idx_payroll_cutoff ON PAYROLL (Start_Cut_Off, End_Cut_Off);
@@ -0,0 +1,102 @@
+-- Per-table change counters for cross-client cache invalidation (see ChangeVersionPoller)
+-- Every insert, update or delete bumps the counter of its table; clients poll this small table
+-- and refresh only the caches and screens whose counters moved.
+-- PAYROLL also counts PAYROLL_DEDUCTION and GROSS_PAY changes, which alter the payroll totals.
+-- Safe to rerun: the table and rows are created only if missing and each trigger is dropped first.
+CREATE TABLE IF NOT EXISTS CHANGE_VERSION (
+    TableName VARCHAR(64) PRIMARY KEY,
+    Version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT IGNORE INTO CHANGE_VERSION (TableName) VALUES
+    ('EMPLOYEE'), ('DEPARTMENT'), ('POSITION'), ('DEDUCTION'), ('TIMESHEET'), ('PAYROLL'), ('USER');
+
+DROP TRIGGER IF EXISTS change_version_employee_ai;
+CREATE TRIGGER change_version_employee_ai AFTER INSERT ON EMPLOYEE FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'EMPLOYEE';
+DROP TRIGGER IF EXISTS change_version_employee_au;
+CREATE TRIGGER change_version_employee_au AFTER UPDATE ON EMPLOYEE FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'EMPLOYEE';
+DROP TRIGGER IF EXISTS change_version_employee_ad;
+CREATE TRIGGER change_version_employee_ad AFTER DELETE ON EMPLOYEE FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'EMPLOYEE';
+
+DROP TRIGGER IF EXISTS change_version_department_ai;
+CREATE TRIGGER change_version_department_ai AFTER INSERT ON DEPARTMENT FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEPARTMENT';
+DROP TRIGGER IF EXISTS change_version_department_au;
+CREATE TRIGGER change_version_department_au AFTER UPDATE ON DEPARTMENT FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEPARTMENT';
+DROP TRIGGER IF EXISTS change_version_department_ad;
+CREATE TRIGGER change_version_department_ad AFTER DELETE ON DEPARTMENT FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEPARTMENT';
+
+DROP TRIGGER IF EXISTS change_version_position_ai;
+CREATE TRIGGER change_version_position_ai AFTER INSERT ON POSITION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'POSITION';
+DROP TRIGGER IF EXISTS change_version_position_au;
+CREATE TRIGGER change_version_position_au AFTER UPDATE ON POSITION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'POSITION';
+DROP TRIGGER IF EXISTS change_version_position_ad;
+CREATE TRIGGER change_version_position_ad AFTER DELETE ON POSITION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'POSITION';
+
+DROP TRIGGER IF EXISTS change_version_deduction_ai;
+CREATE TRIGGER change_version_deduction_ai AFTER INSERT ON DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEDUCTION';
+DROP TRIGGER IF EXISTS change_version_deduction_au;
+CREATE TRIGGER change_version_deduction_au AFTER UPDATE ON DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEDUCTION';
+DROP TRIGGER IF EXISTS change_version_deduction_ad;
+CREATE TRIGGER change_version_deduction_ad AFTER DELETE ON DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'DEDUCTION';
+
+DROP TRIGGER IF EXISTS change_version_timesheet_ai;
+CREATE TRIGGER change_version_timesheet_ai AFTER INSERT ON TIMESHEET FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'TIMESHEET';
+DROP TRIGGER IF EXISTS change_version_timesheet_au;
+CREATE TRIGGER change_version_timesheet_au AFTER UPDATE ON TIMESHEET FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'TIMESHEET';
+DROP TRIGGER IF EXISTS change_version_timesheet_ad;
+CREATE TRIGGER change_version_timesheet_ad AFTER DELETE ON TIMESHEET FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'TIMESHEET';
+
+DROP TRIGGER IF EXISTS change_version_payroll_ai;
+CREATE TRIGGER change_version_payroll_ai AFTER INSERT ON PAYROLL FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_payroll_au;
+CREATE TRIGGER change_version_payroll_au AFTER UPDATE ON PAYROLL FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_payroll_ad;
+CREATE TRIGGER change_version_payroll_ad AFTER DELETE ON PAYROLL FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+
+DROP TRIGGER IF EXISTS change_version_payroll_deduction_ai;
+CREATE TRIGGER change_version_payroll_deduction_ai AFTER INSERT ON PAYROLL_DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_payroll_deduction_au;
+CREATE TRIGGER change_version_payroll_deduction_au AFTER UPDATE ON PAYROLL_DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_payroll_deduction_ad;
+CREATE TRIGGER change_version_payroll_deduction_ad AFTER DELETE ON PAYROLL_DEDUCTION FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+
+DROP TRIGGER IF EXISTS change_version_gross_pay_ai;
+CREATE TRIGGER change_version_gross_pay_ai AFTER INSERT ON GROSS_PAY FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_gross_pay_au;
+CREATE TRIGGER change_version_gross_pay_au AFTER UPDATE ON GROSS_PAY FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+DROP TRIGGER IF EXISTS change_version_gross_pay_ad;
+CREATE TRIGGER change_version_gross_pay_ad AFTER DELETE ON GROSS_PAY FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'PAYROLL';
+
+DROP TRIGGER IF EXISTS change_version_user_ai;
+CREATE TRIGGER change_version_user_ai AFTER INSERT ON USER FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'USER';
+DROP TRIGGER IF EXISTS change_version_user_au;
+CREATE TRIGGER change_version_user_au AFTER UPDATE ON USER FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'USER';
+DROP TRIGGER IF EXISTS change_version_user_ad;
+CREATE TRIGGER change_version_user_ad AFTER DELETE ON USER FOR EACH ROW
+    UPDATE CHANGE_VERSION SET Version = Version + 1 WHERE TableName = 'USER';
@@ -0,0 +1,3 @@
+-- The CSV timesheet import reads the (EmployeeID, WorkDate) pairs already on file for the dates it imports
+-- (TimesheetCsvImporter: WorkDate BETWEEN ? AND ?); uq_timesheet_employee_workdate leads with EmployeeID
+CREATE INDEX idx_timesheet_workdate ON TIMESHEET (WorkDate);
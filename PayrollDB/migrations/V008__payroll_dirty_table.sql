@@ -0,0 +1,13 @@
+-- Payrolls whose GROSS_PAY rows are out of date (see PayrollDirtyTracker)
+-- A timesheet or salary edit adds its employee's range in the same transaction as the edit, and
+-- PayrollRecomputer deletes it in the transaction that brings the payrolls up to date, so the pending
+-- work survives a failed recompute, a crash and a restart, and is seen by every client.
+-- One row per employee and kind of change; a new mark widens the stored range. No foreign key, so deleting
+-- an employee is never blocked by work left for payrolls that go with it.
+CREATE TABLE IF NOT EXISTS PAYROLL_DIRTY (
+    EmployeeID INT NOT NULL,
+    RatesChanged BOOLEAN NOT NULL,
+    FromDate DATE NOT NULL,
+    ToDate DATE NOT NULL,
+    PRIMARY KEY (EmployeeID, RatesChanged)
+);
@@ -0,0 +1,171 @@
+-- Incrementally maintained payroll totals
+--
+-- PAYROLL_SUMMARY holds one row per PAYROLL with its gross pay, deductions and net pay.
+-- Triggers on PAYROLL, PAYROLL_DEDUCTION, GROSS_PAY and TIMESHEET apply each change as a
+-- delta, so the dashboards read a single row per payroll instead of re-aggregating
+-- TIMESHEET x GROSS_PAY x PAYROLL_DEDUCTION on every load.
+-- ------------------------------------------------------
+
+DROP TABLE IF EXISTS `payroll_summary`;
+CREATE TABLE `payroll_summary` (
+  `PayrollID` int(11) NOT NULL,
+  `TotalGrossPay` decimal(16,4) NOT NULL DEFAULT 0.0000,
+  `TotalDeduction` decimal(12,2) NOT NULL DEFAULT 0.00,
+  `NetPay` decimal(16,4) GENERATED ALWAYS AS (`TotalGrossPay` - `TotalDeduction`) STORED,
+  PRIMARY KEY (`PayrollID`),
+  CONSTRAINT `payroll_summary_ibfk_1` FOREIGN KEY (`PayrollID`) REFERENCES `payroll` (`PayrollID`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
+
+DELIMITER ;;
+
+-- New payroll: compute its totals once from the rows that already exist
+DROP TRIGGER IF EXISTS `payroll_summary_payroll_ai`;;
+CREATE TRIGGER `payroll_summary_payroll_ai` AFTER INSERT ON `payroll` FOR EACH ROW
+BEGIN
+  INSERT INTO `payroll_summary` (`PayrollID`, `TotalGrossPay`, `TotalDeduction`)
+  SELECT NEW.`PayrollID`,
+         IFNULL(SUM(t.`StandardHours` * g.`StdHourlyRate` + t.`OvertimeHours` * g.`OTHourlyRate`), 0),
+         (SELECT IFNULL(SUM(pd.`Amount`), 0) FROM `payroll_deduction` pd WHERE pd.`PayrollID` = NEW.`PayrollID`)
+  FROM `timesheet` t
+  JOIN `gross_pay` g ON g.`TimesheetID` = t.`TimesheetID`
+  WHERE t.`EmployeeID` = NEW.`EmployeeID`
+    AND t.`WorkDate` BETWEEN NEW.`Start_Cut_Off` AND NEW.`End_Cut_Off`;
+END;;
+
+-- Payroll employee or cut-off changed: recompute gross pay for that single payroll
+DROP TRIGGER IF EXISTS `payroll_summary_payroll_au`;;
+CREATE TRIGGER `payroll_summary_payroll_au` AFTER UPDATE ON `payroll` FOR EACH ROW
+BEGIN
+  IF NEW.`EmployeeID` <> OLD.`EmployeeID`
+     OR NEW.`Start_Cut_Off` <> OLD.`Start_Cut_Off`
+     OR NEW.`End_Cut_Off` <> OLD.`End_Cut_Off` THEN
+    UPDATE `payroll_summary`
+    SET `TotalGrossPay` = (
+      SELECT IFNULL(SUM(t.`StandardHours` * g.`StdHourlyRate` + t.`OvertimeHours` * g.`OTHourlyRate`), 0)
+      FROM `timesheet` t
+      JOIN `gross_pay` g ON g.`TimesheetID` = t.`TimesheetID`
+      WHERE t.`EmployeeID` = NEW.`EmployeeID`
+        AND t.`WorkDate` BETWEEN NEW.`Start_Cut_Off` AND NEW.`End_Cut_Off`)
+    WHERE `PayrollID` = NEW.`PayrollID`;
+  END IF;
+END;;
+
+-- Deductions: add or subtract the amount on the owning payroll
+DROP TRIGGER IF EXISTS `payroll_summary_deduction_ai`;;
+CREATE TRIGGER `payroll_summary_deduction_ai` AFTER INSERT ON `payroll_deduction` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` SET `TotalDeduction` = `TotalDeduction` + NEW.`Amount`
+  WHERE `PayrollID` = NEW.`PayrollID`;
+END;;
+
+DROP TRIGGER IF EXISTS `payroll_summary_deduction_au`;;
+CREATE TRIGGER `payroll_summary_deduction_au` AFTER UPDATE ON `payroll_deduction` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` SET `TotalDeduction` = `TotalDeduction` - OLD.`Amount`
+  WHERE `PayrollID` = OLD.`PayrollID`;
+  UPDATE `payroll_summary` SET `TotalDeduction` = `TotalDeduction` + NEW.`Amount`
+  WHERE `PayrollID` = NEW.`PayrollID`;
+END;;
+
+DROP TRIGGER IF EXISTS `payroll_summary_deduction_ad`;;
+CREATE TRIGGER `payroll_summary_deduction_ad` AFTER DELETE ON `payroll_deduction` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` SET `TotalDeduction` = `TotalDeduction` - OLD.`Amount`
+  WHERE `PayrollID` = OLD.`PayrollID`;
+END;;
+
+-- Gross pay: add or subtract the timesheet's daily income on every payroll covering its WorkDate
+DROP TRIGGER IF EXISTS `payroll_summary_gross_pay_ai`;;
+CREATE TRIGGER `payroll_summary_gross_pay_ai` AFTER INSERT ON `gross_pay` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` s
+  JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+  JOIN `timesheet` t ON t.`TimesheetID` = NEW.`TimesheetID`
+  SET s.`TotalGrossPay` = s.`TotalGrossPay`
+      + (t.`StandardHours` * NEW.`StdHourlyRate` + t.`OvertimeHours` * NEW.`OTHourlyRate`)
+  WHERE p.`EmployeeID` = t.`EmployeeID`
+    AND t.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+END;;
+
+DROP TRIGGER IF EXISTS `payroll_summary_gross_pay_au`;;
+CREATE TRIGGER `payroll_summary_gross_pay_au` AFTER UPDATE ON `gross_pay` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` s
+  JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+  JOIN `timesheet` t ON t.`TimesheetID` = OLD.`TimesheetID`
+  SET s.`TotalGrossPay` = s.`TotalGrossPay`
+      - (t.`StandardHours` * OLD.`StdHourlyRate` + t.`OvertimeHours` * OLD.`OTHourlyRate`)
+  WHERE p.`EmployeeID` = t.`EmployeeID`
+    AND t.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+
+  UPDATE `payroll_summary` s
+  JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+  JOIN `timesheet` t ON t.`TimesheetID` = NEW.`TimesheetID`
+  SET s.`TotalGrossPay` = s.`TotalGrossPay`
+      + (t.`StandardHours` * NEW.`StdHourlyRate` + t.`OvertimeHours` * NEW.`OTHourlyRate`)
+  WHERE p.`EmployeeID` = t.`EmployeeID`
+    AND t.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+END;;
+
+DROP TRIGGER IF EXISTS `payroll_summary_gross_pay_ad`;;
+CREATE TRIGGER `payroll_summary_gross_pay_ad` AFTER DELETE ON `gross_pay` FOR EACH ROW
+BEGIN
+  UPDATE `payroll_summary` s
+  JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+  JOIN `timesheet` t ON t.`TimesheetID` = OLD.`TimesheetID`
+  SET s.`TotalGrossPay` = s.`TotalGrossPay`
+      - (t.`StandardHours` * OLD.`StdHourlyRate` + t.`OvertimeHours` * OLD.`OTHourlyRate`)
+  WHERE p.`EmployeeID` = t.`EmployeeID`
+    AND t.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+END;;
+
+-- Timesheet edited: move its income out of the payrolls covering the old (EmployeeID, WorkDate)
+-- and into the payrolls covering the new one. Inserted timesheets have no GROSS_PAY yet, and
+-- timesheets with GROSS_PAY cannot be deleted (foreign key), so only UPDATE needs a trigger.
+DROP TRIGGER IF EXISTS `payroll_summary_timesheet_au`;;
+CREATE TRIGGER `payroll_summary_timesheet_au` AFTER UPDATE ON `timesheet` FOR EACH ROW
+BEGIN
+  IF NEW.`EmployeeID` <> OLD.`EmployeeID`
+     OR NEW.`WorkDate` <> OLD.`WorkDate`
+     OR NEW.`StandardHours` <> OLD.`StandardHours`
+     OR NEW.`RenderedHours` <> OLD.`RenderedHours` THEN
+    UPDATE `payroll_summary` s
+    JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+    SET s.`TotalGrossPay` = s.`TotalGrossPay` - (
+      SELECT IFNULL(SUM(OLD.`StandardHours` * g.`StdHourlyRate`
+             + GREATEST(OLD.`RenderedHours` - OLD.`StandardHours`, 0) * g.`OTHourlyRate`), 0)
+      FROM `gross_pay` g WHERE g.`TimesheetID` = OLD.`TimesheetID`)
+    WHERE p.`EmployeeID` = OLD.`EmployeeID`
+      AND OLD.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+
+    UPDATE `payroll_summary` s
+    JOIN `payroll` p ON p.`PayrollID` = s.`PayrollID`
+    SET s.`TotalGrossPay` = s.`TotalGrossPay` + (
+      SELECT IFNULL(SUM(NEW.`StandardHours` * g.`StdHourlyRate`
+             + GREATEST(NEW.`RenderedHours` - NEW.`StandardHours`, 0) * g.`OTHourlyRate`), 0)
+      FROM `gross_pay` g WHERE g.`TimesheetID` = NEW.`TimesheetID`)
+    WHERE p.`EmployeeID` = NEW.`EmployeeID`
+      AND NEW.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`;
+  END IF;
+END;;
+
+DELIMITER ;
+
+-- Backfill totals for payrolls that existed before the summary table
+INSERT INTO `payroll_summary` (`PayrollID`, `TotalGrossPay`, `TotalDeduction`)
+SELECT p.`PayrollID`,
+       (SELECT IFNULL(SUM(t.`StandardHours` * g.`StdHourlyRate` + t.`OvertimeHours` * g.`OTHourlyRate`), 0)
+        FROM `timesheet` t
+        JOIN `gross_pay` g ON g.`TimesheetID` = t.`TimesheetID`
+        WHERE t.`EmployeeID` = p.`EmployeeID`
+          AND t.`WorkDate` BETWEEN p.`Start_Cut_Off` AND p.`End_Cut_Off`),
+       (SELECT IFNULL(SUM(pd.`Amount`), 0) FROM `payroll_deduction` pd WHERE pd.`PayrollID` = p.`PayrollID`)
+FROM `payroll` p;
+
+-- PAYROLL_CALC now reads the maintained totals (this also stops gross pay from being
+-- multiplied by the number of deduction rows, which the old three-way join did)
+CREATE OR REPLACE VIEW `payroll_calc` AS
+SELECT p.`PayrollID`, p.`EmployeeID`, p.`ReferenceNo`, p.`Start_Cut_Off`, p.`End_Cut_Off`,
+       s.`TotalGrossPay`, s.`TotalDeduction`, s.`NetPay`
+FROM `payroll` p
+JOIN `payroll_summary` s ON s.`PayrollID` = p.`PayrollID`;
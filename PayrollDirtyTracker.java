@@ -0,0 +1,159 @@
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Payrolls whose GROSS_PAY rows are out of date, kept in the PAYROLL_DIRTY table (migration V008)
+// Marks are written on the connection of the edit that caused them, so they commit or roll back with it;
+// PayrollRecomputer deletes them in the transaction that brings the payrolls up to date. Work left by a
+// failed recompute or a crash is still there for the next recompute, on this client or any other.
+public final class PayrollDirtyTracker {
+
+    // Bounds used for open-ended ranges (MySQL DATE limits)
+    public static final LocalDate OPEN_START = LocalDate.of(1000, 1, 1);
+    public static final LocalDate OPEN_END = LocalDate.of(9999, 12, 31);
+
+    // One row per employee and kind of change; a new mark widens the stored range
+    private static final String MARK
+            = "INSERT INTO PAYROLL_DIRTY (EmployeeID, RatesChanged, FromDate, ToDate) VALUES (?,?,?,?) "
+            + "ON DUPLICATE KEY UPDATE FromDate = LEAST(FromDate, VALUES(FromDate)), "
+            + "ToDate = GREATEST(ToDate, VALUES(ToDate))";
+
+    // Rate changes first; locked until the recompute commits, so two clients never apply the same entry
+    private static final String LOCK
+            = "SELECT EmployeeID, RatesChanged, FromDate, ToDate FROM PAYROLL_DIRTY{employees} "
+            + "ORDER BY RatesChanged DESC, EmployeeID LIMIT ? FOR UPDATE";
+
+    private static final String CLEAR = "DELETE FROM PAYROLL_DIRTY WHERE EmployeeID = ? AND RatesChanged = ?";
+
+    private final Connection connection;
+
+    public PayrollDirtyTracker(Connection connection) {
+        this.connection = connection;
+    }
+
+    // A TIMESHEET row was added, edited or deleted for this employee and date
+    public void markTimesheet(int employeeId, LocalDate workDate) throws SQLException {
+        markPeriod(employeeId, workDate, workDate);
+    }
+
+    // Same as above for a date typed by the user; an unparsable date marks every payroll of the employee
+    public void markTimesheet(int employeeId, String workDate) throws SQLException {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(workDate.trim());
+        } catch (DateTimeParseException e) {
+            markPeriod(employeeId, OPEN_START, OPEN_END);
+            return;
+        }
+        markTimesheet(employeeId, date);
+    }
+
+    // GROSS_PAY or PAYROLL_DEDUCTION rows changed for payrolls overlapping this period
+    public void markPeriod(int employeeId, LocalDate from, LocalDate to) throws SQLException {
+        markAll(Collections.singletonList(new Entry(employeeId, from, to, false)));
+    }
+
+    // MonthlySalary changed: payrolls ending on or after effectiveFrom get their stored rates refreshed
+    // Payrolls that ended earlier keep the salary they were paid at. The admin screen asks for the date
+    // the new salary applies from; imports use today, so only payrolls not closed yet are re-rated.
+    public void markSalary(int employeeId, LocalDate effectiveFrom) throws SQLException {
+        markAll(Collections.singletonList(new Entry(employeeId, effectiveFrom, OPEN_END, true)));
+    }
+
+    public void markSalary(int employeeId) throws SQLException {
+        markSalary(employeeId, LocalDate.now());
+    }
+
+    // Marks several ranges in one executeBatch, e.g. one per employee of an import chunk
+    public void markAll(Collection<Entry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(MARK)) {
+            for (Entry e : entries) {
+                ps.setInt(1, e.employeeId);
+                ps.setBoolean(2, e.ratesChanged);
+                ps.setDate(3, Date.valueOf(e.from));
+                ps.setDate(4, Date.valueOf(e.to));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // Locks and returns up to max entries, only of the given employees if any are given
+    // Must run inside a transaction that ends with clear() for the entries it applied
+    List<Entry> lock(int max, int... employeeIds) throws SQLException {
+        StringBuilder filter = new StringBuilder();
+        for (int i = 0; i < employeeIds.length; i++) {
+            filter.append(i == 0 ? " WHERE EmployeeID IN (?" : ",?");
+        }
+        if (employeeIds.length > 0) {
+            filter.append(')');
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(LOCK.replace("{employees}", filter))) {
+            int index = 1;
+            for (int id : employeeIds) {
+                ps.setInt(index++, id);
+            }
+            ps.setInt(index, max);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(new Entry(rs.getInt(1), rs.getDate(3).toLocalDate(), rs.getDate(4).toLocalDate(),
+                            rs.getBoolean(2)));
+                }
+            }
+        }
+        return entries;
+    }
+
+    // Removes entries that have been applied
+    void clear(List<Entry> entries) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(CLEAR)) {
+            for (Entry e : entries) {
+                ps.setInt(1, e.employeeId);
+                ps.setBoolean(2, e.ratesChanged);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    // One dirty (EmployeeID, work-date range) pair
+    public static final class Entry {
+
+        final int employeeId;
+        final LocalDate from;
+        final LocalDate to;
+        final boolean ratesChanged;
+
+        Entry(int employeeId, LocalDate from, LocalDate to, boolean ratesChanged) {
+            this.employeeId = employeeId;
+            this.from = from;
+            this.to = to;
+            this.ratesChanged = ratesChanged;
+        }
+
+        public int getEmployeeId() {
+            return employeeId;
+        }
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public boolean isRatesChanged() {
+            return ratesChanged;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+public class PayrollEngine {
+
+    // Rows per executeBatch call during the merge phase, and employees per re-validation query
+    private static final int BATCH_SIZE = 1000;
+
+    // Runs tried before giving up when edits keep landing between the compute and merge phases
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Employees of one department that are active and have no payroll for the period yet
+    // {department} is filled in by forDepartment(), as MySQL's null-safe <=> does not run on the embedded H2 profile
+    private static final String SELECT_EMPLOYEES
+            = "SELECT e.EmployeeID, e.MonthlySalary FROM EMPLOYEE e "
+            + "WHERE {department} AND e.DateOfHire <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM PAYROLL p "
+            + "WHERE p.EmployeeID = e.EmployeeID AND p.Start_Cut_Off = ? AND p.End_Cut_Off = ?)";
+
+    // Timesheets of one department in the period, with their existing GROSS_PAY rates (if any)
+    private static final String SELECT_TIMESHEETS
+            = "SELECT t.TimesheetID, t.EmployeeID, t.StandardHours, t.OvertimeHours, "
+            + "g.StdHourlyRate, g.OTHourlyRate "
+            + "FROM TIMESHEET t JOIN EMPLOYEE e ON e.EmployeeID = t.EmployeeID "
+            + "LEFT JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID "
+            + "WHERE {department} AND t.WorkDate BETWEEN ? AND ? "
+            + "ORDER BY t.EmployeeID, t.TimesheetID";
+
+    // The same rows for some employees, locked until the merge commits; {ids} is a list of ? placeholders
+    private static final String LOCK_TIMESHEETS
+            = "SELECT t.TimesheetID, t.EmployeeID, t.StandardHours, t.OvertimeHours, "
+            + "g.StdHourlyRate, g.OTHourlyRate "
+            + "FROM TIMESHEET t LEFT JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID "
+            + "WHERE t.EmployeeID IN ({ids}) AND t.WorkDate BETWEEN ? AND ? "
+            + "ORDER BY t.EmployeeID, t.TimesheetID FOR UPDATE";
+
+    private static final String LOCK_SALARIES
+            = "SELECT EmployeeID, MonthlySalary FROM EMPLOYEE WHERE EmployeeID IN ({ids}) FOR UPDATE";
+
+    // Payrolls another run created for the period since this one read; locking the empty range keeps it empty
+    private static final String LOCK_PAYROLLS
+            = "SELECT EmployeeID FROM PAYROLL "
+            + "WHERE EmployeeID IN ({ids}) AND Start_Cut_Off = ? AND End_Cut_Off = ? FOR UPDATE";
+
+    private final int parallelism;
+
+    public PayrollEngine(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    // Parallelism from -Dpayroll.parallelism, defaulting to the number of available cores
+    public static int defaultParallelism() {
+        return Integer.getInteger("payroll.parallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    // Computes payroll for every active employee in parallel (one fork-join task per department),
+    // then writes PAYROLL, PAYROLL_DEDUCTION and missing GROSS_PAY rows in a single transaction
+    // The compute phase reads without locks, so the merge re-reads its inputs under lock first. If a timesheet,
+    // salary or deduction edit, or another run, committed in between, the run is computed again from the start.
+    public Result run(Date startCutOff, Date endCutOff) throws SQLException {
+        int workers = getWorkers();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return attempt(startCutOff, endCutOff, workers, attempt);
+            } catch (StaleInputsException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Worker threads for a run: the parallelism, but never every pooled connection, so screens can still work
+    public int getWorkers() {
+        return Math.max(1, Math.min(parallelism, ConnectionPool.getInstance().getMaxSize() - 1));
+    }
+
+    private Result attempt(Date startCutOff, Date endCutOff, int workers, int attempt) throws SQLException {
+        long started = System.nanoTime();
+
+        List<Integer> departments;
+        List<Deduction> deductions;
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            departments = loadDepartments(conn);
+            deductions = loadDeductions(conn);
+        }
+
+        // Compute phase: each worker thread reads its departments over its own connection
+        // No spare threads beyond workers (a blocked join would otherwise add one), so at most workers connections
+        WorkerConnections connections = new WorkerConnections();
+        ForkJoinPool pool = new ForkJoinPool(workers, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                0, workers, 1, p -> true, 60, TimeUnit.SECONDS);
+        List<EmployeePayroll> payrolls;
+        try {
+            payrolls = pool.invoke(new PartitionTask(departments, 0, departments.size(),
+                    startCutOff, endCutOff, deductions, connections));
+        } catch (RuntimeException e) {
+            SQLException failure = findSqlException(e);
+            connections.closeAll(failure != null ? failure : e);
+            if (failure != null) {
+                throw failure;
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+        connections.closeAll(null);
+        long computed = System.nanoTime();
+
+        // Merge phase: single writer, single transaction
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            merge(conn, payrolls, deductions, startCutOff, endCutOff);
+        }
+        long merged = System.nanoTime();
+
+        return new Result(payrolls, workers, attempt, computed - started, merged - computed);
+    }
+
+    // Distinct departments that have employees (NULL is its own partition)
+    private static List<Integer> loadDepartments(Connection conn) throws SQLException {
+        List<Integer> departments = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(
+                "SELECT DISTINCT DepartmentID FROM EMPLOYEE")) {
+            while (rs.next()) {
+                int id = rs.getInt(1);
+                departments.add(rs.wasNull() ? null : id);
+            }
+        }
+        return departments;
+    }
+
+    // Default deductions that are copied into every payroll
+    static List<Deduction> loadDeductions(Connection conn) throws SQLException {
+        return loadDeductions(conn, "SELECT DeductionID, Default_Amount FROM DEDUCTION ORDER BY DeductionID");
+    }
+
+    private static List<Deduction> loadDeductions(Connection conn, String sql) throws SQLException {
+        List<Deduction> deductions = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                deductions.add(new Deduction(rs.getInt("DeductionID"),
+                        Money.toCentavos(rs.getBigDecimal("Default_Amount"), RoundingMode.UNNECESSARY)));
+            }
+        }
+        return deductions;
+    }
+
+    // Computes every employee payroll of one department
+    // All arithmetic is fixed-point (see Money); BigDecimal is only used to read and write columns
+    private static List<EmployeePayroll> computeDepartment(Connection conn, Integer departmentId,
+            Date startCutOff, Date endCutOff, List<Deduction> deductions) throws SQLException {
+
+        long totalDeduction = 0;
+        for (Deduction d : deductions) {
+            totalDeduction = Money.add(totalDeduction, d.centavos);
+        }
+
+        // Employees keyed by ID, in query order
+        Map<Integer, EmployeePayroll> byEmployee = new LinkedHashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(forDepartment(SELECT_EMPLOYEES, departmentId))) {
+            int i = bindDepartment(ps, departmentId);
+            ps.setDate(i++, endCutOff);
+            ps.setDate(i++, startCutOff);
+            ps.setDate(i, endCutOff);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    EmployeePayroll p = new EmployeePayroll(rs.getInt("EmployeeID"), departmentId,
+                            rs.getBigDecimal("MonthlySalary"), totalDeduction);
+                    byEmployee.put(p.employeeId, p);
+                }
+            }
+        }
+        if (byEmployee.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(forDepartment(SELECT_TIMESHEETS, departmentId))) {
+            int i = bindDepartment(ps, departmentId);
+            ps.setDate(i++, startCutOff);
+            ps.setDate(i, endCutOff);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    EmployeePayroll p = byEmployee.get(rs.getInt("EmployeeID"));
+                    if (p == null) {
+                        continue; // Employee already has a payroll for this period
+                    }
+                    long stdHours = Money.unscaled(rs.getBigDecimal("StandardHours"), 2, RoundingMode.UNNECESSARY);
+                    long otHours = Money.unscaled(rs.getBigDecimal("OvertimeHours"), 2, RoundingMode.UNNECESSARY);
+                    BigDecimal storedStd = rs.getBigDecimal("StdHourlyRate");
+                    p.inputs = fingerprint(p.inputs, rs);
+
+                    if (storedStd != null) {
+                        // Existing GROSS_PAY rows keep their rates, as in the single-payroll dialog
+                        p.addGross(PayrollMath.dailyGrossExtended(stdHours, otHours,
+                                Money.toCentavos(storedStd, RoundingMode.UNNECESSARY),
+                                Money.toCentavos(rs.getBigDecimal("OTHourlyRate"), RoundingMode.UNNECESSARY)));
+                    } else {
+                        // New GROSS_PAY row, at the rates it will be stored with
+                        p.pendingGrossPay.add(rs.getInt("TimesheetID"));
+                        p.addGross(PayrollMath.dailyGrossExtended(stdHours, otHours, p.stdCentavos, p.otCentavos));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(byEmployee.values());
+    }
+
+    // Employees without a department form their own partition
+    private static String forDepartment(String sql, Integer departmentId) {
+        return sql.replace("{department}", departmentId == null ? "e.DepartmentID IS NULL" : "e.DepartmentID = ?");
+    }
+
+    // Binds the department of forDepartment(), if it has a parameter; returns the next parameter index
+    private static int bindDepartment(PreparedStatement ps, Integer departmentId) throws SQLException {
+        if (departmentId == null) {
+            return 1;
+        }
+        ps.setInt(1, departmentId);
+        return 2;
+    }
+
+    // Folds one timesheet row (TimesheetID, EmployeeID, StandardHours, OvertimeHours, StdHourlyRate, OTHourlyRate)
+    // into an employee's fingerprint, so the merge can tell whether the rows changed since they were read
+    private static long fingerprint(long inputs, ResultSet rs) throws SQLException {
+        long h = inputs;
+        for (int i = 1; i <= 6; i++) {
+            BigDecimal value = rs.getBigDecimal(i);
+            h = (h ^ (value == null ? -1 : value.stripTrailingZeros().hashCode())) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    // Writes all computed payrolls in one transaction using batched inserts
+    private static void merge(Connection conn, List<EmployeePayroll> payrolls, List<Deduction> deductions,
+            Date startCutOff, Date endCutOff) throws SQLException {
+        PayrollReferenceGenerator references = PayrollReferenceGenerator.getInstance();
+        boolean previousAutoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            int stale = revalidate(conn, payrolls, deductions, startCutOff, endCutOff);
+            if (stale > 0) {
+                throw new StaleInputsException(stale);
+            }
+
+            // 1) PAYROLL rows, collecting generated PayrollIDs in batch order
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO PAYROLL (EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                int from = 0;
+                for (int i = 0; i < payrolls.size(); i++) {
+                    EmployeePayroll p = payrolls.get(i);
+                    ps.setInt(1, p.employeeId);
+                    ps.setString(2, references.next(p.employeeId, startCutOff));
+                    ps.setDate(3, startCutOff);
+                    ps.setDate(4, endCutOff);
+                    ps.addBatch();
+                    if (i + 1 - from == BATCH_SIZE || i == payrolls.size() - 1) {
+                        ps.executeBatch();
+                        try (ResultSet keys = ps.getGeneratedKeys()) {
+                            for (int k = from; k <= i && keys.next(); k++) {
+                                payrolls.get(k).payrollId = keys.getInt(1);
+                            }
+                        }
+                        from = i + 1;
+                    }
+                }
+            }
+
+            // 2) Default deductions for each new payroll
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO PAYROLL_DEDUCTION (PayrollID, DeductionID, Amount) VALUES (?, ?, ?)")) {
+                int pending = 0;
+                for (EmployeePayroll p : payrolls) {
+                    for (Deduction d : deductions) {
+                        ps.setInt(1, p.payrollId);
+                        ps.setInt(2, d.deductionId);
+                        ps.setBigDecimal(3, Money.toBigDecimal(d.centavos));
+                        ps.addBatch();
+                        if (++pending == BATCH_SIZE) {
+                            ps.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
+            }
+
+            // 3) GROSS_PAY rows for timesheets that had none
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) VALUES (?, ?, ?)")) {
+                int pending = 0;
+                for (EmployeePayroll p : payrolls) {
+                    for (int timesheetId : p.pendingGrossPay) {
+                        ps.setInt(1, timesheetId);
+                        ps.setBigDecimal(2, Money.toBigDecimal(p.stdCentavos));
+                        ps.setBigDecimal(3, Money.toBigDecimal(p.otCentavos));
+                        ps.addBatch();
+                        if (++pending == BATCH_SIZE) {
+                            ps.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) {
+                    ps.executeBatch();
+                }
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(previousAutoCommit);
+        }
+    }
+
+    // Locks the rows every computed payroll was made from and counts the employees whose rows changed since:
+    // salary, timesheets and their stored rates, or a payroll for the period created by another run.
+    // Locked rows cannot change before the merge commits. A changed default deduction makes every payroll stale.
+    private static int revalidate(Connection conn, List<EmployeePayroll> payrolls, List<Deduction> deductions,
+            Date startCutOff, Date endCutOff) throws SQLException {
+        List<Deduction> current = loadDeductions(conn,
+                "SELECT DeductionID, Default_Amount FROM DEDUCTION ORDER BY DeductionID FOR UPDATE");
+        if (!Deduction.same(deductions, current)) {
+            return payrolls.size();
+        }
+
+        Set<Integer> stale = new LinkedHashSet<>();
+        for (int from = 0; from < payrolls.size(); from += BATCH_SIZE) {
+            List<EmployeePayroll> chunk = payrolls.subList(from, Math.min(from + BATCH_SIZE, payrolls.size()));
+            Map<Integer, EmployeePayroll> byEmployee = new HashMap<>();
+            for (EmployeePayroll p : chunk) {
+                byEmployee.put(p.employeeId, p);
+            }
+            String ids = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+            Set<Integer> found = new LinkedHashSet<>();
+            try (PreparedStatement ps = conn.prepareStatement(LOCK_SALARIES.replace("{ids}", ids))) {
+                bindEmployees(ps, chunk);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        EmployeePayroll p = byEmployee.get(rs.getInt(1));
+                        found.add(p.employeeId);
+                        if (p.monthlySalary.compareTo(rs.getBigDecimal(2)) != 0) {
+                            stale.add(p.employeeId);
+                        }
+                    }
+                }
+            }
+            for (EmployeePayroll p : chunk) {
+                if (!found.contains(p.employeeId)) {
+                    stale.add(p.employeeId); // Deleted since
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(LOCK_PAYROLLS.replace("{ids}", ids))) {
+                int i = bindEmployees(ps, chunk);
+                ps.setDate(i++, startCutOff);
+                ps.setDate(i, endCutOff);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        stale.add(rs.getInt(1));
+                    }
+                }
+            }
+
+            Map<Integer, Long> inputs = new HashMap<>();
+            try (PreparedStatement ps = conn.prepareStatement(LOCK_TIMESHEETS.replace("{ids}", ids))) {
+                int i = bindEmployees(ps, chunk);
+                ps.setDate(i++, startCutOff);
+                ps.setDate(i, endCutOff);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int employeeId = rs.getInt(2);
+                        inputs.put(employeeId, fingerprint(inputs.getOrDefault(employeeId, 0L), rs));
+                    }
+                }
+            }
+            for (EmployeePayroll p : chunk) {
+                if (inputs.getOrDefault(p.employeeId, 0L) != p.inputs) {
+                    stale.add(p.employeeId);
+                }
+            }
+        }
+        return stale.size();
+    }
+
+    // Binds the chunk's EmployeeIDs from parameter 1; returns the next parameter index
+    private static int bindEmployees(PreparedStatement ps, List<EmployeePayroll> chunk) throws SQLException {
+        int i = 1;
+        for (EmployeePayroll p : chunk) {
+            ps.setInt(i++, p.employeeId);
+        }
+        return i;
+    }
+
+    // Fork-join tasks wrap SQLExceptions; find the original one again, or null
+    private static SQLException findSqlException(RuntimeException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                return (SQLException) t;
+            }
+        }
+        return null;
+    }
+
+    // Inputs of some payrolls changed between the compute and merge phases; the merge was rolled back
+    static final class StaleInputsException extends SQLException {
+
+        StaleInputsException(int employees) {
+            super(employees + " employee(s) had timesheet, salary or deduction changes, or a payroll created by "
+                    + "another run, while this run was computing; nothing was written. Run it again.", "40001");
+        }
+    }
+
+    // Splits the department list in halves until each task holds a single department
+    private static class PartitionTask extends RecursiveTask<List<EmployeePayroll>> {
+
+        private final List<Integer> departments;
+        private final int from;
+        private final int to;
+        private final Date startCutOff;
+        private final Date endCutOff;
+        private final List<Deduction> deductions;
+        private final WorkerConnections connections;
+
+        PartitionTask(List<Integer> departments, int from, int to, Date startCutOff, Date endCutOff,
+                List<Deduction> deductions, WorkerConnections connections) {
+            this.departments = departments;
+            this.from = from;
+            this.to = to;
+            this.startCutOff = startCutOff;
+            this.endCutOff = endCutOff;
+            this.deductions = deductions;
+            this.connections = connections;
+        }
+
+        @Override
+        protected List<EmployeePayroll> compute() {
+            if (to - from == 0) {
+                return new ArrayList<>();
+            }
+            if (to - from == 1) {
+                try {
+                    return computeDepartment(connections.current(), departments.get(from),
+                            startCutOff, endCutOff, deductions);
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            int mid = (from + to) >>> 1;
+            PartitionTask left = new PartitionTask(departments, from, mid, startCutOff, endCutOff, deductions, connections);
+            PartitionTask right = new PartitionTask(departments, mid, to, startCutOff, endCutOff, deductions, connections);
+            left.fork();
+            List<EmployeePayroll> result = right.compute();
+            result.addAll(left.join());
+            return result;
+        }
+    }
+
+    // One connection per fork-join worker thread, all closed when the run ends
+    private static class WorkerConnections {
+
+        private final ThreadLocal<Connection> perThread = new ThreadLocal<>();
+        private final ConcurrentLinkedQueue<Connection> opened = new ConcurrentLinkedQueue<>();
+
+        Connection current() throws SQLException {
+            Connection conn = perThread.get();
+            if (conn == null) {
+                conn = AdminDBUtils.openConnection();
+                perThread.set(conn);
+                opened.add(conn);
+            }
+            return conn;
+        }
+
+        // Closes every connection; failures are added to primary when the run already failed, else thrown
+        void closeAll(Exception primary) throws SQLException {
+            SQLException failure = null;
+            for (Connection conn : opened) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    if (primary != null) {
+                        primary.addSuppressed(e);
+                    } else if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            opened.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // Default deduction copied into each payroll
+    static class Deduction {
+
+        final int deductionId;
+        final long centavos;
+
+        Deduction(int deductionId, long centavos) {
+            this.deductionId = deductionId;
+            this.centavos = centavos;
+        }
+
+        // Same deductions and amounts, both lists in DeductionID order
+        static boolean same(List<Deduction> a, List<Deduction> b) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                if (a.get(i).deductionId != b.get(i).deductionId || a.get(i).centavos != b.get(i).centavos) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Computed payroll of one employee for the run's period
+    // Rates and deductions are in centavos, gross pay in Money.EXTENDED_SCALE units
+    public static class EmployeePayroll {
+
+        final int employeeId;
+        final Integer departmentId;
+        final long stdCentavos;
+        final long otCentavos;
+        final long totalDeduction;
+        final List<Integer> pendingGrossPay = new ArrayList<>();
+        long totalGross;
+        int payrollId;
+        BigDecimal monthlySalary;   // As read by the compute phase, and inputs a fingerprint of its timesheets
+        long inputs;
+
+        EmployeePayroll(int employeeId, Integer departmentId, BigDecimal monthlySalary, long totalDeduction) {
+            this(employeeId, departmentId, HourlyRateCache.getInstance().rates(employeeId, monthlySalary), totalDeduction);
+            this.monthlySalary = monthlySalary;
+        }
+
+        EmployeePayroll(int employeeId, Integer departmentId, HourlyRateCache.Rates rates, long totalDeduction) {
+            this.employeeId = employeeId;
+            this.departmentId = departmentId;
+            this.stdCentavos = rates.getStdHourlyCentavos();
+            this.otCentavos = rates.getOTHourlyCentavos();
+            this.totalDeduction = totalDeduction;
+        }
+
+        void addGross(long extendedAmount) {
+            totalGross = Money.add(totalGross, extendedAmount);
+        }
+
+        long netPayExtended() {
+            return Money.subtract(totalGross,
+                    Money.rescale(totalDeduction, Money.SCALE, Money.EXTENDED_SCALE, RoundingMode.UNNECESSARY));
+        }
+
+        public int getEmployeeId() {
+            return employeeId;
+        }
+
+        public Integer getDepartmentId() {
+            return departmentId;
+        }
+
+        public int getPayrollId() {
+            return payrollId;
+        }
+
+        public BigDecimal getStdHourlyRate() {
+            return Money.toBigDecimal(stdCentavos);
+        }
+
+        public BigDecimal getOTHourlyRate() {
+            return Money.toBigDecimal(otCentavos);
+        }
+
+        public BigDecimal getTotalGrossPay() {
+            return Money.toBigDecimal(totalGross, Money.EXTENDED_SCALE);
+        }
+
+        public BigDecimal getTotalDeduction() {
+            return Money.toBigDecimal(totalDeduction);
+        }
+
+        public BigDecimal getNetPay() {
+            return Money.toBigDecimal(netPayExtended(), Money.EXTENDED_SCALE);
+        }
+    }
+
+    // Outcome of an engine run
+    public static class Result {
+
+        private final List<EmployeePayroll> payrolls;
+        private final int workers;
+        private final int attempts;
+        private final long computeNanos;
+        private final long mergeNanos;
+
+        Result(List<EmployeePayroll> payrolls, int workers, int attempts, long computeNanos, long mergeNanos) {
+            this.payrolls = payrolls;
+            this.workers = workers;
+            this.attempts = attempts;
+            this.computeNanos = computeNanos;
+            this.mergeNanos = mergeNanos;
+        }
+
+        public List<EmployeePayroll> getPayrolls() {
+            return payrolls;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        // 1 unless edits made during the compute phase forced the run to start over
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public double getComputeMillis() {
+            return computeNanos / 1_000_000.0;
+        }
+
+        public double getMergeMillis() {
+            return mergeNanos / 1_000_000.0;
+        }
+
+        public BigDecimal getTotalNetPay() {
+            long total = 0;
+            for (EmployeePayroll p : payrolls) {
+                total = Money.add(total, p.netPayExtended());
+            }
+            return Money.toBigDecimal(total, Money.EXTENDED_SCALE);
+        }
+    }
+
+    // Headless entry point for the batch host:
+    // java PayrollEngine <start YYYY-MM-DD> <end YYYY-MM-DD> [parallelism]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java PayrollEngine <start YYYY-MM-DD> <end YYYY-MM-DD> [parallelism]");
+            System.exit(2);
+        }
+        int parallelism = args.length > 2 ? Integer.parseInt(args[2]) : defaultParallelism();
+
+        try {
+            Result result = new PayrollEngine(parallelism).run(Date.valueOf(args[0]), Date.valueOf(args[1]));
+            for (EmployeePayroll p : result.getPayrolls()) {
+                System.out.printf("Payroll %d  Employee %d  Dept %s  Gross %s  Deduction %s  Net %s%n",
+                        p.getPayrollId(), p.getEmployeeId(), p.getDepartmentId(),
+                        p.getTotalGrossPay(), p.getTotalDeduction(), p.getNetPay());
+            }
+            System.out.printf("Employees: %d  Workers: %d  Attempts: %d  Compute: %.1f ms  Merge: %.1f ms  "
+                    + "Total net: %s%n", result.getPayrolls().size(), result.getWorkers(), result.getAttempts(),
+                    result.getComputeMillis(), result.getMergeMillis(), result.getTotalNetPay());
+            System.out.println(StatementCache.describe());
+        } catch (SQLException e) {
+            System.err.println("Payroll run failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class PayrollMath {
+
+    // Working hours in a month used to derive the standard hourly rate (22 days * 8 hours)
+    public static final BigDecimal MONTHLY_HOURS = new BigDecimal(22 * 8);
+
+    // Overtime is paid at 125% of the standard hourly rate
+    public static final BigDecimal OT_MULTIPLIER = new BigDecimal("1.25");
+
+    // The same rate formulas in SQL, for set-based statements that join EMPLOYEE as "e"
+    // MySQL ROUND on DECIMAL rounds half away from zero, matching HALF_UP for salaries
+    public static final String SQL_STD_RATE = "ROUND(e.MonthlySalary / 176, 2)";
+    public static final String SQL_OT_RATE = "ROUND(e.MonthlySalary / 176, 2) * 1.25";
+
+    private PayrollMath() {
+    }
+
+    // Standard hourly = monthly / (22 days * 8 hours), rounded half-up to 2 decimals
+    public static BigDecimal standardHourlyRate(BigDecimal monthlySalary) {
+        if (monthlySalary == null) {
+            return BigDecimal.ZERO;
+        }
+        return monthlySalary.divide(MONTHLY_HOURS, 2, RoundingMode.HALF_UP);
+    }
+
+    // OT hourly = 125% of the standard rate (not rounded; GROSS_PAY stores it as DECIMAL(10,2))
+    public static BigDecimal overtimeHourlyRate(BigDecimal standardHourlyRate) {
+        return standardHourlyRate.multiply(OT_MULTIPLIER);
+    }
+
+    // Rounds a rate the way a DECIMAL(10,2) column stores it
+    public static BigDecimal storedRate(BigDecimal rate) {
+        return rate.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Daily gross income as computed by GROSS_PAY_VIEW and PAYROLL_CALC
+    public static BigDecimal dailyGross(BigDecimal standardHours, BigDecimal overtimeHours,
+            BigDecimal stdHourlyRate, BigDecimal otHourlyRate) {
+        return standardHours.multiply(stdHourlyRate).add(overtimeHours.multiply(otHourlyRate));
+    }
+
+    // --- FIXED-POINT VARIANTS (see Money) ---
+    // Same results as the BigDecimal methods above, on centavos and hundredths of an hour
+    public static long standardHourlyCentavos(long monthlySalaryCentavos) {
+        return Money.divide(monthlySalaryCentavos, 22 * 8, RoundingMode.HALF_UP);
+    }
+
+    // OT rate as GROSS_PAY stores it: 1.25x the standard rate, rounded half-up to centavos
+    public static long overtimeHourlyCentavos(long stdHourlyCentavos) {
+        return Money.multiply(stdHourlyCentavos, 5, 4, RoundingMode.HALF_UP);
+    }
+
+    // Daily gross at Money.EXTENDED_SCALE, exact like the DECIMAL arithmetic in the views
+    public static long dailyGrossExtended(long standardHundredths, long overtimeHundredths,
+            long stdHourlyCentavos, long otHourlyCentavos) {
+        return Money.add(Money.multiplyExtended(standardHundredths, stdHourlyCentavos),
+                Money.multiplyExtended(overtimeHundredths, otHourlyCentavos));
+    }
+}
@@ -0,0 +1,98 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+// Checks the fixed-point rate and gross formulas in PayrollMath against the DECIMAL arithmetic of the SQL
+// they replace, on random salaries, hours and rates plus the rounding edge cases:
+//   standard rate  ROUND(MonthlySalary / 176, 2), the division carried to 4 more places (div_precision_increment)
+//   OT rate        ROUND(MonthlySalary / 176, 2) * 1.25, rounded half-up into GROSS_PAY's DECIMAL(10,2)
+//   daily gross    StandardHours * StdHourlyRate + OvertimeHours * OTHourlyRate, exact at scale 4
+// Lists the first mismatches and exits with status 1 if there are any, so it can gate a build.
+//   java PayrollMathParityCheck [cases] [seed]
+public class PayrollMathParityCheck {
+
+    private static final long MAX_CENTAVOS = 99_999_999_99L;     // DECIMAL(10,2)
+    private static final long MAX_HUNDREDTHS = 999_99L;          // DECIMAL(5,2)
+    private static final BigDecimal HOURS = new BigDecimal(176);
+    private static final BigDecimal OT_MULTIPLIER = new BigDecimal("1.25");
+    private static final int MAX_REPORTED = 10;
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        int cases = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+        Random random = new Random(seed);
+
+        // Salaries whose rate falls exactly on, or one centavo either side of, a half centavo
+        for (long rate = 0; rate < 2_000_000; rate += 7) {
+            for (long delta = -1; delta <= 1; delta++) {
+                long salary = rate * 176 + 88 + delta;
+                if (salary >= 0 && salary <= MAX_CENTAVOS) {
+                    checkRates(salary);
+                }
+            }
+        }
+        checkRates(0);
+        checkRates(MAX_CENTAVOS);
+
+        for (int i = 0; i < cases; i++) {
+            // Mostly realistic salaries, sometimes anywhere in the column's range
+            long salary = random.nextInt(4) == 0 ? (long) (random.nextDouble() * MAX_CENTAVOS)
+                    : 10_000_00L + random.nextInt(490_000_00);
+            long std = checkRates(salary);
+            long ot = PayrollMath.overtimeHourlyCentavos(std);
+
+            checkGross(random.nextInt(801), random.nextInt(1_601), std, ot);
+            checkGross(randomHundredths(random), randomHundredths(random),
+                    random.nextInt(1_000_000), random.nextInt(1_250_000));
+        }
+        checkGross(MAX_HUNDREDTHS, MAX_HUNDREDTHS, MAX_CENTAVOS, MAX_CENTAVOS);
+
+        System.out.printf("%d random cases, seed %d: %d mismatch(es)%n", cases, seed, failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Returns the standard rate in centavos
+    private static long checkRates(long salaryCentavos) {
+        BigDecimal salary = BigDecimal.valueOf(salaryCentavos, 2);
+        BigDecimal sqlStd = salary.divide(HOURS, 6, RoundingMode.HALF_UP).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal sqlOt = sqlStd.multiply(OT_MULTIPLIER).setScale(2, RoundingMode.HALF_UP);
+
+        long std = PayrollMath.standardHourlyCentavos(salaryCentavos);
+        long ot = PayrollMath.overtimeHourlyCentavos(std);
+        expect("standard rate of " + salary, sqlStd, Money.toBigDecimal(std));
+        expect("OT rate of " + salary, sqlOt, Money.toBigDecimal(ot));
+
+        // The BigDecimal path the screens use must agree as well
+        expect("PayrollMath.standardHourlyRate(" + salary + ")", sqlStd, PayrollMath.standardHourlyRate(salary));
+        expect("PayrollMath.overtimeHourlyRate(" + sqlStd + ")", sqlOt,
+                PayrollMath.storedRate(PayrollMath.overtimeHourlyRate(sqlStd)));
+        return std;
+    }
+
+    private static void checkGross(long standardHundredths, long overtimeHundredths, long stdCentavos,
+            long otCentavos) {
+        BigDecimal sql = BigDecimal.valueOf(standardHundredths, 2).multiply(BigDecimal.valueOf(stdCentavos, 2))
+                .add(BigDecimal.valueOf(overtimeHundredths, 2).multiply(BigDecimal.valueOf(otCentavos, 2)));
+        long gross = PayrollMath.dailyGrossExtended(standardHundredths, overtimeHundredths, stdCentavos, otCentavos);
+        expect("daily gross of " + standardHundredths + "/" + overtimeHundredths + " hundredths at "
+                + stdCentavos + "/" + otCentavos + " centavos", sql, Money.toBigDecimal(gross, Money.EXTENDED_SCALE));
+    }
+
+    private static long randomHundredths(Random random) {
+        return (long) (random.nextDouble() * (MAX_HUNDREDTHS + 1));
+    }
+
+    private static void expect(String what, BigDecimal sql, BigDecimal actual) {
+        if (sql.compareTo(actual) == 0) {
+            return;
+        }
+        if (++failures <= MAX_REPORTED) {
+            System.out.println("MISMATCH " + what + ": " + actual + ", SQL gives " + sql);
+        }
+    }
+}
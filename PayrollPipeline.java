@@ -0,0 +1,545 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Payroll run as three stages connected by bounded queues:
+//   reader  -> streams employees and their timesheets over its own connection
+//   compute -> fixed-point gross/net math (one or more threads)
+//   writer  -> batched PAYROLL, PAYROLL_DEDUCTION and GROSS_PAY inserts over its own connection
+// A full queue blocks the stage in front of it, so a slow writer throttles the reader
+public class PayrollPipeline {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    public static final int DEFAULT_WRITE_BATCH = 500;
+
+    // Rows per round trip for drivers that cannot stream (see read())
+    private static final int FETCH_SIZE = 1000;
+
+    // Active employees without a payroll for the period, each followed by their timesheets in the period
+    private static final String SELECT_WORK
+            = "SELECT e.EmployeeID, e.DepartmentID, e.MonthlySalary, "
+            + "t.TimesheetID, t.StandardHours, t.OvertimeHours, g.StdHourlyRate, g.OTHourlyRate "
+            + "FROM EMPLOYEE e "
+            + "LEFT JOIN TIMESHEET t ON t.EmployeeID = e.EmployeeID AND t.WorkDate BETWEEN ? AND ? "
+            + "LEFT JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID "
+            + "WHERE e.DateOfHire <= ? "
+            + "AND NOT EXISTS (SELECT 1 FROM PAYROLL p "
+            + "WHERE p.EmployeeID = e.EmployeeID AND p.Start_Cut_Off = ? AND p.End_Cut_Off = ?) "
+            + "ORDER BY e.EmployeeID, t.TimesheetID";
+
+    // End-of-stream markers
+    private static final EmployeeTimesheets END_OF_READS = new EmployeeTimesheets(0, null, null);
+    private static final PayrollEngine.EmployeePayroll END_OF_RESULTS
+            = new PayrollEngine.EmployeePayroll(0, null, new HourlyRateCache.Rates(BigDecimal.ZERO), 0);
+
+    private final int computeThreads;
+    private final int queueCapacity;
+    private final int writeBatch;
+
+    private final BlockingQueue<EmployeeTimesheets> readQueue;
+    private final BlockingQueue<PayrollEngine.EmployeePayroll> writeQueue;
+    private final StageStats reader = new StageStats("reader");
+    private final StageStats compute = new StageStats("compute");
+    private final StageStats writer = new StageStats("writer");
+
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile Throwable failure;
+
+    public PayrollPipeline() {
+        this(1, DEFAULT_QUEUE_CAPACITY, DEFAULT_WRITE_BATCH);
+    }
+
+    public PayrollPipeline(int computeThreads, int queueCapacity, int writeBatch) {
+        if (computeThreads < 1 || queueCapacity < 1 || writeBatch < 1) {
+            throw new IllegalArgumentException("Pipeline sizes must be at least 1");
+        }
+        this.computeThreads = computeThreads;
+        this.queueCapacity = queueCapacity;
+        this.writeBatch = writeBatch;
+        this.readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    // Runs the pipeline to completion; all writes commit together or not at all
+    // A pipeline instance runs once
+    public Result run(Date startCutOff, Date endCutOff) throws SQLException {
+        long started = System.nanoTime();
+
+        List<PayrollEngine.Deduction> deductions;
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            deductions = PayrollEngine.loadDeductions(conn);
+        }
+        long totalDeduction = 0;
+        for (PayrollEngine.Deduction d : deductions) {
+            totalDeduction = Money.add(totalDeduction, d.centavos);
+        }
+        long deductionPerPayroll = totalDeduction;
+
+        List<PayrollEngine.EmployeePayroll> written = new ArrayList<>();
+        AtomicInteger computeRunning = new AtomicInteger(computeThreads);
+
+        start("payroll-reader", () -> read(startCutOff, endCutOff));
+        for (int i = 0; i < computeThreads; i++) {
+            start("payroll-compute-" + i, () -> compute(deductionPerPayroll, computeRunning));
+        }
+        start("payroll-writer", () -> write(deductions, startCutOff, endCutOff, written));
+
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        if (failure != null) {
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            throw new SQLException("Payroll pipeline failed: " + failure, failure);
+        }
+        return new Result(written, System.nanoTime() - started, getStats());
+    }
+
+    // Current per-stage counters and queue depths; safe to call from another thread while running
+    public List<StageSnapshot> getStats() {
+        List<StageSnapshot> stats = new ArrayList<>();
+        stats.add(reader.snapshot(0, 0));
+        stats.add(compute.snapshot(readQueue.size(), queueCapacity));
+        stats.add(writer.snapshot(writeQueue.size(), queueCapacity));
+        return stats;
+    }
+
+    // --- STAGES ---
+    private interface StageBody {
+
+        void run() throws Exception;
+    }
+
+    private synchronized void start(String name, StageBody body) {
+        Thread t = new Thread(() -> {
+            try {
+                body.run();
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }, name);
+        threads.add(t);
+        t.start();
+        if (failure != null) {
+            t.interrupt(); // An earlier stage already failed
+        }
+    }
+
+    // First failure wins; every other stage is interrupted out of its blocking put/take
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+            for (Thread t : threads) {
+                if (t != Thread.currentThread()) {
+                    t.interrupt();
+                }
+            }
+        }
+    }
+
+    // Streams the result set row by row and hands over one employee at a time
+    private void read(Date startCutOff, Date endCutOff) throws SQLException, InterruptedException {
+        reader.begin();
+        try (Connection conn = AdminDBUtils.openConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_WORK,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // MySQL Connector/J streams rows instead of buffering them all only for this special value;
+            // other drivers (H2 on the embedded profile) reject it and take an ordinary fetch size
+            ps.setFetchSize(isMySql(conn) ? Integer.MIN_VALUE : FETCH_SIZE);
+            ResourceLeakTracker.expectLongLived(ps);   // Open for the whole run
+            ps.setDate(1, startCutOff);
+            ps.setDate(2, endCutOff);
+            ps.setDate(3, endCutOff);
+            ps.setDate(4, startCutOff);
+            ps.setDate(5, endCutOff);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                EmployeeTimesheets current = null;
+                long busyFrom = System.nanoTime();
+                while (rs.next()) {
+                    int employeeId = rs.getInt("EmployeeID");
+                    if (current == null || current.employeeId != employeeId) {
+                        if (current != null) {
+                            reader.busy(busyFrom);
+                            readQueue.put(current);
+                            reader.processed();
+                            busyFrom = System.nanoTime();
+                        }
+                        int dept = rs.getInt("DepartmentID");
+                        current = new EmployeeTimesheets(employeeId, rs.wasNull() ? null : dept,
+                                rs.getBigDecimal("MonthlySalary"));
+                    }
+
+                    int timesheetId = rs.getInt("TimesheetID");
+                    if (!rs.wasNull()) {
+                        BigDecimal storedStd = rs.getBigDecimal("StdHourlyRate");
+                        current.add(timesheetId,
+                                Money.unscaled(rs.getBigDecimal("StandardHours"), 2, RoundingMode.UNNECESSARY),
+                                Money.unscaled(rs.getBigDecimal("OvertimeHours"), 2, RoundingMode.UNNECESSARY),
+                                storedStd == null ? -1 : Money.toCentavos(storedStd, RoundingMode.UNNECESSARY),
+                                storedStd == null ? -1
+                                        : Money.toCentavos(rs.getBigDecimal("OTHourlyRate"), RoundingMode.UNNECESSARY));
+                    }
+                }
+                if (current != null) {
+                    reader.busy(busyFrom);
+                    readQueue.put(current);
+                    reader.processed();
+                }
+            }
+        } finally {
+            reader.end();
+        }
+        readQueue.put(END_OF_READS);
+    }
+
+    // Pure CPU work; the last compute thread to finish passes the end marker on to the writer
+    private void compute(long totalDeduction, AtomicInteger running) throws InterruptedException {
+        compute.begin();
+        try {
+            while (true) {
+                EmployeeTimesheets work = readQueue.take();
+                if (work == END_OF_READS) {
+                    readQueue.put(END_OF_READS); // Let sibling compute threads see it too
+                    break;
+                }
+                long busyFrom = System.nanoTime();
+                PayrollEngine.EmployeePayroll p = new PayrollEngine.EmployeePayroll(
+                        work.employeeId, work.departmentId, work.monthlySalary, totalDeduction);
+                for (int i = 0; i < work.count; i++) {
+                    if (work.storedStd[i] >= 0) {
+                        // Existing GROSS_PAY rows keep their rates
+                        p.addGross(PayrollMath.dailyGrossExtended(work.stdHours[i], work.otHours[i],
+                                work.storedStd[i], work.storedOt[i]));
+                    } else {
+                        p.pendingGrossPay.add(work.timesheetIds[i]);
+                        p.addGross(PayrollMath.dailyGrossExtended(work.stdHours[i], work.otHours[i],
+                                p.stdCentavos, p.otCentavos));
+                    }
+                }
+                compute.busy(busyFrom);
+                writeQueue.put(p);
+                compute.processed();
+            }
+        } finally {
+            compute.end();
+        }
+        if (running.decrementAndGet() == 0) {
+            writeQueue.put(END_OF_RESULTS);
+        }
+    }
+
+    // Collects results into batches and writes each batch with three executeBatch calls
+    // Everything stays in one transaction, committed once the end marker arrives
+    private void write(List<PayrollEngine.Deduction> deductions, Date startCutOff, Date endCutOff,
+            List<PayrollEngine.EmployeePayroll> written) throws SQLException, InterruptedException {
+        writer.begin();
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertPayroll = conn.prepareStatement(
+                    "INSERT INTO PAYROLL (EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+                    PreparedStatement insertDeduction = conn.prepareStatement(
+                            "INSERT INTO PAYROLL_DEDUCTION (PayrollID, DeductionID, Amount) VALUES (?, ?, ?)");
+                    PreparedStatement insertGross = conn.prepareStatement(
+                            "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) VALUES (?, ?, ?)")) {
+                // Open until the end marker arrives
+                for (Statement st : new Statement[]{insertPayroll, insertDeduction, insertGross}) {
+                    ResourceLeakTracker.expectLongLived(st);
+                }
+
+                List<PayrollEngine.EmployeePayroll> batch = new ArrayList<>(writeBatch);
+                while (true) {
+                    PayrollEngine.EmployeePayroll p = writeQueue.take();
+                    if (p != END_OF_RESULTS) {
+                        batch.add(p);
+                    }
+                    if (batch.size() == writeBatch || (p == END_OF_RESULTS && !batch.isEmpty())) {
+                        long busyFrom = System.nanoTime();
+                        writeBatch(batch, deductions, startCutOff, endCutOff,
+                                insertPayroll, insertDeduction, insertGross);
+                        writer.busy(busyFrom);
+                        writer.processed(batch.size());
+                        written.addAll(batch);
+                        batch.clear();
+                    }
+                    if (p == END_OF_RESULTS) {
+                        break;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | InterruptedException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            writer.end();
+        }
+    }
+
+    private static boolean isMySql(Connection conn) throws SQLException {
+        return "MySQL".equalsIgnoreCase(conn.getMetaData().getDatabaseProductName());
+    }
+
+    private static void writeBatch(List<PayrollEngine.EmployeePayroll> batch, List<PayrollEngine.Deduction> deductions,
+            Date startCutOff, Date endCutOff, PreparedStatement insertPayroll,
+            PreparedStatement insertDeduction, PreparedStatement insertGross) throws SQLException {
+        PayrollReferenceGenerator references = PayrollReferenceGenerator.getInstance();
+        for (PayrollEngine.EmployeePayroll p : batch) {
+            insertPayroll.setInt(1, p.employeeId);
+            insertPayroll.setString(2, references.next(p.employeeId, startCutOff));
+            insertPayroll.setDate(3, startCutOff);
+            insertPayroll.setDate(4, endCutOff);
+            insertPayroll.addBatch();
+        }
+        insertPayroll.executeBatch();
+        try (ResultSet keys = insertPayroll.getGeneratedKeys()) {
+            for (int i = 0; i < batch.size() && keys.next(); i++) {
+                batch.get(i).payrollId = keys.getInt(1);
+            }
+        }
+
+        boolean anyGross = false;
+        for (PayrollEngine.EmployeePayroll p : batch) {
+            for (PayrollEngine.Deduction d : deductions) {
+                insertDeduction.setInt(1, p.payrollId);
+                insertDeduction.setInt(2, d.deductionId);
+                insertDeduction.setBigDecimal(3, Money.toBigDecimal(d.centavos));
+                insertDeduction.addBatch();
+            }
+            for (int timesheetId : p.pendingGrossPay) {
+                insertGross.setInt(1, timesheetId);
+                insertGross.setBigDecimal(2, Money.toBigDecimal(p.stdCentavos));
+                insertGross.setBigDecimal(3, Money.toBigDecimal(p.otCentavos));
+                insertGross.addBatch();
+                anyGross = true;
+            }
+        }
+        if (!deductions.isEmpty()) {
+            insertDeduction.executeBatch();
+        }
+        if (anyGross) {
+            insertGross.executeBatch();
+        }
+    }
+
+    // One employee's timesheets for the period, hours in hundredths and rates in centavos (-1 = no GROSS_PAY yet)
+    private static class EmployeeTimesheets {
+
+        final int employeeId;
+        final Integer departmentId;
+        final BigDecimal monthlySalary;
+        int count;
+        int[] timesheetIds = new int[16];
+        long[] stdHours = new long[16];
+        long[] otHours = new long[16];
+        long[] storedStd = new long[16];
+        long[] storedOt = new long[16];
+
+        EmployeeTimesheets(int employeeId, Integer departmentId, BigDecimal monthlySalary) {
+            this.employeeId = employeeId;
+            this.departmentId = departmentId;
+            this.monthlySalary = monthlySalary;
+        }
+
+        void add(int timesheetId, long std, long ot, long stdRate, long otRate) {
+            if (count == timesheetIds.length) {
+                int capacity = count * 2;
+                timesheetIds = Arrays.copyOf(timesheetIds, capacity);
+                stdHours = Arrays.copyOf(stdHours, capacity);
+                otHours = Arrays.copyOf(otHours, capacity);
+                storedStd = Arrays.copyOf(storedStd, capacity);
+                storedOt = Arrays.copyOf(storedOt, capacity);
+            }
+            timesheetIds[count] = timesheetId;
+            stdHours[count] = std;
+            otHours[count] = ot;
+            storedStd[count] = stdRate;
+            storedOt[count] = otRate;
+            count++;
+        }
+    }
+
+    // Counters of one stage; busy time excludes time spent blocked on a queue
+    private static class StageStats {
+
+        private final String name;
+        private final AtomicLong items = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile long startedAt;
+        private volatile long endedAt;
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void begin() {
+            if (active.getAndIncrement() == 0 && startedAt == 0) {
+                startedAt = System.nanoTime();
+            }
+        }
+
+        void end() {
+            if (active.decrementAndGet() == 0) {
+                endedAt = System.nanoTime();
+            }
+        }
+
+        void busy(long since) {
+            busyNanos.addAndGet(System.nanoTime() - since);
+        }
+
+        void processed() {
+            items.incrementAndGet();
+        }
+
+        void processed(int count) {
+            items.addAndGet(count);
+        }
+
+        StageSnapshot snapshot(int queueDepth, int queueCapacity) {
+            long start = startedAt;
+            long elapsed = start == 0 ? 0 : (endedAt != 0 ? endedAt : System.nanoTime()) - start;
+            return new StageSnapshot(name, items.get(), elapsed, busyNanos.get(), queueDepth, queueCapacity);
+        }
+    }
+
+    // Point-in-time view of one stage
+    public static class StageSnapshot {
+
+        private final String name;
+        private final long items;
+        private final long elapsedNanos;
+        private final long busyNanos;
+        private final int queueDepth;
+        private final int queueCapacity;
+
+        StageSnapshot(String name, long items, long elapsedNanos, long busyNanos, int queueDepth, int queueCapacity) {
+            this.name = name;
+            this.items = items;
+            this.elapsedNanos = elapsedNanos;
+            this.busyNanos = busyNanos;
+            this.queueDepth = queueDepth;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        // Employees per second since the stage started
+        public double getThroughput() {
+            return elapsedNanos == 0 ? 0 : items / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        // Busy time across the stage's threads as a share of wall time; near 1.0 (per thread) marks the bottleneck
+        public double getUtilization() {
+            return elapsedNanos == 0 ? 0 : (double) busyNanos / elapsedNanos;
+        }
+
+        // Items waiting in the queue that feeds this stage (0 for the reader)
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s items %7d  %9.1f/s  busy %5.1f%%  queue %d/%d",
+                    name, items, getThroughput(), getUtilization() * 100, queueDepth, queueCapacity);
+        }
+    }
+
+    // Outcome of a pipeline run
+    public static class Result {
+
+        private final List<PayrollEngine.EmployeePayroll> payrolls;
+        private final long elapsedNanos;
+        private final List<StageSnapshot> stages;
+
+        Result(List<PayrollEngine.EmployeePayroll> payrolls, long elapsedNanos, List<StageSnapshot> stages) {
+            this.payrolls = payrolls;
+            this.elapsedNanos = elapsedNanos;
+            this.stages = stages;
+        }
+
+        public List<PayrollEngine.EmployeePayroll> getPayrolls() {
+            return payrolls;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        public List<StageSnapshot> getStages() {
+            return stages;
+        }
+    }
+
+    // Headless entry point, printing stage stats every second while running:
+    // java PayrollPipeline <start YYYY-MM-DD> <end YYYY-MM-DD> [computeThreads] [queueCapacity] [writeBatch]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java PayrollPipeline <start YYYY-MM-DD> <end YYYY-MM-DD> "
+                    + "[computeThreads] [queueCapacity] [writeBatch]");
+            System.exit(2);
+        }
+        PayrollPipeline pipeline = new PayrollPipeline(
+                args.length > 2 ? Integer.parseInt(args[2]) : 1,
+                args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_QUEUE_CAPACITY,
+                args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_WRITE_BATCH);
+
+        Thread monitor = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(1000);
+                    for (StageSnapshot s : pipeline.getStats()) {
+                        System.out.println(s);
+                    }
+                    System.out.println();
+                }
+            } catch (InterruptedException e) {
+                // Run finished
+            }
+        }, "payroll-monitor");
+        monitor.setDaemon(true);
+        monitor.start();
+
+        try {
+            Result result = pipeline.run(Date.valueOf(args[0]), Date.valueOf(args[1]));
+            monitor.interrupt();
+            for (StageSnapshot s : result.getStages()) {
+                System.out.println(s);
+            }
+            System.out.printf("Payrolls written: %d  Wall time: %.1f ms%n",
+                    result.getPayrolls().size(), result.getElapsedMillis());
+            System.out.println(StatementCache.describe());
+        } catch (SQLException e) {
+            System.err.println("Payroll run failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
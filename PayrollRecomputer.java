@@ -0,0 +1,118 @@
+
+import java.sql.*;
+import java.util.List;
+
+public class PayrollRecomputer {
+
+    // Dirty entries handled per transaction
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    // Payrolls of the employee that overlap the dirty range and cover the timesheet's WorkDate
+    private static final String COVERED_BY_DIRTY_PAYROLL
+            = "EXISTS (SELECT 1 FROM PAYROLL p WHERE p.EmployeeID = t.EmployeeID "
+            + "AND t.WorkDate BETWEEN p.Start_Cut_Off AND p.End_Cut_Off "
+            + "AND p.End_Cut_Off >= ? AND p.Start_Cut_Off <= ?)";
+
+    // Salary changed: refresh stored rates of timesheets in the affected payrolls
+    // Single-table UPDATE with subqueries rather than MySQL's UPDATE ... JOIN, which H2 (embedded profile) lacks;
+    // MySQL 8.0.21+ runs the IN as a semi-join on the timesheet index
+    private static final String REFRESH_RATES
+            = "UPDATE GROSS_PAY "
+            + "SET StdHourlyRate = (SELECT " + PayrollMath.SQL_STD_RATE + " FROM EMPLOYEE e WHERE e.EmployeeID = ?), "
+            + "OTHourlyRate = (SELECT " + PayrollMath.SQL_OT_RATE + " FROM EMPLOYEE e WHERE e.EmployeeID = ?) "
+            + "WHERE TimesheetID IN (SELECT t.TimesheetID FROM TIMESHEET t "
+            + "WHERE t.EmployeeID = ? AND " + COVERED_BY_DIRTY_PAYROLL + ")";
+
+    // Timesheets added or moved into an existing payroll have no GROSS_PAY row yet
+    private static final String FILL_GROSS_PAY
+            = "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) "
+            + "SELECT t.TimesheetID, " + PayrollMath.SQL_STD_RATE + ", " + PayrollMath.SQL_OT_RATE + " "
+            + "FROM TIMESHEET t JOIN EMPLOYEE e ON e.EmployeeID = t.EmployeeID "
+            + "WHERE t.EmployeeID = ? AND " + COVERED_BY_DIRTY_PAYROLL + " "
+            + "AND NOT EXISTS (SELECT 1 FROM GROSS_PAY g WHERE g.TimesheetID = t.TimesheetID)";
+
+    private final Connection connection;
+    private final int batchSize;
+
+    public PayrollRecomputer(Connection connection) {
+        this(connection, DEFAULT_BATCH_SIZE);
+    }
+
+    public PayrollRecomputer(Connection connection, int batchSize) {
+        this.connection = connection;
+        this.batchSize = batchSize;
+    }
+
+    // Recomputes the payrolls marked in PAYROLL_DIRTY, only those of the given employees if any are given;
+    // PAYROLL_SUMMARY follows via triggers. Returns the number of dirty entries processed.
+    // With auto-commit off the caller owns the transaction: the recompute commits or rolls back together
+    // with the edit and its marks. Otherwise each batch of entries is applied and cleared in its own transaction.
+    public int recomputeDirty(int... employeeIds) throws SQLException {
+        PayrollDirtyTracker tracker = new PayrollDirtyTracker(connection);
+        boolean ownTransaction = connection.getAutoCommit();
+        int processed = 0;
+
+        while (true) {
+            List<PayrollDirtyTracker.Entry> batch;
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                batch = tracker.lock(batchSize, employeeIds);
+                if (!batch.isEmpty()) {
+                    recomputeBatch(batch);
+                    tracker.clear(batch);
+                }
+                if (ownTransaction) {
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                if (ownTransaction) {
+                    connection.rollback(); // The entries stay dirty for the next attempt
+                }
+                throw e;
+            } finally {
+                if (ownTransaction) {
+                    connection.setAutoCommit(true);
+                }
+            }
+            processed += batch.size();
+            if (batch.size() < batchSize) {
+                return processed;
+            }
+        }
+    }
+
+    // Applies one batch of dirty entries
+    private void recomputeBatch(List<PayrollDirtyTracker.Entry> batch) throws SQLException {
+        try (PreparedStatement refreshRates = connection.prepareStatement(REFRESH_RATES);
+                PreparedStatement fillGrossPay = connection.prepareStatement(FILL_GROSS_PAY)) {
+
+            boolean anyRates = false;
+            for (PayrollDirtyTracker.Entry entry : batch) {
+                if (entry.isRatesChanged()) {
+                    refreshRates.setInt(1, entry.getEmployeeId());
+                    refreshRates.setInt(2, entry.getEmployeeId());
+                    bindEntry(refreshRates, 3, entry);
+                    refreshRates.addBatch();
+                    anyRates = true;
+                }
+                bindEntry(fillGrossPay, 1, entry);
+                fillGrossPay.addBatch();
+            }
+
+            if (anyRates) {
+                refreshRates.executeBatch();
+            }
+            fillGrossPay.executeBatch();
+        }
+    }
+
+    // EmployeeID, then the dirty range, from parameter index
+    private static void bindEntry(PreparedStatement ps, int index, PayrollDirtyTracker.Entry entry)
+            throws SQLException {
+        ps.setInt(index, entry.getEmployeeId());
+        ps.setDate(index + 1, Date.valueOf(entry.getFrom()));
+        ps.setDate(index + 2, Date.valueOf(entry.getTo()));
+    }
+}
@@ -0,0 +1,99 @@
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Unique, time-ordered PAYROLL.ReferenceNo values without a database round trip
+// IDs are 64-bit: 41 bits of milliseconds since 2024-01-01 UTC | 10 bits node | 12 bits sequence
+// References read PR-<EmployeeID>-<period start yyyyMMdd>-<ID in base 36>, e.g. PR-42-20250101-3f9zk2l1c0w
+public final class PayrollReferenceGenerator {
+
+    public static final long EPOCH_MILLIS = LocalDate.of(2024, 1, 1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final DateTimeFormatter PERIOD_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final PayrollReferenceGenerator INSTANCE = new PayrollReferenceGenerator(configuredNodeId());
+
+    private final long nodeId;
+
+    // Last issued (timestamp << SEQUENCE_BITS | sequence); advanced with compare-and-set only
+    private final AtomicLong state = new AtomicLong();
+
+    public PayrollReferenceGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+    }
+
+    // Shared generator for this process; node id from -Dpayroll.nodeId
+    public static PayrollReferenceGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    // Next ID, strictly greater than every ID this generator issued before
+    // If the sequence runs out within a millisecond, or the clock steps back, the timestamp part
+    // moves ahead of the wall clock instead of blocking; it catches up once real time passes it
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // Reference for one payroll
+    public String next(int employeeId, Date periodStart) {
+        return "PR-" + employeeId + "-" + suffix(periodStart, nextId());
+    }
+
+    // "<yyyyMMdd>-<base 36 ID>" shared by every payroll of one set-based run
+    // Unique per employee when combined as PR-<EmployeeID>-<suffix>
+    public String nextRunSuffix(Date periodStart) {
+        return suffix(periodStart, nextId());
+    }
+
+    private static String suffix(Date periodStart, long id) {
+        return periodStart.toLocalDate().format(PERIOD_FORMAT) + "-" + Long.toString(id, 36);
+    }
+
+    // Milliseconds since 1970 at which an ID was issued (approximate if it was borrowed ahead)
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    // Each machine running payroll should set its own -Dpayroll.nodeId (0-1023)
+    // Without it, the node id is derived from the host name, which is only likely to be distinct
+    private static int configuredNodeId() {
+        Integer configured = Integer.getInteger("payroll.nodeId");
+        if (configured != null) {
+            return configured;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName().hashCode() & MAX_NODE_ID;
+        } catch (UnknownHostException e) {
+            return 0;
+        }
+    }
+}
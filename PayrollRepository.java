@@ -0,0 +1,63 @@
+
+import java.sql.*;
+import java.util.Vector;
+
+// SQL for reading and deleting payrolls; PayrollWriter and PayrollBatchRunner create them
+public class PayrollRepository extends Repository {
+
+    public PayrollRepository(Connection connection) {
+        super(connection);
+    }
+
+    // Rows of (PayrollID, EmployeeID, FirstName, LastName, ReferenceNo, Start_Cut_Off, End_Cut_Off,
+    // TotalGrossPay, TotalDeduction, NetPay) from the trigger-maintained PAYROLL_SUMMARY, read a page at a time
+    public static KeysetQuery allWithTotals() {
+        return new KeysetQuery("SELECT p.PayrollID, p.EmployeeID, e.FirstName, e.LastName, p.ReferenceNo, "
+                + "p.Start_Cut_Off, p.End_Cut_Off, s.TotalGrossPay, s.TotalDeduction, s.NetPay "
+                + "FROM PAYROLL p "
+                + "JOIN PAYROLL_SUMMARY s ON s.PayrollID = p.PayrollID "
+                + "JOIN EMPLOYEE e ON p.EmployeeID = e.EmployeeID",
+                "p.PayrollID", "PAYROLL");
+    }
+
+    // Rows of (PayrollID, ReferenceNo, Start_Cut_Off, End_Cut_Off, TotalGrossPay, TotalDeduction, NetPay)
+    public Vector<Vector<Object>> findByEmployee(int employeeId) throws SQLException {
+        return queryRows("SELECT p.PayrollID, p.ReferenceNo, p.Start_Cut_Off, p.End_Cut_Off, "
+                + "s.TotalGrossPay, s.TotalDeduction, s.NetPay "
+                + "FROM PAYROLL p "
+                + "JOIN PAYROLL_SUMMARY s ON s.PayrollID = p.PayrollID "
+                + "WHERE p.EmployeeID = ?", employeeId);
+    }
+
+    // Rows of (PayrollDeductionID, DeductionID, Description, Amount)
+    public Vector<Vector<Object>> findDeductions(int payrollId) throws SQLException {
+        return queryRows("SELECT pd.PayrollDeductionID, pd.DeductionID, d.Description, pd.Amount "
+                + "FROM PAYROLL_DEDUCTION pd JOIN DEDUCTION d ON pd.DeductionID = d.DeductionID "
+                + "WHERE pd.PayrollID = ?", payrollId);
+    }
+
+    // Deletes a payroll and its deductions together
+    // Runs in its own transaction unless the caller already has one open
+    public void delete(int payrollId) throws SQLException {
+        boolean ownTransaction = connection.getAutoCommit();
+        if (ownTransaction) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            execute("DELETE FROM PAYROLL_DEDUCTION WHERE PayrollID = ?", payrollId);
+            execute("DELETE FROM PAYROLL WHERE PayrollID = ?", payrollId);
+            if (ownTransaction) {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            if (ownTransaction) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
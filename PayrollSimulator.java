@@ -0,0 +1,417 @@
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// What-if payroll: loads the payrolls on record into memory once and recomputes them under
+// hypothetical salaries and deduction defaults, as if those had been in effect. Never writes.
+public class PayrollSimulator {
+
+    // Payrolls on record with their current totals
+    private static final String SELECT_PAYROLLS
+            = "SELECT PayrollID, EmployeeID, TotalGrossPay, TotalDeduction FROM PAYROLL_CALC ORDER BY PayrollID";
+
+    // Every timesheet covered by a payroll, with the rates it was paid at (NULL if no GROSS_PAY row yet)
+    private static final String SELECT_TIMESHEETS
+            = "SELECT p.PayrollID, t.StandardHours, t.OvertimeHours, g.StdHourlyRate, g.OTHourlyRate "
+            + "FROM PAYROLL p "
+            + "JOIN TIMESHEET t ON t.EmployeeID = p.EmployeeID AND t.WorkDate BETWEEN p.Start_Cut_Off AND p.End_Cut_Off "
+            + "LEFT JOIN GROSS_PAY g ON g.TimesheetID = t.TimesheetID";
+
+    private static final long NO_RATE = -1;
+
+    // Employees, indexed 0..employeeCount-1
+    private final int employeeCount;
+    private final int[] employeeIds;
+    private final int[] employeePosition;     // 0 = no position
+    private final long[] employeeSalary;      // centavos
+
+    // Payrolls, indexed 0..payrollCount-1
+    private final int payrollCount;
+    private final int[] payrollEmployee;      // employee index
+    private final long[] currentGross;        // Money.EXTENDED_SCALE
+    private final long[] currentDeduction;    // centavos
+
+    // Timesheet rows (hours in hundredths, rates in centavos)
+    private final int timesheetCount;
+    private final int[] timesheetPayroll;
+    private final long[] stdHours;
+    private final long[] otHours;
+    private final long[] storedStd;
+    private final long[] storedOt;
+
+    // PAYROLL_DEDUCTION rows
+    private final int deductionCount;
+    private final int[] deductionPayroll;
+    private final int[] deductionId;
+    private final long[] deductionAmount;
+
+    private final long loadNanos;
+
+    private PayrollSimulator(Loader l, long loadNanos) {
+        this.employeeCount = l.employeeCount;
+        this.employeeIds = l.employeeIdList;
+        this.employeePosition = l.employeePosition;
+        this.employeeSalary = l.employeeSalary;
+        this.payrollCount = l.payrollCount;
+        this.payrollEmployee = l.payrollEmployee;
+        this.currentGross = l.currentGross;
+        this.currentDeduction = l.currentDeduction;
+        this.timesheetCount = l.timesheetCount;
+        this.timesheetPayroll = l.timesheetPayroll;
+        this.stdHours = l.stdHours;
+        this.otHours = l.otHours;
+        this.storedStd = l.storedStd;
+        this.storedOt = l.storedOt;
+        this.deductionCount = l.deductionCount;
+        this.deductionPayroll = l.deductionPayroll;
+        this.deductionId = l.deductionId;
+        this.deductionAmount = l.deductionAmount;
+        this.loadNanos = loadNanos;
+    }
+
+    // Reads everything the simulation needs in four queries
+    public static PayrollSimulator load(Connection conn) throws SQLException {
+        long started = System.nanoTime();
+        Loader l = new Loader();
+
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT EmployeeID, PositionID, MonthlySalary FROM EMPLOYEE")) {
+                while (rs.next()) {
+                    l.addEmployee(rs.getInt("EmployeeID"), rs.getInt("PositionID"),
+                            Money.toCentavos(rs.getBigDecimal("MonthlySalary"), RoundingMode.HALF_UP));
+                }
+            }
+
+            Map<Integer, Integer> payrollIndex = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery(SELECT_PAYROLLS)) {
+                while (rs.next()) {
+                    Integer employee = l.employeeIndex.get(rs.getInt("EmployeeID"));
+                    if (employee == null) {
+                        continue;
+                    }
+                    payrollIndex.put(rs.getInt("PayrollID"), l.payrollCount);
+                    l.addPayroll(employee,
+                            Money.unscaled(rs.getBigDecimal("TotalGrossPay"), Money.EXTENDED_SCALE, RoundingMode.HALF_UP),
+                            Money.toCentavos(rs.getBigDecimal("TotalDeduction"), RoundingMode.HALF_UP));
+                }
+            }
+
+            try (ResultSet rs = stmt.executeQuery(SELECT_TIMESHEETS)) {
+                while (rs.next()) {
+                    Integer payroll = payrollIndex.get(rs.getInt("PayrollID"));
+                    if (payroll == null) {
+                        continue;
+                    }
+                    BigDecimal std = rs.getBigDecimal("StdHourlyRate");
+                    l.addTimesheet(payroll,
+                            Money.unscaled(rs.getBigDecimal("StandardHours"), 2, RoundingMode.HALF_UP),
+                            Money.unscaled(rs.getBigDecimal("OvertimeHours"), 2, RoundingMode.HALF_UP),
+                            std == null ? NO_RATE : Money.toCentavos(std, RoundingMode.HALF_UP),
+                            std == null ? NO_RATE : Money.toCentavos(rs.getBigDecimal("OTHourlyRate"), RoundingMode.HALF_UP));
+                }
+            }
+
+            try (ResultSet rs = stmt.executeQuery("SELECT PayrollID, DeductionID, Amount FROM PAYROLL_DEDUCTION")) {
+                while (rs.next()) {
+                    Integer payroll = payrollIndex.get(rs.getInt("PayrollID"));
+                    if (payroll == null) {
+                        continue;
+                    }
+                    l.addDeduction(payroll, rs.getInt("DeductionID"),
+                            Money.toCentavos(rs.getBigDecimal("Amount"), RoundingMode.HALF_UP));
+                }
+            }
+        }
+        return new PayrollSimulator(l, System.nanoTime() - started);
+    }
+
+    public int getPayrollCount() {
+        return payrollCount;
+    }
+
+    public double getLoadMillis() {
+        return loadNanos / 1_000_000.0;
+    }
+
+    // Recomputes every payroll on record under the scenario; pure in-memory work
+    public Outcome simulate(Scenario scenario) {
+        long started = System.nanoTime();
+
+        // 1) Hypothetical rates per employee whose salary the scenario changes (NO_RATE = unchanged)
+        long[] newStd = new long[employeeCount];
+        long[] newOt = new long[employeeCount];
+        Arrays.fill(newStd, NO_RATE);
+        int affectedEmployees = 0;
+        for (int e = 0; e < employeeCount; e++) {
+            long salary = scenario.salaryFor(employeeIds[e], employeePosition[e], employeeSalary[e]);
+            if (salary != employeeSalary[e]) {
+                newStd[e] = PayrollMath.standardHourlyCentavos(salary);
+                newOt[e] = PayrollMath.overtimeHourlyCentavos(newStd[e]);
+                affectedEmployees++;
+            }
+        }
+
+        // 2) Gross: unchanged employees keep the stored rates (as PAYROLL_CALC does), changed ones are re-rated
+        long[] gross = new long[payrollCount];
+        for (int i = 0; i < timesheetCount; i++) {
+            int p = timesheetPayroll[i];
+            int e = payrollEmployee[p];
+            if (newStd[e] != NO_RATE) {
+                gross[p] += PayrollMath.dailyGrossExtended(stdHours[i], otHours[i], newStd[e], newOt[e]);
+            } else if (storedStd[i] != NO_RATE) {
+                gross[p] += PayrollMath.dailyGrossExtended(stdHours[i], otHours[i], storedStd[i], storedOt[i]);
+            }
+        }
+
+        // 3) Deductions: overridden defaults replace the copied amount; a new deduction applies to every payroll
+        long[] deduction = Arrays.copyOf(currentDeduction, payrollCount);
+        if (scenario.hasDeductionChanges()) {
+            for (int i = 0; i < deductionCount; i++) {
+                long amount = scenario.deductionFor(deductionId[i], deductionAmount[i]);
+                deduction[deductionPayroll[i]] += amount - deductionAmount[i];
+            }
+            if (scenario.addedDeduction != 0) {
+                for (int p = 0; p < payrollCount; p++) {
+                    deduction[p] += scenario.addedDeduction;
+                }
+            }
+        }
+
+        long curGross = 0, curDeduction = 0, simGross = 0, simDeduction = 0;
+        for (int p = 0; p < payrollCount; p++) {
+            curGross += currentGross[p];
+            curDeduction += currentDeduction[p];
+            simGross += gross[p];
+            simDeduction += deduction[p];
+        }
+        return new Outcome(payrollCount, affectedEmployees, curGross, curDeduction, simGross, simDeduction,
+                System.nanoTime() - started);
+    }
+
+    // --- SCENARIO ---
+    // Hypothetical changes; nothing here touches the database
+    public static class Scenario {
+
+        private final Map<Integer, Long> employeeSalary = new HashMap<>();
+        private final Map<Integer, Long> positionRaise = new HashMap<>();
+        private final Map<Integer, Long> deductionDefault = new HashMap<>();
+        private long addedDeduction;
+
+        // Employee gets a new MonthlySalary
+        public Scenario setEmployeeSalary(int employeeId, BigDecimal monthlySalary) {
+            employeeSalary.put(employeeId, Money.toCentavos(monthlySalary, RoundingMode.HALF_UP));
+            return this;
+        }
+
+        // Everyone in the position gets the same raise (e.g. the change in BaseSalary)
+        public Scenario raisePosition(int positionId, BigDecimal raise) {
+            positionRaise.put(positionId, Money.toCentavos(raise, RoundingMode.HALF_UP));
+            return this;
+        }
+
+        // An existing deduction gets a new default, copied into every payroll
+        public Scenario setDeductionDefault(int deductionId, BigDecimal amount) {
+            deductionDefault.put(deductionId, Money.toCentavos(amount, RoundingMode.HALF_UP));
+            return this;
+        }
+
+        // A new deduction with this default is added to every payroll
+        public Scenario addDeduction(BigDecimal amount) {
+            addedDeduction += Money.toCentavos(amount, RoundingMode.HALF_UP);
+            return this;
+        }
+
+        long salaryFor(int employeeId, int positionId, long current) {
+            Long fixed = employeeSalary.get(employeeId);
+            if (fixed != null) {
+                return fixed;
+            }
+            Long raise = positionRaise.get(positionId);
+            return raise == null ? current : Math.max(0, current + raise);
+        }
+
+        boolean hasDeductionChanges() {
+            return !deductionDefault.isEmpty() || addedDeduction != 0;
+        }
+
+        long deductionFor(int deductionId, long current) {
+            Long amount = deductionDefault.get(deductionId);
+            return amount == null ? current : amount;
+        }
+    }
+
+    // --- OUTCOME ---
+    // Current PAYROLL_CALC totals next to the simulated ones
+    public static class Outcome {
+
+        private final int payrolls;
+        private final int affectedEmployees;
+        private final long currentGross;      // Money.EXTENDED_SCALE
+        private final long currentDeduction;  // centavos
+        private final long simulatedGross;
+        private final long simulatedDeduction;
+        private final long elapsedNanos;
+
+        Outcome(int payrolls, int affectedEmployees, long currentGross, long currentDeduction,
+                long simulatedGross, long simulatedDeduction, long elapsedNanos) {
+            this.payrolls = payrolls;
+            this.affectedEmployees = affectedEmployees;
+            this.currentGross = currentGross;
+            this.currentDeduction = currentDeduction;
+            this.simulatedGross = simulatedGross;
+            this.simulatedDeduction = simulatedDeduction;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getPayrolls() {
+            return payrolls;
+        }
+
+        public int getAffectedEmployees() {
+            return affectedEmployees;
+        }
+
+        public BigDecimal getCurrentGross() {
+            return gross(currentGross);
+        }
+
+        public BigDecimal getCurrentDeduction() {
+            return Money.toBigDecimal(currentDeduction);
+        }
+
+        public BigDecimal getCurrentNet() {
+            return net(currentGross, currentDeduction);
+        }
+
+        public BigDecimal getSimulatedGross() {
+            return gross(simulatedGross);
+        }
+
+        public BigDecimal getSimulatedDeduction() {
+            return Money.toBigDecimal(simulatedDeduction);
+        }
+
+        public BigDecimal getSimulatedNet() {
+            return net(simulatedGross, simulatedDeduction);
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        // Totals are shown in centavos, rounded half-up
+        private static BigDecimal gross(long extended) {
+            return Money.toBigDecimal(Money.rescale(extended, Money.EXTENDED_SCALE, Money.SCALE, RoundingMode.HALF_UP));
+        }
+
+        private static BigDecimal net(long extendedGross, long deduction) {
+            return gross(Money.subtract(extendedGross,
+                    Money.rescale(deduction, Money.SCALE, Money.EXTENDED_SCALE, RoundingMode.UNNECESSARY)));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-12s %18s %18s %18s%n", "", "Current", "What-if", "Delta"));
+            appendRow(sb, "Gross pay", getCurrentGross(), getSimulatedGross());
+            appendRow(sb, "Deductions", getCurrentDeduction(), getSimulatedDeduction());
+            appendRow(sb, "Net pay", getCurrentNet(), getSimulatedNet());
+            sb.append(String.format("%nPayrolls recomputed: %d   Employees re-rated: %d   Time: %.1f ms",
+                    payrolls, affectedEmployees, getElapsedMillis()));
+            return sb.toString();
+        }
+
+        private static void appendRow(StringBuilder sb, String label, BigDecimal current, BigDecimal simulated) {
+            BigDecimal delta = simulated.subtract(current);
+            sb.append(String.format("%-12s %,18.2f %,18.2f %+,18.2f%n", label, current, simulated, delta));
+        }
+    }
+
+    // Growable column arrays filled while loading
+    private static class Loader {
+
+        int employeeCount;
+        int[] employeeIdList = new int[64];
+        int[] employeePosition = new int[64];
+        long[] employeeSalary = new long[64];
+        final Map<Integer, Integer> employeeIndex = new HashMap<>();
+
+        int payrollCount;
+        int[] payrollEmployee = new int[64];
+        long[] currentGross = new long[64];
+        long[] currentDeduction = new long[64];
+
+        int timesheetCount;
+        int[] timesheetPayroll = new int[256];
+        long[] stdHours = new long[256];
+        long[] otHours = new long[256];
+        long[] storedStd = new long[256];
+        long[] storedOt = new long[256];
+
+        int deductionCount;
+        int[] deductionPayroll = new int[256];
+        int[] deductionId = new int[256];
+        long[] deductionAmount = new long[256];
+
+        void addEmployee(int id, int positionId, long salary) {
+            if (employeeCount == employeePosition.length) {
+                int n = employeeCount * 2;
+                employeeIdList = Arrays.copyOf(employeeIdList, n);
+                employeePosition = Arrays.copyOf(employeePosition, n);
+                employeeSalary = Arrays.copyOf(employeeSalary, n);
+            }
+            employeeIndex.put(id, employeeCount);
+            employeeIdList[employeeCount] = id;
+            employeePosition[employeeCount] = positionId;
+            employeeSalary[employeeCount] = salary;
+            employeeCount++;
+        }
+
+        void addPayroll(int employee, long gross, long deduction) {
+            if (payrollCount == payrollEmployee.length) {
+                int n = payrollCount * 2;
+                payrollEmployee = Arrays.copyOf(payrollEmployee, n);
+                currentGross = Arrays.copyOf(currentGross, n);
+                currentDeduction = Arrays.copyOf(currentDeduction, n);
+            }
+            payrollEmployee[payrollCount] = employee;
+            currentGross[payrollCount] = gross;
+            currentDeduction[payrollCount] = deduction;
+            payrollCount++;
+        }
+
+        void addTimesheet(int payroll, long std, long ot, long stdRate, long otRate) {
+            if (timesheetCount == timesheetPayroll.length) {
+                int n = timesheetCount * 2;
+                timesheetPayroll = Arrays.copyOf(timesheetPayroll, n);
+                stdHours = Arrays.copyOf(stdHours, n);
+                otHours = Arrays.copyOf(otHours, n);
+                storedStd = Arrays.copyOf(storedStd, n);
+                storedOt = Arrays.copyOf(storedOt, n);
+            }
+            timesheetPayroll[timesheetCount] = payroll;
+            stdHours[timesheetCount] = std;
+            otHours[timesheetCount] = ot;
+            storedStd[timesheetCount] = stdRate;
+            storedOt[timesheetCount] = otRate;
+            timesheetCount++;
+        }
+
+        void addDeduction(int payroll, int id, long amount) {
+            if (deductionCount == deductionPayroll.length) {
+                int n = deductionCount * 2;
+                deductionPayroll = Arrays.copyOf(deductionPayroll, n);
+                deductionId = Arrays.copyOf(deductionId, n);
+                deductionAmount = Arrays.copyOf(deductionAmount, n);
+            }
+            deductionPayroll[deductionCount] = payroll;
+            deductionId[deductionCount] = id;
+            deductionAmount[deductionCount] = amount;
+            deductionCount++;
+        }
+    }
+}
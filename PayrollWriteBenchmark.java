@@ -0,0 +1,205 @@
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+
+// Compares the old per-row payroll write path against PayrollWriter for one 31-day cut-off.
+// Everything runs inside a transaction that is rolled back, so the database is left untouched.
+//   java PayrollWriteBenchmark [iterations]
+public class PayrollWriteBenchmark {
+
+    private static final LocalDate CUT_OFF_START = LocalDate.of(2099, 1, 1);
+    private static final int CUT_OFF_DAYS = 31;
+    private static final int WARMUP = 5;
+
+    // Counts statement executions and transaction calls, i.e. client/server round trips
+    private static final class RoundTrips {
+
+        long count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Date start = Date.valueOf(CUT_OFF_START);
+        Date end = Date.valueOf(CUT_OFF_START.plusDays(CUT_OFF_DAYS - 1));
+
+        try (Connection physical = AdminDBUtils.openConnection()) {
+            physical.setAutoCommit(false);
+            RoundTrips trips = new RoundTrips();
+            Connection conn = counting(physical, trips);
+
+            int employeeId = seedEmployee(physical, start);
+            Savepoint seeded = physical.setSavepoint();
+
+            double[] legacy = measure(physical, seeded, trips, iterations, () -> legacyCreatePayroll(conn, employeeId, start, end));
+            double[] batched = measure(physical, seeded, trips, iterations, () -> new PayrollWriter(conn).createPayroll(employeeId, start, end));
+
+            physical.rollback();
+
+            System.out.printf("Cut-off: %s .. %s (%d timesheets), iterations: %d%n", start, end, CUT_OFF_DAYS, iterations);
+            System.out.printf("%-10s %14s %14s%n", "Path", "Round trips", "Latency (ms)");
+            System.out.printf("%-10s %14.0f %14.2f%n", "Per-row", legacy[0], legacy[1]);
+            System.out.printf("%-10s %14.0f %14.2f%n", "Batched", batched[0], batched[1]);
+        }
+    }
+
+    private interface Write {
+
+        void run() throws SQLException;
+    }
+
+    // Returns {round trips per payroll, mean latency in ms}; each iteration is rolled back to the savepoint
+    private static double[] measure(Connection physical, Savepoint seeded, RoundTrips trips,
+            int iterations, Write write) throws SQLException {
+        for (int i = 0; i < WARMUP; i++) {
+            write.run();
+            physical.rollback(seeded);
+        }
+
+        long totalTrips = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < iterations; i++) {
+            trips.count = 0;
+            long t0 = System.nanoTime();
+            write.run();
+            totalNanos += System.nanoTime() - t0;
+            totalTrips += trips.count;
+            physical.rollback(seeded);
+        }
+        return new double[]{(double) totalTrips / iterations, totalNanos / 1_000_000.0 / iterations};
+    }
+
+    // Scratch employee with one timesheet per day of the cut-off
+    private static int seedEmployee(Connection conn, Date hireDate) throws SQLException {
+        int employeeId;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO EMPLOYEE (LastName, FirstName, Email, Gender, Age, PhoneNumber, DateOfHire, MonthlySalary) "
+                + "VALUES ('Benchmark', 'Payroll', 'benchmark@example.com', 'Male', 30, '09000000000', ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setDate(1, hireDate);
+            ps.setBigDecimal(2, new BigDecimal("35000.00"));
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                employeeId = keys.getInt(1);
+            }
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO TIMESHEET (EmployeeID, WorkDate, RenderedHours) VALUES (?, ?, ?)")) {
+            for (int day = 0; day < CUT_OFF_DAYS; day++) {
+                ps.setInt(1, employeeId);
+                ps.setDate(2, Date.valueOf(CUT_OFF_START.plusDays(day)));
+                ps.setBigDecimal(3, day % 3 == 0 ? new BigDecimal("10.00") : new BigDecimal("8.00"));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return employeeId;
+    }
+
+    // The write path showAddPayrollDialog used before PayrollWriter: one statement per deduction,
+    // and an existence check, a salary lookup and an insert per timesheet
+    private static void legacyCreatePayroll(Connection conn, int empId, Date start, Date end) throws SQLException {
+        try (PreparedStatement checkEmp = conn.prepareStatement("SELECT 1 FROM EMPLOYEE WHERE EmployeeID = ?")) {
+            checkEmp.setInt(1, empId);
+            try (ResultSet rs = checkEmp.executeQuery()) {
+                rs.next();
+            }
+        }
+
+        int payrollId;
+        try (PreparedStatement insertPayroll = conn.prepareStatement(
+                "INSERT INTO PAYROLL (EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off) VALUES (?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            insertPayroll.setInt(1, empId);
+            insertPayroll.setString(2, "PR-" + empId + "-" + System.nanoTime());
+            insertPayroll.setDate(3, start);
+            insertPayroll.setDate(4, end);
+            insertPayroll.executeUpdate();
+            try (ResultSet keys = insertPayroll.getGeneratedKeys()) {
+                keys.next();
+                payrollId = keys.getInt(1);
+            }
+        }
+
+        try (PreparedStatement getDeductions = conn.prepareStatement("SELECT DeductionID, Default_Amount FROM DEDUCTION");
+                ResultSet dedRs = getDeductions.executeQuery();
+                PreparedStatement insertDed = conn.prepareStatement(
+                        "INSERT INTO PAYROLL_DEDUCTION (PayrollID, DeductionID, Amount) VALUES (?, ?, ?)")) {
+            while (dedRs.next()) {
+                insertDed.setInt(1, payrollId);
+                insertDed.setInt(2, dedRs.getInt("DeductionID"));
+                insertDed.setBigDecimal(3, dedRs.getBigDecimal("Default_Amount"));
+                insertDed.executeUpdate();
+            }
+        }
+
+        try (PreparedStatement getTimesheets = conn.prepareStatement(
+                "SELECT TimesheetID FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate BETWEEN ? AND ?")) {
+            getTimesheets.setInt(1, empId);
+            getTimesheets.setDate(2, start);
+            getTimesheets.setDate(3, end);
+            try (ResultSet tsRs = getTimesheets.executeQuery(); PreparedStatement insertGross = conn.prepareStatement(
+                    "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) VALUES (?, ?, ?)")) {
+                while (tsRs.next()) {
+                    int timesheetId = tsRs.getInt("TimesheetID");
+                    boolean grossExists;
+                    try (PreparedStatement checkGross = conn.prepareStatement("SELECT 1 FROM GROSS_PAY WHERE TimesheetID = ?")) {
+                        checkGross.setInt(1, timesheetId);
+                        try (ResultSet checkRs = checkGross.executeQuery()) {
+                            grossExists = checkRs.next();
+                        }
+                    }
+                    if (!grossExists) {
+                        BigDecimal stdRate = BigDecimal.ZERO;
+                        try (PreparedStatement getSalary = conn.prepareStatement(
+                                "SELECT MonthlySalary FROM EMPLOYEE WHERE EmployeeID = ?")) {
+                            getSalary.setInt(1, empId);
+                            try (ResultSet salaryRs = getSalary.executeQuery()) {
+                                if (salaryRs.next()) {
+                                    stdRate = PayrollMath.standardHourlyRate(salaryRs.getBigDecimal("MonthlySalary"));
+                                }
+                            }
+                        }
+                        insertGross.setInt(1, timesheetId);
+                        insertGross.setBigDecimal(2, stdRate);
+                        insertGross.setBigDecimal(3, PayrollMath.overtimeHourlyRate(stdRate));
+                        insertGross.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
+    // Wraps a connection so every execute*, commit, rollback and autocommit switch is counted
+    private static Connection counting(Connection target, RoundTrips trips) {
+        return (Connection) Proxy.newProxyInstance(PayrollWriteBenchmark.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, countingHandler(target, trips));
+    }
+
+    private static InvocationHandler countingHandler(Object target, RoundTrips trips) {
+        return (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")
+                    || name.equals("setAutoCommit")) {
+                trips.count++;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Statements created by the connection are counted too
+            if (result instanceof PreparedStatement) {
+                return Proxy.newProxyInstance(PayrollWriteBenchmark.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, countingHandler(result, trips));
+            }
+            return result;
+        };
+    }
+}
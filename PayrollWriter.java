@@ -0,0 +1,102 @@
+
+import java.math.BigDecimal;
+import java.sql.*;
+
+public class PayrollWriter {
+
+    // Default deductions copied server-side in one statement
+    private static final String COPY_DEDUCTIONS
+            = "INSERT INTO PAYROLL_DEDUCTION (PayrollID, DeductionID, Amount) "
+            + "SELECT ?, DeductionID, Default_Amount FROM DEDUCTION";
+
+    // GROSS_PAY for every timesheet in the cut-off that does not have one yet, in one statement
+    private static final String FILL_GROSS_PAY
+            = "INSERT INTO GROSS_PAY (TimesheetID, StdHourlyRate, OTHourlyRate) "
+            + "SELECT t.TimesheetID, ?, ? FROM TIMESHEET t "
+            + "WHERE t.EmployeeID = ? AND t.WorkDate BETWEEN ? AND ? "
+            + "AND NOT EXISTS (SELECT 1 FROM GROSS_PAY g WHERE g.TimesheetID = t.TimesheetID)";
+
+    private final Connection connection;
+
+    public PayrollWriter(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Creates one payroll: PAYROLL row, default deductions and missing GROSS_PAY rows
+    // Uses a constant number of round trips regardless of how many days or deductions there are
+    // Returns the new PayrollID, or null if the employee does not exist
+    // Runs in its own transaction unless the caller already has one open
+    public Integer createPayroll(int employeeId, Date startCutOff, Date endCutOff) throws SQLException {
+        boolean ownTransaction = connection.getAutoCommit();
+        if (ownTransaction) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            // 1) Verify employee exists and read the salary the rates are derived from
+            BigDecimal monthlySalary;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT MonthlySalary FROM EMPLOYEE WHERE EmployeeID = ?")) {
+                ps.setInt(1, employeeId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        if (ownTransaction) {
+                            connection.rollback();
+                        }
+                        return null;
+                    }
+                    monthlySalary = rs.getBigDecimal("MonthlySalary");
+                }
+            }
+            HourlyRateCache.Rates rates = HourlyRateCache.getInstance().rates(employeeId, monthlySalary);
+
+            // 2) Insert into PAYROLL and retrieve generated key (PayrollID)
+            int payrollId;
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO PAYROLL (EmployeeID, ReferenceNo, Start_Cut_Off, End_Cut_Off) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setInt(1, employeeId);
+                ps.setString(2, PayrollReferenceGenerator.getInstance().next(employeeId, startCutOff));
+                ps.setDate(3, startCutOff);
+                ps.setDate(4, endCutOff);
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Failed to insert payroll.");
+                    }
+                    payrollId = keys.getInt(1);
+                }
+            }
+
+            // 3) Copy all default deductions
+            try (PreparedStatement ps = connection.prepareStatement(COPY_DEDUCTIONS)) {
+                ps.setInt(1, payrollId);
+                ps.executeUpdate();
+            }
+
+            // 4) Gross pay rows for the cut-off's timesheets
+            try (PreparedStatement ps = connection.prepareStatement(FILL_GROSS_PAY)) {
+                ps.setBigDecimal(1, rates.getStdHourlyRate());
+                ps.setBigDecimal(2, rates.getOTHourlyRate());
+                ps.setInt(3, employeeId);
+                ps.setDate(4, startCutOff);
+                ps.setDate(5, endCutOff);
+                ps.executeUpdate();
+            }
+
+            if (ownTransaction) {
+                connection.commit();
+            }
+            return payrollId;
+
+        } catch (SQLException e) {
+            if (ownTransaction) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+
+import java.sql.*;
+
+// SQL for the POSITION table; writes invalidate the shared ReferenceDataCache
+public class PositionRepository extends Repository {
+
+    public PositionRepository(Connection connection) {
+        super(connection);
+    }
+
+    // PositionID, PositionName, BaseSalary, DepartmentName
+    public TableData findAllWithDepartment() throws SQLException {
+        return queryTable("SELECT p.PositionID, p.PositionName, p.BaseSalary, d.DepartmentName "
+                + "FROM POSITION p LEFT JOIN DEPARTMENT d ON p.DepartmentID = d.DepartmentID");
+    }
+
+    public void insert(String name, double baseSalary, int departmentId) throws SQLException {
+        execute("INSERT INTO POSITION (PositionName, BaseSalary, DepartmentID) VALUES (?, ?, ?)",
+                name, baseSalary, departmentId);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.POSITION);
+    }
+
+    public void update(int positionId, String name, double baseSalary, int departmentId) throws SQLException {
+        execute("UPDATE POSITION SET PositionName=?, BaseSalary=?, DepartmentID=? WHERE PositionID=?",
+                name, baseSalary, departmentId, positionId);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.POSITION);
+    }
+
+    public void delete(int positionId) throws SQLException {
+        execute("DELETE FROM POSITION WHERE PositionID=?", positionId);
+        ReferenceDataCache.getInstance().invalidate(ReferenceDataCache.Table.POSITION);
+    }
+}
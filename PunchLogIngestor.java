@@ -0,0 +1,537 @@
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Turns raw clock-in/clock-out events from the biometric terminals into TIMESHEET rows
+// A punch log has one event per line, in time order: EmployeeID,yyyy-MM-dd HH:mm[:ss],IN|OUT (more fields are
+// ignored, a header line is allowed). The file is streamed once; per employee only the open IN and the seconds
+// paired so far for the current day are kept, so memory depends on the number of employees, not the file size.
+// Each IN is paired with the next OUT within MAX_SHIFT_SECONDS and the time credited to the IN's date, so night
+// shifts count for the day they started. A finished day becomes RenderedHours, written by a second thread as
+// batched upserts on (EmployeeID, WorkDate), one transaction per batch; OvertimeHours follows from the
+// generated column. An upsert replaces the day, so a log can be ingested again after a failure, and a log
+// must hold whole shifts: an OUT whose IN is in the previous file is reported as unpaired.
+//   java PunchLogIngestor punches.csv [errors.csv]
+//   java PunchLogIngestor --generate punches.csv <employees> <days>    writes a synthetic log for timing
+public class PunchLogIngestor {
+
+    public static final int DEFAULT_BATCH = 2000;
+    private static final int QUEUE_CAPACITY = 8;
+
+    // An OUT later than this after the IN is not its pair: the IN was never closed
+    private static final long MAX_SHIFT_SECONDS = 16 * 3600;
+    // A second IN this soon after the first is the same person punching twice
+    private static final long DOUBLE_TAP_SECONDS = 10 * 60;
+    // Rejected lines listed in the error report; the rest are only counted
+    private static final int MAX_ERROR_LINES = 10000;
+
+    private static final String UPSERT
+            = "INSERT INTO TIMESHEET (EmployeeID, WorkDate, RenderedHours) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE RenderedHours = VALUES(RenderedHours)";
+
+    private static final int NO_DAY = Integer.MIN_VALUE;
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final DayBatch END = new DayBatch(0);
+
+    private final int batchSize;
+
+    // Pairing state, indexed by EmployeeID
+    private BitSet employees;
+    private int[] day;          // Work day (epoch day) being collected, or NO_DAY
+    private int[] seconds;      // Paired seconds so far on that day
+    private long[] openIn;      // Epoch second of the unmatched IN, or NONE
+    private long[] last;        // Latest punch, to notice a log out of time order
+    private int[] written;      // Latest day handed to the writer; earlier punches arrive too late
+
+    private DayBatch batch;
+    private BlockingQueue<DayBatch> queue;
+    private volatile Throwable failure;
+    private long punches;
+    private long unpaired;
+    private long doubleTaps;
+    private long daysQueued;
+
+    // Cached parse of the last date seen; a log has the same date on thousands of consecutive lines
+    private String lastDateText = "";
+    private int lastEpochDay;
+
+    public PunchLogIngestor() {
+        this(DEFAULT_BATCH);
+    }
+
+    public PunchLogIngestor(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Counts and timing of one log
+    public static final class Result {
+
+        private final long lines;
+        private final long punches;
+        private final long rejected;
+        private final long unpaired;
+        private final long doubleTaps;
+        private final long days;
+        private final long elapsedNanos;
+        private final Path errorReport;   // null when nothing was rejected
+
+        Result(long lines, long punches, long rejected, long unpaired, long doubleTaps, long days, long elapsedNanos,
+                Path errorReport) {
+            this.lines = lines;
+            this.punches = punches;
+            this.rejected = rejected;
+            this.unpaired = unpaired;
+            this.doubleTaps = doubleTaps;
+            this.days = days;
+            this.elapsedNanos = elapsedNanos;
+            this.errorReport = errorReport;
+        }
+
+        public long getPunches() {
+            return punches;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        // INs never closed and OUTs without an IN; they add no hours
+        public long getUnpaired() {
+            return unpaired;
+        }
+
+        // TIMESHEET rows inserted or replaced
+        public long getDays() {
+            return days;
+        }
+
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        public double getPunchesPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d line(s): %d punches, %d rejected, %d unpaired, %d double taps -> %d timesheet day(s)"
+                    + " in %.1f s (%.0f lines/s)%s", lines, punches, rejected, unpaired, doubleTaps, days, getSeconds(),
+                    getPunchesPerSecond(), errorReport != null ? "\nRejected lines: " + errorReport : "");
+        }
+    }
+
+    // Finished days on their way to the writer, in parallel arrays
+    private static final class DayBatch {
+
+        final int[] employeeIds;
+        final int[] workDays;       // Epoch days
+        final int[] hundredths;     // RenderedHours * 100
+        int size;
+
+        DayBatch(int capacity) {
+            employeeIds = new int[capacity];
+            workDays = new int[capacity];
+            hundredths = new int[capacity];
+        }
+    }
+
+    // Ingests one log; a PunchLogIngestor instance runs once
+    public Result ingest(Path file, Path errorReport) throws IOException, SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            loadEmployees(conn);
+        }
+        int size = Math.max(1, employees.length());
+        day = new int[size];
+        Arrays.fill(day, NO_DAY);
+        seconds = new int[size];
+        openIn = new long[size];
+        Arrays.fill(openIn, NONE);
+        last = new long[size];
+        Arrays.fill(last, NONE);
+        written = new int[size];
+        Arrays.fill(written, NO_DAY);
+
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        batch = new DayBatch(batchSize);
+        long[] upserted = new long[1];
+        Thread writer = new Thread(() -> write(upserted), "punch-log-writer");
+        writer.start();
+
+        TimesheetCsvImporter.ErrorReport errors = new TimesheetCsvImporter.ErrorReport(errorReport, MAX_ERROR_LINES);
+        long lines = 0;
+        try {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                int clockDay = NO_DAY;   // Latest date in the log so far
+                long lineNo = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNo++;
+                    if (line.isEmpty() || (lineNo == 1 && !Character.isDigit(line.charAt(0)))) {
+                        continue; // Blank line or header
+                    }
+                    lines++;
+                    String error = punch(line);
+                    if (error != null) {
+                        errors.reject(lineNo, error, line);
+                        continue;
+                    }
+                    if (lastEpochDay > clockDay) {
+                        if (clockDay != NO_DAY) {
+                            closeIdleDays(lastEpochDay);
+                        }
+                        clockDay = lastEpochDay;
+                    }
+                }
+            }
+            closeAllDays();
+            flush();
+            handOver(END);
+        } catch (IOException | SQLException | RuntimeException e) {
+            failure = failure != null ? failure : e;
+            writer.interrupt();
+        } finally {
+            errors.close();
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while writing timesheets", e);
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            throw new SQLException("Punch log ingestion failed: " + failure, failure);
+        }
+
+        // Payrolls already covering the ingested days get their GROSS_PAY rows
+        if (upserted[0] > 0) {
+            try (Connection conn = AdminDBUtils.openConnection()) {
+                new PayrollRecomputer(conn).recomputeDirty();
+            }
+        }
+        return new Result(lines, punches, errors.count, unpaired, doubleTaps, upserted[0], System.nanoTime() - start,
+                errors.count > 0 ? errorReport : null);
+    }
+
+    private void loadEmployees(Connection conn) throws SQLException {
+        employees = new BitSet();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT EmployeeID FROM EMPLOYEE");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                employees.set(rs.getInt(1));
+            }
+        }
+    }
+
+    // --- PAIRING ---
+    // Parses and applies one punch; returns why the line was rejected, or null
+    private String punch(String line) throws SQLException {
+        int comma = line.indexOf(',');
+        if (comma <= 0) {
+            return "Expected EmployeeID,yyyy-MM-dd HH:mm:ss,IN|OUT";
+        }
+        int employeeId = parseInt(line, 0, comma);
+        if (employeeId <= 0 || !employees.get(employeeId)) {
+            return employeeId < 0 ? "Employee ID must be a number" : "Employee ID does not exist";
+        }
+        int timeEnd = line.indexOf(',', comma + 1);
+        if (timeEnd < 0) {
+            return "Expected EmployeeID,yyyy-MM-dd HH:mm:ss,IN|OUT";
+        }
+        long time = parseTime(line, comma + 1, timeEnd);
+        if (time == NONE) {
+            return "Time must be yyyy-MM-dd HH:mm or yyyy-MM-dd HH:mm:ss";
+        }
+        char direction = timeEnd + 1 < line.length() ? Character.toUpperCase(line.charAt(timeEnd + 1)) : ' ';
+        if (direction != 'I' && direction != 'O') {
+            return "Direction must be IN or OUT";
+        }
+
+        int e = employeeId;
+        if (time < last[e]) {
+            return "Earlier than this employee's previous punch; the log must be in time order";
+        }
+        int workDay = lastEpochDay;
+        if (direction == 'I' && workDay <= written[e]) {
+            return "Day already written; the log must be in time order";
+        }
+        last[e] = time;
+        punches++;
+
+        if (direction == 'I') {
+            if (openIn[e] != NONE) {
+                if (time - openIn[e] <= DOUBLE_TAP_SECONDS) {
+                    doubleTaps++;
+                    return null; // Keep the first IN
+                }
+                unpaired++; // Never punched out
+            }
+            if (day[e] != workDay) {
+                closeDay(e);
+                day[e] = workDay;
+            }
+            openIn[e] = time;
+        } else {
+            if (openIn[e] == NONE || time - openIn[e] > MAX_SHIFT_SECONDS) {
+                unpaired += openIn[e] == NONE ? 1 : 2; // This OUT, and a stale IN if there was one
+                openIn[e] = NONE;
+                return null;
+            }
+            seconds[e] += (int) (time - openIn[e]);
+            openIn[e] = NONE;
+        }
+        return null;
+    }
+
+    // Hands over each employee's day once the log is two days past it and no shift can still be open
+    private void closeIdleDays(int clockDay) throws SQLException {
+        long now = (long) clockDay * 86400;
+        for (int e = 0; e < day.length; e++) {
+            if (day[e] != NO_DAY && day[e] < clockDay - 1
+                    && (openIn[e] == NONE || now - openIn[e] > MAX_SHIFT_SECONDS)) {
+                if (openIn[e] != NONE) {
+                    unpaired++;
+                    openIn[e] = NONE;
+                }
+                closeDay(e);
+            }
+        }
+    }
+
+    private void closeAllDays() throws SQLException {
+        for (int e = 0; e < day.length; e++) {
+            if (openIn[e] != NONE) {
+                unpaired++;
+                openIn[e] = NONE;
+            }
+            closeDay(e);
+        }
+    }
+
+    // Queues the employee's current day if any time was paired on it
+    private void closeDay(int e) throws SQLException {
+        if (day[e] == NO_DAY) {
+            return;
+        }
+        if (seconds[e] > 0) {
+            // Hundredths of an hour, rounded half up; a day never exceeds 24 hours
+            int hundredths = (int) Math.min(2400, ((long) seconds[e] * 100 + 1800) / 3600);
+            batch.employeeIds[batch.size] = e;
+            batch.workDays[batch.size] = day[e];
+            batch.hundredths[batch.size] = hundredths;
+            batch.size++;
+            daysQueued++;
+            if (batch.size == batchSize) {
+                flush();
+            }
+        }
+        written[e] = day[e];
+        day[e] = NO_DAY;
+        seconds[e] = 0;
+    }
+
+    private void flush() throws SQLException {
+        if (batch.size > 0) {
+            handOver(batch);
+            batch = new DayBatch(batchSize);
+        }
+    }
+
+    private void handOver(DayBatch b) throws SQLException {
+        try {
+            queue.put(b);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing timesheets", e);
+        }
+        if (failure != null) {
+            throw new SQLException("Writing timesheets failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    // --- WRITER ---
+    // Upserts each batch in its own transaction; after a failure keeps taking batches so the reader never blocks
+    private void write(long[] upserted) {
+        try (Connection conn = AdminDBUtils.openConnection();
+                PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+            conn.setAutoCommit(false);
+            ResourceLeakTracker.expectLongLived(ps);   // Open until the whole log is read
+            while (true) {
+                DayBatch b = queue.take();
+                if (b == END) {
+                    break;
+                }
+                for (int i = 0; i < b.size; i++) {
+                    ps.setInt(1, b.employeeIds[i]);
+                    ps.setDate(2, Date.valueOf(LocalDate.ofEpochDay(b.workDays[i])));
+                    ps.setBigDecimal(3, java.math.BigDecimal.valueOf(b.hundredths[i], 2));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                markDirty(conn, b);   // Committed with the batch, so no ingested day is missed
+                conn.commit();
+                upserted[0] += b.size;
+            }
+        } catch (Throwable e) {
+            if (failure == null) {
+                failure = e;
+            }
+            // Unblock the reader; it stops at its next hand-over, or interrupts this thread if it failed first
+            try {
+                while (queue.take() != END) {
+                    // Discard
+                }
+            } catch (InterruptedException stopped) {
+                // Reader gave up
+            }
+        }
+    }
+
+    // One dirty range per employee for the whole batch, in the batch's transaction
+    private static void markDirty(Connection conn, DayBatch b) throws SQLException {
+        Map<Integer, int[]> ranges = new HashMap<>();
+        for (int i = 0; i < b.size; i++) {
+            int d = b.workDays[i];
+            int[] range = ranges.computeIfAbsent(b.employeeIds[i], id -> new int[]{d, d});
+            range[0] = Math.min(range[0], d);
+            range[1] = Math.max(range[1], d);
+        }
+        List<PayrollDirtyTracker.Entry> entries = new ArrayList<>(ranges.size());
+        for (Map.Entry<Integer, int[]> e : ranges.entrySet()) {
+            entries.add(new PayrollDirtyTracker.Entry(e.getKey(), LocalDate.ofEpochDay(e.getValue()[0]),
+                    LocalDate.ofEpochDay(e.getValue()[1]), false));
+        }
+        new PayrollDirtyTracker(conn).markAll(entries);
+    }
+
+    // --- PARSING ---
+    // Digits in s[from, to), ignoring surrounding spaces; -1 if there are none or anything else
+    private static int parseInt(String s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from == to || to - from > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // "yyyy-MM-dd HH:mm[:ss]" (or with T) in s[from, to) as seconds since the epoch, local time; NONE if invalid
+    // Sets lastEpochDay to the date
+    private long parseTime(String s, int from, int to) {
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        int length = to - from;
+        if ((length != 16 && length != 19) || (s.charAt(from + 10) != ' ' && s.charAt(from + 10) != 'T')
+                || s.charAt(from + 13) != ':' || (length == 19 && s.charAt(from + 16) != ':')) {
+            return NONE;
+        }
+        if (!s.regionMatches(from, lastDateText, 0, 10)) {
+            int year = parseInt(s, from, from + 4);
+            int month = parseInt(s, from + 5, from + 7);
+            int dayOfMonth = parseInt(s, from + 8, from + 10);
+            if (s.charAt(from + 4) != '-' || s.charAt(from + 7) != '-' || year < 0 || month < 1 || month > 12
+                    || dayOfMonth < 1 || dayOfMonth > LocalDate.of(year, month, 1).lengthOfMonth()) {
+                return NONE;
+            }
+            lastEpochDay = (int) LocalDate.of(year, month, dayOfMonth).toEpochDay();
+            lastDateText = s.substring(from, from + 10);
+        }
+        int hour = parseInt(s, from + 11, from + 13);
+        int minute = parseInt(s, from + 14, from + 16);
+        int second = length == 19 ? parseInt(s, from + 17, from + 19) : 0;
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NONE;
+        }
+        return (long) lastEpochDay * 86400 + hour * 3600 + minute * 60 + second;
+    }
+
+    // Synthetic log in time order: each employee punches in around 8:00 and out around 17:00, with a few
+    // double taps and missed punches
+    static void generate(Path file, int employeeCount, int days) throws IOException {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.now().minusDays(days);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("EmployeeID,Time,Direction");
+            out.newLine();
+            for (int d = 0; d < days; d++) {
+                LocalDateTime morning = first.plusDays(d).atTime(7, 30);
+                LocalDateTime evening = first.plusDays(d).atTime(16, 30);
+                for (String direction : new String[]{"IN", "OUT"}) {
+                    LocalDateTime base = direction.equals("IN") ? morning : evening;
+                    // Employees in time order: spread over an hour, one second apart per slot
+                    for (int i = 0; i < employeeCount; i++) {
+                        if (random.nextInt(200) == 0) {
+                            continue; // Missed punch
+                        }
+                        LocalDateTime t = base.plusSeconds((long) i * 3600 / employeeCount);
+                        String line = (i + 1) + "," + t.toLocalDate() + " " + t.toLocalTime().withNano(0) + (
+                                t.getSecond() == 0 ? ":00" : "") + "," + direction;
+                        out.write(line);
+                        out.newLine();
+                        if (random.nextInt(100) == 0) {
+                            out.write(line); // Double tap
+                            out.newLine();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("--generate")) {
+            generate(Paths.get(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        if (args.length < 1) {
+            System.out.println("Usage: java PunchLogIngestor <punches.csv> [errors.csv]");
+            System.out.println("       java PunchLogIngestor --generate <punches.csv> <employees> <days>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        Path errors = args.length > 1 ? Paths.get(args[1]) : TimesheetCsvImporter.defaultErrorReport(file);
+        System.out.println(new PunchLogIngestor().ingest(file, errors));
+    }
+}
@@ -0,0 +1,610 @@
+
+import java.awt.Component;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+// Times every statement run on a pooled connection (metrics.enabled in db.properties)
+// ConnectionPool wraps each Statement it hands out; executions are counted by SQL fingerprint (the SQL with
+// literals replaced by ?) and by the screen or tool that ran them, with latency histograms and row counts.
+// Statements slower than metrics.slowQueryMs go to a rotating log file, and a summary of the slowest
+// fingerprints is written there every metrics.summaryIntervalMs and when the program exits.
+// Only fingerprints are logged, never parameter values, so passwords and salaries stay out of the log.
+final class QueryMetrics {
+
+    private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+
+    private static QueryMetrics instance;
+
+    // Fingerprints kept per SQL text; ad-hoc SQL with inlined values is fingerprinted again once this is full
+    private static final int MAX_CACHED_FINGERPRINTS = 5000;
+    private static final int SUMMARY_TOP = 20;
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\+\\)(\\s*,\\s*\\(\\?\\+\\))+");
+
+    // Application classes that only pass statements through; the caller is whoever called them
+    private static final Set<String> PLUMBING = Set.of("QueryMetrics", "ConnectionPool", "StatementCache",
+            "AsyncLoader", "AdminDBUtils");
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private final long slowMicros;
+    private final SlowLog slowLog;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byFingerprint = new ConcurrentHashMap<>();
+    private final Map<String, Stats> byCaller = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final long startedMillis = System.currentTimeMillis();
+
+    private QueryMetrics(DatabaseConfig config) {
+        this.slowMicros = TimeUnit.MILLISECONDS.toMicros(config.getSlowQueryMillis());
+        this.slowLog = new SlowLog(Paths.get(config.getSlowQueryLog()), config.getSlowQueryLogMaxBytes(),
+                config.getSlowQueryLogFiles());
+
+        long interval = config.getQuerySummaryIntervalMillis();
+        if (interval > 0) {
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "query-metrics-summary");
+                t.setDaemon(true);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::logSummary, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Created by the pool on first use when metrics.enabled is true
+    static synchronized QueryMetrics getInstance() {
+        if (instance == null) {
+            instance = new QueryMetrics(DatabaseConfig.getInstance());
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::logFinalSummary, "query-metrics-shutdown"));
+        }
+        return instance;
+    }
+
+    // Latency buckets of a quarter octave each (four per power of two), so quantiles are within 25%
+    static final class Histogram {
+
+        private static final int BUCKETS = 160;   // Up to 2^41 microseconds
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumMicros = new LongAdder();
+        private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+        void record(long micros) {
+            counts.incrementAndGet(index(micros));
+            count.increment();
+            sumMicros.add(micros);
+            maxMicros.accumulate(micros);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        long getTotalMicros() {
+            return sumMicros.sum();
+        }
+
+        long getMaxMicros() {
+            return maxMicros.get();
+        }
+
+        // Upper bound of the bucket holding the q-th quantile, e.g. percentile(0.99)
+        long percentile(double q) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), getMaxMicros());
+                }
+            }
+            return getMaxMicros();
+        }
+
+        static int index(long micros) {
+            if (micros < 4) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int index = 4 * (exponent - 1) + (int) ((micros >>> (exponent - 2)) & 3);
+            return Math.min(index, BUCKETS - 1);
+        }
+
+        static long upperBound(int index) {
+            if (index < 4) {
+                return index;
+            }
+            int exponent = index / 4 + 1;
+            return ((4L + index % 4 + 1) << (exponent - 2)) - 1;
+        }
+    }
+
+    // Counters for one fingerprint or one caller
+    static final class Stats {
+
+        final String name;
+        final Histogram latency = new Histogram();
+        final LongAdder rows = new LongAdder();       // Rows read from result sets, or rows updated
+        final LongAdder errors = new LongAdder();
+        final Map<String, LongAdder> callers;         // Executions per caller; fingerprint stats only
+
+        Stats(String name, boolean trackCallers) {
+            this.name = name;
+            this.callers = trackCallers ? new ConcurrentHashMap<>() : null;
+        }
+    }
+
+    // --- WRAPPING ---
+    // Returns statement wrapped so its executions are recorded; type is the interface the caller asked for
+    Statement wrap(Statement statement, Class<?> type, Object[] args) {
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        return (Statement) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(), new Class<?>[]{type},
+                new TimedStatement(statement, sql, caller()));
+    }
+
+    // --- SUMMARY ---
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    // Slowest fingerprints by total time, then every caller, as a plain-text table
+    public String describe() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("Query summary since %tF %<tT: %d executions, %d fingerprints%n",
+                new Date(startedMillis), getExecutionCount(), byFingerprint.size()));
+        out.append(String.format("%8s %9s %9s %9s %9s %9s %7s  %s%n",
+                "calls", "p50 ms", "p99 ms", "max ms", "total s", "rows/call", "errors", "fingerprint [callers]"));
+        for (Stats s : top(byFingerprint, SUMMARY_TOP)) {
+            out.append(line(s)).append("  ").append(s.name).append("  ").append(callers(s)).append('\n');
+        }
+        out.append(String.format("By caller:%n"));
+        for (Stats s : top(byCaller, Integer.MAX_VALUE)) {
+            out.append(line(s)).append("  ").append(s.name).append('\n');
+        }
+        return out.toString();
+    }
+
+    private void logSummary() {
+        if (getExecutionCount() > 0) {
+            slowLog.write(describe());
+        }
+    }
+
+    // At shutdown the daemon writer may not run again, so the summary and anything still queued are written here
+    private void logFinalSummary() {
+        slowLog.flush(getExecutionCount() > 0 ? describe() : null);
+    }
+
+    private static List<Stats> top(Map<String, Stats> stats, int limit) {
+        List<Stats> sorted = new ArrayList<>(stats.values());
+        sorted.sort(Comparator.comparingLong((Stats s) -> s.latency.getTotalMicros()).reversed());
+        return sorted.size() > limit ? sorted.subList(0, limit) : sorted;
+    }
+
+    private static String line(Stats s) {
+        long calls = s.latency.getCount();
+        return String.format("%8d %9.1f %9.1f %9.1f %9.2f %9.1f %7d", calls,
+                s.latency.percentile(0.50) / 1000.0, s.latency.percentile(0.99) / 1000.0,
+                s.latency.getMaxMicros() / 1000.0, s.latency.getTotalMicros() / 1_000_000.0,
+                calls == 0 ? 0 : (double) s.rows.sum() / calls, s.errors.sum());
+    }
+
+    private static String callers(Stats s) {
+        StringBuilder out = new StringBuilder("[");
+        s.callers.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(3)
+                .forEach(e -> out.append(out.length() > 1 ? ", " : "").append(e.getKey()).append(' ')
+                        .append(e.getValue().sum()));
+        if (s.callers.size() > 3) {
+            out.append(", ...");
+        }
+        return out.append(']').toString();
+    }
+
+    // --- RECORDING ---
+    private Stats statsFor(String sql) {
+        return byFingerprint.computeIfAbsent(fingerprint(sql), f -> new Stats(f, true));
+    }
+
+    private void record(Stats stats, Stats caller, long micros, long rows, boolean failed) {
+        executions.increment();
+        for (Stats s : new Stats[]{stats, caller}) {
+            s.latency.record(micros);
+            if (rows > 0) {
+                s.rows.add(rows);
+            }
+            if (failed) {
+                s.errors.increment();
+            }
+        }
+        stats.callers.computeIfAbsent(caller.name, c -> new LongAdder()).increment();
+
+        if (micros >= slowMicros) {
+            slowLog.write(String.format("%.1f ms  %s%s%s  %s", micros / 1000.0, caller.name,
+                    rows >= 0 ? "  rows=" + rows : "", failed ? "  FAILED" : "", stats.name));
+        }
+    }
+
+    // SQL with string and number literals replaced by ?, whitespace collapsed, and lists of ? shortened,
+    // so the same query with different values or IN-list lengths is counted once
+    String fingerprint(String sql) {
+        if (sql == null) {
+            return "(batch)";
+        }
+        String cached = fingerprints.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String fingerprint = normalize(sql);
+        if (fingerprints.size() < MAX_CACHED_FINGERPRINTS) {
+            fingerprints.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int n = sql.length();
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                // Skip to the closing quote, allowing \' and '' escapes
+                int j = i + 1;
+                while (j < n) {
+                    char d = sql.charAt(j);
+                    if (d == '\\') {
+                        j += 2;
+                        continue;
+                    }
+                    if (d == c) {
+                        if (j + 1 < n && sql.charAt(j + 1) == c) {
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                out.append('?');
+                i = j;
+            } else if (Character.isDigit(c) && (i == 0 || !isWordChar(sql.charAt(i - 1)))) {
+                int j = i;
+                while (j + 1 < n && (Character.isDigit(sql.charAt(j + 1)) || sql.charAt(j + 1) == '.')) {
+                    j++;
+                }
+                out.append('?');
+                i = j;
+            } else if (Character.isWhitespace(c)) {
+                if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                    out.append(' ');
+                }
+            } else {
+                out.append(c);
+            }
+        }
+        String fingerprint = PLACEHOLDER_LIST.matcher(out.toString().trim()).replaceAll("(?+)");
+        return ROW_LIST.matcher(fingerprint).replaceAll("(?+), ...");
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '`';
+    }
+
+    // The screen that ran the statement: the first Swing component class on the stack. For headless tools
+    // and shared caches, the first application class that is not a repository.
+    static String caller() {
+        return WALKER.walk(frames -> {
+            String fallback = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                Class<?> type = frame.getDeclaringClass();
+                while (type.getEnclosingClass() != null) {
+                    type = type.getEnclosingClass();
+                }
+                String name = type.getName();
+                if (name.indexOf('.') >= 0 || PLUMBING.contains(name)) {
+                    continue; // JDK, driver and proxy classes are all in packages; the application is not
+                }
+                if (Component.class.isAssignableFrom(type)) {
+                    return name;
+                }
+                if (fallback == null && !Repository.class.isAssignableFrom(type)) {
+                    fallback = name;
+                }
+            }
+            return fallback != null ? fallback : "(unknown)";
+        });
+    }
+
+    // Appends to a log file, renaming it to file.1 (and file.1 to file.2, ...) when it reaches maxBytes
+    // Not a java.util.logging handler: those are closed by the JVM's own shutdown hook, before the last summary
+    // Entries are queued for one writer thread, so a slow disk never adds to the timed call; when the queue is
+    // full they are dropped, and the count is noted in the next entry written
+    private static final class SlowLog {
+
+        private static final int QUEUE_CAPACITY = 1000;
+
+        private final Path file;
+        private final long maxBytes;
+        private final int files;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final LongAdder dropped = new LongAdder();
+        private boolean failed;   // Reported once, then lines go to the console
+
+        SlowLog(Path file, long maxBytes, int files) {
+            this.file = file;
+            this.maxBytes = Math.max(1024, maxBytes);
+            this.files = Math.max(1, files);
+
+            Thread writer = new Thread(this::drain, "slow-query-log");
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        void write(String text) {
+            if (!queue.offer(entry(text))) {
+                dropped.increment();
+            }
+        }
+
+        // Writes the queued entries, then text if not null, on the calling thread
+        void flush(String text) {
+            List<String> pending = new ArrayList<>();
+            queue.drainTo(pending);
+            if (text != null) {
+                pending.add(entry(text));
+            }
+            for (String entry : pending) {
+                append(entry);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    append(queue.take());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static String entry(String text) {
+            return String.format("%1$tF %1$tT  %2$s%n", new Date(), text.trim());
+        }
+
+        private synchronized void append(String entry) {
+            long lost = dropped.sumThenReset();
+            if (lost > 0) {
+                entry = entry(lost + " slow query log entries dropped; the writer fell behind") + entry;
+            }
+            if (!failed) {
+                try {
+                    if (file.getParent() != null) {
+                        Files.createDirectories(file.getParent());
+                    }
+                    if (Files.exists(file) && Files.size(file) + entry.length() > maxBytes) {
+                        rotate();
+                    }
+                    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                        out.write(entry);
+                    }
+                    return;
+                } catch (IOException e) {
+                    failed = true;
+                    LOG.log(Level.WARNING, "Cannot write slow query log " + file + "; using the console instead", e);
+                }
+            }
+            System.err.print(entry);
+        }
+
+        private void rotate() throws IOException {
+            for (int i = files - 1; i >= 1; i--) {
+                Path older = Paths.get(file + "." + i);
+                if (Files.exists(older)) {
+                    if (i == files - 1) {
+                        Files.delete(older);
+                    } else {
+                        Files.move(older, Paths.get(file + "." + (i + 1)), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+            }
+            if (files > 1) {
+                Files.move(file, Paths.get(file + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.delete(file);
+            }
+        }
+    }
+
+    // The borrower's view of a statement; times every execute call
+    private final class TimedStatement implements InvocationHandler {
+
+        private final Statement target;
+        private final String sql;              // null for a plain Statement, whose SQL comes with each call
+        private final Stats caller;
+        private Stats last;                    // Stats of the latest execution, for getResultSet()
+        private CountedResultSet open;         // Latest result set, finished when the statement closes
+
+        TimedStatement(Statement target, String sql, String caller) {
+            this.target = target;
+            this.sql = sql;
+            this.caller = byCaller.computeIfAbsent(caller, c -> new Stats(c, false));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "getResultSet":
+                    return last == null ? invokeTarget(method, args) : countRows((ResultSet) invokeTarget(method, args));
+                case "close":
+                    finishOpen();
+                    return invokeTarget(method, args);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute")) {
+                return invokeTarget(method, args);
+            }
+
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            Stats stats = statsFor(text);
+            finishOpen();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(method, args);
+            } catch (Throwable t) {
+                record(stats, caller, (System.nanoTime() - start) / 1000, -1, true);
+                throw t;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            last = stats;
+            if (result instanceof ResultSet) {
+                record(stats, caller, micros, -1, false); // Rows are added as they are read
+                return countRows((ResultSet) result);
+            }
+            record(stats, caller, micros, updateCount(result), false);
+            return result;
+        }
+
+        private ResultSet countRows(ResultSet rs) {
+            if (rs == null) {
+                return null;
+            }
+            open = new CountedResultSet(rs, last, caller);
+            return (ResultSet) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, open);
+        }
+
+        private void finishOpen() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Rows updated by executeUpdate/executeBatch, or -1 for execute(), whose count comes later
+    private static long updateCount(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += Math.max(0, count);
+            }
+            return rows;
+        }
+        if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += Math.max(0, count);
+            }
+            return rows;
+        }
+        return -1;
+    }
+
+    // Counts next() calls; the count is added to the stats when the result set is exhausted or closed
+    private static final class CountedResultSet implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Stats stats;
+        private final Stats caller;
+        private long rows;
+        private boolean finished;
+
+        CountedResultSet(ResultSet target, Stats stats, Stats caller) {
+            this.target = target;
+            this.stats = stats;
+            this.caller = caller;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    finish();
+                    break;
+                default:
+                    break;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (method.getName().equals("next")) {
+                if ((Boolean) result) {
+                    rows++;
+                } else {
+                    finish();
+                }
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                stats.rows.add(rows);
+                caller.rows.add(rows);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+
+import java.awt.Component;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.swing.DefaultComboBoxModel;
+
+// Departments and positions for combo boxes, shared by every screen
+// These tables change a few times a year, so dialogs read an in-memory snapshot instead of querying.
+// The repositories invalidate a table on every write; the next get() reloads only the tables that changed
+// and publishes a new snapshot with a higher version. Snapshots are immutable and safe to keep.
+public final class ReferenceDataCache {
+
+    public enum Table {
+        DEPARTMENT, POSITION
+    }
+
+    private static final ReferenceDataCache INSTANCE = new ReferenceDataCache();
+
+    private Snapshot snapshot;                                     // Latest load, or null before the first
+    private final EnumSet<Table> stale = EnumSet.allOf(Table.class);
+    private long generation;                                       // Bumped by invalidate()
+
+    private ReferenceDataCache() {
+    }
+
+    public static ReferenceDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    // An ID and a name, shown as "ID - Name" like the rest of the combo boxes
+    public static final class Item {
+
+        private final int id;
+        private final String name;
+
+        Item(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return id + " - " + name;
+        }
+    }
+
+    // One consistent copy of both tables
+    public static final class Snapshot {
+
+        private final long version;
+        private final List<Item> departments;
+        private final List<Item> positions;
+
+        Snapshot(long version, List<Item> departments, List<Item> positions) {
+            this.version = version;
+            this.departments = departments;
+            this.positions = positions;
+        }
+
+        // Increases every time a table is reloaded
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Item> getDepartments() {
+            return departments;
+        }
+
+        public List<Item> getPositions() {
+            return positions;
+        }
+
+        // "ID - Name" entries for a department combo box, after an optional first entry such as "0 - <None>"
+        public DefaultComboBoxModel<String> departmentModel(String first) {
+            return comboModel(first, departments);
+        }
+
+        public DefaultComboBoxModel<String> positionModel(String first) {
+            return comboModel(first, positions);
+        }
+
+        private static DefaultComboBoxModel<String> comboModel(String first, List<Item> items) {
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            if (first != null) {
+                model.addElement(first);
+            }
+            for (Item item : items) {
+                model.addElement(item.toString());
+            }
+            return model;
+        }
+    }
+
+    // The snapshot if nothing changed since it was loaded, otherwise null
+    public synchronized Snapshot current() {
+        return stale.isEmpty() ? snapshot : null;
+    }
+
+    // The current snapshot, reloading only the tables written since the last load
+    public Snapshot get(Connection conn) throws SQLException {
+        Snapshot base;
+        EnumSet<Table> reload;
+        long started;
+        synchronized (this) {
+            if (stale.isEmpty()) {
+                return snapshot;
+            }
+            base = snapshot;
+            reload = EnumSet.copyOf(stale);
+            started = generation;
+        }
+
+        Snapshot fresh = new Snapshot(base == null ? 1 : base.version + 1,
+                reload.contains(Table.DEPARTMENT) ? loadDepartments(conn) : base.departments,
+                reload.contains(Table.POSITION) ? loadPositions(conn) : base.positions);
+
+        synchronized (this) {
+            // A write during the load may not be in what was read; keep it stale so the next call reloads
+            if (generation == started) {
+                snapshot = fresh;
+                stale.clear();
+            }
+        }
+        return fresh;
+    }
+
+    // Calls then on the EDT with the snapshot; at once when it is current, otherwise after a background load
+    public void withSnapshot(Component owner, Consumer<Snapshot> then) {
+        Snapshot cached = current();
+        if (cached != null) {
+            then.accept(cached);
+            return;
+        }
+        AsyncLoader.run(owner, "Error loading reference data", this::get, then);
+    }
+
+    // Called after every write to the table
+    public synchronized void invalidate(Table table) {
+        stale.add(table);
+        generation++;
+    }
+
+    private static List<Item> loadDepartments(Connection conn) throws SQLException {
+        return loadItems(conn, "SELECT DepartmentID, DepartmentName FROM DEPARTMENT ORDER BY DepartmentID");
+    }
+
+    private static List<Item> loadPositions(Connection conn) throws SQLException {
+        return loadItems(conn, "SELECT PositionID, PositionName FROM POSITION ORDER BY PositionID");
+    }
+
+    private static List<Item> loadItems(Connection conn, String sql) throws SQLException {
+        List<Item> items = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                items.add(new Item(rs.getInt(1), rs.getString(2)));
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+}
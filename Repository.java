@@ -0,0 +1,129 @@
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+// Base for the *Repository classes, which own every SQL statement the screens run
+// All statements are prepared, so a pooled connection serves repeats from its StatementCache,
+// and every statement and result set is closed before the method returns
+abstract class Repository {
+
+    protected final Connection connection;
+
+    protected Repository(Connection connection) {
+        this.connection = connection;
+    }
+
+    // Column labels plus rows, ready for a DefaultTableModel
+    public static final class TableData {
+
+        private final Vector<String> columnNames;
+        private final Vector<Vector<Object>> rows;
+
+        TableData(Vector<String> columnNames, Vector<Vector<Object>> rows) {
+            this.columnNames = columnNames;
+            this.rows = rows;
+        }
+
+        public Vector<String> getColumnNames() {
+            return columnNames;
+        }
+
+        public Vector<Vector<Object>> getRows() {
+            return rows;
+        }
+    }
+
+    // Builds one object from the current row, reading columns by label
+    protected interface RowMapper<T> {
+
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // Runs a query and returns all rows as objects
+    protected <T> List<T> queryList(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            List<T> list = new ArrayList<>();
+            while (rs.next()) {
+                list.add(mapper.map(rs));
+            }
+            return list;
+        }
+    }
+
+    // First row of a query as an object, or null when there is none
+    protected <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? mapper.map(rs) : null;
+        }
+    }
+
+    // Date column as YYYY-MM-DD, or null
+    protected static String dateText(ResultSet rs, String column) throws SQLException {
+        Date date = rs.getDate(column);
+        return date != null ? date.toString() : null;
+    }
+
+    // Runs a query and returns all rows with the labels from the result set
+    protected TableData queryTable(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            Vector<String> names = new Vector<>(columns);
+            for (int i = 1; i <= columns; i++) {
+                names.add(meta.getColumnLabel(i));
+            }
+            return new TableData(names, readRows(rs, columns));
+        }
+    }
+
+    // Runs a query and returns all rows as getObject() values
+    protected Vector<Vector<Object>> queryRows(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            return readRows(rs, rs.getMetaData().getColumnCount());
+        }
+    }
+
+    protected boolean exists(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params); ResultSet rs = ps.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    // INSERT/UPDATE/DELETE; returns the affected row count
+    protected int execute(String sql, Object... params) throws SQLException {
+        try (PreparedStatement ps = prepare(sql, params)) {
+            return ps.executeUpdate();
+        }
+    }
+
+    private PreparedStatement prepare(String sql, Object... params) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql);
+        try {
+            bind(ps, params);
+            return ps;
+        } catch (SQLException e) {
+            ps.close();
+            throw e;
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
+        }
+    }
+
+    private static Vector<Vector<Object>> readRows(ResultSet rs, int columns) throws SQLException {
+        Vector<Vector<Object>> rows = new Vector<>();
+        while (rs.next()) {
+            Vector<Object> row = new Vector<>(columns);
+            for (int i = 1; i <= columns; i++) {
+                row.add(rs.getObject(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,72 @@
+
+import java.sql.*;
+
+// Runs every read the screens make with strict resource tracking and fails if a statement or result set
+// is left open. Exits with status 1 on a leak, so it can gate a build or an integration test run.
+//   java ResourceLeakCheck                                  against db.properties
+//   java -cp .:h2.jar -Dpayroll.dbProfile=embedded ResourceLeakCheck
+public class ResourceLeakCheck {
+
+    // One read, named for the report
+    private interface Check {
+
+        void run(Connection conn) throws SQLException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("payroll.resourceTracking") == null) {
+            System.setProperty("payroll.resourceTracking", "strict");
+        }
+        ResourceLeakTracker tracker = ResourceLeakTracker.getInstance();
+        if (tracker == null) {
+            System.out.println("Resource tracking is off; run without -Dpayroll.resourceTracking=off");
+            System.exit(2);
+        }
+
+        Object[][] checks = {
+            {"employee page", (Check) c -> EmployeeRepository.list("").page(c, Long.MIN_VALUE, 50)},
+            {"employee search", (Check) c -> EmployeeRepository.list("a").estimateRowCount(c)},
+            {"employee by id", (Check) c -> new EmployeeRepository(c).findById(1)},
+            {"employee profile", (Check) c -> new EmployeeRepository(c).findProfile(1)},
+            {"employee keys", (Check) c -> new EmployeeRepository(c).findKeys()},
+            {"timesheet page", (Check) c -> TimesheetRepository.allWithEmployee().page(c, Long.MIN_VALUE, 50)},
+            {"timesheet key jump", (Check) c -> TimesheetRepository.allWithEmployee().keyAt(c, Long.MIN_VALUE, 5)},
+            {"timesheets of employee", (Check) c -> new TimesheetRepository(c).findByEmployee(1)},
+            {"payroll page", (Check) c -> PayrollRepository.allWithTotals().page(c, Long.MIN_VALUE, 50)},
+            {"payrolls of employee", (Check) c -> new PayrollRepository(c).findByEmployee(1)},
+            {"payroll deductions", (Check) c -> new PayrollRepository(c).findDeductions(1)},
+            {"deductions", (Check) c -> new DeductionRepository(c).findAll()},
+            {"departments", (Check) c -> new DepartmentRepository(c).findAll()},
+            {"positions", (Check) c -> new PositionRepository(c).findAllWithDepartment()},
+            {"reference data", (Check) c -> ReferenceDataCache.getInstance().get(c)},
+            {"hourly rates", (Check) c -> HourlyRateCache.getInstance().get(c, 1)},
+            {"user accounts", (Check) c -> new UserRepository(c, "Employee").search("")},
+            {"login", (Check) c -> User.authenticate(c, "nobody", "wrong")},
+            {"what-if data", (Check) c -> PayrollSimulator.load(c)},
+        };
+
+        int failures = 0;
+        for (Object[] check : checks) {
+            try (Connection conn = AdminDBUtils.openConnection()) {
+                ((Check) check[1]).run(conn);
+            } catch (SQLException e) {
+                // Also thrown by close() when the check left a statement open
+                System.out.println("FAIL " + check[0] + ": " + e.getMessage());
+                failures++;
+                continue;
+            }
+            System.out.println("OK   " + check[0]);
+        }
+
+        try {
+            tracker.assertNoLeaks();
+        } catch (IllegalStateException e) {
+            System.out.println(e.getMessage());
+            failures++;
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+        System.out.println("No leaks");
+    }
+}
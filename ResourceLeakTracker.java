@@ -0,0 +1,289 @@
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Finds statements and result sets that are never closed (pool.resourceTracking in db.properties)
+// ConnectionPool wraps each Statement it hands out, and each ResultSet from it, and remembers where it was
+// created. Three kinds of leak are reported with that stack:
+//   - still open when the connection is returned to the pool: closed then, as the physical connection lives on
+//   - open for longer than pool.resourceLeakThresholdMs: reported by the pool housekeeper, left open.
+//     Statements meant to stay open, such as a streaming read, are exempted with expectLongLived()
+//   - garbage collected while still open: found by the pool housekeeper, and closed when the connection is
+//     returned. A result set keeps its statement reachable, so this covers exempted statements too.
+// In strict mode returning a connection with open statements also fails close(), and assertNoLeaks() fails
+// once anything was reported, so a test run or ResourceLeakCheck stops on the first leak.
+// Idle statements kept by the StatementCache are not tracked; a cached statement is tracked while borrowed.
+final class ResourceLeakTracker {
+
+    private static final Logger LOG = Logger.getLogger(ResourceLeakTracker.class.getName());
+
+    public enum Mode {
+        OFF, REPORT, STRICT
+    }
+
+    private static ResourceLeakTracker instance;
+
+    private final Mode mode;
+    private final long thresholdNanos;
+    private final Set<Tracked> open = ConcurrentHashMap.newKeySet();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();   // Statements the borrower dropped
+    private final AtomicLong leaks = new AtomicLong();
+    private final List<String> reports = new ArrayList<>();   // First few reports, for assertNoLeaks()
+
+    private ResourceLeakTracker(Mode mode, long thresholdMillis) {
+        this.mode = mode;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    // Created by the pool when pool.resourceTracking is report or strict; null otherwise
+    static synchronized ResourceLeakTracker getInstance() {
+        if (instance == null) {
+            DatabaseConfig config = DatabaseConfig.getInstance();
+            Mode mode = config.getResourceTracking();
+            if (mode == Mode.OFF) {
+                return null;
+            }
+            instance = new ResourceLeakTracker(mode, config.getResourceLeakThresholdMillis());
+        }
+        return instance;
+    }
+
+    // One open statement or result set
+    private static final class Tracked {
+
+        final String kind;           // "Statement" or "ResultSet"
+        final String sql;            // null for a plain Statement
+        final Object lease;          // Borrowed connection it belongs to
+        final AutoCloseable target;
+        final Throwable site;
+        final long openedNanos = System.nanoTime();
+        final Tracked parent;        // Statement of a result set
+        Reference<Object> proxy;     // Cleared when the borrower's proxy of a statement is collected
+        volatile boolean longLived;  // Exempt from the age check, with its result sets
+        volatile boolean reported;
+
+        Tracked(String kind, String sql, Object lease, AutoCloseable target, Tracked parent) {
+            this.kind = kind;
+            this.sql = sql;
+            this.lease = lease;
+            this.target = target;
+            this.parent = parent;
+            this.site = new Throwable(kind + " created here");
+        }
+
+        String describe() {
+            return kind + (sql != null ? " for " + sql.replaceAll("\\s+", " ") : "");
+        }
+    }
+
+    // --- WRAPPING ---
+    // Returns statement wrapped so it is tracked until closed; lease is the borrowed connection
+    Statement wrap(Statement statement, Class<?> type, Object[] args, Object lease) {
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        Tracked tracked = new Tracked("Statement", sql, lease, statement, null);
+        Object proxy = Proxy.newProxyInstance(ResourceLeakTracker.class.getClassLoader(),
+                new Class<?>[]{type}, new Handler(tracked, null));
+        tracked.proxy = new TrackedReference(proxy, tracked, collected);
+        open.add(tracked);
+        return (Statement) proxy;
+    }
+
+    // Enqueued when a statement proxy becomes unreachable; the Tracked keeps it reachable until closed
+    private static final class TrackedReference extends PhantomReference<Object> {
+
+        final Tracked tracked;
+
+        TrackedReference(Object proxy, Tracked tracked, ReferenceQueue<Object> queue) {
+            super(proxy, queue);
+            this.tracked = tracked;
+        }
+    }
+
+    // Called when lease is returned to the pool; closes what it left open
+    // Returns a description of the leaks, or null if there were none
+    String release(Object lease) {
+        List<Tracked> left = new ArrayList<>();
+        for (Tracked t : open) {
+            if (t.lease == lease && t.parent == null) {
+                left.add(t);
+            }
+        }
+        if (left.isEmpty()) {
+            return null;
+        }
+        String message = left.size() + " statement(s) still open when the connection was returned to the pool";
+        for (Tracked t : left) {
+            if (!t.reported) {
+                report(message + ": " + t.describe(), t);
+            }
+            close(t);
+        }
+        return message;
+    }
+
+    // Exempts a statement meant to stay open for a long time, such as a streaming read or the writer of an
+    // import, from the age check; leaving it open when the connection is returned is still reported
+    // Does nothing when tracking is off
+    static void expectLongLived(Statement statement) {
+        if (Proxy.isProxyClass(statement.getClass())
+                && Proxy.getInvocationHandler(statement) instanceof Handler) {
+            ((Handler) Proxy.getInvocationHandler(statement)).tracked.longLived = true;
+        }
+    }
+
+    // Called by the pool housekeeper; reports each resource once when it passes the age threshold
+    void reportOld() {
+        long now = System.nanoTime();
+        for (Tracked t : open) {
+            if (!t.reported && !t.longLived && (t.parent == null || !t.parent.longLived)
+                    && now - t.openedNanos > thresholdNanos) {
+                report(t.describe() + " open for " + TimeUnit.NANOSECONDS.toSeconds(now - t.openedNanos)
+                        + " s without being closed; possible leak", t);
+            }
+        }
+    }
+
+    // Called by the pool housekeeper; reports statements the borrower dropped without closing
+    // They stay open, on a connection that may be in use, until release() closes them
+    void reportCollected() {
+        Reference<?> ref;
+        while ((ref = collected.poll()) != null) {
+            reportCollected(ref);
+        }
+    }
+
+    private void reportCollected(Reference<?> ref) {
+        Tracked t = ((TrackedReference) ref).tracked;
+        if (open.contains(t) && !t.reported) {
+            report(t.describe() + " garbage collected without being closed", t);
+        }
+    }
+
+    // --- RESULTS ---
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getOpenCount() {
+        return open.size();
+    }
+
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    // Throws if any leak was reported, listing the first few; for test runs and ResourceLeakCheck
+    // Decided from what the tracker saw: statements release() had to close, and anything still open past the
+    // threshold. Dropped statements the collector has already found count as well, but are not waited for.
+    public void assertNoLeaks() {
+        reportOld();
+        reportCollected();
+        if (leaks.get() > 0) {
+            StringBuilder message = new StringBuilder(leaks.get() + " JDBC resource leak(s):");
+            synchronized (reports) {
+                for (String r : reports) {
+                    message.append("\n  ").append(r);
+                }
+            }
+            throw new IllegalStateException(message.toString());
+        }
+    }
+
+    private void report(String message, Tracked t) {
+        t.reported = true;
+        leaks.incrementAndGet();
+        synchronized (reports) {
+            if (reports.size() < 20) {
+                StackTraceElement origin = firstApplicationFrame(t.site);
+                reports.add(message + (origin != null ? " (at " + origin + ")" : ""));
+            }
+        }
+        LOG.log(Level.WARNING, message, t.site);
+    }
+
+    private void close(Tracked t) {
+        untrack(t);
+        try {
+            t.target.close();
+        } catch (Exception e) {
+            // Connection already gone
+        }
+    }
+
+    private void untrack(Tracked t) {
+        open.remove(t);
+        if (t.parent == null) {
+            open.removeIf(child -> child.parent == t); // Closing a statement closes its result sets
+        }
+    }
+
+    // Where in the application the resource was created, skipping the pool and JDK frames
+    private static StackTraceElement firstApplicationFrame(Throwable site) {
+        for (StackTraceElement e : site.getStackTrace()) {
+            String c = e.getClassName();
+            if (c.indexOf('.') < 0 && !c.startsWith("ResourceLeakTracker") && !c.startsWith("ConnectionPool")
+                    && !c.startsWith("QueryMetrics") && !c.startsWith("StatementCache") && !c.startsWith("$Proxy")) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    // The borrower's view of a statement or result set; close() stops tracking it
+    private final class Handler implements InvocationHandler {
+
+        private final Tracked tracked;
+        private final Object statement;   // Proxy of a result set's statement, reachable while the result set is
+
+        Handler(Tracked tracked, Object statement) {
+            this.tracked = tracked;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    untrack(tracked);
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (tracked.parent == null
+                    && (method.getName().startsWith("execute") || method.getName().equals("getResultSet"))) {
+                open.removeIf(child -> child.parent == tracked); // The previous result set is closed or returned again
+            }
+            Object result;
+            try {
+                result = method.invoke(tracked.target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet && tracked.parent == null) {
+                Tracked rs = new Tracked("ResultSet", tracked.sql, tracked.lease, (ResultSet) result, tracked);
+                open.add(rs);
+                return Proxy.newProxyInstance(ResourceLeakTracker.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class}, new Handler(rs, proxy));
+            }
+            return result;
+        }
+    }
+}
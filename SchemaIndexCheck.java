@@ -0,0 +1,91 @@
+
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Applies pending migrations, then runs EXPLAIN on the hot lookups and checks each one uses its index.
+// Exits with status 1 if any lookup would scan the table instead.
+// On the embedded H2 profile the index is read from H2's plan text, which names no candidate indexes.
+//   java SchemaIndexCheck
+//   java -cp .:h2.jar -Dpayroll.dbProfile=embedded SchemaIndexCheck
+public class SchemaIndexCheck {
+
+    // {table, query, index it should use}
+    private static final String[][] CHECKS = {
+        {"TIMESHEET", "SELECT 1 FROM TIMESHEET WHERE EmployeeID = 1 AND WorkDate = '2025-12-01'",
+            "uq_timesheet_employee_workdate"},
+        {"TIMESHEET", "SELECT TimesheetID, RenderedHours FROM TIMESHEET "
+            + "WHERE EmployeeID = 1 AND WorkDate BETWEEN '2025-12-01' AND '2025-12-15'",
+            "uq_timesheet_employee_workdate"},
+        {"GROSS_PAY", "SELECT 1 FROM GROSS_PAY WHERE TimesheetID = 1", "uq_gross_pay_timesheet"},
+        {"USER", "SELECT 1 FROM USER WHERE Password = 'secret'", "idx_user_password"},
+        {"PAYROLL", "SELECT 1 FROM PAYROLL "
+            + "WHERE EmployeeID = 1 AND Start_Cut_Off = '2025-12-01' AND End_Cut_Off = '2025-12-15'",
+            "idx_payroll_employee_cutoff"},
+        {"PAYROLL", "SELECT PayrollID FROM PAYROLL WHERE Start_Cut_Off = '2025-12-01' AND End_Cut_Off = '2025-12-15'",
+            "idx_payroll_cutoff"},
+        {"TIMESHEET", "SELECT EmployeeID, WorkDate FROM TIMESHEET WHERE WorkDate BETWEEN '2025-12-01' AND '2025-12-15'",
+            "idx_timesheet_workdate"},
+    };
+
+    public static void main(String[] args) throws Exception {
+        int failures = 0;
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            new SchemaMigrator(Paths.get(DatabaseConfig.getInstance().getMigrationsDir())).migrate(conn);
+
+            for (String[] check : CHECKS) {
+                String[] plan = explain(conn, check[0], check[1]);
+                String used = plan[0];
+                String possible = plan[1];
+                String result;
+                if (check[2].equalsIgnoreCase(used)) {
+                    result = "OK  ";
+                } else if (possible != null && possible.toLowerCase().contains(check[2].toLowerCase())) {
+                    // On a nearly empty table the optimizer may prefer a scan even though the index applies
+                    result = "OK? ";
+                } else {
+                    result = "FAIL";
+                    failures++;
+                }
+                System.out.printf("%s %-30s key=%-30s possible=%s%n      %s%n", result, check[2], used, possible,
+                        check[1]);
+            }
+        }
+        if (failures > 0) {
+            System.out.println(failures + " lookup(s) do not use their index");
+            System.exit(1);
+        }
+    }
+
+    // {key, possible_keys} of the plan row for the given table
+    private static String[] explain(Connection conn, String table, String query) throws SQLException {
+        if (DatabaseConfig.getInstance().isEmbedded()) {
+            return explainEmbedded(conn, table, query);
+        }
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("EXPLAIN " + query)) {
+            while (rs.next()) {
+                if (table.equalsIgnoreCase(rs.getString("table"))) {
+                    return new String[]{rs.getString("key"), rs.getString("possible_keys")};
+                }
+            }
+        }
+        return new String[]{null, null};
+    }
+
+    // H2 prints one PLAN column, with the index after the table: FROM "PUBLIC"."TIMESHEET" /* PUBLIC.index: ...
+    // A scan shows as TIMESHEET.tableScan
+    private static String[] explainEmbedded(Connection conn, String table, String query) throws SQLException {
+        Pattern index = Pattern.compile("FROM \"PUBLIC\"\\.\"" + Pattern.quote(table)
+                + "\"\\s*/\\*\\s*PUBLIC\\.([\\w.]+)", Pattern.CASE_INSENSITIVE);
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("EXPLAIN " + query)) {
+            if (rs.next()) {
+                Matcher m = index.matcher(rs.getString(1));
+                if (m.find()) {
+                    return new String[]{m.group(1), null};
+                }
+            }
+        }
+        return new String[]{null, null};
+    }
+}
@@ -0,0 +1,340 @@
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+// Brings the database schema up to date from numbered scripts, e.g. PayrollDB/migrations/V001__add_index.sql
+// Each script runs once, in version order, and is recorded in SCHEMA_VERSION when it succeeds
+// MySQL commits DDL immediately, so a script that fails halfway is rerun from the top on the next start:
+// keep one schema change per script so a rerun cannot trip over its own earlier statements
+//   java SchemaMigrator          applies pending scripts and lists the recorded versions
+public final class SchemaMigrator {
+
+    private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern DELIMITER = Pattern.compile("(?i)^\\s*DELIMITER\\s+(\\S+)\\s*$");
+
+    // Named server lock, so two clients starting together do not apply the same script twice
+    private static final String LOCK_NAME = "payrolldb.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS SCHEMA_VERSION ("
+            + "Version INT PRIMARY KEY, "
+            + "Description VARCHAR(200) NOT NULL, "
+            + "Script VARCHAR(255) NOT NULL, "
+            + "Checksum CHAR(64) NOT NULL, "
+            + "ExecutionMs INT NOT NULL, "
+            + "InstalledOn TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+
+    // One numbered script
+    public static final class Migration {
+
+        final int version;
+        final String description;   // From the file name, underscores as spaces
+        final Path script;
+        final String sql;
+        final String checksum;      // SHA-256 of the file, to notice scripts edited after they ran
+
+        Migration(int version, String description, Path script, String sql, String checksum) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.sql = sql;
+            this.checksum = checksum;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private final Path directory;
+
+    public SchemaMigrator(Path directory) {
+        this.directory = directory;
+    }
+
+    // Called from main() before the login form opens; failures are shown but do not stop the application
+    public static void migrateAtStartup() {
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        if (!config.isMigrateOnStartup()) {
+            return;
+        }
+        SchemaMigrator migrator = new SchemaMigrator(Paths.get(config.getMigrationsDir()));
+        try (Connection conn = ConnectionPool.getInstance().getConnection()) {
+            migrator.migrate(conn);
+        } catch (SQLException | IOException e) {
+            LOG.log(Level.SEVERE, "Schema migration failed", e);
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null,
+                    "Could not update the database schema: " + e.getMessage()
+                    + "\nThe application will run, but some features may be slow or unavailable.",
+                    "Database Error", JOptionPane.ERROR_MESSAGE));
+        }
+    }
+
+    // Applies every script newer than the database; returns how many were applied
+    public int migrate(Connection conn) throws SQLException, IOException {
+        List<Migration> migrations = findMigrations();
+        boolean locked = lock(conn);
+        try {
+            try (Statement st = conn.createStatement()) {
+                st.execute(CREATE_VERSION_TABLE);
+            }
+            Map<Integer, String> applied = appliedChecksums(conn);
+            int count = 0;
+            for (Migration m : migrations) {
+                String checksum = applied.get(m.version);
+                if (checksum == null) {
+                    apply(conn, m);
+                    count++;
+                } else if (!checksum.equals(m.checksum)) {
+                    LOG.warning(m.script.getFileName() + " was changed after it was applied; "
+                            + "put schema changes in a new script instead");
+                }
+            }
+            return count;
+        } finally {
+            if (locked) {
+                unlock(conn);
+            }
+        }
+    }
+
+    // Records every script up to version as applied without running it, for a database created from a
+    // schema snapshot that already contains them (see EmbeddedDatabase)
+    public void baseline(Connection conn, int version) throws SQLException, IOException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(CREATE_VERSION_TABLE);
+        }
+        Map<Integer, String> applied = appliedChecksums(conn);
+        for (Migration m : findMigrations()) {
+            if (m.version <= version && !applied.containsKey(m.version)) {
+                record(conn, m, 0);
+            }
+        }
+    }
+
+    // Scripts in the migrations directory, by version; an empty list if the directory does not exist
+    public List<Migration> findMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            LOG.warning("No migrations directory at " + directory.toAbsolutePath());
+            return migrations;
+        }
+        Map<Integer, Path> seen = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.sql")) {
+            for (Path file : files) {
+                Matcher m = SCRIPT_NAME.matcher(file.getFileName().toString());
+                if (!m.matches()) {
+                    LOG.warning("Ignoring " + file.getFileName() + ": migration scripts are named V<number>__<name>.sql");
+                    continue;
+                }
+                int version = Integer.parseInt(m.group(1));
+                Path other = seen.put(version, file);
+                if (other != null) {
+                    throw new IOException("Two migrations with version " + version + ": "
+                            + other.getFileName() + " and " + file.getFileName());
+                }
+                byte[] bytes = Files.readAllBytes(file);
+                migrations.add(new Migration(version, m.group(2).replace('_', ' '), file,
+                        new String(bytes, StandardCharsets.UTF_8), sha256(bytes)));
+            }
+        }
+        migrations.sort((a, b) -> Integer.compare(a.version, b.version));
+        return migrations;
+    }
+
+    private void apply(Connection conn, Migration m) throws SQLException {
+        LOG.info("Applying " + m.script.getFileName());
+        long start = System.nanoTime();
+        try (Statement st = conn.createStatement()) {
+            for (String sql : splitStatements(m.sql)) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    throw new SQLException(m.script.getFileName() + ": " + e.getMessage(), e.getSQLState(),
+                            e.getErrorCode(), e);
+                }
+            }
+        }
+        record(conn, m, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static void record(Connection conn, Migration m, long millis) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO SCHEMA_VERSION "
+                + "(Version, Description, Script, Checksum, ExecutionMs) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setInt(1, m.version);
+            ps.setString(2, m.description);
+            ps.setString(3, m.script.getFileName().toString());
+            ps.setString(4, m.checksum);
+            ps.setLong(5, millis);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Map<Integer, String> appliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery("SELECT Version, Checksum FROM SCHEMA_VERSION")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    // Returns false where the server has no GET_LOCK; the run then goes ahead unlocked
+    private static boolean lock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) {
+                    return true;
+                }
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+        throw new SQLException("Another client is updating the database schema; try again in a minute");
+    }
+
+    private static void unlock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            // The lock goes with the session if this fails
+        }
+    }
+
+    // Splits a script into statements the way the mysql client does: on ';' or the current DELIMITER,
+    // outside quotes and comments. Line comments are dropped; /* */ comments stay, as MySQL reads /*! ... */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String delimiter = ";";
+        char quote = 0;          // Open ', " or ` quote
+        boolean block = false;   // Inside /* */
+
+        for (String line : script.split("\r?\n", -1)) {
+            if (quote == 0 && !block) {
+                Matcher d = DELIMITER.matcher(line);
+                if (d.matches()) {
+                    addStatement(statements, current);
+                    delimiter = d.group(1);
+                    continue;
+                }
+            }
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (block) {
+                    current.append(c);
+                    if (line.startsWith("*/", i)) {
+                        current.append('/');
+                        block = false;
+                        i += 2;
+                        continue;
+                    }
+                } else if (quote != 0) {
+                    current.append(c);
+                    if (c == '\\' && quote != '`' && i + 1 < line.length()) {
+                        current.append(line.charAt(++i));
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (line.startsWith("/*", i)) {
+                    current.append("/*");
+                    block = true;
+                    i += 2;
+                    continue;
+                } else if (c == '#' || (line.startsWith("--", i)
+                        && (i + 2 == line.length() || Character.isWhitespace(line.charAt(i + 2))))) {
+                    break; // Rest of the line is a comment
+                } else if (line.startsWith(delimiter, i)) {
+                    addStatement(statements, current);
+                    i += delimiter.length();
+                    continue;
+                } else {
+                    if (c == '\'' || c == '"' || c == '`') {
+                        quote = c;
+                    }
+                    current.append(c);
+                }
+                i++;
+            }
+            current.append('\n');
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        if (!sql.isEmpty()) {
+            statements.add(sql);
+        }
+        current.setLength(0);
+    }
+
+    // One SHA-256 over the scripts up to version, ignoring line endings; EmbeddedDatabase records it to notice
+    // migrations added or edited after its schema snapshot was made
+    static String combinedChecksum(List<Migration> migrations, int version) {
+        StringBuilder all = new StringBuilder();
+        for (Migration m : migrations) {
+            if (m.version <= version) {
+                all.append('V').append(m.version).append('\n').append(m.sql.replace("\r\n", "\n")).append('\n');
+            }
+        }
+        return sha256(all.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE has SHA-256
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SchemaMigrator migrator = new SchemaMigrator(Paths.get(DatabaseConfig.getInstance().getMigrationsDir()));
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            int applied = migrator.migrate(conn);
+            System.out.println("Applied " + applied + " migration(s)");
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(
+                    "SELECT Version, Description, InstalledOn, ExecutionMs FROM SCHEMA_VERSION ORDER BY Version")) {
+                while (rs.next()) {
+                    System.out.printf("V%03d  %-45s %s  %d ms%n", rs.getInt(1), rs.getString(2),
+                            rs.getTimestamp(3), rs.getInt(4));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prepared statements kept open per physical connection, keyed by SQL text and statement options
+// prepareStatement() on a pooled connection checks a statement out of this cache; close() checks it back in,
+// so a repository's try-with-resources reuses the same server-side statement on every call
+final class StatementCache {
+
+    // Hit/miss counters across every pooled connection
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    // Settings a borrower may change; put back to what they were at checkout when the statement is returned,
+    // so e.g. PayrollPipeline's streaming fetch size or a query timeout never reaches the next borrower
+    private static final Set<String> RESET_ON_RETURN = new HashSet<>(Arrays.asList("setFetchSize",
+            "setFetchDirection", "setMaxRows", "setLargeMaxRows", "setMaxFieldSize", "setQueryTimeout"));
+
+    // Settings that cannot be read back to restore them; a statement with one of these changed is closed
+    private static final Set<String> NOT_REUSABLE = new HashSet<>(Arrays.asList("setEscapeProcessing",
+            "setCursorName", "setPoolable", "closeOnCompletion"));
+
+    private final int maxSize;
+
+    // Idle statements in least-recently-used order; a checked-out statement is not in the map,
+    // so two open statements with the same SQL never share one physical statement
+    private final LinkedHashMap<Key, List<PreparedStatement>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // --- GLOBAL COUNTERS ---
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static long getEvictions() {
+        return EVICTIONS.get();
+    }
+
+    public static double getHitRate() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static String describe() {
+        return String.format("Statement cache: %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+    // Whether a prepareStatement call with these arguments can be served from the cache
+    static boolean isCacheable(Method method, Object[] args) {
+        if (!method.getName().equals("prepareStatement") || args == null || !(args[0] instanceof String)) {
+            return false;
+        }
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1
+                || (types.length == 2 && types[1] == int.class)                                  // autoGeneratedKeys
+                || (types.length == 3 && types[1] == int.class && types[2] == int.class);         // type, concurrency
+    }
+
+    // Returns a statement wrapper whose close() puts the statement back into this cache
+    PreparedStatement prepare(Connection physical, Connection owner, Method method, Object[] args) throws SQLException {
+        Key key = new Key(args);
+        PreparedStatement ps = take(key);
+        if (ps == null) {
+            MISSES.incrementAndGet();
+            try {
+                ps = (PreparedStatement) method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw asSqlException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        } else {
+            HITS.incrementAndGet();
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new CachedStatement(key, ps, owner));
+    }
+
+    // Closes every idle statement (the physical connection is going away)
+    synchronized void closeAll() {
+        for (List<PreparedStatement> list : idle.values()) {
+            for (PreparedStatement ps : list) {
+                closeQuietly(ps);
+            }
+        }
+        idle.clear();
+        idleCount = 0;
+    }
+
+    private synchronized PreparedStatement take(Key key) {
+        List<PreparedStatement> list = idle.get(key);
+        while (list != null && !list.isEmpty()) {
+            PreparedStatement ps = list.remove(list.size() - 1);
+            idleCount--;
+            if (list.isEmpty()) {
+                idle.remove(key);
+            }
+            if (!isClosed(ps)) {
+                return ps;
+            }
+        }
+        return null;
+    }
+
+    // saved holds the borrower-changeable settings as they were at checkout, or null if none was changed
+    private void giveBack(Key key, PreparedStatement ps, int[] saved, boolean reusable) {
+        try {
+            if (ps.isClosed()) {
+                return;
+            }
+            if (!reusable) {
+                ps.close();
+                return;
+            }
+            // Leave no state behind for the next user of this statement
+            ResultSet open = ps.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+            if (saved != null) {
+                restoreSettings(ps, saved);
+            }
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return;
+        }
+
+        List<PreparedStatement> evicted = new ArrayList<>();
+        synchronized (this) {
+            idle.computeIfAbsent(key, k -> new ArrayList<>(1)).add(ps);
+            idleCount++;
+            Iterator<Map.Entry<Key, List<PreparedStatement>>> eldest = idle.entrySet().iterator();
+            while (idleCount > maxSize && eldest.hasNext()) {
+                Map.Entry<Key, List<PreparedStatement>> entry = eldest.next();
+                evicted.addAll(entry.getValue());
+                idleCount -= entry.getValue().size();
+                eldest.remove();
+            }
+        }
+        EVICTIONS.addAndGet(evicted.size());
+        for (PreparedStatement old : evicted) {
+            closeQuietly(old);
+        }
+    }
+
+    // Fetch size, fetch direction, max rows, max field size and query timeout
+    private static int[] saveSettings(PreparedStatement ps) throws SQLException {
+        return new int[]{ps.getFetchSize(), ps.getFetchDirection(), ps.getMaxRows(), ps.getMaxFieldSize(),
+            ps.getQueryTimeout()};
+    }
+
+    // Max rows first: some drivers refuse a fetch size above the current max rows
+    private static void restoreSettings(PreparedStatement ps, int[] saved) throws SQLException {
+        ps.setMaxRows(saved[2]);
+        ps.setMaxFieldSize(saved[3]);
+        ps.setQueryTimeout(saved[4]);
+        ps.setFetchDirection(saved[1]);
+        ps.setFetchSize(saved[0]);
+    }
+
+    private static boolean isClosed(PreparedStatement ps) {
+        try {
+            return ps.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+            // Connection already gone
+        }
+    }
+
+    private static SQLException asSqlException(Throwable t) {
+        return t instanceof SQLException ? (SQLException) t : new SQLException(t);
+    }
+
+    // SQL text plus the prepareStatement options it was created with
+    private static final class Key {
+
+        private final String sql;
+        private final int option1;
+        private final int option2;
+
+        Key(Object[] args) {
+            this.sql = (String) args[0];
+            this.option1 = args.length > 1 ? (Integer) args[1] : -1;
+            this.option2 = args.length > 2 ? (Integer) args[2] : -1;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return option1 == k.option1 && option2 == k.option2 && sql.equals(k.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, option1, option2);
+        }
+    }
+
+    // The borrower's view of a cached statement; close() returns it instead of closing it
+    private final class CachedStatement implements InvocationHandler {
+
+        private final Key key;
+        private final PreparedStatement target;
+        private final Connection owner;
+        private boolean returned;
+        private int[] saved;              // Settings at checkout, once the borrower changes one
+        private boolean reusable = true;
+
+        CachedStatement(Key key, PreparedStatement target, Connection owner) {
+            this.key = key;
+            this.target = target;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        giveBack(key, target, saved, reusable);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || target.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Statement is closed");
+            }
+            ConnectionPool.assertNotOnEdt(method.getName());
+            if (saved == null && RESET_ON_RETURN.contains(method.getName())) {
+                saved = saveSettings(target);
+            } else if (NOT_REUSABLE.contains(method.getName())) {
+                reusable = false;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,566 @@
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bulk timesheet import from an attendance export: EmployeeID,WorkDate,RenderedHours per line
+// (WorkDate as YYYY-MM-DD; a header line and quoted fields are allowed). The file is read line by line, or from
+// MAPPED_MIN_BYTES on by AttendanceFileReader on several threads, and written in chunks of CHUNK_SIZE rows, each
+// one batched INSERT in its own transaction, so memory use does not grow with the file. Employee IDs are checked against an in-memory set and (EmployeeID, WorkDate)
+// duplicates, in the file or already on record, against a bitmap of days per employee, instead of two queries
+// per row.
+// Rejected lines are written to an error report next to the file. Affected payrolls are recomputed at the end.
+//   java TimesheetCsvImporter attendance.csv [errors.csv]
+public class TimesheetCsvImporter {
+
+    // Rows per transaction and executeBatch call
+    public static final int CHUNK_SIZE = 1000;
+
+    // Files at least this large are memory-mapped and parsed in parallel
+    static final long MAPPED_MIN_BYTES = 64L << 20;
+
+    private static final BigDecimal MAX_HOURS = new BigDecimal("24");
+
+    private static final int FIRST_DAY = (int) LocalDate.of(2000, 1, 1).toEpochDay();
+
+    private static final String INSERT
+            = "INSERT INTO TIMESHEET (EmployeeID, WorkDate, RenderedHours) VALUES (?, ?, ?)";
+
+    // (EmployeeID, WorkDate) pairs on record for a range of dates; uses idx_timesheet_workdate (V007)
+    private static final String SELECT_EXISTING
+            = "SELECT EmployeeID, WorkDate FROM TIMESHEET WHERE WorkDate BETWEEN ? AND ?";
+
+    private final Connection connection;
+    private final int chunkSize;
+
+    private BitSet employees;                           // Valid EmployeeIDs
+    // Pairs on record or imported: one bit per day from FIRST_DAY for each employee, about 1 KB per employee
+    // whatever the number of rows; earlier dates, and employees added during the import, in a hash set
+    private BitSet[] takenDays;
+    private final LongHashSet taken = new LongHashSet();   // See key()
+    private LocalDate loadedFrom;                       // Dates whose pairs on record have been read
+    private LocalDate loadedTo;
+    private long imported;
+
+    public TimesheetCsvImporter(Connection connection) {
+        this(connection, CHUNK_SIZE);
+    }
+
+    public TimesheetCsvImporter(Connection connection, int chunkSize) {
+        this.connection = connection;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    // Counts and timing of one import
+    public static final class Result {
+
+        private final long lines;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+        private final Path errorReport;   // null when nothing was rejected
+
+        Result(long lines, long imported, long rejected, long elapsedNanos, Path errorReport) {
+            this.lines = lines;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+            this.errorReport = errorReport;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public Path getErrorReport() {
+            return errorReport;
+        }
+
+        public double getSeconds() {
+            return elapsedNanos / 1e9;
+        }
+
+        // Data lines processed per second, imported or rejected
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : lines / getSeconds();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d line(s): %d imported, %d rejected in %.1f s (%.0f rows/s)%s", lines, imported,
+                    rejected, getSeconds(), getRowsPerSecond(),
+                    errorReport != null ? "\nRejected lines: " + errorReport : "");
+        }
+    }
+
+    // Lines that passed validation, waiting to be written, one array per column
+    // AttendanceFileReader fills a subclass that reads the text of a line back from the file only when needed
+    static class Chunk {
+
+        final long[] lineNos;
+        final int[] employeeIds;
+        final int[] workDays;       // Epoch days
+        final int[] hundredths;     // RenderedHours * 100
+        private final String[] texts;   // Lines as read, for the error report; null when text() is overridden
+        int size;
+
+        Chunk(int capacity, boolean keepText) {
+            lineNos = new long[capacity];
+            employeeIds = new int[capacity];
+            workDays = new int[capacity];
+            hundredths = new int[capacity];
+            texts = keepText ? new String[capacity] : null;
+        }
+
+        void add(long lineNo, int employeeId, int workDay, int hours, String text) {
+            lineNos[size] = lineNo;
+            employeeIds[size] = employeeId;
+            workDays[size] = workDay;
+            hundredths[size] = hours;
+            if (texts != null) {
+                texts[size] = text;
+            }
+            size++;
+        }
+
+        boolean isFull() {
+            return size == lineNos.length;
+        }
+
+        String text(int i) {
+            return texts[i];
+        }
+    }
+
+    // Error report with the default name: attendance.csv -> attendance.errors.csv
+    public static Path defaultErrorReport(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return file.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".errors.csv");
+    }
+
+    // Imports every valid line; the error report is written only if a line is rejected
+    public Result importFile(Path file, Path errorReport) throws IOException, SQLException {
+        long start = System.nanoTime();
+        loadEmployees();
+
+        ErrorReport errors = new ErrorReport(errorReport);
+        long lines;
+        try {
+            lines = Files.size(file) >= MAPPED_MIN_BYTES ? readMapped(file, errors) : readLines(file, errors);
+        } finally {
+            errors.close();
+        }
+
+        // Payrolls already covering the imported dates get their GROSS_PAY rows
+        if (imported > 0) {
+            new PayrollRecomputer(connection).recomputeDirty();
+        }
+        return new Result(lines, imported, errors.count, System.nanoTime() - start,
+                errors.count > 0 ? errorReport : null);
+    }
+
+    // Returns the number of data lines read
+    private long readLines(Path file, ErrorReport errors) throws IOException, SQLException {
+        long lines = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Chunk chunk = new Chunk(chunkSize, true);
+            long lineNo = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && line.startsWith("\uFEFF")) {
+                    line = line.substring(1); // Byte order mark written by spreadsheet programs
+                }
+                if (line.trim().isEmpty() || (lineNo == 1 && isHeader(line))) {
+                    continue;
+                }
+                lines++;
+                if (parse(lineNo, line, chunk, errors) && chunk.isFull()) {
+                    imported += writeChunk(chunk, errors);
+                    chunk = new Chunk(chunkSize, true);
+                }
+            }
+            imported += writeChunk(chunk, errors);
+        }
+        return lines;
+    }
+
+    private long readMapped(Path file, ErrorReport errors) throws IOException, SQLException {
+        try (AttendanceFileReader in = new AttendanceFileReader(file, employees, chunkSize)) {
+            Chunk chunk;
+            while ((chunk = in.next(errors)) != null) {
+                imported += writeChunk(chunk, errors);
+            }
+            return in.getLines();
+        }
+    }
+
+    private void loadEmployees() throws SQLException {
+        employees = new BitSet();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT EmployeeID FROM EMPLOYEE");
+                ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                employees.set(rs.getInt(1));
+            }
+        }
+        takenDays = new BitSet[employees.length()];
+    }
+
+    // Checks one line and adds it to chunk; returns false after reporting it if it is invalid
+    private boolean parse(long lineNo, String line, Chunk chunk, ErrorReport errors) throws IOException {
+        List<String> fields = splitCsv(line);
+        if (fields.size() < 3) {
+            errors.reject(lineNo, "Expected EmployeeID,WorkDate,RenderedHours", line);
+            return false;
+        }
+        int employeeId;
+        try {
+            employeeId = Integer.parseInt(fields.get(0).trim());
+        } catch (NumberFormatException e) {
+            errors.reject(lineNo, "Employee ID must be a number", line);
+            return false;
+        }
+        if (employeeId <= 0 || !employees.get(employeeId)) {
+            errors.reject(lineNo, "Employee ID does not exist", line);
+            return false;
+        }
+        LocalDate workDate;
+        try {
+            workDate = LocalDate.parse(fields.get(1).trim());
+        } catch (DateTimeParseException e) {
+            errors.reject(lineNo, "Work Date must be YYYY-MM-DD", line);
+            return false;
+        }
+        BigDecimal hours;
+        try {
+            hours = new BigDecimal(fields.get(2).trim());
+        } catch (NumberFormatException e) {
+            errors.reject(lineNo, "Rendered Hours must be a number", line);
+            return false;
+        }
+        if (hours.signum() < 0 || hours.compareTo(MAX_HOURS) > 0 || hours.stripTrailingZeros().scale() > 2) {
+            errors.reject(lineNo, "Rendered Hours must be between 0 and 24 with at most 2 decimals", line);
+            return false;
+        }
+        chunk.add(lineNo, employeeId, (int) workDate.toEpochDay(), hours.movePointRight(2).intValueExact(), line);
+        return true;
+    }
+
+    // Writes one chunk in a transaction; returns how many rows were inserted
+    private int writeChunk(Chunk chunk, ErrorReport errors) throws SQLException, IOException {
+        if (chunk.size == 0) {
+            return 0;
+        }
+        int from = chunk.workDays[0];
+        int to = from;
+        for (int i = 1; i < chunk.size; i++) {
+            from = Math.min(from, chunk.workDays[i]);
+            to = Math.max(to, chunk.workDays[i]);
+        }
+        loadTaken(LocalDate.ofEpochDay(from), LocalDate.ofEpochDay(to));
+
+        int[] accepted = new int[chunk.size];   // Indexes into chunk
+        int count = 0;
+        for (int i = 0; i < chunk.size; i++) {
+            if (take(chunk.employeeIds[i], chunk.workDays[i])) {
+                accepted[count++] = i;
+            } else {
+                errors.reject(chunk.lineNos[i], "A timesheet for this employee on this date already exists",
+                        chunk.text(i));
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        boolean written = false;
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            for (int k = 0; k < count; k++) {
+                bind(ps, chunk, accepted[k]);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            markDirty(chunk, accepted, count);   // Committed with the rows, so no imported day is missed
+            connection.commit();
+            written = true;
+        } catch (SQLException e) {
+            connection.rollback();
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+        if (!written) {
+            // Most likely a row entered by someone else meanwhile; find it by writing the chunk a row at a time
+            return writeRowByRow(chunk, accepted, count, errors);
+        }
+        return count;
+    }
+
+    private int writeRowByRow(Chunk chunk, int[] rows, int count, ErrorReport errors)
+            throws SQLException, IOException {
+        int writtenCount = 0;
+        PayrollDirtyTracker dirty = new PayrollDirtyTracker(connection);
+        boolean previousAutoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement ps = connection.prepareStatement(INSERT)) {
+            // Each row commits together with its dirty mark
+            for (int k = 0; k < count; k++) {
+                int i = rows[k];
+                bind(ps, chunk, i);
+                try {
+                    ps.executeUpdate();
+                    dirty.markTimesheet(chunk.employeeIds[i], LocalDate.ofEpochDay(chunk.workDays[i]));
+                    connection.commit();
+                    writtenCount++;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    // SQLState class 23 = constraint violation: a duplicate, or an employee deleted meanwhile
+                    if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                        throw e;
+                    }
+                    errors.reject(chunk.lineNos[i], "Rejected by the database: " + e.getMessage(), chunk.text(i));
+                }
+            }
+        } finally {
+            connection.setAutoCommit(previousAutoCommit);
+        }
+        return writtenCount;
+    }
+
+    private static void bind(PreparedStatement ps, Chunk chunk, int i) throws SQLException {
+        ps.setInt(1, chunk.employeeIds[i]);
+        ps.setDate(2, Date.valueOf(LocalDate.ofEpochDay(chunk.workDays[i])));
+        ps.setBigDecimal(3, BigDecimal.valueOf(chunk.hundredths[i], 2));
+    }
+
+    // One dirty range per employee for the whole chunk, in the chunk's transaction
+    private void markDirty(Chunk chunk, int[] rows, int count) throws SQLException {
+        Map<Integer, int[]> ranges = new HashMap<>();
+        for (int k = 0; k < count; k++) {
+            int day = chunk.workDays[rows[k]];
+            int[] range = ranges.computeIfAbsent(chunk.employeeIds[rows[k]], id -> new int[]{day, day});
+            range[0] = Math.min(range[0], day);
+            range[1] = Math.max(range[1], day);
+        }
+        List<PayrollDirtyTracker.Entry> entries = new ArrayList<>(ranges.size());
+        for (Map.Entry<Integer, int[]> e : ranges.entrySet()) {
+            entries.add(new PayrollDirtyTracker.Entry(e.getKey(), LocalDate.ofEpochDay(e.getValue()[0]),
+                    LocalDate.ofEpochDay(e.getValue()[1]), false));
+        }
+        new PayrollDirtyTracker(connection).markAll(entries);
+    }
+
+    // Adds the pairs on record for dates in from..to that have not been read yet
+    // An export covers a day or a cut-off, so this is one small range query per file in practice
+    private void loadTaken(LocalDate from, LocalDate to) throws SQLException {
+        if (loadedFrom == null) {
+            readTaken(from, to);
+            loadedFrom = from;
+            loadedTo = to;
+            return;
+        }
+        if (from.isBefore(loadedFrom)) {
+            readTaken(from, loadedFrom.minusDays(1));
+            loadedFrom = from;
+        }
+        if (to.isAfter(loadedTo)) {
+            readTaken(loadedTo.plusDays(1), to);
+            loadedTo = to;
+        }
+    }
+
+    private void readTaken(LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_EXISTING)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    take(rs.getInt(1), (int) rs.getDate(2).toLocalDate().toEpochDay());
+                }
+            }
+        }
+    }
+
+    // Records the pair; returns false if it was already recorded
+    private boolean take(int employeeId, int workDay) {
+        if (workDay < FIRST_DAY || employeeId >= takenDays.length) {
+            return taken.add(key(employeeId, workDay));
+        }
+        BitSet days = takenDays[employeeId];
+        if (days == null) {
+            days = new BitSet();
+            takenDays[employeeId] = days;
+        }
+        int bit = workDay - FIRST_DAY;
+        if (days.get(bit)) {
+            return false;
+        }
+        days.set(bit);
+        return true;
+    }
+
+    // EmployeeID in the high half, epoch day in the low half; never 0 as EmployeeIDs start at 1
+    private static long key(int employeeId, int workDay) {
+        return ((long) employeeId << 32) | (workDay & 0xFFFFFFFFL);
+    }
+
+    private static boolean isHeader(String line) {
+        List<String> fields = splitCsv(line);
+        return !fields.isEmpty() && !fields.get(0).trim().matches("\\d+");
+    }
+
+    // Comma-separated fields; a field may be quoted, with "" for a quote inside it
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Rejected lines as CSV: line number, reason, the line as read; the file is created on the first rejection
+    // Also used by PunchLogIngestor, whose logs are large enough to need the line limit, and EmployeeImporter
+    static final class ErrorReport {
+
+        private final Path file;
+        private final long maxLines;   // Rejections past this are counted but not written
+        private BufferedWriter out;
+        long count;
+
+        ErrorReport(Path file) {
+            this(file, Long.MAX_VALUE);
+        }
+
+        ErrorReport(Path file, long maxLines) {
+            this.file = file;
+            this.maxLines = maxLines;
+        }
+
+        void reject(long lineNo, String reason, String line) throws IOException {
+            if (++count > maxLines) {
+                return;
+            }
+            if (out == null) {
+                out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                out.write("Line,Reason,Text");
+                out.newLine();
+            }
+            out.write(lineNo + ",\"" + reason.replace("\"", "\"\"") + "\",\"" + line.replace("\"", "\"\"") + "\"");
+            out.newLine();
+        }
+
+        void close() throws IOException {
+            if (out != null) {
+                if (count > maxLines) {
+                    out.write("# " + (count - maxLines) + " more line(s) rejected and not listed");
+                    out.newLine();
+                }
+                out.close();
+            }
+        }
+    }
+
+    // Set of long keys with open addressing, without boxing every key as a HashSet<Long> would
+    static final class LongHashSet {
+
+        private long[] slots = new long[1 << 12];   // 0 = empty
+        private int size;
+
+        // Returns false if key was already present; key must not be 0
+        boolean add(long key) {
+            if ((size + 1) * 2 > slots.length) {
+                grow();
+            }
+            int mask = slots.length - 1;
+            int i = hash(key) & mask;
+            while (slots[i] != 0) {
+                if (slots[i] == key) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            slots[i] = key;
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[old.length * 2];
+            int mask = slots.length - 1;
+            for (long key : old) {
+                if (key != 0) {
+                    int i = hash(key) & mask;
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    slots[i] = key;
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java TimesheetCsvImporter <file.csv> [errors.csv]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        Path errors = args.length > 1 ? Paths.get(args[1]) : defaultErrorReport(file);
+        try (Connection conn = AdminDBUtils.openConnection()) {
+            System.out.println(new TimesheetCsvImporter(conn).importFile(file, errors));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+
+// SQL for the TIMESHEET table
+public class TimesheetRepository extends Repository {
+
+    // One day of one employee
+    public static final class Timesheet {
+
+        public int timesheetId;
+        public String workDate;     // YYYY-MM-DD
+        public BigDecimal standardHours;
+        public BigDecimal renderedHours;
+        public BigDecimal overtimeHours;
+    }
+
+    public TimesheetRepository(Connection connection) {
+        super(connection);
+    }
+
+    // Rows of (TimesheetID, EmployeeID, FirstName, LastName, WorkDate, StandardHours, RenderedHours, OvertimeHours),
+    // read a page at a time by TimesheetID
+    public static KeysetQuery allWithEmployee() {
+        return new KeysetQuery("SELECT t.TimesheetID, t.EmployeeID, e.FirstName, e.LastName, t.WorkDate, "
+                + "t.StandardHours, t.RenderedHours, t.OvertimeHours "
+                + "FROM TIMESHEET t JOIN EMPLOYEE e ON t.EmployeeID = e.EmployeeID",
+                "t.TimesheetID", "TIMESHEET");
+    }
+
+    // Timesheets of one employee
+    public List<Timesheet> findByEmployee(int employeeId) throws SQLException {
+        return queryList("SELECT TimesheetID, WorkDate, StandardHours, RenderedHours, OvertimeHours "
+                + "FROM TIMESHEET WHERE EmployeeID = ?", rs -> {
+                    Timesheet t = new Timesheet();
+                    t.timesheetId = rs.getInt("TimesheetID");
+                    t.workDate = dateText(rs, "WorkDate");
+                    t.standardHours = rs.getBigDecimal("StandardHours");
+                    t.renderedHours = rs.getBigDecimal("RenderedHours");
+                    t.overtimeHours = rs.getBigDecimal("OvertimeHours");
+                    return t;
+                }, employeeId);
+    }
+
+    // Whether another timesheet already covers this employee and date (excludeTimesheetId may be null)
+    public boolean existsForDate(int employeeId, String workDate, Integer excludeTimesheetId) throws SQLException {
+        if (excludeTimesheetId == null) {
+            return exists("SELECT 1 FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate = ?", employeeId, workDate);
+        }
+        return exists("SELECT 1 FROM TIMESHEET WHERE EmployeeID = ? AND WorkDate = ? AND TimesheetID <> ?",
+                employeeId, workDate, excludeTimesheetId);
+    }
+
+    public void insert(int employeeId, String workDate, double renderedHours) throws SQLException {
+        execute("INSERT INTO TIMESHEET (EmployeeID, WorkDate, RenderedHours) VALUES (?, ?, ?)",
+                employeeId, workDate, renderedHours);
+    }
+
+    public void update(int timesheetId, int employeeId, String workDate, double renderedHours) throws SQLException {
+        execute("UPDATE TIMESHEET SET EmployeeID = ?, WorkDate = ?, RenderedHours = ? WHERE TimesheetID = ?",
+                employeeId, workDate, renderedHours, timesheetId);
+    }
+
+    public void delete(int timesheetId) throws SQLException {
+        execute("DELETE FROM TIMESHEET WHERE TimesheetID = ?", timesheetId);
+    }
+}
@@ -8,11 +8,6 @@ public class User {
     private String username;
     private String role;
 
-    // Database connection info
-    private static final String URL = "jdbc:mysql://127.0.0.1:3306/payrolldb";
-    private static final String DB_USER = "root";
-    private static final String DB_PASS = "1234";
-
     // Constructors
     public User() {
         // Default constructor
@@ -68,13 +63,13 @@ public class User {
                 + ", role='" + role + '\'' + '}';
     }
 
-    // Authenticate user by username and password
+    // Authenticate user by username and password on the caller's connection
     // Returns User object if valid, null if invalid
-    public static User authenticate(String username, String password) {
+    public static User authenticate(Connection conn, String username, String password) throws SQLException {
         User user = null;
         String query = "SELECT UserID, EmployeeID, Username, Role FROM USER WHERE Username=? AND Password=?";
 
-        try (Connection conn = DriverManager.getConnection(URL, DB_USER, DB_PASS); PreparedStatement ps = conn.prepareStatement(query)) {
+        try (PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, username); // Bind username
             ps.setString(2, password); // Bind password
@@ -89,8 +84,6 @@ public class User {
                     );
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace(); // Log DB errors
         }
 
         return user; // Null if authentication failed
@@ -101,7 +94,7 @@ public class User {
     private static boolean usernameExists(String username) {
         String query = "SELECT 1 FROM USER WHERE Username=?";
 
-        try (Connection conn = DriverManager.getConnection(URL, DB_USER, DB_PASS); PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, username); // Bind username
             try (ResultSet rs = ps.executeQuery()) {
@@ -118,7 +111,7 @@ public class User {
     private static boolean passwordExists(String password) {
         String query = "SELECT 1 FROM USER WHERE Password=?";
 
-        try (Connection conn = DriverManager.getConnection(URL, DB_USER, DB_PASS); PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setString(1, password); // Bind password
             try (ResultSet rs = ps.executeQuery()) {
@@ -146,7 +139,7 @@ public class User {
 
         String query = "INSERT INTO USER (EmployeeID, Username, Password, Role) VALUES (?, ?, ?, ?)";
 
-        try (Connection conn = DriverManager.getConnection(URL, DB_USER, DB_PASS); PreparedStatement ps = conn.prepareStatement(query)) {
+        try (Connection conn = ConnectionPool.getInstance().getConnection(); PreparedStatement ps = conn.prepareStatement(query)) {
 
             ps.setInt(1, employeeID); // Bind employee ID
             ps.setString(2, username); // Bind username
@@ -0,0 +1,88 @@
+
+import java.sql.*;
+import java.util.List;
+
+// SQL for the USER table, limited to the accounts of one role ("Admin" or "Employee")
+public class UserRepository extends Repository {
+
+    private final String role;
+
+    // One account; employeeName and role are only filled in by search()
+    public static final class Account {
+
+        public int userId;
+        public int employeeId;
+        public String employeeName;
+        public String username;
+        public String role;
+    }
+
+    public UserRepository(Connection connection, String role) {
+        super(connection);
+        this.role = role;
+    }
+
+    // Accounts with the employee's name, optionally filtered by username or name
+    public List<Account> search(String text) throws SQLException {
+        String query = "SELECT u.UserID, u.EmployeeID, CONCAT(e.FirstName,' ',e.LastName) AS Name, u.Username, u.Role "
+                + "FROM USER u JOIN EMPLOYEE e ON u.EmployeeID = e.EmployeeID "
+                + "WHERE u.Role=? ";
+        if (text == null || text.isEmpty()) {
+            return queryList(query + "ORDER BY u.UserID", UserRepository::listed, role);
+        }
+        String like = "%" + text + "%";
+        return queryList(query + "AND (u.Username LIKE ? OR e.FirstName LIKE ? OR e.LastName LIKE ?) ORDER BY u.UserID",
+                UserRepository::listed, role, like, like, like);
+    }
+
+    // The account, or null if there is no such account in this role
+    public Account findById(int userId) throws SQLException {
+        return queryOne("SELECT UserID, EmployeeID, Username FROM USER WHERE UserID=? AND Role=?",
+                UserRepository::account, userId, role);
+    }
+
+    private static Account account(ResultSet rs) throws SQLException {
+        Account a = new Account();
+        a.userId = rs.getInt("UserID");
+        a.employeeId = rs.getInt("EmployeeID");
+        a.username = rs.getString("Username");
+        return a;
+    }
+
+    private static Account listed(ResultSet rs) throws SQLException {
+        Account a = account(rs);
+        a.employeeName = rs.getString("Name");
+        a.role = rs.getString("Role");
+        return a;
+    }
+
+    // Whether the employee already has an account in this role
+    public boolean hasAccount(int employeeId) throws SQLException {
+        return exists("SELECT 1 FROM USER WHERE EmployeeID=? AND Role=?", employeeId, role);
+    }
+
+    // Usernames are unique across roles
+    public boolean usernameTaken(String username) throws SQLException {
+        return exists("SELECT 1 FROM USER WHERE Username=?", username);
+    }
+
+    public void insert(int employeeId, String username, String password) throws SQLException {
+        execute("INSERT INTO USER (EmployeeID, Username, Password, Role) VALUES (?, ?, ?, ?)",
+                employeeId, username, password, role);
+    }
+
+    // A null password leaves the current one unchanged
+    public void update(int userId, int employeeId, String username, String password) throws SQLException {
+        if (password == null) {
+            execute("UPDATE USER SET EmployeeID=?, Username=? WHERE UserID=? AND Role=?",
+                    employeeId, username, userId, role);
+        } else {
+            execute("UPDATE USER SET EmployeeID=?, Username=?, Password=? WHERE UserID=? AND Role=?",
+                    employeeId, username, password, userId, role);
+        }
+    }
+
+    public void delete(int userId) throws SQLException {
+        execute("DELETE FROM USER WHERE UserID=? AND Role=?", userId, role);
+    }
+}
@@ -0,0 +1,38 @@
+
+import java.awt.*;
+import java.util.function.Consumer;
+import javax.swing.*;
+
+// Shared UI for the What-If buttons: loads the simulator and shows current vs hypothetical totals
+public final class WhatIfDialog {
+
+    private WhatIfDialog() {
+    }
+
+    // Passes then the cached simulator, or loads payroll data for simulation in the background first
+    // On failure the error is shown and then is not called
+    public static void load(Component parent, PayrollSimulator cached, Consumer<PayrollSimulator> then) {
+        if (cached != null) {
+            then.accept(cached);
+            return;
+        }
+        AsyncLoader.run(parent, "Error loading payroll data for simulation", PayrollSimulator::load, then);
+    }
+
+    // Runs the scenario and shows the result; nothing is written to the database
+    public static void show(Component parent, PayrollSimulator simulator, String description,
+            PayrollSimulator.Scenario scenario) {
+        PayrollSimulator.Outcome outcome = simulator.simulate(scenario);
+
+        JTextArea text = new JTextArea("What-if: " + description + "\n"
+                + "Applied to all " + simulator.getPayrollCount() + " payrolls on record.\n\n"
+                + outcome);
+        text.setEditable(false);
+        text.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        text.setBackground(new Color(45, 45, 45));
+        text.setForeground(Color.WHITE);
+        text.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+
+        JOptionPane.showMessageDialog(parent, text, "What-If Payroll (not saved)", JOptionPane.PLAIN_MESSAGE);
+    }
+}